@@ -0,0 +1,771 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model;
+
+import gnu.trove.set.hash.THashSet;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link Mapping} backed by dense arrays indexed by the element identifiers.
+ * <p>
+ * The state and the location of each VM, and the state of each node are stored
+ * into arrays indexed by the element identifiers. The VMs hosted by a node,
+ * the ready VMs, and the online or offline nodes are chained into intrusive linked lists. The sets returned by
+ * {@link #getRunningVMs(Node)}, {@link #getSleepingVMs(Node)}, {@link #getReadyVMs()},
+ * {@link #getOnlineNodes()} and {@link #getOfflineNodes()} are then read-only views
+ * that are created in O(1), with a O(1) {@code contains()} and {@code size()}.
+ * <p>
+ * {@link #copy()} is O(1): the copy shares the arrays with the original mapping
+ * until one of them is modified. The first modification then copies the arrays.
+ * <p>
+ * This implementation is efficient when the element identifiers are dense, which is
+ * the case with a {@link DefaultElementBuilder}.
+ * Like {@link DefaultMapping}, this implementation is not thread-safe.
+ *
+ * @author Fabien Hermenier
+ */
+public class ArrayMapping extends AbstractMapping {
+
+    private static final byte NONE = 0;
+
+    private static final byte RUNNING = 1;
+
+    private static final byte SLEEPING = 2;
+
+    private static final byte READY = 3;
+
+    private static final byte ONLINE = 1;
+
+    private static final byte OFFLINE = 2;
+
+    private static final int NIL = -1;
+
+    private Store store;
+
+    /**
+     * {@code true} iff the store is not shared with another mapping.
+     */
+    private boolean owner;
+
+    /**
+     * Make a new mapping.
+     */
+    public ArrayMapping() {
+        this(Store.DEFAULT_CAPACITY, Store.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Make a new mapping with an initial capacity.
+     * The capacity grows when needed.
+     *
+     * @param nbVMs   the expected number of VMs
+     * @param nbNodes the expected number of nodes
+     */
+    public ArrayMapping(int nbVMs, int nbNodes) {
+        store = new Store(Math.max(1, nbVMs), Math.max(1, nbNodes));
+        owner = true;
+    }
+
+    private ArrayMapping(Store s) {
+        store = s;
+        owner = false;
+    }
+
+    /**
+     * Get the store to modify. Copy it first if it is shared.
+     */
+    private Store write() {
+        if (!owner) {
+            store = store.copy();
+            owner = true;
+        }
+        return store;
+    }
+
+    @Override
+    public boolean isRunning(VM v) {
+        return store.vmState(v.id()) == RUNNING;
+    }
+
+    @Override
+    public boolean isSleeping(VM v) {
+        return store.vmState(v.id()) == SLEEPING;
+    }
+
+    @Override
+    public boolean isReady(VM v) {
+        return store.vmState(v.id()) == READY;
+    }
+
+    @Override
+    public boolean isOnline(Node n) {
+        return store.nodeState(n.id()) == ONLINE;
+    }
+
+    @Override
+    public boolean isOffline(Node n) {
+        return store.nodeState(n.id()) == OFFLINE;
+    }
+
+    @Override
+    public boolean addRunningVM(VM vm, Node n) {
+        return place(vm, n, RUNNING);
+    }
+
+    @Override
+    public boolean addSleepingVM(VM vm, Node n) {
+        return place(vm, n, SLEEPING);
+    }
+
+    private boolean place(VM vm, Node n, byte state) {
+        if (!isOnline(n)) {
+            return false;
+        }
+        Store s = write();
+        int v = vm.id();
+        s.ensureVM(v);
+        if (s.vmState[v] == state && s.place[v] == n.id()) {
+            return true;
+        }
+        if (s.vmState[v] == NONE) {
+            s.nbVMs++;
+        } else {
+            s.unlinkVM(v);
+        }
+        s.vms[v] = vm;
+        s.vmState[v] = state;
+        s.place[v] = n.id();
+        s.linkVM(v);
+        return true;
+    }
+
+    @Override
+    public boolean addReadyVM(VM vm) {
+        Store s = write();
+        int v = vm.id();
+        s.ensureVM(v);
+        if (s.vmState[v] == READY) {
+            return true;
+        }
+        if (s.vmState[v] == NONE) {
+            s.nbVMs++;
+        } else {
+            s.unlinkVM(v);
+        }
+        s.vms[v] = vm;
+        s.vmState[v] = READY;
+        s.place[v] = NIL;
+        s.linkVM(v);
+        return true;
+    }
+
+    @Override
+    public boolean remove(VM vm) {
+        if (!contains(vm)) {
+            return false;
+        }
+        Store s = write();
+        int v = vm.id();
+        s.unlinkVM(v);
+        s.vms[v] = null;
+        s.vmState[v] = NONE;
+        s.place[v] = NIL;
+        s.nbVMs--;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Node n) {
+        int id = n.id();
+        byte st = store.nodeState(id);
+        if (st == NONE || (st == ONLINE && store.nbHosted(id) > 0)) {
+            return false;
+        }
+        Store s = write();
+        s.unlinkNode(id);
+        s.nodes[id] = null;
+        s.nodeState[id] = NONE;
+        return true;
+    }
+
+    @Override
+    public boolean addOnlineNode(Node n) {
+        return setNodeState(n, ONLINE);
+    }
+
+    @Override
+    public boolean addOfflineNode(Node n) {
+        int id = n.id();
+        if (store.nodeState(id) == ONLINE && store.nbHosted(id) > 0) {
+            return false;
+        }
+        return setNodeState(n, OFFLINE);
+    }
+
+    private boolean setNodeState(Node n, byte state) {
+        int id = n.id();
+        if (store.nodeState(id) == state) {
+            return true;
+        }
+        Store s = write();
+        s.ensureNode(id);
+        s.nodes[id] = n;
+        if (s.nodeState[id] != NONE) {
+            s.unlinkNode(id);
+        }
+        s.nodeState[id] = state;
+        s.linkNode(id);
+        return true;
+    }
+
+    @Override
+    public Set<Node> getOnlineNodes() {
+        return new NodeView(ONLINE);
+    }
+
+    @Override
+    public Set<Node> getOfflineNodes() {
+        return new NodeView(OFFLINE);
+    }
+
+    @Override
+    public Set<VM> getRunningVMs() {
+        return getRunningVMs(getOnlineNodes());
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs() {
+        return getSleepingVMs(getOnlineNodes());
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Node n) {
+        return new VMView(RUNNING, n.id());
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Node n) {
+        return new VMView(SLEEPING, n.id());
+    }
+
+    @Override
+    public Set<VM> getReadyVMs() {
+        return new VMView(READY, NIL);
+    }
+
+    @Override
+    public Set<VM> getAllVMs() {
+        Set<VM> s = new THashSet<>(store.nbVMs);
+        s.addAll(getReadyVMs());
+        for (Node n : getOnlineNodes()) {
+            s.addAll(getRunningVMs(n));
+            s.addAll(getSleepingVMs(n));
+        }
+        return s;
+    }
+
+    @Override
+    public Set<Node> getAllNodes() {
+        Set<Node> ns = new THashSet<>(getNbNodes());
+        ns.addAll(getOnlineNodes());
+        ns.addAll(getOfflineNodes());
+        return ns;
+    }
+
+    @Override
+    public Node getVMLocation(VM vm) {
+        int v = vm.id();
+        byte st = store.vmState(v);
+        if (st == RUNNING || st == SLEEPING) {
+            return store.nodes[store.place[v]];
+        }
+        return null;
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Collection<Node> ns) {
+        Set<VM> vms = new THashSet<>();
+        for (Node n : ns) {
+            vms.addAll(getRunningVMs(n));
+        }
+        return vms;
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Collection<Node> ns) {
+        Set<VM> vms = new THashSet<>();
+        for (Node n : ns) {
+            vms.addAll(getSleepingVMs(n));
+        }
+        return vms;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copy is made in O(1) as the backend is copied lazily.
+     */
+    @Override
+    public Mapping copy() {
+        owner = false;
+        return new ArrayMapping(store);
+    }
+
+    @Override
+    public boolean contains(Node n) {
+        return store.nodeState(n.id()) != NONE;
+    }
+
+    @Override
+    public boolean contains(VM vm) {
+        return store.vmState(vm.id()) != NONE;
+    }
+
+    @Override
+    public void clear() {
+        store = new Store(store.vmState.length, store.nodeState.length);
+        owner = true;
+    }
+
+    @Override
+    public void clearNode(Node u) {
+        int id = u.id();
+        if (store.nodeState(id) != ONLINE || store.nbHosted(id) == 0) {
+            return;
+        }
+        Store s = write();
+        clearVMs(s, s.runHead, id);
+        clearVMs(s, s.sleepHead, id);
+    }
+
+    private static void clearVMs(Store s, int[] heads, int node) {
+        for (int v = heads[node]; v != NIL; v = s.vmNext[v]) {
+            s.vms[v] = null;
+            s.vmState[v] = NONE;
+            s.place[v] = NIL;
+            s.nbVMs--;
+        }
+        heads[node] = NIL;
+        if (heads == s.runHead) {
+            s.runCount[node] = 0;
+        } else {
+            s.sleepCount[node] = 0;
+        }
+    }
+
+    @Override
+    public void clearAllVMs() {
+        Store s = write();
+        Arrays.fill(s.vms, null);
+        Arrays.fill(s.vmState, NONE);
+        Arrays.fill(s.place, NIL);
+        Arrays.fill(s.runHead, NIL);
+        Arrays.fill(s.sleepHead, NIL);
+        Arrays.fill(s.runCount, 0);
+        Arrays.fill(s.sleepCount, 0);
+        s.readyHead = NIL;
+        s.nbReady = 0;
+        s.nbVMs = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+
+        for (Node n : getOnlineNodes()) {
+            buf.append(n);
+            buf.append(':');
+            if (this.getRunningVMs(n).isEmpty() && this.getSleepingVMs(n).isEmpty()) {
+                buf.append(" - ");
+            }
+            for (VM vm : this.getRunningVMs(n)) {
+                buf.append(' ').append(vm);
+            }
+            for (VM vm : this.getSleepingVMs(n)) {
+                buf.append(" (").append(vm).append(')');
+            }
+            buf.append('\n');
+        }
+
+        for (Node n : getOfflineNodes()) {
+            buf.append('(').append(n).append(")\n");
+        }
+
+        buf.append("READY");
+
+        for (VM vm : this.getReadyVMs()) {
+            buf.append(' ').append(vm);
+        }
+
+        return buf.append('\n').toString();
+    }
+
+    @Override
+    public int getNbNodes() {
+        return store.nodeCount[ONLINE] + store.nodeCount[OFFLINE];
+    }
+
+    @Override
+    public int getNbVMs() {
+        return store.nbVMs;
+    }
+
+    /**
+     * The arrays backing a mapping.
+     */
+    private static final class Store {
+
+        static final int DEFAULT_CAPACITY = 16;
+
+        VM[] vms;
+
+        byte[] vmState;
+
+        int[] place;
+
+        int[] vmNext;
+
+        int[] vmPrev;
+
+        Node[] nodes;
+
+        byte[] nodeState;
+
+        int[] nodeNext;
+
+        int[] nodePrev;
+
+        int[] runHead;
+
+        int[] runCount;
+
+        int[] sleepHead;
+
+        int[] sleepCount;
+
+        int readyHead;
+
+        int nbReady;
+
+        /**
+         * Heads and sizes of the online and the offline node lists, indexed by state.
+         */
+        int[] nodeHead;
+
+        int[] nodeCount;
+
+        int nbVMs;
+
+        Store(int nbVMs, int nbNodes) {
+            vms = new VM[nbVMs];
+            vmState = new byte[nbVMs];
+            place = filled(nbVMs);
+            vmNext = filled(nbVMs);
+            vmPrev = filled(nbVMs);
+            nodes = new Node[nbNodes];
+            nodeState = new byte[nbNodes];
+            nodeNext = filled(nbNodes);
+            nodePrev = filled(nbNodes);
+            runHead = filled(nbNodes);
+            runCount = new int[nbNodes];
+            sleepHead = filled(nbNodes);
+            sleepCount = new int[nbNodes];
+            readyHead = NIL;
+            nodeHead = new int[]{NIL, NIL, NIL};
+            nodeCount = new int[3];
+        }
+
+        private Store(Store s) {
+            vms = s.vms.clone();
+            vmState = s.vmState.clone();
+            place = s.place.clone();
+            vmNext = s.vmNext.clone();
+            vmPrev = s.vmPrev.clone();
+            nodes = s.nodes.clone();
+            nodeState = s.nodeState.clone();
+            nodeNext = s.nodeNext.clone();
+            nodePrev = s.nodePrev.clone();
+            runHead = s.runHead.clone();
+            runCount = s.runCount.clone();
+            sleepHead = s.sleepHead.clone();
+            sleepCount = s.sleepCount.clone();
+            readyHead = s.readyHead;
+            nbReady = s.nbReady;
+            nodeHead = s.nodeHead.clone();
+            nodeCount = s.nodeCount.clone();
+            nbVMs = s.nbVMs;
+        }
+
+        Store copy() {
+            return new Store(this);
+        }
+
+        private static int[] filled(int size) {
+            int[] a = new int[size];
+            Arrays.fill(a, NIL);
+            return a;
+        }
+
+        private static int[] grow(int[] a, int size) {
+            int old = a.length;
+            int[] b = Arrays.copyOf(a, size);
+            Arrays.fill(b, old, size, NIL);
+            return b;
+        }
+
+        private static int newSize(int cur, int id) {
+            return Math.max(id + 1, cur * 2);
+        }
+
+        byte vmState(int v) {
+            return v >= 0 && v < vmState.length ? vmState[v] : NONE;
+        }
+
+        byte nodeState(int n) {
+            return n >= 0 && n < nodeState.length ? nodeState[n] : NONE;
+        }
+
+        int nbHosted(int n) {
+            return runCount[n] + sleepCount[n];
+        }
+
+        void ensureVM(int v) {
+            if (v >= vmState.length) {
+                int size = newSize(vmState.length, v);
+                vms = Arrays.copyOf(vms, size);
+                vmState = Arrays.copyOf(vmState, size);
+                place = grow(place, size);
+                vmNext = grow(vmNext, size);
+                vmPrev = grow(vmPrev, size);
+            }
+        }
+
+        void ensureNode(int n) {
+            if (n >= nodeState.length) {
+                int size = newSize(nodeState.length, n);
+                nodes = Arrays.copyOf(nodes, size);
+                nodeState = Arrays.copyOf(nodeState, size);
+                nodeNext = grow(nodeNext, size);
+                nodePrev = grow(nodePrev, size);
+                runHead = grow(runHead, size);
+                runCount = Arrays.copyOf(runCount, size);
+                sleepHead = grow(sleepHead, size);
+                sleepCount = Arrays.copyOf(sleepCount, size);
+            }
+        }
+
+        /**
+         * Insert a VM in the list associated to its state and its location.
+         */
+        void linkVM(int v) {
+            int head;
+            switch (vmState[v]) {
+                case RUNNING:
+                    head = runHead[place[v]];
+                    runHead[place[v]] = v;
+                    runCount[place[v]]++;
+                    break;
+                case SLEEPING:
+                    head = sleepHead[place[v]];
+                    sleepHead[place[v]] = v;
+                    sleepCount[place[v]]++;
+                    break;
+                default:
+                    head = readyHead;
+                    readyHead = v;
+                    nbReady++;
+                    break;
+            }
+            vmPrev[v] = NIL;
+            vmNext[v] = head;
+            if (head != NIL) {
+                vmPrev[head] = v;
+            }
+        }
+
+        /**
+         * Remove a VM from the list associated to its state and its location.
+         */
+        void unlinkVM(int v) {
+            int prev = vmPrev[v];
+            int next = vmNext[v];
+            if (next != NIL) {
+                vmPrev[next] = prev;
+            }
+            if (prev != NIL) {
+                vmNext[prev] = next;
+            }
+            switch (vmState[v]) {
+                case RUNNING:
+                    if (prev == NIL) {
+                        runHead[place[v]] = next;
+                    }
+                    runCount[place[v]]--;
+                    break;
+                case SLEEPING:
+                    if (prev == NIL) {
+                        sleepHead[place[v]] = next;
+                    }
+                    sleepCount[place[v]]--;
+                    break;
+                default:
+                    if (prev == NIL) {
+                        readyHead = next;
+                    }
+                    nbReady--;
+                    break;
+            }
+            vmNext[v] = NIL;
+            vmPrev[v] = NIL;
+        }
+
+        void linkNode(int n) {
+            byte st = nodeState[n];
+            int head = nodeHead[st];
+            nodePrev[n] = NIL;
+            nodeNext[n] = head;
+            if (head != NIL) {
+                nodePrev[head] = n;
+            }
+            nodeHead[st] = n;
+            nodeCount[st]++;
+        }
+
+        void unlinkNode(int n) {
+            byte st = nodeState[n];
+            int prev = nodePrev[n];
+            int next = nodeNext[n];
+            if (next != NIL) {
+                nodePrev[next] = prev;
+            }
+            if (prev != NIL) {
+                nodeNext[prev] = next;
+            } else {
+                nodeHead[st] = next;
+            }
+            nodeCount[st]--;
+            nodeNext[n] = NIL;
+            nodePrev[n] = NIL;
+        }
+    }
+
+    /**
+     * A read-only view over a list of VMs.
+     */
+    private final class VMView extends AbstractSet<VM> {
+
+        private final byte state;
+
+        private final int node;
+
+        VMView(byte st, int n) {
+            state = st;
+            node = n;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof VM)) {
+                return false;
+            }
+            int v = ((VM) o).id();
+            return store.vmState(v) == state && (state == READY || store.place[v] == node);
+        }
+
+        @Override
+        public int size() {
+            if (state == READY) {
+                return store.nbReady;
+            }
+            if (store.nodeState(node) != ONLINE) {
+                return 0;
+            }
+            return state == RUNNING ? store.runCount[node] : store.sleepCount[node];
+        }
+
+        private int head() {
+            if (state == READY) {
+                return store.readyHead;
+            }
+            if (store.nodeState(node) != ONLINE) {
+                return NIL;
+            }
+            return state == RUNNING ? store.runHead[node] : store.sleepHead[node];
+        }
+
+        @Override
+        public Iterator<VM> iterator() {
+            return new Iterator<VM>() {
+                private int cur = head();
+
+                @Override
+                public boolean hasNext() {
+                    return cur != NIL;
+                }
+
+                @Override
+                public VM next() {
+                    if (cur == NIL) {
+                        throw new NoSuchElementException();
+                    }
+                    VM v = store.vms[cur];
+                    cur = store.vmNext[cur];
+                    return v;
+                }
+            };
+        }
+    }
+
+    /**
+     * A read-only view over the online or the offline nodes.
+     */
+    private final class NodeView extends AbstractSet<Node> {
+
+        private final byte state;
+
+        NodeView(byte st) {
+            state = st;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Node && store.nodeState(((Node) o).id()) == state;
+        }
+
+        @Override
+        public int size() {
+            return store.nodeCount[state];
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            return new Iterator<Node>() {
+                private int cur = store.nodeHead[state];
+
+                @Override
+                public boolean hasNext() {
+                    return cur != NIL;
+                }
+
+                @Override
+                public Node next() {
+                    if (cur == NIL) {
+                        throw new NoSuchElementException();
+                    }
+                    Node n = store.nodes[cur];
+                    cur = store.nodeNext[cur];
+                    return n;
+                }
+            };
+        }
+    }
+}
@@ -190,6 +190,9 @@ public class DefaultAttributes implements Attributes {
         if (o == this) {
             return true;
         }
+        if (o instanceof PersistentAttributes) {
+            return o.equals(this);
+        }
         if (!o.getClass().equals(getClass())) {
             return false;
         }
@@ -7,6 +7,7 @@
 package org.btrplace.model;
 
 import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
 
 import java.util.*;
 
@@ -38,9 +39,23 @@ public class DefaultModel implements Model {
      * @param eb the builder to use
      */
     public DefaultModel(ElementBuilder eb) {
+        this(eb, new DefaultMapping());
+    }
+
+    /**
+     * Make a new instance relying on a given element builders and a given mapping implementation.
+     * For example, an {@link ArrayMapping} makes the copies of the model cheaper, while a {@link PersistentMapping}
+     * makes the copies of the mapping O(1). The copies of the model are then O(1)
+     * once its {@link org.btrplace.model.view.ShareableResource}s are persistent.
+     * The copies of this model use the same mapping implementation.
+     *
+     * @param eb  the builder to use
+     * @param map the mapping to use. It is expected to be empty
+     */
+    public DefaultModel(ElementBuilder eb, Mapping map) {
         this.resources = new HashMap<>();
         attrs = new DefaultAttributes();
-        cfg = new DefaultMapping();
+        cfg = map;
         elemBuilder = eb;
     }
 
@@ -117,8 +132,7 @@ public class DefaultModel implements Model {
 
     @Override
     public Model copy() {
-        DefaultModel m = new DefaultModel(elemBuilder.copy());
-        m.cfg = cfg.copy();
+        DefaultModel m = new DefaultModel(elemBuilder.copy(), cfg.copy());
         for (ModelView rc : resources.values()) {
             m.attach(rc.copy());
         }
@@ -126,6 +140,34 @@ public class DefaultModel implements Model {
         return m;
     }
 
+    /**
+     * Copy the model into a model that is cheap to copy.
+     * The copy relies on a {@link PersistentMapping}, on {@link PersistentAttributes} and on persistent {@link ShareableResource}s.
+     * The other views are copied as is. The copies of the resulting model are then O(1),
+     * except for the views that are not shareable resources.
+     *
+     * @return a new model
+     */
+    public DefaultModel persistentCopy() {
+        Mapping map = new PersistentMapping();
+        MappingUtils.fill(cfg, map);
+        DefaultModel m = new DefaultModel(elemBuilder.copy(), map);
+        for (ModelView v : resources.values()) {
+            if (v instanceof ShareableResource) {
+                ShareableResource rc = (ShareableResource) v;
+                ShareableResource cpy = new ShareableResource(rc.getResourceIdentifier(),
+                        rc.getDefaultCapacity(), rc.getDefaultConsumption(), true);
+                rc.forEachNodeId((id, val) -> cpy.setCapacity(new Node(id), val) != null);
+                rc.forEachVMId((id, val) -> cpy.setConsumption(new VM(id), val) != null);
+                m.attach(cpy);
+            } else {
+                m.attach(v.copy());
+            }
+        }
+        m.setAttributes(new PersistentAttributes(attrs));
+        return m;
+    }
+
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder();
@@ -0,0 +1,320 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model;
+
+import org.btrplace.util.PersistentIntObjectMap;
+
+import java.util.*;
+
+/**
+ * An implementation of {@link Attributes} that is cheap to copy.
+ * <p>
+ * The attributes of each element are stored into {@link PersistentIntObjectMap}s indexed
+ * by the element identifiers. The attributes of an element are never modified once stored
+ * but replaced by a modified copy. {@link #copy()} is then O(1) and it leaves the original
+ * attributes untouched, while a modification costs O(log n) plus the number of attributes of the element.
+ * This is the attributes of the models made by {@link DefaultModel#persistentCopy()}.
+ * The attributes are equal to the {@link DefaultAttributes} having the same content.
+ *
+ * @author Fabien Hermenier
+ */
+public class PersistentAttributes implements Attributes {
+
+    private PersistentIntObjectMap<Map<String, Object>> vmAttrs;
+    private PersistentIntObjectMap<Map<String, Object>> nodeAttrs;
+
+    /**
+     * Make a new empty list of attributes.
+     */
+    public PersistentAttributes() {
+        vmAttrs = new PersistentIntObjectMap<>(null);
+        nodeAttrs = new PersistentIntObjectMap<>(null);
+    }
+
+    /**
+     * Make new attributes filled with the content of other attributes.
+     *
+     * @param attrs the attributes to copy
+     */
+    public PersistentAttributes(Attributes attrs) {
+        this();
+        for (Element e : attrs.getDefined()) {
+            Set<String> keys = attrs.getKeys(e);
+            if (keys.isEmpty()) {
+                continue;
+            }
+            Map<String, Object> m = new HashMap<>(keys.size());
+            for (String k : keys) {
+                m.put(k, attrs.get(e, k));
+            }
+            backend(e).put(e.id(), m);
+        }
+    }
+
+    private PersistentAttributes(PersistentAttributes backend) {
+        vmAttrs = backend.vmAttrs.copy();
+        nodeAttrs = backend.nodeAttrs.copy();
+    }
+
+    /**
+     * Get the map storing the attributes of an element.
+     *
+     * @return the map. {@code null} if the element is neither a VM or a node
+     */
+    private PersistentIntObjectMap<Map<String, Object>> backend(Element e) {
+        if (e instanceof VM) {
+            return vmAttrs;
+        } else if (e instanceof Node) {
+            return nodeAttrs;
+        }
+        return null;
+    }
+
+    private Map<String, Object> attributes(Element e) {
+        PersistentIntObjectMap<Map<String, Object>> m = backend(e);
+        return m == null ? null : m.get(e.id());
+    }
+
+    private boolean putObject(Element e, String k, Object v) {
+        PersistentIntObjectMap<Map<String, Object>> b = backend(e);
+        if (b == null) {
+            return false;
+        }
+        Map<String, Object> cur = b.get(e.id());
+        Map<String, Object> m = cur == null ? new HashMap<>() : new HashMap<>(cur);
+        boolean res = m.put(k, v) != null;
+        b.put(e.id(), m);
+        return res;
+    }
+
+    @Override
+    public Object get(Element e, String k) {
+        Map<String, Object> m = attributes(e);
+        return m == null ? null : m.get(k);
+    }
+
+    @Override
+    public int get(Element e, String k, int def) {
+        if (isSet(e, k)) {
+            return (int) get(e, k);
+        }
+        return def;
+    }
+
+    @Override
+    @SuppressWarnings("squid:S1166")
+    public double get(Element e, String k, double def) {
+        if (isSet(e, k)) {
+            try {
+                return (int) get(e, k);
+            } catch (@SuppressWarnings("unused") ClassCastException ex) {
+                //Not an integer
+            }
+            //Try the double
+            return (double) get(e, k);
+        }
+        return def;
+
+    }
+
+    @Override
+    public String get(Element e, String k, String def) {
+        if (isSet(e, k)) {
+            return (String) get(e, k);
+        }
+        return def;
+
+    }
+
+    @Override
+    public boolean get(Element e, String k, boolean def) {
+        if (isSet(e, k)) {
+            return (Boolean) get(e, k);
+        }
+        return def;
+
+    }
+
+    @Override
+    public boolean isSet(Element e, String k) {
+        Map<String, Object> m = attributes(e);
+        return m != null && m.containsKey(k);
+    }
+
+    @Override
+    public boolean unset(Element e, String k) {
+        if (!isSet(e, k)) {
+            return false;
+        }
+        PersistentIntObjectMap<Map<String, Object>> b = backend(e);
+        Map<String, Object> m = new HashMap<>(b.get(e.id()));
+        m.remove(k);
+        b.put(e.id(), m.isEmpty() ? null : m);
+        return true;
+    }
+
+    @Override
+    public Attributes copy() {
+        return new PersistentAttributes(this);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        vmAttrs.forEach((id, m) -> {
+            b.append(String.format("%s:%s%n", VM.toString(id), stringify(m)));
+            return true;
+        });
+        nodeAttrs.forEach((id, m) -> {
+            b.append(String.format("%s:%s%n", Node.toString(id), stringify(m)));
+            return true;
+        });
+        return b.toString();
+    }
+
+    private static String stringify(Map<String, Object> map) {
+        StringBuilder b = new StringBuilder();
+        for (Map.Entry<String, Object> attr : map.entrySet()) {
+            b.append(" <").append(attr.getKey()).append(',');
+            Object val = attr.getValue();
+            if (val instanceof String) {
+                b.append('"').append(val).append('"');
+            } else {
+                b.append(val);
+            }
+            b.append('>');
+        }
+        return b.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The hash code is the one of the {@link DefaultAttributes} having the same content.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 + hash(vmAttrs)) + hash(nodeAttrs);
+    }
+
+    private static int hash(PersistentIntObjectMap<Map<String, Object>> attrs) {
+        int[] h = {0};
+        attrs.forEach((id, m) -> {
+            h[0] += id ^ m.hashCode();
+            return true;
+        });
+        return h[0];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof PersistentAttributes) {
+            PersistentAttributes that = (PersistentAttributes) o;
+            return vmAttrs.equals(that.vmAttrs) && nodeAttrs.equals(that.nodeAttrs);
+        }
+        return o instanceof DefaultAttributes && sameContent(this, (Attributes) o);
+    }
+
+    /**
+     * Check if two attributes have the same content.
+     *
+     * @param a the first attributes
+     * @param b the second attributes
+     * @return {@code true} iff both attributes define the same values for the same elements
+     */
+    static boolean sameContent(Attributes a, Attributes b) {
+        Set<Element> defined = a.getDefined();
+        if (!defined.equals(b.getDefined())) {
+            return false;
+        }
+        for (Element e : defined) {
+            Set<String> keys = a.getKeys(e);
+            if (!keys.equals(b.getKeys(e))) {
+                return false;
+            }
+            for (String k : keys) {
+                if (!Objects.equals(a.get(e, k), b.get(e, k))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<Element> getDefined() {
+        Set<Element> s = new HashSet<>(vmAttrs.size() + nodeAttrs.size());
+        vmAttrs.forEach((id, m) -> s.add(new VM(id)));
+        nodeAttrs.forEach((id, m) -> s.add(new Node(id)));
+        return s;
+    }
+
+    @Override
+    public void clear() {
+        vmAttrs = new PersistentIntObjectMap<>(null);
+        nodeAttrs = new PersistentIntObjectMap<>(null);
+    }
+
+    @Override
+    public boolean put(Element e, String k, boolean b) {
+        return putObject(e, k, b);
+    }
+
+    @Override
+    public boolean put(Element e, String k, int n) {
+        return putObject(e, k, n);
+    }
+
+    @Override
+    public boolean put(Element e, String k, String s) {
+        return putObject(e, k, s);
+    }
+
+    @Override
+    public boolean put(Element e, String k, double d) {
+        return putObject(e, k, d);
+    }
+
+    @Override
+    public Set<String> getKeys(Element e) {
+        Map<String, Object> m = attributes(e);
+        return m == null ? Collections.emptySet() : Collections.unmodifiableSet(m.keySet());
+    }
+
+    @Override
+    @SuppressWarnings("squid:S1166")
+    public boolean castAndPut(Element e, String k, String v) {
+        String x = v.toLowerCase().trim();
+        if ("true".equals(x)) {
+            return put(e, k, true);
+        } else if ("false".equals(x)) {
+            return put(e, k, false);
+        }
+        try {
+            return put(e, k, Integer.parseInt(x));
+        } catch (@SuppressWarnings("unused") NumberFormatException ignored) {
+            //Not an int
+        }
+
+        try {
+            return put(e, k, Double.parseDouble(x));
+        } catch (@SuppressWarnings("unused") NumberFormatException ignored) {
+            //not a double either
+        }
+
+        return put(e, k, v);
+    }
+
+    @Override
+    public void clear(Element e) {
+        PersistentIntObjectMap<Map<String, Object>> b = backend(e);
+        if (b != null && b.clear(e.id()) != null) {
+            }
+    }
+}
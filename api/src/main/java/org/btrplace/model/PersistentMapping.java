@@ -0,0 +1,699 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model;
+
+import gnu.trove.set.hash.THashSet;
+import org.btrplace.util.PersistentIntMap;
+import org.btrplace.util.PersistentIntObjectMap;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link Mapping} backed by persistent maps indexed by the element identifiers.
+ * <p>
+ * The state and the location of each VM, and the state of each node are stored
+ * into {@link PersistentIntMap}s indexed by the element identifiers. The VMs hosted by a node,
+ * the ready VMs, and the online or offline nodes are chained into intrusive linked lists. The sets returned by
+ * {@link #getRunningVMs(Node)}, {@link #getSleepingVMs(Node)}, {@link #getReadyVMs()},
+ * {@link #getOnlineNodes()} and {@link #getOfflineNodes()} are then read-only views
+ * that are created in O(1), with a O(log n) {@code contains()} and a O(1) {@code size()}.
+ * <p>
+ * {@link #copy()} is O(1): the copy shares the maps with the original mapping,
+ * which is left untouched. A modification of any of them then costs O(log n) as only the modified paths are copied.
+ * This makes the mapping suitable to take numerous snapshots of a model, for example
+ * when a reconfiguration plan is applied or checked action by action.
+ * <p>
+ * This implementation is efficient when the element identifiers are dense, which is
+ * the case with a {@link DefaultElementBuilder}.
+ * Like {@link DefaultMapping}, this implementation is not thread-safe. A mapping can however
+ * be read and copied by several threads at the same time as long as none of them modifies it.
+ *
+ * @author Fabien Hermenier
+ */
+public class PersistentMapping extends AbstractMapping {
+
+    private static final int NONE = 0;
+
+    private static final int RUNNING = 1;
+
+    private static final int SLEEPING = 2;
+
+    private static final int READY = 3;
+
+    private static final int ONLINE = 1;
+
+    private static final int OFFLINE = 2;
+
+    private static final int NIL = -1;
+
+    private Store store;
+
+    /**
+     * Make a new mapping.
+     */
+    public PersistentMapping() {
+        store = new Store();
+    }
+
+    private PersistentMapping(Store s) {
+        store = s;
+    }
+
+    @Override
+    public boolean isRunning(VM v) {
+        return store.vmState(v.id()) == RUNNING;
+    }
+
+    @Override
+    public boolean isSleeping(VM v) {
+        return store.vmState(v.id()) == SLEEPING;
+    }
+
+    @Override
+    public boolean isReady(VM v) {
+        return store.vmState(v.id()) == READY;
+    }
+
+    @Override
+    public boolean isOnline(Node n) {
+        return store.nodeState(n.id()) == ONLINE;
+    }
+
+    @Override
+    public boolean isOffline(Node n) {
+        return store.nodeState(n.id()) == OFFLINE;
+    }
+
+    @Override
+    public boolean addRunningVM(VM vm, Node n) {
+        return place(vm, n, RUNNING);
+    }
+
+    @Override
+    public boolean addSleepingVM(VM vm, Node n) {
+        return place(vm, n, SLEEPING);
+    }
+
+    private boolean place(VM vm, Node n, int state) {
+        if (!isOnline(n)) {
+            return false;
+        }
+        Store s = store;
+        int v = vm.id();
+        if (s.vmState.get(v) == state && s.place.get(v) == n.id()) {
+            return true;
+        }
+        if (s.vmState.get(v) == NONE) {
+            s.nbVMs++;
+        } else {
+            s.unlinkVM(v);
+        }
+        s.vms.put(v, vm);
+        s.vmState.put(v, state);
+        s.place.put(v, n.id());
+        s.linkVM(v);
+        return true;
+    }
+
+    @Override
+    public boolean addReadyVM(VM vm) {
+        Store s = store;
+        int v = vm.id();
+        if (s.vmState.get(v) == READY) {
+            return true;
+        }
+        if (s.vmState.get(v) == NONE) {
+            s.nbVMs++;
+        } else {
+            s.unlinkVM(v);
+        }
+        s.vms.put(v, vm);
+        s.vmState.put(v, READY);
+        s.place.put(v, NIL);
+        s.linkVM(v);
+        return true;
+    }
+
+    @Override
+    public boolean remove(VM vm) {
+        if (!contains(vm)) {
+            return false;
+        }
+        Store s = store;
+        int v = vm.id();
+        s.unlinkVM(v);
+        s.vms.put(v, null);
+        s.vmState.put(v, NONE);
+        s.place.put(v, NIL);
+        s.nbVMs--;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Node n) {
+        int id = n.id();
+        int st = store.nodeState(id);
+        if (st == NONE || (st == ONLINE && store.nbHosted(id) > 0)) {
+            return false;
+        }
+        Store s = store;
+        s.unlinkNode(id);
+        s.nodes.put(id, null);
+        s.nodeState.put(id, NONE);
+        return true;
+    }
+
+    @Override
+    public boolean addOnlineNode(Node n) {
+        return setNodeState(n, ONLINE);
+    }
+
+    @Override
+    public boolean addOfflineNode(Node n) {
+        int id = n.id();
+        if (store.nodeState(id) == ONLINE && store.nbHosted(id) > 0) {
+            return false;
+        }
+        return setNodeState(n, OFFLINE);
+    }
+
+    private boolean setNodeState(Node n, int state) {
+        int id = n.id();
+        if (store.nodeState(id) == state) {
+            return true;
+        }
+        Store s = store;
+        s.nodes.put(id, n);
+        if (s.nodeState.get(id) != NONE) {
+            s.unlinkNode(id);
+        }
+        s.nodeState.put(id, state);
+        s.linkNode(id);
+        return true;
+    }
+
+    @Override
+    public Set<Node> getOnlineNodes() {
+        return new NodeView(ONLINE);
+    }
+
+    @Override
+    public Set<Node> getOfflineNodes() {
+        return new NodeView(OFFLINE);
+    }
+
+    @Override
+    public Set<VM> getRunningVMs() {
+        return getRunningVMs(getOnlineNodes());
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs() {
+        return getSleepingVMs(getOnlineNodes());
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Node n) {
+        return new VMView(RUNNING, n.id());
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Node n) {
+        return new VMView(SLEEPING, n.id());
+    }
+
+    @Override
+    public Set<VM> getReadyVMs() {
+        return new VMView(READY, NIL);
+    }
+
+    @Override
+    public Set<VM> getAllVMs() {
+        Set<VM> s = new THashSet<>(store.nbVMs);
+        s.addAll(getReadyVMs());
+        for (Node n : getOnlineNodes()) {
+            s.addAll(getRunningVMs(n));
+            s.addAll(getSleepingVMs(n));
+        }
+        return s;
+    }
+
+    @Override
+    public Set<Node> getAllNodes() {
+        Set<Node> ns = new THashSet<>(getNbNodes());
+        ns.addAll(getOnlineNodes());
+        ns.addAll(getOfflineNodes());
+        return ns;
+    }
+
+    @Override
+    public Node getVMLocation(VM vm) {
+        int v = vm.id();
+        int st = store.vmState(v);
+        if (st == RUNNING || st == SLEEPING) {
+            return store.nodes.get(store.place.get(v));
+        }
+        return null;
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Collection<Node> ns) {
+        Set<VM> vms = new THashSet<>();
+        for (Node n : ns) {
+            vms.addAll(getRunningVMs(n));
+        }
+        return vms;
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Collection<Node> ns) {
+        Set<VM> vms = new THashSet<>();
+        for (Node n : ns) {
+            vms.addAll(getSleepingVMs(n));
+        }
+        return vms;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copy is made in O(1) as the backend is shared.
+     */
+    @Override
+    public Mapping copy() {
+        return new PersistentMapping(store.copy());
+    }
+
+    @Override
+    public boolean contains(Node n) {
+        return store.nodeState(n.id()) != NONE;
+    }
+
+    @Override
+    public boolean contains(VM vm) {
+        return store.vmState(vm.id()) != NONE;
+    }
+
+    @Override
+    public void clear() {
+        store = new Store();
+    }
+
+    @Override
+    public void clearNode(Node u) {
+        int id = u.id();
+        if (store.nodeState(id) != ONLINE || store.nbHosted(id) == 0) {
+            return;
+        }
+        Store s = store;
+        clearVMs(s, s.runHead, id);
+        clearVMs(s, s.sleepHead, id);
+    }
+
+    private static void clearVMs(Store s, PersistentIntMap heads, int node) {
+        for (int v = heads.get(node); v != NIL; v = s.vmNext.get(v)) {
+            s.vms.put(v, null);
+            s.vmState.put(v, NONE);
+            s.place.put(v, NIL);
+            s.nbVMs--;
+        }
+        heads.put(node, NIL);
+        if (heads == s.runHead) {
+            s.runCount.put(node, 0);
+        } else {
+            s.sleepCount.put(node, 0);
+        }
+    }
+
+    @Override
+    public void clearAllVMs() {
+        Store s = store;
+        s.vms.clear();
+        s.vmState.clear();
+        s.place.clear();
+        s.vmNext.clear();
+        s.vmPrev.clear();
+        s.runHead.clear();
+        s.sleepHead.clear();
+        s.runCount.clear();
+        s.sleepCount.clear();
+        s.readyHead = NIL;
+        s.nbReady = 0;
+        s.nbVMs = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+
+        for (Node n : getOnlineNodes()) {
+            buf.append(n);
+            buf.append(':');
+            if (this.getRunningVMs(n).isEmpty() && this.getSleepingVMs(n).isEmpty()) {
+                buf.append(" - ");
+            }
+            for (VM vm : this.getRunningVMs(n)) {
+                buf.append(' ').append(vm);
+            }
+            for (VM vm : this.getSleepingVMs(n)) {
+                buf.append(" (").append(vm).append(')');
+            }
+            buf.append('\n');
+        }
+
+        for (Node n : getOfflineNodes()) {
+            buf.append('(').append(n).append(")\n");
+        }
+
+        buf.append("READY");
+
+        for (VM vm : this.getReadyVMs()) {
+            buf.append(' ').append(vm);
+        }
+
+        return buf.append('\n').toString();
+    }
+
+    @Override
+    public int getNbNodes() {
+        return store.nodeCount[ONLINE] + store.nodeCount[OFFLINE];
+    }
+
+    @Override
+    public int getNbVMs() {
+        return store.nbVMs;
+    }
+
+    /**
+     * The persistent maps backing a mapping.
+     */
+    private static final class Store {
+
+        PersistentIntObjectMap<VM> vms;
+
+        PersistentIntMap vmState;
+
+        PersistentIntMap place;
+
+        PersistentIntMap vmNext;
+
+        PersistentIntMap vmPrev;
+
+        PersistentIntObjectMap<Node> nodes;
+
+        PersistentIntMap nodeState;
+
+        PersistentIntMap nodeNext;
+
+        PersistentIntMap nodePrev;
+
+        PersistentIntMap runHead;
+
+        PersistentIntMap runCount;
+
+        PersistentIntMap sleepHead;
+
+        PersistentIntMap sleepCount;
+
+        int readyHead;
+
+        int nbReady;
+
+        /**
+         * Heads and sizes of the online and the offline node lists, indexed by state.
+         */
+        int[] nodeHead;
+
+        int[] nodeCount;
+
+        int nbVMs;
+
+        Store() {
+            vms = new PersistentIntObjectMap<>(null);
+            vmState = new PersistentIntMap(NONE);
+            place = new PersistentIntMap(NIL);
+            vmNext = new PersistentIntMap(NIL);
+            vmPrev = new PersistentIntMap(NIL);
+            nodes = new PersistentIntObjectMap<>(null);
+            nodeState = new PersistentIntMap(NONE);
+            nodeNext = new PersistentIntMap(NIL);
+            nodePrev = new PersistentIntMap(NIL);
+            runHead = new PersistentIntMap(NIL);
+            runCount = new PersistentIntMap(0);
+            sleepHead = new PersistentIntMap(NIL);
+            sleepCount = new PersistentIntMap(0);
+            readyHead = NIL;
+            nodeHead = new int[]{NIL, NIL, NIL};
+            nodeCount = new int[3];
+        }
+
+        private Store(Store s) {
+            vms = s.vms.copy();
+            vmState = s.vmState.copy();
+            place = s.place.copy();
+            vmNext = s.vmNext.copy();
+            vmPrev = s.vmPrev.copy();
+            nodes = s.nodes.copy();
+            nodeState = s.nodeState.copy();
+            nodeNext = s.nodeNext.copy();
+            nodePrev = s.nodePrev.copy();
+            runHead = s.runHead.copy();
+            runCount = s.runCount.copy();
+            sleepHead = s.sleepHead.copy();
+            sleepCount = s.sleepCount.copy();
+            readyHead = s.readyHead;
+            nbReady = s.nbReady;
+            nodeHead = s.nodeHead.clone();
+            nodeCount = s.nodeCount.clone();
+            nbVMs = s.nbVMs;
+        }
+
+        Store copy() {
+            return new Store(this);
+        }
+
+        int vmState(int v) {
+            return vmState.get(v);
+        }
+
+        int nodeState(int n) {
+            return nodeState.get(n);
+        }
+
+        int nbHosted(int n) {
+            return runCount.get(n) + sleepCount.get(n);
+        }
+
+        /**
+         * Insert a VM in the list associated to its state and its location.
+         */
+        void linkVM(int v) {
+            int head;
+            switch (vmState.get(v)) {
+                case RUNNING:
+                    head = runHead.get(place.get(v));
+                    runHead.put(place.get(v), v);
+                    runCount.put(place.get(v), runCount.get(place.get(v)) + 1);
+                    break;
+                case SLEEPING:
+                    head = sleepHead.get(place.get(v));
+                    sleepHead.put(place.get(v), v);
+                    sleepCount.put(place.get(v), sleepCount.get(place.get(v)) + 1);
+                    break;
+                default:
+                    head = readyHead;
+                    readyHead = v;
+                    nbReady++;
+                    break;
+            }
+            vmPrev.put(v, NIL);
+            vmNext.put(v, head);
+            if (head != NIL) {
+                vmPrev.put(head, v);
+            }
+        }
+
+        /**
+         * Remove a VM from the list associated to its state and its location.
+         */
+        void unlinkVM(int v) {
+            int prev = vmPrev.get(v);
+            int next = vmNext.get(v);
+            if (next != NIL) {
+                vmPrev.put(next, prev);
+            }
+            if (prev != NIL) {
+                vmNext.put(prev, next);
+            }
+            switch (vmState.get(v)) {
+                case RUNNING:
+                    if (prev == NIL) {
+                        runHead.put(place.get(v), next);
+                    }
+                    runCount.put(place.get(v), runCount.get(place.get(v)) - 1);
+                    break;
+                case SLEEPING:
+                    if (prev == NIL) {
+                        sleepHead.put(place.get(v), next);
+                    }
+                    sleepCount.put(place.get(v), sleepCount.get(place.get(v)) - 1);
+                    break;
+                default:
+                    if (prev == NIL) {
+                        readyHead = next;
+                    }
+                    nbReady--;
+                    break;
+            }
+            vmNext.put(v, NIL);
+            vmPrev.put(v, NIL);
+        }
+
+        void linkNode(int n) {
+            int st = nodeState.get(n);
+            int head = nodeHead[st];
+            nodePrev.put(n, NIL);
+            nodeNext.put(n, head);
+            if (head != NIL) {
+                nodePrev.put(head, n);
+            }
+            nodeHead[st] = n;
+            nodeCount[st]++;
+        }
+
+        void unlinkNode(int n) {
+            int st = nodeState.get(n);
+            int prev = nodePrev.get(n);
+            int next = nodeNext.get(n);
+            if (next != NIL) {
+                nodePrev.put(next, prev);
+            }
+            if (prev != NIL) {
+                nodeNext.put(prev, next);
+            } else {
+                nodeHead[st] = next;
+            }
+            nodeCount[st]--;
+            nodeNext.put(n, NIL);
+            nodePrev.put(n, NIL);
+        }
+    }
+
+    /**
+     * A read-only view over a list of VMs.
+     */
+    private final class VMView extends AbstractSet<VM> {
+
+        private final int state;
+
+        private final int node;
+
+        VMView(int st, int n) {
+            state = st;
+            node = n;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof VM)) {
+                return false;
+            }
+            int v = ((VM) o).id();
+            return store.vmState(v) == state && (state == READY || store.place.get(v) == node);
+        }
+
+        @Override
+        public int size() {
+            if (state == READY) {
+                return store.nbReady;
+            }
+            if (store.nodeState(node) != ONLINE) {
+                return 0;
+            }
+            return state == RUNNING ? store.runCount.get(node) : store.sleepCount.get(node);
+        }
+
+        private int head() {
+            if (state == READY) {
+                return store.readyHead;
+            }
+            if (store.nodeState(node) != ONLINE) {
+                return NIL;
+            }
+            return state == RUNNING ? store.runHead.get(node) : store.sleepHead.get(node);
+        }
+
+        @Override
+        public Iterator<VM> iterator() {
+            return new Iterator<VM>() {
+                private int cur = head();
+
+                @Override
+                public boolean hasNext() {
+                    return cur != NIL;
+                }
+
+                @Override
+                public VM next() {
+                    if (cur == NIL) {
+                        throw new NoSuchElementException();
+                    }
+                    VM v = store.vms.get(cur);
+                    cur = store.vmNext.get(cur);
+                    return v;
+                }
+            };
+        }
+    }
+
+    /**
+     * A read-only view over the online or the offline nodes.
+     */
+    private final class NodeView extends AbstractSet<Node> {
+
+        private final int state;
+
+        NodeView(int st) {
+            state = st;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Node && store.nodeState(((Node) o).id()) == state;
+        }
+
+        @Override
+        public int size() {
+            return store.nodeCount[state];
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            return new Iterator<Node>() {
+                private int cur = store.nodeHead[state];
+
+                @Override
+                public boolean hasNext() {
+                    return cur != NIL;
+                }
+
+                @Override
+                public Node next() {
+                    if (cur == NIL) {
+                        throw new NoSuchElementException();
+                    }
+                    Node n = store.nodes.get(cur);
+                    cur = store.nodeNext.get(cur);
+                    return n;
+                }
+            };
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.btrplace.model.Node;
 import org.btrplace.model.VM;
 import org.btrplace.model.constraint.SideConstraint;
 import org.btrplace.util.IntMap;
+import org.btrplace.util.PersistentIntMap;
 
 import java.util.*;
 import java.util.stream.Stream;
@@ -33,6 +34,11 @@ import java.util.stream.Stream;
  * <p>
  * By default, if there is no {@link org.btrplace.model.constraint.Overbook} constraint for a node, a conservative ratio
  * of <b>1</b> is used. This means one unit of virtual resources consumes one unit of physical resources.
+ * <p>
+ * The values are stored into {@link IntMap}s by default, so a lookup is O(1) while {@link #copy()} is linear
+ * in the number of elements. A persistent resource stores the values into {@link PersistentIntMap}s instead,
+ * so {@link #copy()} is O(1) while a lookup or a modification is O(log n). This is only worth it
+ * when the resource is copied frequently, for example to take numerous snapshots of a model.
  *
  * @author Fabien Hermenier
  */
@@ -72,9 +78,26 @@ public class ShareableResource implements ModelView {
    * @param defConsumption the VM default consumption
    */
   public ShareableResource(String id, int defCapacity, int defConsumption) {
+    this(id, defCapacity, defConsumption, false);
+  }
+
+  /**
+   * Make a new resource.
+   *
+   * @param id             the resource identifier
+   * @param defCapacity    the nodes default capacity
+   * @param defConsumption the VM default consumption
+   * @param persistent     {@code true} to store the values into persistent maps
+   */
+  public ShareableResource(String id, int defCapacity, int defConsumption, boolean persistent) {
     this.rcId = id;
-    vmsConsumption = new IntMap(defConsumption);
-    nodesCapacity = new IntMap(defCapacity);
+    if (persistent) {
+      vmsConsumption = new PersistentIntMap(defConsumption);
+      nodesCapacity = new PersistentIntMap(defCapacity);
+    } else {
+      vmsConsumption = new IntMap(defConsumption);
+      nodesCapacity = new IntMap(defCapacity);
+    }
     if (defCapacity < 0) {
       throw new IllegalArgumentException(String.format("The %s default capacity must be >= 0", rcId));
     }
@@ -84,6 +107,15 @@ public class ShareableResource implements ModelView {
     this.viewId = VIEW_ID_BASE + rcId;
   }
 
+  /**
+   * Check if the values are stored into persistent maps.
+   *
+   * @return {@code true} iff the copies of the resource are O(1)
+   */
+  public boolean isPersistent() {
+    return vmsConsumption instanceof PersistentIntMap;
+  }
+
   /**
    * Get the VM consumption.
    *
@@ -318,6 +350,7 @@ public class ShareableResource implements ModelView {
    * Prepare the backend used to store VM stats.
    * The backend will be expanded if needed. This operation is purely performance oriented as the backend grows
    * automatically whenever needed. Setting this value may just bypass the incremental memory allocation.
+   * It has no effect on a persistent resource.
    *
    * @param nbVMs the estimated number of VMs to consider in the view.
    */
@@ -329,6 +362,7 @@ public class ShareableResource implements ModelView {
    * Prepare the backend used to store node stats.
    * The backend will be expanded if needed. This operation is purely performance oriented as the backend grows
    * automatically whenever needed. Setting this value may just bypass the incremental memory allocation.
+   * It has no effect on a persistent resource.
    *
    * @param nbNodes the estimated number of nodes to consider in the view.
    */
@@ -360,9 +394,13 @@ public class ShareableResource implements ModelView {
     return Objects.hash(rcId, vmsConsumption, nodesCapacity);
   }
 
+  /**
+   * {@inheritDoc}
+   * The copy is made in O(1) for a persistent resource as the backends are shared.
+   */
   @Override
   public ShareableResource copy() {
-    ShareableResource rc = new ShareableResource(rcId, nodesCapacity.noEntryValue(), vmsConsumption.noEntryValue());
+    ShareableResource rc = new ShareableResource(rcId, nodesCapacity.noEntryValue(), vmsConsumption.noEntryValue(), isPersistent());
     rc.nodesCapacity = nodesCapacity.copy();
     rc.vmsConsumption = vmsConsumption.copy();
     return rc;
@@ -0,0 +1,170 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.plan;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.plan.event.Action;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Simulated execution of a {@link ReconfigurationPlan} for concurrent action executors.
+ * <p>
+ * Contrary to {@link DefaultReconfigurationPlanMonitor}, the monitor does not rely on any lock.
+ * Each action has an atomic counter of the direct dependencies that have not been committed yet.
+ * Committing an action decrements the counters of the actions that depend on it. The actions
+ * having their counter reaching 0 are unblocked.
+ * <p>
+ * The current model is a versioned snapshot that is never modified once published.
+ * Committing an action applies it on a copy of the current snapshot, then publishes the copy
+ * as the new snapshot if no other action was committed meanwhile. Otherwise, the
+ * action is applied on a copy of the fresh snapshot.
+ * <p>
+ * A snapshot is then copied at each commit and at each retry. When the origin of the plan is a
+ * {@link DefaultModel}, the first snapshot is a {@link DefaultModel#persistentCopy()} of the origin,
+ * made once in O(n). The copies of the snapshots are then O(1), except for the views that are not
+ * shareable resources, and a commit costs O(log n). Otherwise, the snapshots are regular copies of the origin
+ * and a commit is linear in the size of the model, for example with a {@link org.btrplace.model.DefaultMapping}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ConcurrentReconfigurationPlanMonitor implements ReconfigurationPlanMonitor {
+
+    private final ReconfigurationPlan plan;
+
+    private final AtomicReference<Snapshot> current;
+
+    /**
+     * The position of each action in the counters.
+     */
+    private final Map<Action, Integer> index;
+
+    /**
+     * The number of uncommitted direct dependencies for each action.
+     */
+    private final AtomicIntegerArray pending;
+
+    /**
+     * The actions that directly depend on each action.
+     */
+    private final List<List<Action>> successors;
+
+    /**
+     * Make a new monitor.
+     *
+     * @param p the plan to execute
+     */
+    public ConcurrentReconfigurationPlanMonitor(ReconfigurationPlan p) {
+        plan = p;
+        index = new HashMap<>();
+        successors = new ArrayList<>();
+        for (Action a : plan) {
+            index.put(a, successors.size());
+            successors.add(new ArrayList<>());
+        }
+        pending = new AtomicIntegerArray(successors.size());
+        for (Action a : plan) {
+            Set<Action> deps = plan.getDirectDependencies(a);
+            pending.set(index.get(a), deps.size());
+            for (Action x : deps) {
+                successors.get(index.get(x)).add(a);
+            }
+        }
+        Model origin = plan.getOrigin();
+        Model first = origin instanceof DefaultModel ? ((DefaultModel) origin).persistentCopy() : origin.copy();
+        current = new AtomicReference<>(new Snapshot(first, 0));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The model is a copy of the current snapshot, so it may rely on a
+     * {@link org.btrplace.model.PersistentMapping} whatever the mapping of the origin.
+     */
+    @Override
+    public Model getCurrentModel() {
+        return current.get().model.copy();
+    }
+
+    /**
+     * Get the version of the current model.
+     * The version is incremented each time an action is committed.
+     *
+     * @return a positive number
+     */
+    public int getVersion() {
+        return current.get().version;
+    }
+
+    @Override
+    public Set<Action> commit(Action a) {
+        while (true) {
+            Snapshot cur = current.get();
+            Model next = cur.model.copy();
+            if (!a.apply(next)) {
+                throw new InfeasibleActionException(cur.model, a);
+            }
+            if (current.compareAndSet(cur, new Snapshot(next, cur.version + 1))) {
+                break;
+            }
+            //Another action was committed meanwhile. Retry on the fresh snapshot
+        }
+        Integer idx = index.get(a);
+        if (idx == null) {
+            return Collections.emptySet();
+        }
+        Set<Action> s = new HashSet<>();
+        for (Action x : successors.get(idx)) {
+            if (pending.decrementAndGet(index.get(x)) == 0) {
+                s.add(x);
+            }
+        }
+        return s;
+    }
+
+    @Override
+    public int getNbCommitted() {
+        return getVersion();
+    }
+
+    @Override
+    public boolean isBlocked(Action a) {
+        return pending.get(index.get(a)) > 0;
+    }
+
+    @Override
+    public ReconfigurationPlan getReconfigurationPlan() {
+        ReconfigurationPlan cpy = new DefaultReconfigurationPlan(plan.getOrigin().copy());
+        for (Action a : plan) {
+            cpy.add(a);
+        }
+        return cpy;
+    }
+
+    /**
+     * A model with its version.
+     */
+    private static final class Snapshot {
+
+        private final Model model;
+
+        private final int version;
+
+        Snapshot(Model mo, int v) {
+            model = mo;
+            version = v;
+        }
+    }
+}
@@ -7,7 +7,6 @@
 package org.btrplace.util;
 
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A map to associate an integer to an element.
@@ -230,23 +229,52 @@ public class IntMap {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * Two maps are equal if they have the same entries and the same {@link #noEntryValue()},
+     * whatever the size of their backend.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) {
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
+        if (!(o instanceof IntMap)) {
             return false;
         }
-        IntMap intMap = (IntMap) o;
-        return noValue == intMap.noValue && Arrays.equals(values, intMap.values);
+        IntMap that = (IntMap) o;
+        if (noEntryValue() != that.noEntryValue() || entries(this) != entries(that)) {
+            return false;
+        }
+        boolean[] same = {true};
+        forEach((k, v) -> {
+            same[0] = that.get(k) == v;
+            return same[0];
+        });
+        return same[0];
+    }
+
+    /**
+     * Count the entries visited by {@link #forEach(Entry)}.
+     * {@link #size()} may differ as it counts the keys set to {@link #noEntryValue()}.
+     */
+    private static int entries(IntMap m) {
+        int[] nb = {0};
+        m.forEach((k, v) -> {
+            nb[0]++;
+            return true;
+        });
+        return nb[0];
     }
 
     @Override
     public int hashCode() {
-        int result = Objects.hash(noValue);
-        result = 31 * result + Arrays.hashCode(values);
-        return result;
+        int[] res = {noEntryValue()};
+        forEach((k, v) -> {
+            res[0] += 31 * k ^ v;
+            return true;
+        });
+        return res[0];
     }
 
     /**
@@ -0,0 +1,301 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.util;
+
+import java.util.Arrays;
+
+/**
+ * A {@link IntMap} with cheap copies.
+ * <p>
+ * The values are stored inside a trie of 32-wide arrays indexed by the key bits.
+ * {@link #copy()} is O(1) as the copy shares the trie with the original map.
+ * A modification then copies the path from the root to the modified value,
+ * so it costs O(log n) and a chunk is never modified once it is reachable from a map.
+ * The copies then leave the original map untouched, and a map can be copied
+ * or read by several threads at the same time as long as none of them modifies it.
+ * <p>
+ * A lookup costs O(log n) instead of O(1) for a {@link IntMap}, so this map should only be preferred
+ * when it is copied frequently. Like {@link IntMap}, the key space is not compacted
+ * so the map is efficient when there are no or very few holes.
+ *
+ * @author Fabien Hermenier
+ */
+public class PersistentIntMap extends IntMap {
+
+    private static final int BITS = 5;
+
+    private static final int WIDTH = 1 << BITS;
+
+    private static final int MASK = WIDTH - 1;
+
+    /**
+     * Value stating that the key is missing.
+     */
+    private final int noValue;
+
+    private Chunk root;
+
+    /**
+     * The shift to get the index of a key inside the root.
+     */
+    private int shift;
+
+    /**
+     * Number of entries in the map.
+     */
+    private int count;
+
+    /**
+     * New map.
+     *
+     * @param noValue the value to use to report a missing key.
+     */
+    public PersistentIntMap(int noValue) {
+        super(noValue, 0);
+        this.noValue = noValue;
+        clear();
+    }
+
+    private PersistentIntMap(PersistentIntMap backend) {
+        super(backend.noValue, 0);
+        noValue = backend.noValue;
+        root = backend.root;
+        shift = backend.shift;
+        count = backend.count;
+    }
+
+    private Chunk newLeaf() {
+        Chunk c = new Chunk(new int[WIDTH], null);
+        if (noValue != 0) {
+            Arrays.fill(c.values, noValue);
+        }
+        return c;
+    }
+
+    /**
+     * Copy a chunk before a modification.
+     */
+    private static Chunk copyOf(Chunk c) {
+        return new Chunk(c.values == null ? null : c.values.clone(), c.kids == null ? null : c.kids.clone());
+    }
+
+    /**
+     * Get the value associated to a key.
+     *
+     * @param key the key
+     * @return the associated value or {@link #noEntryValue()} if there is none.
+     */
+    @Override
+    public int get(final int key) {
+        if (key < 0 || (key >>> shift) >= WIDTH) {
+            return noValue;
+        }
+        Chunk c = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            c = c.kids[(key >>> level) & MASK];
+            if (c == null) {
+                return noValue;
+            }
+        }
+        return c.values[key & MASK];
+    }
+
+    /**
+     * {@inheritDoc}
+     * The lookup costs O(log n).
+     */
+    @Override
+    public int quickGet(final int key) {
+        return get(key);
+    }
+
+    /**
+     * Nothing to prepare as the trie grows by small chunks whenever needed.
+     *
+     * @param newSize ignored
+     */
+    @Override
+    public void expand(final int newSize) {
+        //Nothing to prepare
+    }
+
+    /**
+     * Check if the key is associated to a value.
+     *
+     * @param key the key.
+     * @return {@code true} iff there is a value associated.
+     */
+    @Override
+    public boolean has(final int key) {
+        return get(key) != noValue;
+    }
+
+    /**
+     * Get the value used to state there is no value associated to a key.
+     *
+     * @return the value.
+     */
+    @Override
+    public int noEntryValue() {
+        return noValue;
+    }
+
+    /**
+     * Associate a value to a key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value. {@link #noEntryValue()} if there was none.
+     */
+    @Override
+    public int put(final int key, final int value) {
+        if (key < 0) {
+            return noValue;
+        }
+        int cur = get(key);
+        if (cur == value) {
+            //Nothing to copy
+            return cur;
+        }
+        while ((key >>> shift) >= WIDTH) {
+            //Add a level on top of the root
+            Chunk r = new Chunk(null, new Chunk[WIDTH]);
+            r.kids[0] = root;
+            root = r;
+            shift += BITS;
+        }
+        root = copyOf(root);
+        Chunk c = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            int idx = (key >>> level) & MASK;
+            Chunk kid = c.kids[idx];
+            if (kid == null) {
+                kid = level == BITS ? newLeaf() : new Chunk(null, new Chunk[WIDTH]);
+            } else {
+                kid = copyOf(kid);
+            }
+            c.kids[idx] = kid;
+            c = kid;
+        }
+        int old = c.values[key & MASK];
+        if (old == noValue && value != noValue) {
+            count++;
+        } else if (old != noValue && value == noValue) {
+            count--;
+        }
+        c.values[key & MASK] = value;
+        return old;
+    }
+
+    /**
+     * Adjust the value associated to a key.
+     *
+     * @param key   the key.
+     * @param value the delta to add to the current value.
+     * @return the new value. {@link #noEntryValue()} if there was no value associated to the key.
+     */
+    @Override
+    public int adjust(final int key, final int value) {
+        int cur = get(key);
+        if (cur == noValue) {
+            return noValue;
+        }
+        put(key, cur + value);
+        return cur + value;
+    }
+
+    /**
+     * Remove the value associated to a key.
+     *
+     * @param key the key
+     * @return the removed value. {@link #noEntryValue()} if there was none.
+     */
+    @Override
+    public int clear(final int key) {
+        if (!has(key)) {
+            return noValue;
+        }
+        return put(key, noValue);
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    @Override
+    public void clear() {
+        root = newLeaf();
+        shift = 0;
+        count = 0;
+    }
+
+    /**
+     * Copy the map in O(1).
+     * The two maps then share their backend. The original map is left untouched.
+     *
+     * @return a new map.
+     */
+    @Override
+    public PersistentIntMap copy() {
+        return new PersistentIntMap(this);
+    }
+
+    /**
+     * Iterate over the entries, by increasing key.
+     *
+     * @param e the entry consumer. The iteration stops once the consumer returns {@code false}.
+     */
+    @Override
+    public void forEach(final IntMap.Entry e) {
+        if (count > 0) {
+            forEach(root, shift, 0, e);
+        }
+    }
+
+    private boolean forEach(Chunk c, int level, int base, IntMap.Entry e) {
+        if (level == 0) {
+            for (int i = 0; i < WIDTH; i++) {
+                int v = c.values[i];
+                if (v != noValue && !e.entry(base + i, v)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i < WIDTH; i++) {
+            Chunk kid = c.kids[i];
+            if (kid != null && !forEach(kid, level - BITS, base + (i << level), e)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return a positive number
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * A node of the trie. Either a leaf with values or a node with children.
+     */
+    private static final class Chunk {
+
+        private final int[] values;
+
+        private final Chunk[] kids;
+
+        Chunk(int[] values, Chunk[] kids) {
+            this.values = values;
+            this.kids = kids;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A map to associate an Object to an element, with cheap copies.
+ * <p>
+ * The values are stored inside a trie of 32-wide arrays indexed by the key bits.
+ * {@link #copy()} is O(1) as the copy shares the trie with the original map.
+ * A modification then copies the path from the root to the modified value,
+ * so it costs O(log n) and a chunk is never modified once it is reachable from a map.
+ * The copies then leave the original map untouched, and a map can be copied
+ * or read by several threads at the same time as long as none of them modifies it. Like {@link IntObjectMap}, the key space is not compacted
+ * so the map is efficient when there are no or very few holes.
+ *
+ * @author Fabien Hermenier
+ */
+@SuppressWarnings("unchecked")
+public class PersistentIntObjectMap<V> {
+
+    private static final int BITS = 5;
+
+    private static final int WIDTH = 1 << BITS;
+
+    private static final int MASK = WIDTH - 1;
+
+    /**
+     * Value stating that the key is missing.
+     */
+    private final V noValue;
+
+    private Chunk root;
+
+    /**
+     * The shift to get the index of a key inside the root.
+     */
+    private int shift;
+
+    /**
+     * Number of entries in the map.
+     */
+    private int count;
+
+    /**
+     * New map.
+     *
+     * @param noValue the value to use to report a missing key.
+     */
+    public PersistentIntObjectMap(V noValue) {
+        this.noValue = noValue;
+        clear();
+    }
+
+    private PersistentIntObjectMap(PersistentIntObjectMap<V> backend) {
+        noValue = backend.noValue;
+        root = backend.root;
+        shift = backend.shift;
+        count = backend.count;
+    }
+
+    private Chunk newLeaf() {
+        Chunk c = new Chunk(new Object[WIDTH], null);
+        if (noValue != null) {
+            Arrays.fill(c.values, noValue);
+        }
+        return c;
+    }
+
+    /**
+     * Copy a chunk before a modification.
+     */
+    private static Chunk copyOf(Chunk c) {
+        return new Chunk(c.values == null ? null : c.values.clone(), c.kids == null ? null : c.kids.clone());
+    }
+
+    /**
+     * Get the value associated to a key.
+     *
+     * @param key the key
+     * @return the associated value or {@link #noEntryValue()} if there is none.
+     */
+    public V get(final int key) {
+        if (key < 0 || (key >>> shift) >= WIDTH) {
+            return noValue;
+        }
+        Chunk c = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            c = c.kids[(key >>> level) & MASK];
+            if (c == null) {
+                return noValue;
+            }
+        }
+        return (V) c.values[key & MASK];
+    }
+
+    /**
+     * Check if the key is associated to a value.
+     *
+     * @param key the key.
+     * @return {@code true} iff there is a value associated.
+     */
+    public boolean has(final int key) {
+        return get(key) != noValue;
+    }
+
+    /**
+     * Get the value used to state there is no value associated to a key.
+     *
+     * @return the value.
+     */
+    public V noEntryValue() {
+        return noValue;
+    }
+
+    /**
+     * Associate a value to a key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value. {@link #noEntryValue()} if there was none.
+     */
+    public V put(final int key, final V value) {
+        if (key < 0) {
+            return noValue;
+        }
+        V cur = get(key);
+        if (cur == value) {
+            //Nothing to copy
+            return cur;
+        }
+        while ((key >>> shift) >= WIDTH) {
+            //Add a level on top of the root
+            Chunk r = new Chunk(null, new Chunk[WIDTH]);
+            r.kids[0] = root;
+            root = r;
+            shift += BITS;
+        }
+        root = copyOf(root);
+        Chunk c = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            int idx = (key >>> level) & MASK;
+            Chunk kid = c.kids[idx];
+            if (kid == null) {
+                kid = level == BITS ? newLeaf() : new Chunk(null, new Chunk[WIDTH]);
+            } else {
+                kid = copyOf(kid);
+            }
+            c.kids[idx] = kid;
+            c = kid;
+        }
+        V old = (V) c.values[key & MASK];
+        if (old == noValue && value != noValue) {
+            count++;
+        } else if (old != noValue && value == noValue) {
+            count--;
+        }
+        c.values[key & MASK] = value;
+        return old;
+    }
+
+    /**
+     * Remove the value associated to a key.
+     *
+     * @param key the key
+     * @return the removed value. {@link #noEntryValue()} if there was none.
+     */
+    public V clear(final int key) {
+        if (!has(key)) {
+            return noValue;
+        }
+        return put(key, noValue);
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public void clear() {
+        root = newLeaf();
+        shift = 0;
+        count = 0;
+    }
+
+    /**
+     * Copy the map in O(1).
+     * The two maps then share their backend. The original map is left untouched.
+     *
+     * @return a new map.
+     */
+    public PersistentIntObjectMap<V> copy() {
+        return new PersistentIntObjectMap<>(this);
+    }
+
+    /**
+     * Iterate over the entries, by increasing key.
+     *
+     * @param e the entry consumer. The iteration stops once the consumer returns {@code false}.
+     */
+    public void forEach(final IntObjectMap.Entry<V> e) {
+        if (count > 0) {
+            forEach(root, shift, 0, e);
+        }
+    }
+
+    private boolean forEach(Chunk c, int level, int base, IntObjectMap.Entry<V> e) {
+        if (level == 0) {
+            for (int i = 0; i < WIDTH; i++) {
+                V v = (V) c.values[i];
+                if (v != noValue && !e.entry(base + i, v)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i < WIDTH; i++) {
+            Chunk kid = c.kids[i];
+            if (kid != null && !forEach(kid, level - BITS, base + (i << level), e)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return a positive number
+     */
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PersistentIntObjectMap<V> that = (PersistentIntObjectMap<V>) o;
+        if (noValue != that.noValue || count != that.count) {
+            return false;
+        }
+        boolean[] same = {true};
+        forEach((k, v) -> {
+            same[0] = Objects.equals(that.get(k), v);
+            return same[0];
+        });
+        return same[0];
+    }
+
+    @Override
+    public int hashCode() {
+        int[] res = {Objects.hashCode(noValue)};
+        forEach((k, v) -> {
+            res[0] += 31 * k ^ Objects.hashCode(v);
+            return true;
+        });
+        return res[0];
+    }
+
+    /**
+     * A node of the trie. Either a leaf with values or a node with children.
+     */
+    private static final class Chunk {
+
+        private final Object[] values;
+
+        private final Chunk[] kids;
+
+        Chunk(Object[] values, Chunk[] kids) {
+            this.values = values;
+            this.kids = kids;
+        }
+    }
+}
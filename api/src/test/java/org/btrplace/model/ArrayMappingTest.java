@@ -0,0 +1,99 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+
+/**
+ * Unit tests for {@link ArrayMapping}.
+ * The tests of {@link DefaultMappingTest} are run against this implementation.
+ *
+ * @author Fabien Hermenier
+ */
+public class ArrayMappingTest extends DefaultMappingTest {
+
+    @Override
+    protected Mapping newMapping() {
+        return new ArrayMapping();
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        Mapping m1 = new ArrayMapping(2, 2);
+        Node n0 = new Node(0);
+        Node n1 = new Node(1);
+        m1.on(n0, n1).run(n0, new VM(0), new VM(1)).sleep(n1, new VM(2)).ready(new VM(3));
+
+        Mapping m2 = m1.copy();
+        Mapping m3 = m2.copy();
+        Assert.assertEquals(m1, m2);
+
+        //Modifying the copy does not impact the original
+        m2.addRunningVM(new VM(0), n1);
+        m2.addOfflineNode(new Node(40));
+        Assert.assertEquals(m1.getVMLocation(new VM(0)), n0);
+        Assert.assertFalse(m1.contains(new Node(40)));
+        Assert.assertEquals(m2.getVMLocation(new VM(0)), n1);
+        Assert.assertEquals(m3, m1);
+
+        //And the other way around
+        m1.remove(new VM(3));
+        m1.addReadyVM(new VM(200));
+        Assert.assertTrue(m2.isReady(new VM(3)));
+        Assert.assertFalse(m2.contains(new VM(200)));
+        Assert.assertEquals(m3.getReadyVMs(), new HashSet<>(Arrays.asList(new VM(3))));
+        Assert.assertEquals(m3.getNbVMs(), 4);
+        Assert.assertEquals(m1.getNbVMs(), 4);
+    }
+
+    @Test
+    public void testSameAsDefaultMapping() {
+        Mapping a = new ArrayMapping();
+        Mapping d = new DefaultMapping();
+        for (Mapping m : Arrays.asList(a, d)) {
+            for (int i = 0; i < 5; i++) {
+                m.addOnlineNode(new Node(i));
+                m.addRunningVM(new VM(2 * i), new Node(i));
+                m.addSleepingVM(new VM(2 * i + 1), new Node(i));
+            }
+            m.addOfflineNode(new Node(5));
+            m.addReadyVM(new VM(20));
+            //Moves, state changes and removals
+            m.addRunningVM(new VM(1), new Node(3));
+            m.addReadyVM(new VM(4));
+            m.addSleepingVM(new VM(6), new Node(0));
+            m.remove(new VM(8));
+            m.clearNode(new Node(4));
+            m.addOfflineNode(new Node(4));
+        }
+        Assert.assertEquals(a, d);
+        Assert.assertEquals(d, a);
+        Assert.assertEquals(a.hashCode(), d.hashCode());
+        Assert.assertEquals(a.getAllVMs(), d.getAllVMs());
+        Assert.assertEquals(a.getAllNodes(), d.getAllNodes());
+        Assert.assertEquals(a.getRunningVMs(), d.getRunningVMs());
+        Assert.assertEquals(a.getSleepingVMs(), d.getSleepingVMs());
+        Assert.assertEquals(a.getNbVMs(), d.getNbVMs());
+        Assert.assertEquals(a.getNbNodes(), d.getNbNodes());
+    }
+
+    @Test
+    public void testModel() {
+        Model mo = new DefaultModel(new DefaultElementBuilder(), new ArrayMapping());
+        Node n = mo.newNode();
+        mo.getMapping().addOnlineNode(n);
+        mo.getMapping().addRunningVM(mo.newVM(), n);
+        Model cpy = mo.copy();
+        Assert.assertTrue(cpy.getMapping() instanceof ArrayMapping);
+        Assert.assertEquals(cpy, mo);
+    }
+}
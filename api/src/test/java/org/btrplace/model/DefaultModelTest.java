@@ -7,6 +7,7 @@
 package org.btrplace.model;
 
 import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -106,6 +107,41 @@ public class DefaultModelTest {
 
     }
 
+    @Test
+    public void testPersistentCopy() {
+        DefaultModel mo = new DefaultModel();
+        Node n = mo.newNode();
+        VM v = mo.newVM();
+        mo.getMapping().on(n).run(n, v);
+        mo.getAttributes().put(v, "foo", 3);
+        ShareableResource cpu = new ShareableResource("cpu", 5, 1);
+        cpu.setConsumption(v, 2).setCapacity(n, 7);
+        mo.attach(cpu);
+        ModelView other = mock(ModelView.class);
+        when(other.getIdentifier()).thenReturn("foo");
+        when(other.copy()).thenReturn(other);
+        mo.attach(other);
+
+        DefaultModel cpy = mo.persistentCopy();
+        Assert.assertTrue(cpy.getMapping() instanceof PersistentMapping);
+        Assert.assertTrue(ShareableResource.get(cpy, "cpu").isPersistent());
+        Assert.assertTrue(cpy.getAttributes() instanceof PersistentAttributes);
+        Assert.assertTrue(mo.getAttributes() instanceof DefaultAttributes);
+        Assert.assertEquals(cpy, mo);
+        Assert.assertEquals(mo, cpy);
+        Assert.assertTrue(cpy.contains(v));
+        Assert.assertTrue(cpy.copy().getMapping() instanceof PersistentMapping);
+
+        //Independent models
+        cpy.getMapping().addReadyVM(v);
+        ShareableResource.get(cpy, "cpu").setConsumption(v, 4);
+        cpy.getAttributes().put(v, "foo", 5);
+        Assert.assertTrue(mo.getMapping().isRunning(v));
+        Assert.assertEquals(mo.getAttributes().get(v, "foo", -1), 3);
+        Assert.assertEquals(cpu.getConsumption(v), 2);
+        Assert.assertEquals(cpy.newVM(), mo.newVM());
+    }
+
     @Test(dependsOnMethods = {"testAttachView", "testInstantiate"})
     public void testDetachView() {
         Model i = new DefaultModel();
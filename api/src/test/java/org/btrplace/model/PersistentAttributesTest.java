@@ -0,0 +1,80 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Unit tests for {@link PersistentAttributes}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PersistentAttributesTest {
+
+    @Test
+    public void testPutAndGet() {
+        Attributes attrs = new PersistentAttributes();
+        VM v = new VM(0);
+        Node n = new Node(3);
+        Assert.assertFalse(attrs.put(v, "foo", "bar"));
+        Assert.assertTrue(attrs.put(v, "foo", 3));
+        Assert.assertFalse(attrs.put(n, "boot", 7.5));
+        Assert.assertFalse(attrs.castAndPut(n, "on", "true"));
+        Assert.assertEquals(attrs.get(v, "foo", -1), 3);
+        Assert.assertEquals(attrs.get(n, "boot", 0.0), 7.5);
+        Assert.assertTrue(attrs.get(n, "on", false));
+        Assert.assertEquals(attrs.getKeys(n), new HashSet<>(Arrays.asList("boot", "on")));
+        Assert.assertEquals(attrs.getDefined(), new HashSet<>(Arrays.asList(v, n)));
+
+        Assert.assertTrue(attrs.unset(v, "foo"));
+        Assert.assertFalse(attrs.unset(v, "foo"));
+        Assert.assertFalse(attrs.isSet(v, "foo"));
+        Assert.assertEquals(attrs.getDefined(), new HashSet<>(Arrays.asList(n)));
+        attrs.clear(n);
+        Assert.assertTrue(attrs.getDefined().isEmpty());
+    }
+
+    @Test
+    public void testCopy() {
+        Attributes attrs = new PersistentAttributes();
+        VM v = new VM(0);
+        attrs.put(v, "foo", 1);
+        attrs.put(new Node(0), "bar", 2);
+        Attributes cpy = attrs.copy();
+        Assert.assertEquals(cpy, attrs);
+
+        //The copies are independent
+        cpy.put(v, "foo", 5);
+        cpy.put(new VM(1), "foo", 6);
+        Assert.assertEquals(attrs.get(v, "foo", -1), 1);
+        Assert.assertFalse(attrs.isSet(new VM(1), "foo"));
+        attrs.clear();
+        Assert.assertEquals(cpy.get(new Node(0), "bar", -1), 2);
+    }
+
+    @Test
+    public void testSameAsDefaultAttributes() {
+        Attributes d = new DefaultAttributes();
+        d.put(new VM(0), "foo", 1);
+        d.put(new VM(0), "bar", "baz");
+        d.put(new Node(2), "boot", 3.5);
+        Attributes p = new PersistentAttributes(d);
+        Assert.assertEquals(p, d);
+        Assert.assertEquals(d, p);
+        Assert.assertEquals(p.hashCode(), d.hashCode());
+        Assert.assertEquals(p.toString().length(), d.toString().length());
+
+        p.put(new VM(0), "foo", 2);
+        Assert.assertNotEquals(p, d);
+        Assert.assertNotEquals(d, p);
+        Assert.assertEquals(d.get(new VM(0), "foo", -1), 1);
+    }
+}
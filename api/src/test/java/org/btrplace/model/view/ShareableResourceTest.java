@@ -176,4 +176,28 @@ public class ShareableResourceTest {
         Assert.assertTrue(rc.substituteVM(vms.get(2), vms.get(6)));
         Assert.assertEquals(rc.getConsumption(vms.get(6)), 0);
     }
+
+    @Test
+    public void testPersistent() {
+        ShareableResource rc = new ShareableResource("foo", 1, 2);
+        Assert.assertFalse(rc.isPersistent());
+        Assert.assertFalse(rc.copy().isPersistent());
+
+        ShareableResource p = new ShareableResource("foo", 1, 2, true);
+        Assert.assertTrue(p.isPersistent());
+        p.minVMBackendCapacity(100);
+        p.minNodeBackendCapacity(100);
+        p.setConsumption(vms.get(0), 3).setCapacity(nodes.get(0), 5);
+        Assert.assertEquals(p.getConsumption(vms.get(0)), 3);
+        Assert.assertEquals(p.getConsumption(vms.get(1)), 2);
+        Assert.assertEquals(p.getCapacity(nodes.get(0)), 5);
+        Assert.assertEquals(p.getCapacity(nodes.get(1)), 1);
+
+        ShareableResource cpy = p.copy();
+        Assert.assertTrue(cpy.isPersistent());
+        Assert.assertEquals(cpy, p);
+        cpy.setConsumption(vms.get(0), 4);
+        Assert.assertEquals(p.getConsumption(vms.get(0)), 3);
+        Assert.assertEquals(p.toString(), rc.setConsumption(vms.get(0), 3).setCapacity(nodes.get(0), 5).toString());
+    }
 }
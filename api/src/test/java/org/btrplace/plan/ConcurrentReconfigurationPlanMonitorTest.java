@@ -0,0 +1,88 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.plan;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.PersistentMapping;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.MigrateVM;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link ConcurrentReconfigurationPlanMonitor}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ConcurrentReconfigurationPlanMonitorTest extends DefaultReconfigurationPlanMonitorTest {
+
+    @Override
+    protected ReconfigurationPlanMonitor newMonitor(ReconfigurationPlan plan) {
+        return new ConcurrentReconfigurationPlanMonitor(plan);
+    }
+
+    @Test
+    public void testConcurrentCommits() throws InterruptedException {
+        //The snapshots are persistent even if the origin relies on a DefaultMapping
+        Model mo = new DefaultModel();
+        ShareableResource cpu = new ShareableResource("cpu", 8, 1);
+        mo.attach(cpu);
+        Mapping map = mo.getMapping();
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        for (int i = 0; i < 100; i++) {
+            Node src = mo.newNode();
+            Node dst = mo.newNode();
+            map.addOnlineNode(src);
+            map.addOfflineNode(dst);
+            plan.add(new BootNode(dst, 0, 3));
+            for (int j = 0; j < 3; j++) {
+                VM v = mo.newVM();
+                map.addRunningVM(v, src);
+                cpu.setConsumption(v, j);
+                plan.add(new MigrateVM(v, src, dst, 3, 5 + j));
+            }
+        }
+        ConcurrentReconfigurationPlanMonitor exec = new ConcurrentReconfigurationPlanMonitor(plan);
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(plan.getSize());
+        for (Action a : plan) {
+            if (!exec.isBlocked(a)) {
+                execute(workers, exec, a, done);
+            }
+        }
+        Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+        workers.shutdown();
+        Assert.assertEquals(exec.getNbCommitted(), plan.getSize());
+        Assert.assertEquals(exec.getVersion(), plan.getSize());
+        Model res = exec.getCurrentModel();
+        Assert.assertEquals(res, plan.getResult());
+        Assert.assertTrue(res.getMapping() instanceof PersistentMapping);
+        Assert.assertTrue(ShareableResource.get(res, "cpu").isPersistent());
+        //The origin is left untouched
+        Assert.assertEquals(plan.getOrigin().getMapping().getOfflineNodes().size(), 100);
+    }
+
+    private static void execute(ExecutorService workers, ReconfigurationPlanMonitor exec, Action a, CountDownLatch done) {
+        workers.submit(() -> {
+            for (Action x : exec.commit(a)) {
+                execute(workers, exec, x, done);
+            }
+            done.countDown();
+        });
+    }
+}
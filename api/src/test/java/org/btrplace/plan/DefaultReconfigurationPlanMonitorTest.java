@@ -62,11 +62,21 @@ public class DefaultReconfigurationPlanMonitorTest {
         return plan;
     }
 
+    /**
+     * Make the monitor to test.
+     *
+     * @param plan the plan to monitor
+     * @return a new monitor
+     */
+    protected ReconfigurationPlanMonitor newMonitor(ReconfigurationPlan plan) {
+        return new DefaultReconfigurationPlanMonitor(plan);
+    }
+
     @Test
     public void testInit() {
 
         ReconfigurationPlan plan = makePlan();
-        ReconfigurationPlanMonitor exec = new DefaultReconfigurationPlanMonitor(plan);
+        ReconfigurationPlanMonitor exec = newMonitor(plan);
 
         Assert.assertEquals(exec.getCurrentModel(), plan.getOrigin());
         Assert.assertFalse(exec.isBlocked(a1));
@@ -80,7 +90,7 @@ public class DefaultReconfigurationPlanMonitorTest {
     @Test(dependsOnMethods = {"testInit"})
     public void testGoodCommits() {
         ReconfigurationPlan plan = makePlan();
-        ReconfigurationPlanMonitor exec = new DefaultReconfigurationPlanMonitor(plan);
+        ReconfigurationPlanMonitor exec = newMonitor(plan);
 
         Assert.assertTrue(exec.commit(a4).isEmpty());
         Assert.assertEquals(exec.getNbCommitted(), 1);
@@ -94,14 +104,14 @@ public class DefaultReconfigurationPlanMonitorTest {
     @Test(dependsOnMethods = {"testInit", "testGoodCommits"}, expectedExceptions = InfeasibleActionException.class)
     public void testCommitBlocked() {
         ReconfigurationPlan plan = makePlan();
-        ReconfigurationPlanMonitor exec = new DefaultReconfigurationPlanMonitor(plan);
+        ReconfigurationPlanMonitor exec = newMonitor(plan);
         exec.commit(a3);
     }
 
     @Test(dependsOnMethods = {"testInit", "testGoodCommits"}, expectedExceptions = InfeasibleActionException.class)
     public void testDoubleCommit() {
         ReconfigurationPlan plan = makePlan();
-        ReconfigurationPlanMonitor exec = new DefaultReconfigurationPlanMonitor(plan);
+        ReconfigurationPlanMonitor exec = newMonitor(plan);
         Assert.assertNotNull(exec.commit(a1));
         exec.commit(a1);
     }
@@ -109,7 +119,7 @@ public class DefaultReconfigurationPlanMonitorTest {
     @Test(dependsOnMethods = {"testInit", "testGoodCommits"})
     public void testOver() {
         ReconfigurationPlan plan = makePlan();
-        ReconfigurationPlanMonitor exec = new DefaultReconfigurationPlanMonitor(plan);
+        ReconfigurationPlanMonitor exec = newMonitor(plan);
 
         Assert.assertTrue(exec.commit(a2).isEmpty());
         Assert.assertTrue(exec.commit(a4).isEmpty());
@@ -120,6 +120,24 @@ public class IntMapTest {
         Assert.assertNotEquals(m, cp);
     }
 
+    @Test
+    public void testEqualsWithDifferentBackends() {
+        IntMap m = new IntMap(-1, 5);
+        IntMap big = new IntMap(-1, 500);
+        IntMap p = new PersistentIntMap(-1);
+        for (int i = 10; i >= 0; i--) {
+            m.put(i, i);
+            big.put(i, i);
+            p.put(i, i);
+        }
+        Assert.assertEquals(m, big);
+        Assert.assertEquals(m.hashCode(), big.hashCode());
+        Assert.assertEquals(m, p);
+        Assert.assertEquals(p, m);
+        Assert.assertEquals(m.hashCode(), p.hashCode());
+        Assert.assertNotEquals(new IntMap(0), new IntMap(-1));
+    }
+
     @Test
     public void testSize() {
         final IntMap m = new IntMap(-1);
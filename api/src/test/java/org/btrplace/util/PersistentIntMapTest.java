@@ -0,0 +1,169 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link PersistentIntMap}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PersistentIntMapTest {
+
+    @Test
+    public void testPutHasGet() {
+        final PersistentIntMap m = new PersistentIntMap(-1);
+        Assert.assertEquals(m.noEntryValue(), -1);
+        Assert.assertFalse(m.has(0));
+        Assert.assertEquals(m.put(-1, 7), -1);
+        Assert.assertFalse(m.has(-1));
+
+        //Keys that require several levels
+        for (int k : new int[]{56, 4, 1_000, 70_000, Integer.MAX_VALUE}) {
+            Assert.assertEquals(m.put(k, k % 1000), -1);
+            Assert.assertEquals(m.get(k), k % 1000);
+        }
+        Assert.assertEquals(m.size(), 5);
+        Assert.assertEquals(m.put(56, 3), 56);
+        Assert.assertEquals(m.get(56), 3);
+        Assert.assertEquals(m.get(57), -1);
+        Assert.assertEquals(m.get(69_999), -1);
+        Assert.assertEquals(m.size(), 5);
+    }
+
+    @Test
+    public void testForEach() {
+        PersistentIntMap m = new PersistentIntMap(0);
+        m.forEach((k, v) -> {
+            Assert.fail();
+            return true;
+        });
+        for (int i = 3_000; i >= 0; i -= 3) {
+            m.put(i, i * 2);
+        }
+        List<Integer> keys = new ArrayList<>();
+        m.forEach((k, v) -> {
+            Assert.assertEquals(v, k * 2);
+            keys.add(k);
+            return true;
+        });
+        //The key 0 is associated to the no-entry value
+        Assert.assertEquals(keys.size(), 1_000);
+        Assert.assertEquals((int) keys.get(0), 3);
+        Assert.assertEquals((int) keys.get(999), 3_000);
+
+        keys.clear();
+        m.forEach((k, v) -> keys.add(k) && keys.size() < 10);
+        Assert.assertEquals(keys.size(), 10);
+    }
+
+    @Test
+    public void testClearAndAdjust() {
+        final PersistentIntMap m = new PersistentIntMap(-1);
+        m.put(7, 12);
+        Assert.assertEquals(m.adjust(7, 3), 15);
+        Assert.assertEquals(m.adjust(8, 3), -1);
+        Assert.assertFalse(m.has(8));
+        Assert.assertEquals(m.clear(7), 15);
+        Assert.assertEquals(m.clear(7), -1);
+        Assert.assertEquals(m.size(), 0);
+        for (int i = 5; i < 100; i++) {
+            m.put(i, i * 2);
+        }
+        m.clear();
+        Assert.assertEquals(m.size(), 0);
+        Assert.assertFalse(m.has(50));
+    }
+
+    @Test
+    public void testCopy() {
+        final PersistentIntMap m = new PersistentIntMap(-1);
+        for (int i = 0; i < 2_000; i += 2) {
+            m.put(i, i * 2);
+        }
+        PersistentIntMap cp = m.copy();
+        PersistentIntMap cp2 = cp.copy();
+        Assert.assertEquals(cp, m);
+        Assert.assertEquals(cp.hashCode(), m.hashCode());
+        Assert.assertNotEquals(new Object(), m);
+
+        //The modifications are not visible from the other maps
+        cp.put(4, 0);
+        cp.put(5_000, 1);
+        cp.clear(2);
+        m.put(6, 0);
+        Assert.assertEquals(m.get(4), 8);
+        Assert.assertFalse(m.has(5_000));
+        Assert.assertEquals(m.get(2), 4);
+        Assert.assertEquals(cp.get(6), 12);
+        Assert.assertEquals(cp.get(4), 0);
+        Assert.assertEquals(cp.size(), 1_000);
+        Assert.assertNotEquals(cp, m);
+
+        Assert.assertEquals(cp2.get(6), 12);
+        Assert.assertEquals(cp2.get(4), 8);
+        Assert.assertEquals(cp2.size(), 1_000);
+
+        //Setting back the values
+        m.put(6, 12);
+        Assert.assertEquals(cp2, m);
+    }
+
+    @Test
+    public void testConcurrentCopies() throws InterruptedException {
+        final PersistentIntMap m = new PersistentIntMap(-1);
+        for (int i = 0; i < 5_000; i++) {
+            m.put(i, i);
+        }
+        //Each thread copies the map and modifies its own copy
+        List<Thread> threads = new ArrayList<>();
+        List<PersistentIntMap> copies = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            copies.add(null);
+            Thread th = new Thread(() -> {
+                PersistentIntMap cp = m.copy();
+                for (int i = offset; i < 5_000; i += 4) {
+                    cp.put(i, -i - 2);
+                }
+                synchronized (copies) {
+                    copies.set(offset, cp);
+                }
+            });
+            threads.add(th);
+            th.start();
+        }
+        for (Thread th : threads) {
+            th.join();
+        }
+        for (int i = 0; i < 5_000; i++) {
+            Assert.assertEquals(m.get(i), i);
+        }
+        for (int t = 0; t < 4; t++) {
+            PersistentIntMap cp = copies.get(t);
+            for (int i = 0; i < 5_000; i++) {
+                Assert.assertEquals(cp.get(i), i % 4 == t ? -i - 2 : i);
+            }
+        }
+    }
+
+    @Test
+    public void testAsIntMap() {
+        IntMap m = new PersistentIntMap(-1);
+        m.expand(100);
+        Assert.assertEquals(m.size(), 0);
+        m.put(3, 7);
+        Assert.assertEquals(m.quickGet(3), 7);
+        Assert.assertEquals(m.quickGet(200), -1);
+        Assert.assertTrue(m.copy() instanceof PersistentIntMap);
+    }
+}
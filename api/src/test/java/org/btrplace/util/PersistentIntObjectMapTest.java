@@ -0,0 +1,60 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link PersistentIntObjectMap}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PersistentIntObjectMapTest {
+
+    @Test
+    public void testPutHasGet() {
+        final PersistentIntObjectMap<String> m = new PersistentIntObjectMap<>(null);
+        Assert.assertNull(m.noEntryValue());
+        Assert.assertFalse(m.has(0));
+        Assert.assertNull(m.put(-1, "foo"));
+        Assert.assertNull(m.put(100_000, "foo"));
+        Assert.assertEquals(m.get(100_000), "foo");
+        Assert.assertEquals(m.put(100_000, "bar"), "foo");
+        Assert.assertNull(m.get(100_001));
+        Assert.assertEquals(m.clear(100_000), "bar");
+        Assert.assertFalse(m.has(100_000));
+        Assert.assertEquals(m.size(), 0);
+    }
+
+    @Test
+    public void testCopy() {
+        final PersistentIntObjectMap<String> m = new PersistentIntObjectMap<>("none");
+        for (int i = 0; i < 1_000; i++) {
+            m.put(i, Integer.toString(i));
+        }
+        PersistentIntObjectMap<String> cp = m.copy();
+        Assert.assertEquals(cp, m);
+        Assert.assertEquals(cp.hashCode(), m.hashCode());
+        cp.put(500, "foo");
+        m.clear(3);
+        Assert.assertEquals(m.get(500), "500");
+        Assert.assertEquals(cp.get(3), "3");
+        Assert.assertEquals(m.get(3), "none");
+        Assert.assertNotEquals(cp, m);
+
+        AtomicInteger count = new AtomicInteger();
+        cp.forEach((k, v) -> {
+            Assert.assertEquals(v, k == 500 ? "foo" : Integer.toString(k));
+            count.incrementAndGet();
+            return true;
+        });
+        Assert.assertEquals(count.get(), 1_000);
+    }
+}
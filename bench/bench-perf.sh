@@ -4,6 +4,7 @@
 
 #The run command runs the benchmark and store the resulting numbers
 #The stats command computes the average numbers
+#The jmh command runs the per-phase JMH benchmarks, optionally restricted to some instances
 export MAVEN_OPTS="-Xmx4G -Xms4G"
 OUTPUT=$(git rev-parse --short HEAD)
 if [ $# -eq 2 ]; then
@@ -27,8 +28,16 @@ stats)
         echo "${OUTPUT},${DTA}"
     done
     ;;
+jmh)
+    echo "Compiling ..."
+    mvn -q -f ../ clean install -DskipTests -Dgpg.skip||exit 1
+    mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh.cp ||exit 1
+    shift
+    java -cp target/test-classes:target/classes:$(cat target/jmh.cp) org.btrplace.bench.PhasesBenchmark "$@"
+    ;;
 *)
     echo "Unsupported operation: $1.\n"
     echo "$0 [run|stats] output?"
+    echo "$0 jmh [instance...]"
     exit 1
 esac
@@ -33,6 +33,12 @@ public class Options {
   @Option(name = "-m", aliases = "--optimize", usage = "Enable the 'optimize' feature")
   private boolean optimize;
 
+  @Option(name = "-p", aliases = "--profile", usage = "Profile the solving process. The profile is appended to the CSV statistics")
+  private boolean profile;
+
+  @Option(name = "-b", aliases = "--parallel-build", usage = "Prepare the core problem in parallel")
+  private boolean parallelBuild;
+
   @Option(name = "-t", aliases = "--timeout", usage = "Set a timeout (in sec)")
   private int timeout = 0;
 
@@ -60,7 +66,9 @@ public class Options {
     Parameters ps = new DefaultParameters()
         .setTimeLimit(timeout)
         .doRepair(repair)
-        .doOptimize(optimize);
+        .doOptimize(optimize)
+        .doProfiling(profile)
+        .doParallelBuild(parallelBuild);
 
     if (single()) {
       ps.setVerbosity(verbosity);
@@ -100,7 +100,9 @@ public class BenchTest {
         Bench.main(new String[]{
                 "-l", list.getAbsolutePath(),
                 "-o", output.toString(),
-                "-v", "1"
+                "-v", "1",
+                "-p",
+                "-b"
         });
 
         //Read the output CSV file
@@ -108,7 +110,10 @@ public class BenchTest {
         Assert.assertTrue(csv.isFile());
 
         for (String line : Files.readAllLines(csv.toPath(), UTF_8)) {
-            String file = line.split(";")[0];
+            String[] fields = line.split(";");
+            String file = fields[0];
+            //The profile is the last field
+            Assert.assertTrue(fields[fields.length - 1].contains("strategy/"));
             File plan = new File(output.toString() + File.separator + file + ".gz");
 
             System.out.println(plan.getAbsolutePath());
@@ -0,0 +1,165 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.bench;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.binary.BinaryConverter;
+import org.btrplace.json.model.InstanceConverter;
+import org.btrplace.model.Instance;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * JMH micro-benchmarks to compare the JSON and the binary serialisation of an instance.
+ * <p>
+ * The benchmarks run on the {@code std-perf} instances. Besides the speed, each
+ * benchmark reports the size in bytes of the serialised instance. Run them through {@link #main(String[])}.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4G", "-Xmx4G"})
+public class CodecBenchmark {
+
+    /**
+     * The instance to serialise, in the two formats.
+     */
+    @State(Scope.Benchmark)
+    public static class Workload {
+
+        /**
+         * The std-perf instance identifier.
+         */
+        @Param({"nr3", "nr6", "li3", "li6"})
+        public String id;
+
+        Instance instance;
+
+        String json;
+
+        byte[] binary;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, JSONConverterException {
+            instance = PhasesBenchmark.read(id);
+            json = new InstanceConverter().toJSONString(instance);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new BinaryConverter().write(instance, out);
+            binary = out.toByteArray();
+        }
+    }
+
+    /**
+     * The size of the serialised instance.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+
+        /**
+         * The number of bytes.
+         */
+        public long bytes;
+    }
+
+    /**
+     * Measure the JSON serialisation.
+     *
+     * @param w the workload
+     * @param s the size to report
+     * @return the JSON message
+     * @throws JSONConverterException if an error occurred
+     */
+    @Benchmark
+    public String writeJSON(Workload w, Size s) throws JSONConverterException {
+        String res = new InstanceConverter().toJSONString(w.instance);
+        s.bytes = res.getBytes(UTF_8).length;
+        return res;
+    }
+
+    /**
+     * Measure the JSON deserialisation.
+     *
+     * @param w the workload
+     * @return the parsed instance
+     * @throws JSONConverterException if an error occurred
+     */
+    @Benchmark
+    public Instance readJSON(Workload w) throws JSONConverterException {
+        return new InstanceConverter().fromJSON(new StringReader(w.json));
+    }
+
+    /**
+     * Measure the binary serialisation.
+     *
+     * @param w the workload
+     * @param s the size to report
+     * @return the binary message
+     * @throws IOException            if an error occurred
+     * @throws JSONConverterException if an error occurred
+     */
+    @Benchmark
+    public byte[] writeBinary(Workload w, Size s) throws IOException, JSONConverterException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(w.binary.length);
+        new BinaryConverter().write(w.instance, out);
+        s.bytes = out.size();
+        return out.toByteArray();
+    }
+
+    /**
+     * Measure the binary deserialisation.
+     *
+     * @param w the workload
+     * @return the parsed instance
+     * @throws IOException            if an error occurred
+     * @throws JSONConverterException if an error occurred
+     */
+    @Benchmark
+    public Instance readBinary(Workload w) throws IOException, JSONConverterException {
+        return new BinaryConverter().readInstance(new ByteArrayInputStream(w.binary));
+    }
+
+    /**
+     * Launch the benchmarks.
+     *
+     * @param args optional instance identifiers to restrict the benchmark to
+     * @throws RunnerException if the benchmark failed
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder opts = new OptionsBuilder();
+        opts.include(CodecBenchmark.class.getSimpleName());
+        if (args.length > 0) {
+            opts.param("id", args);
+        }
+        new Runner(opts.build()).run();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.bench;
+
+import org.btrplace.model.ArrayMapping;
+import org.btrplace.model.DefaultElementBuilder;
+import org.btrplace.model.DefaultMapping;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.PersistentMapping;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ShareableResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH micro-benchmarks for the copy of a {@link Model}, as performed
+ * when a reconfiguration plan is applied or checked.
+ * <p>
+ * The benchmarks compare a model relying on a {@link DefaultMapping} and default shareable resources,
+ * a model relying on an {@link ArrayMapping} and default shareable resources,
+ * and a model relying on a {@link PersistentMapping} and persistent shareable resources, that is copied in O(1).
+ * {@link #lookups(Workload)} measures the price of the persistent variant on the resource lookups.
+ * Run them through {@link #main(String[])}.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4G", "-Xmx4G"})
+public class ModelCopyBenchmark {
+
+    /**
+     * The number of VMs per node.
+     */
+    private static final int VMS_PER_NODE = 10;
+
+    /**
+     * The model to copy.
+     */
+    @State(Scope.Benchmark)
+    public static class Workload {
+
+        /**
+         * The mapping implementation. Either {@code default}, {@code array} or {@code persistent}.
+         * The shareable resources are persistent with a persistent mapping.
+         */
+        @Param({"default", "array", "persistent"})
+        public String mapping;
+
+        /**
+         * The number of nodes.
+         */
+        @Param({"1000", "10000"})
+        public int nodes;
+
+        Model model;
+
+        List<VM> vms;
+
+        List<Node> ns;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            boolean persistent = "persistent".equals(mapping);
+            Mapping map;
+            if (persistent) {
+                map = new PersistentMapping();
+            } else if ("array".equals(mapping)) {
+                map = new ArrayMapping(nodes * VMS_PER_NODE, nodes);
+            } else {
+                map = new DefaultMapping();
+            }
+            model = new DefaultModel(new DefaultElementBuilder(), map);
+            ShareableResource cpu = new ShareableResource("cpu", 32, 1, persistent);
+            ShareableResource mem = new ShareableResource("mem", 128, 4, persistent);
+            vms = new ArrayList<>();
+            ns = new ArrayList<>();
+            for (int i = 0; i < nodes; i++) {
+                Node n = model.newNode();
+                ns.add(n);
+                map.addOnlineNode(n);
+                model.getAttributes().put(n, "boot", 10);
+                for (int j = 0; j < VMS_PER_NODE; j++) {
+                    VM v = model.newVM();
+                    vms.add(v);
+                    map.addRunningVM(v, n);
+                    cpu.setConsumption(v, j % 4);
+                    mem.setConsumption(v, j % 8);
+                }
+            }
+            model.attach(cpu);
+            model.attach(mem);
+        }
+    }
+
+    /**
+     * Measure a copy of the model.
+     *
+     * @param w the workload
+     * @return the copy
+     */
+    @Benchmark
+    public Model copy(Workload w) {
+        return w.model.copy();
+    }
+
+    /**
+     * Measure a copy of the model followed by a migration and
+     * a change of resource consumption, as when an action is applied.
+     *
+     * @param w the workload
+     * @return the modified copy
+     */
+    @Benchmark
+    public Model copyAndApply(Workload w) {
+        Model mo = w.model.copy();
+        VM v = w.vms.get(w.vms.size() / 2);
+        mo.getMapping().addRunningVM(v, w.ns.get(0));
+        ShareableResource.get(mo, "cpu").setConsumption(v, 3);
+        return mo;
+    }
+
+    /**
+     * Measure a sequence of snapshots. Each snapshot is a copy of
+     * the previous one, with one VM migrated.
+     *
+     * @param w the workload
+     * @return the last snapshot
+     */
+    @Benchmark
+    public Model snapshots(Workload w) {
+        Model mo = w.model;
+        for (int i = 0; i < 100; i++) {
+            mo = mo.copy();
+            mo.getMapping().addRunningVM(w.vms.get(i * VMS_PER_NODE), w.ns.get((i + 1) % w.ns.size()));
+        }
+        return mo;
+    }
+
+    /**
+     * Measure the lookup of the resource consumption of every VM,
+     * as when a problem is modelled.
+     *
+     * @param w the workload
+     * @return the total consumption
+     */
+    @Benchmark
+    public long lookups(Workload w) {
+        ShareableResource cpu = ShareableResource.get(w.model, "cpu");
+        ShareableResource mem = ShareableResource.get(w.model, "mem");
+        long sum = 0;
+        for (VM v : w.vms) {
+            sum += cpu.getConsumption(v) + mem.getConsumption(v);
+        }
+        return sum;
+    }
+
+    /**
+     * Launch the benchmarks.
+     *
+     * @param args optional mapping implementations to restrict the benchmark to
+     * @throws RunnerException if the benchmark failed
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder opts = new OptionsBuilder();
+        opts.include(ModelCopyBenchmark.class.getSimpleName());
+        if (args.length > 0) {
+            opts.param("mapping", args);
+        }
+        new Runner(opts.build()).run();
+    }
+}
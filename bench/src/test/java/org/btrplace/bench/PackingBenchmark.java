@@ -0,0 +1,191 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.bench;
+
+import org.btrplace.scheduler.choco.extensions.pack.IncrementalVectorPackingPropagator;
+import org.btrplace.scheduler.choco.extensions.pack.VectorPacking;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainMin;
+import org.chocosolver.solver.search.strategy.selectors.variables.InputOrder;
+import org.chocosolver.solver.variables.IntVar;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH micro-benchmark to compare the default and the incremental propagation
+ * of {@link VectorPacking}.
+ * <p>
+ * The benchmark searches for a solution of synthetic packing problems. As in a reconfiguration problem,
+ * the bin loads are also constrained outside of the packing constraint, here by the maximum load per dimension.
+ * Besides the duration, it reports the number of nodes and fails to check the two propagators lead to the same search.
+ * Run it through {@link #main(String[])}.
+ *
+ * @author Fabien Hermenier
+ * @see IncrementalVectorPackingPropagator
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4G", "-Xmx4G"})
+public class PackingBenchmark {
+
+    /**
+     * The number of dimensions.
+     */
+    private static final int DIMS = 3;
+
+    /**
+     * The characteristics of the packing problem.
+     */
+    @State(Scope.Benchmark)
+    public static class Workload {
+
+        /**
+         * The number of items.
+         */
+        @Param({"10000"})
+        public int items;
+
+        /**
+         * The number of items per bin.
+         */
+        @Param({"10"})
+        public int density;
+
+        /**
+         * The ratio between the total item size and the total bin capacity, in percent.
+         */
+        @Param({"80", "90"})
+        public int fill;
+
+        /**
+         * {@code true} to rely on the incremental propagator.
+         */
+        @Param({"false", "true"})
+        public boolean incremental;
+
+        int[][] sizes;
+
+        int[] capas;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random rnd = new Random(items);
+            int nbBins = items / density;
+            sizes = new int[DIMS][items];
+            capas = new int[DIMS];
+            for (int d = 0; d < DIMS; d++) {
+                long sum = 0;
+                for (int i = 0; i < items; i++) {
+                    sizes[d][i] = 1 + rnd.nextInt(10);
+                    sum += sizes[d][i];
+                }
+                capas[d] = (int) (sum * 100 / fill / nbBins);
+            }
+        }
+    }
+
+    /**
+     * A packing problem ready to be solved.
+     */
+    @State(Scope.Thread)
+    public static class Problem {
+
+        Solver solver;
+
+        @Setup(Level.Invocation)
+        public void setup(Workload w) {
+            Model mo = new Model();
+            mo.getSettings().setWarnUser(false);
+            int nbBins = w.items / w.density;
+            IntVar[][] loads = new IntVar[DIMS][nbBins];
+            String[] names = new String[DIMS];
+            for (int d = 0; d < DIMS; d++) {
+                names[d] = "d" + d;
+                for (int b = 0; b < nbBins; b++) {
+                    loads[d][b] = mo.intVar("l" + d + "." + b, 0, w.capas[d], true);
+                }
+            }
+            IntVar[] bins = mo.intVarArray("b", w.items, 0, nbBins - 1, false);
+            mo.post(new VectorPacking(names, loads, w.sizes, bins, false, w.incremental));
+            for (int d = 0; d < DIMS; d++) {
+                mo.max(mo.intVar("max" + d, 0, w.capas[d], true), loads[d]).post();
+            }
+            solver = mo.getSolver();
+            solver.setSearch(Search.intVarSearch(new InputOrder<>(mo), new IntDomainMin(), bins));
+            solver.limitFail(10_000);
+        }
+    }
+
+    /**
+     * The statistics of the search.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        /**
+         * The number of nodes.
+         */
+        public long nodes;
+
+        /**
+         * The number of fails.
+         */
+        public long fails;
+    }
+
+    /**
+     * Measure the search of a solution.
+     *
+     * @param p the problem to solve
+     * @param c the search statistics to report
+     * @return {@code true} iff a solution was found
+     */
+    @Benchmark
+    public boolean search(Problem p, Counters c) {
+        boolean res = p.solver.solve();
+        c.nodes = p.solver.getNodeCount();
+        c.fails = p.solver.getFailCount();
+        return res;
+    }
+
+    /**
+     * Launch the benchmark.
+     *
+     * @param args optional numbers of items to restrict the benchmark to
+     * @throws RunnerException if the benchmark failed
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder opts = new OptionsBuilder();
+        opts.include(PackingBenchmark.class.getSimpleName());
+        if (args.length > 0) {
+            opts.param("items", args);
+        }
+        new Runner(opts.build()).run();
+    }
+}
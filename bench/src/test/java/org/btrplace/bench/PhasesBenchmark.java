@@ -0,0 +1,236 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.bench;
+
+import org.btrplace.json.JSON;
+import org.btrplace.model.Instance;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * JMH micro-benchmarks for the phases of {@link InstanceSolverRunner}:
+ * the core problem building, its specialisation, the search and
+ * the reconfiguration plan extraction.
+ * <p>
+ * The benchmarks run on the {@code std-perf} instances. Run them with
+ * {@code ./bench-perf.sh jmh} or through {@link #main(String[])}.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4G", "-Xmx4G"})
+public class PhasesBenchmark {
+
+    /**
+     * The instance to solve, with the parameters to use.
+     */
+    @State(Scope.Benchmark)
+    public static class Workload {
+
+        /**
+         * The std-perf instance identifier.
+         */
+        @Param({"nr3", "nr4", "nr5", "nr6", "li3", "li4", "li5", "li6"})
+        public String id;
+
+        /**
+         * {@code true} to enable the repair mode.
+         */
+        @Param({"true"})
+        public boolean repair;
+
+        /**
+         * The solving time limit in seconds.
+         */
+        @Param({"300"})
+        public int timeout;
+
+        Instance instance;
+
+        Parameters params;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            instance = read(id);
+            params = new DefaultParameters()
+                    .doRepair(repair)
+                    .setTimeLimit(timeout);
+        }
+    }
+
+    /**
+     * A runner having its core problem built.
+     */
+    @State(Scope.Thread)
+    public static class Built {
+
+        InstanceSolverRunner runner;
+
+        @Setup(Level.Invocation)
+        public void setup(Workload w) throws SchedulerException {
+            runner = new InstanceSolverRunner(w.params, w.instance);
+            runner.buildRP();
+        }
+    }
+
+    /**
+     * A runner having its problem built and specialised.
+     */
+    @State(Scope.Thread)
+    public static class Specialised {
+
+        InstanceSolverRunner runner;
+
+        @Setup(Level.Invocation)
+        public void setup(Workload w) throws SchedulerException {
+            runner = new InstanceSolverRunner(w.params, w.instance);
+            runner.buildRP();
+            runner.specialise();
+        }
+    }
+
+    /**
+     * A solved problem with its last solution.
+     */
+    @State(Scope.Thread)
+    public static class Solved {
+
+        ReconfigurationProblem rp;
+
+        Solution solution;
+
+        @Setup(Level.Trial)
+        public void setup(Workload w) throws SchedulerException {
+            InstanceSolverRunner runner = new InstanceSolverRunner(w.params, w.instance);
+            rp = runner.buildRP();
+            runner.specialise();
+            rp.getSolver().plugMonitor((IMonitorSolution) () -> {
+                solution = new Solution(rp.getModel());
+                solution.record();
+            });
+            rp.solve(w.params.getTimeLimit(), w.params.doOptimize());
+            if (solution == null) {
+                throw new IllegalStateException("No solution for '" + w.id + "'");
+            }
+        }
+    }
+
+    /**
+     * Measure the core problem building.
+     *
+     * @param w the workload
+     * @return the built problem
+     * @throws SchedulerException if an error occurred
+     */
+    @Benchmark
+    public ReconfigurationProblem buildRP(Workload w) throws SchedulerException {
+        return new InstanceSolverRunner(w.params, w.instance).buildRP();
+    }
+
+    /**
+     * Measure the specialisation of a core problem.
+     *
+     * @param b the runner with a built problem
+     * @return the specialisation status
+     */
+    @Benchmark
+    public boolean specialise(Built b) {
+        return b.runner.specialise();
+    }
+
+    /**
+     * Measure the search.
+     *
+     * @param w the workload
+     * @param s the runner with a specialised problem
+     * @return the computed plan
+     * @throws SchedulerException if an error occurred
+     */
+    @Benchmark
+    public ReconfigurationPlan search(Workload w, Specialised s) throws SchedulerException {
+        return s.runner.getProblem().solve(w.params.getTimeLimit(), w.params.doOptimize());
+    }
+
+    /**
+     * Measure the conversion of a solution into a reconfiguration plan.
+     *
+     * @param w the workload
+     * @param s the solved problem
+     * @return the resulting plan
+     * @throws SchedulerException if an error occurred
+     */
+    @Benchmark
+    public ReconfigurationPlan buildReconfigurationPlan(Workload w, Solved s) throws SchedulerException {
+        return s.rp.buildReconfigurationPlan(s.solution, w.instance.getModel());
+    }
+
+    /**
+     * Read a std-perf instance from the classpath.
+     *
+     * @param id the instance identifier
+     * @return the parsed instance
+     * @throws IOException if the instance cannot be read
+     */
+    static Instance read(String id) throws IOException {
+        String path = "/std-perf/" + id + ".gz";
+        InputStream in = PhasesBenchmark.class.getResourceAsStream(path);
+        if (in == null) {
+            throw new IOException("No instance '" + path + "' in the classpath");
+        }
+        try (Reader r = new InputStreamReader(new GZIPInputStream(in), UTF_8)) {
+            return JSON.readInstance(r);
+        }
+    }
+
+    /**
+     * Launch the benchmarks.
+     *
+     * @param args optional instance identifiers to restrict the benchmark to
+     * @throws RunnerException if the benchmark failed
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder opts = new OptionsBuilder();
+        opts.include(PhasesBenchmark.class.getSimpleName());
+        if (args.length > 0) {
+            opts.param("id", args);
+        }
+        new Runner(opts.build()).run();
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.bench;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.UnstatableProblemException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.Slice;
+import org.btrplace.scheduler.choco.constraint.mttr.CMinMTTR;
+import org.btrplace.scheduler.choco.constraint.mttr.WorstFit;
+import org.btrplace.scheduler.choco.constraint.mttr.load.BiggestDimension;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.btrplace.scheduler.choco.transition.VMTransition;
+import org.btrplace.scheduler.choco.view.CShareableResource;
+import org.btrplace.scheduler.choco.view.ChocoView;
+import org.btrplace.scheduler.choco.view.Packing;
+import org.btrplace.scheduler.choco.view.VectorPacking;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH micro-benchmark to compare the node-load index of {@link WorstFit}
+ * against a scan of the placement variable domain.
+ * <p>
+ * The benchmarks measure the search on the {@code std-perf} instances, and the
+ * selection of a host for every VM to place once the problem is propagated.
+ * Run them through {@link #main(String[])}.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4G", "-Xmx4G"})
+public class WorstFitBenchmark {
+
+    /**
+     * The instance to solve, with the heuristic to use.
+     */
+    @State(Scope.Benchmark)
+    public static class Workload {
+
+        /**
+         * The std-perf instance identifier.
+         */
+        @Param({"nr3", "nr6", "li3", "li6"})
+        public String id;
+
+        /**
+         * {@code index} for {@link WorstFit}, {@code scan} for {@link ScanWorstFit}.
+         */
+        @Param({"index", "scan"})
+        public String heuristic;
+
+        /**
+         * {@code true} to enable the repair mode.
+         */
+        @Param({"true"})
+        public boolean repair;
+
+        Instance instance;
+
+        Parameters params;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            instance = PhasesBenchmark.read(id);
+            params = new DefaultParameters()
+                    .doRepair(repair)
+                    .setTimeLimit(300);
+            if ("scan".equals(heuristic)) {
+                params.getMapper().mapConstraint(MinMTTR.class, ScanMinMTTR.class);
+            }
+        }
+    }
+
+    /**
+     * A runner having its problem built and specialised.
+     */
+    @State(Scope.Thread)
+    public static class Specialised {
+
+        InstanceSolverRunner runner;
+
+        @Setup(Level.Invocation)
+        public void setup(Workload w) throws SchedulerException {
+            runner = new InstanceSolverRunner(w.params, w.instance);
+            runner.buildRP();
+            runner.specialise();
+        }
+    }
+
+    /**
+     * A propagated problem with the heuristic to evaluate.
+     */
+    @State(Scope.Thread)
+    public static class Propagated {
+
+        IntValueSelector selector;
+
+        IntVar[] hosts;
+
+        @Setup(Level.Trial)
+        public void setup(Workload w) throws SchedulerException {
+            //Stop the search at the first placement decision
+            Parameters ps = new DefaultParameters().doRepair(w.params.doRepair());
+            ps.getMapper().mapConstraint(MinMTTR.class, StoppingMinMTTR.class);
+            InstanceSolverRunner runner = new InstanceSolverRunner(ps, w.instance);
+            ReconfigurationProblem rp = runner.buildRP();
+            runner.specialise();
+            rp.getSolver().addStopCriterion(() -> StoppingMinMTTR.stopped);
+            try {
+                rp.solve(0, false);
+            } catch (UnstatableProblemException ex) {
+                //Expected as the search stopped
+            }
+            Map<IntVar, VM> map = new HashMap<>();
+            for (VMTransition t : rp.getVMActions()) {
+                Slice s = t.getDSlice();
+                if (s != null && !s.getHoster().isInstantiated()) {
+                    map.put(s.getHoster(), t.getVM());
+                }
+            }
+            hosts = map.keySet().toArray(new IntVar[0]);
+            if ("scan".equals(w.heuristic)) {
+                selector = new ScanWorstFit(map, rp);
+            } else {
+                selector = new WorstFit(map, rp, new BiggestDimension());
+            }
+        }
+    }
+
+    /**
+     * Measure the selection of a host for every VM to place.
+     *
+     * @param p the propagated problem
+     * @return a checksum of the selected hosts
+     */
+    @Benchmark
+    public int select(Propagated p) {
+        int sum = 0;
+        for (IntVar v : p.hosts) {
+            sum += p.selector.selectValue(v);
+        }
+        return sum;
+    }
+
+    /**
+     * Measure the search.
+     *
+     * @param w the workload
+     * @param s the runner with a specialised problem
+     * @return the computed plan
+     * @throws SchedulerException if an error occurred
+     */
+    @Benchmark
+    public ReconfigurationPlan search(Workload w, Specialised s) throws SchedulerException {
+        return s.runner.getProblem().solve(w.params.getTimeLimit(), w.params.doOptimize());
+    }
+
+    /**
+     * The MTTR objective with the placement heuristic scanning the domains.
+     */
+    public static class ScanMinMTTR extends CMinMTTR {
+
+        /**
+         * Make a new objective.
+         *
+         * @param m the API-side objective
+         */
+        public ScanMinMTTR(MinMTTR m) {
+            super(m);
+        }
+
+        @Override
+        protected IntValueSelector makePlacementHeuristic(ReconfigurationProblem p, Parameters ps, Map<IntVar, VM> map) {
+            if (p.getSourceModel().getViews().isEmpty()) {
+                return super.makePlacementHeuristic(p, ps, map);
+            }
+            return new ScanWorstFit(map, p);
+        }
+    }
+
+    /**
+     * The MTTR objective that stops the search once the first VM is placed.
+     */
+    public static class StoppingMinMTTR extends CMinMTTR {
+
+        static volatile boolean stopped;
+
+        /**
+         * Make a new objective.
+         *
+         * @param m the API-side objective
+         */
+        public StoppingMinMTTR(MinMTTR m) {
+            super(m);
+            stopped = false;
+        }
+
+        @Override
+        protected IntValueSelector makePlacementHeuristic(ReconfigurationProblem p, Parameters ps, Map<IntVar, VM> map) {
+            IntValueSelector sel = super.makePlacementHeuristic(p, ps, map);
+            return v -> {
+                stopped = true;
+                return sel.selectValue(v);
+            };
+        }
+    }
+
+    /**
+     * The worst fit heuristic, that computes the load of each node in the domain for each decision.
+     */
+    static class ScanWorstFit implements IntValueSelector {
+
+        private final Map<IntVar, VM> vmMap;
+
+        private final ReconfigurationProblem rp;
+
+        private final BiggestDimension globalLoad = new BiggestDimension();
+
+        private final List<CShareableResource> rcs;
+
+        private final VectorPacking packing;
+
+        private final int[][] capacities;
+
+        ScanWorstFit(Map<IntVar, VM> vmMap, ReconfigurationProblem rp) {
+            this.vmMap = vmMap;
+            this.rp = rp;
+            packing = (VectorPacking) rp.getRequiredView(Packing.VIEW_ID);
+            rcs = new ArrayList<>();
+            for (String s : rp.getViews()) {
+                ChocoView cv = rp.getRequiredView(s);
+                if (cv instanceof CShareableResource) {
+                    rcs.add((CShareableResource) cv);
+                }
+            }
+            capacities = new int[rp.getNodes().size()][rcs.size()];
+            for (int n = 0; n < capacities.length; n++) {
+                for (int d = 0; d < rcs.size(); d++) {
+                    capacities[n][d] = (int) (rcs.get(d).getFutureNodeCapacity(n) * rcs.get(d).getOverbookRatio(n));
+                }
+            }
+        }
+
+        @Override
+        public int selectValue(IntVar v) {
+            VM vm = vmMap.get(v);
+            int vmId = rp.getVM(vm);
+            Node host = rp.getSourceModel().getMapping().getVMLocation(vm);
+            int nodeId = rp.getNode(host);
+            int[] usage = new int[rcs.size()];
+            for (int d = 0; d < rcs.size(); d++) {
+                usage[d] = rcs.get(d).getFutureVMAllocation(vmId);
+            }
+            if (nodeId >= 0 && v.contains(nodeId) && loadWith(nodeId, usage) <= 1.0) {
+                return nodeId;
+            }
+            int leastId = v.getLB();
+            double minLoad = 2;
+            for (int nId = v.getLB(); nId <= v.getUB(); nId = v.nextValue(nId)) {
+                double global = loadWith(nId, usage);
+                if (global < minLoad) {
+                    leastId = nId;
+                    minLoad = global;
+                }
+            }
+            return leastId;
+        }
+
+        private double loadWith(int nId, int[] usage) {
+            double[] normalised = new double[rcs.size()];
+            for (int d = 0; d < rcs.size(); d++) {
+                normalised[d] = (1.0d * packing.assignedLoad()[d][nId].get() + usage[d]) / capacities[nId][d];
+            }
+            return globalLoad.getLoad(normalised);
+        }
+    }
+
+    /**
+     * Launch the benchmark.
+     *
+     * @param args optional instance identifiers to restrict the benchmark to
+     * @throws RunnerException if the benchmark failed
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder opts = new OptionsBuilder();
+        opts.include(WorstFitBenchmark.class.getSimpleName());
+        if (args.length > 0) {
+            opts.param("id", args);
+        }
+        new Runner(opts.build()).run();
+    }
+}
@@ -96,6 +96,46 @@ public class DefaultChocoScheduler implements ChocoScheduler {
         return params.doRepair();
     }
 
+    @Override
+    public Parameters doLazyPlans(boolean b) {
+        return params.doLazyPlans(b);
+    }
+
+    @Override
+    public boolean doLazyPlans() {
+        return params.doLazyPlans();
+    }
+
+    @Override
+    public Parameters doIncrementalPacking(boolean b) {
+        return params.doIncrementalPacking(b);
+    }
+
+    @Override
+    public boolean doIncrementalPacking() {
+        return params.doIncrementalPacking();
+    }
+
+    @Override
+    public Parameters doProfiling(boolean b) {
+        return params.doProfiling(b);
+    }
+
+    @Override
+    public boolean doProfiling() {
+        return params.doProfiling();
+    }
+
+    @Override
+    public Parameters doParallelBuild(boolean b) {
+        return params.doParallelBuild(b);
+    }
+
+    @Override
+    public boolean doParallelBuild() {
+        return params.doParallelBuild();
+    }
+
     @Override
     public ReconfigurationPlan solve(Model mo, Collection<? extends SatConstraint> cstrs) throws SchedulerException {
         return solve(mo, cstrs, new MinMTTR());
@@ -27,6 +27,10 @@ import java.util.function.BiConsumer;
  * Default implementation of {@link Parameters}.
  * <ul>
  * <li>repair mode is disabled</li>
+ * <li>the plans of the intermediate solutions are built eagerly</li>
+ * <li>the vector packing constraint is not propagated incrementally</li>
+ * <li>the solving process is not profiled</li>
+ * <li>the core problem is prepared sequentially</li>
  * <li>no time limit</li>
  * <li>a default horizon of 1 hour</li>
  * <li>the transition factory comes from {@link org.btrplace.scheduler.choco.transition.TransitionFactory#newBundle()}</li>
@@ -61,6 +65,14 @@ public class DefaultParameters implements Parameters {
 
     private boolean repair = false;
 
+    private boolean lazyPlans = false;
+
+    private boolean incrementalPacking = false;
+
+    private boolean profiling = false;
+
+    private boolean parallelBuild = false;
+
     private DurationEvaluators durationEvaluators;
 
     private final List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> solutionListeners;
@@ -106,6 +118,10 @@ public class DefaultParameters implements Parameters {
         seed = ps.getRandomSeed();
         timeLimit = ps.getTimeLimit();
         repair = ps.doRepair();
+        lazyPlans = ps.doLazyPlans();
+        incrementalPacking = ps.doIncrementalPacking();
+        profiling = ps.doProfiling();
+        parallelBuild = ps.doParallelBuild();
         durationEvaluators = ps.getDurationEvaluators();
         maxEnd = ps.getMaxEnd();
         verbosityLevel = ps.getVerbosity();
@@ -127,6 +143,50 @@ public class DefaultParameters implements Parameters {
         return repair;
     }
 
+    @Override
+    public DefaultParameters doLazyPlans(boolean b) {
+        lazyPlans = b;
+        return this;
+    }
+
+    @Override
+    public boolean doLazyPlans() {
+        return lazyPlans;
+    }
+
+    @Override
+    public DefaultParameters doIncrementalPacking(boolean b) {
+        incrementalPacking = b;
+        return this;
+    }
+
+    @Override
+    public boolean doIncrementalPacking() {
+        return incrementalPacking;
+    }
+
+    @Override
+    public DefaultParameters doProfiling(boolean b) {
+        profiling = b;
+        return this;
+    }
+
+    @Override
+    public boolean doProfiling() {
+        return profiling;
+    }
+
+    @Override
+    public DefaultParameters doParallelBuild(boolean b) {
+        parallelBuild = b;
+        return this;
+    }
+
+    @Override
+    public boolean doParallelBuild() {
+        return parallelBuild;
+    }
+
     @Override
     public DefaultParameters doOptimize(boolean b) {
         optimize = b;
@@ -267,4 +327,14 @@ public class DefaultParameters implements Parameters {
     public List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> solutionListeners() {
         return Collections.unmodifiableList(solutionListeners);
     }
+
+    /**
+     * Remove all the solution listeners.
+     *
+     * @return {@code this}
+     */
+    public DefaultParameters clearSolutionListeners() {
+        solutionListeners.clear();
+        return this;
+    }
 }
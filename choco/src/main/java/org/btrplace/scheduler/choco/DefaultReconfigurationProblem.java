@@ -11,11 +11,16 @@ import gnu.trove.map.hash.TObjectIntHashMap;
 import org.btrplace.model.*;
 import org.btrplace.plan.DefaultReconfigurationPlan;
 import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ShutdownNode;
 import org.btrplace.scheduler.InconsistentSolutionException;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.SchedulerModelingException;
 import org.btrplace.scheduler.UnstatableProblemException;
 import org.btrplace.scheduler.choco.duration.DurationEvaluators;
+import org.btrplace.scheduler.choco.duration.PreparedDurations;
 import org.btrplace.scheduler.choco.transition.*;
 import org.btrplace.scheduler.choco.view.AliasedCumulatives;
 import org.btrplace.scheduler.choco.view.ChocoView;
@@ -83,7 +88,7 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
     private List<VMTransition> vmActions;
     private List<NodeTransition> nodeActions;
 
-    private final DurationEvaluators durEval;
+    private DurationEvaluators durEval;
 
     private List<IntVar> vmsCountOnNodes;
 
@@ -141,6 +146,9 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
         this.solutions = new ArrayList<>();
 
         fillElements();
+        if (ps.doParallelBuild()) {
+            durEval = new PreparedDurations(durEval, model, requestedDurations());
+        }
 
         makeCardinalityVariables();
 
@@ -445,6 +453,58 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
         }
     }
 
+    /**
+     * Get the durations the bundled transitions will evaluate.
+     * A relocatable VM that is not manageable stays on its host, so none of its durations are requested.
+     * A transition from another factory may evaluate other durations. They are evaluated on demand.
+     *
+     * @return for each action, the elements to evaluate the duration of
+     */
+    private Map<Class<? extends Action>, List<Element>> requestedDurations() {
+        Map<Class<? extends Action>, List<Element>> requests = new HashMap<>();
+        Mapping map = model.getMapping();
+        for (VM vm : vms) {
+            VMState cur = map.getState(vm);
+            if (cur == null) {
+                cur = VMState.INIT;
+            }
+            VMState next = cur;
+            if (running.contains(vm)) {
+                next = VMState.RUNNING;
+            } else if (sleeping.contains(vm)) {
+                next = VMState.SLEEPING;
+            } else if (ready.contains(vm)) {
+                next = VMState.READY;
+            } else if (killed.contains(vm)) {
+                next = VMState.KILLED;
+            }
+            List<Class<? extends Action>> actions = new ArrayList<>(3);
+            if (next == VMState.KILLED) {
+                actions.add(org.btrplace.plan.event.KillVM.class);
+            } else if (cur == VMState.RUNNING && next == VMState.RUNNING) {
+                if (manageable.contains(vm)) {
+                    actions.add(MigrateVM.class);
+                    actions.add(org.btrplace.plan.event.BootVM.class);
+                    actions.add(org.btrplace.plan.event.ForgeVM.class);
+                }
+            } else if (cur == VMState.RUNNING) {
+                actions.add(next == VMState.SLEEPING ? org.btrplace.plan.event.SuspendVM.class : org.btrplace.plan.event.ShutdownVM.class);
+            } else if (next == VMState.RUNNING) {
+                actions.add(cur == VMState.SLEEPING ? org.btrplace.plan.event.ResumeVM.class : org.btrplace.plan.event.BootVM.class);
+            } else if (cur == VMState.INIT && next == VMState.READY) {
+                actions.add(org.btrplace.plan.event.ForgeVM.class);
+            }
+            for (Class<? extends Action> a : actions) {
+                requests.computeIfAbsent(a, k -> new ArrayList<>()).add(vm);
+            }
+        }
+        for (Node n : nodes) {
+            Class<? extends Action> a = map.isOnline(n) ? ShutdownNode.class : BootNode.class;
+            requests.computeIfAbsent(a, k -> new ArrayList<>()).add(n);
+        }
+        return requests;
+    }
+
     private void makeNodeTransitions() {
 
         Mapping m = model.getMapping();
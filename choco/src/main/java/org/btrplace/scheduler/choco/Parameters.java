@@ -72,6 +72,81 @@ public interface Parameters {
      */
     boolean doOptimize();
 
+    /**
+     * State if the reconfiguration plans of the intermediate solutions must be built lazily.
+     * In that case, only the metrics and the objective value are computed for each solution.
+     * The plan of the last solution is built once the solving process ends, the others
+     * are built on demand through {@link org.btrplace.scheduler.choco.runner.SolutionStatistics#getReconfigurationPlan()}.
+     * The plans are still built eagerly for the solution listeners, if any.
+     *
+     * @param b {@code true} to build the plans lazily
+     * @return the current instance
+     */
+    Parameters doLazyPlans(boolean b);
+
+    /**
+     * Tell if the reconfiguration plans of the intermediate solutions are built lazily.
+     *
+     * @return {@code true} iff the plans are built on demand
+     */
+    boolean doLazyPlans();
+
+    /**
+     * State if the vector packing constraint must be propagated incrementally.
+     * In that case, the propagator maintains the sums of the bin loads from the events
+     * instead of recomputing them, and only scans the bins when a bin load may be filtered.
+     * The filtering is the same.
+     *
+     * @param b {@code true} to propagate incrementally
+     * @return the current instance
+     * @see org.btrplace.scheduler.choco.extensions.pack.IncrementalVectorPackingPropagator
+     */
+    Parameters doIncrementalPacking(boolean b);
+
+    /**
+     * Tell if the vector packing constraint is propagated incrementally.
+     *
+     * @return {@code true} iff the propagation is incremental
+     */
+    boolean doIncrementalPacking();
+
+    /**
+     * State if the solving process must be profiled.
+     * In that case, the statistics report the time spent in each view and constraint
+     * during the specialisation, the failures per propagator class and the decisions
+     * per search strategy. See {@link org.btrplace.scheduler.choco.runner.Profile}.
+     *
+     * @param b {@code true} to profile the solving process
+     * @return the current instance
+     */
+    Parameters doProfiling(boolean b);
+
+    /**
+     * Tell if the solving process is profiled.
+     *
+     * @return {@code true} iff the solving process is profiled
+     */
+    boolean doProfiling();
+
+    /**
+     * State if the data required to build the core problem must be prepared in parallel.
+     * In that case, the durations the transitions will ask for are evaluated on the
+     * common fork-join pool before the transitions are made. The variables and the constraints
+     * are still created by the calling thread. This only pays off with costly duration evaluators
+     * and several cores.
+     *
+     * @param b {@code true} to prepare the data in parallel
+     * @return the current instance
+     */
+    Parameters doParallelBuild(boolean b);
+
+    /**
+     * Tell if the data required to build the core problem is prepared in parallel.
+     *
+     * @return {@code true} iff the data is prepared in parallel
+     */
+    boolean doParallelBuild();
+
     /**
      * Set the timeout value for the solving process.
      * Use a negative number to remove any timeout.
@@ -0,0 +1,202 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.Slice;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Choco implementation of a set of {@link Ban} and {@link Fence} constraints.
+ * <p>
+ * The constraints are merged per VM: the banned nodes are gathered while the nodes
+ * allowed by the fences are intersected. The host variable of each VM is then
+ * restricted once, instead of once per constraint.
+ * The filtering is the same than with a {@link CBan} or a {@link CFence} per constraint.
+ *
+ * @author Fabien Hermenier
+ */
+public class CPlacementConstraints implements ChocoConstraint {
+
+    private final List<Ban> bans;
+
+    private final List<Fence> fences;
+
+    /**
+     * Make a new constraint that does not contain any constraint yet.
+     */
+    public CPlacementConstraints() {
+        bans = new ArrayList<>();
+        fences = new ArrayList<>();
+    }
+
+    /**
+     * Try to merge a constraint.
+     * Only the constraints that rely on the default implementation, {@link CBan} or {@link CFence}, are merged.
+     *
+     * @param cstr the api-side constraint
+     * @param cc   its choco implementation
+     * @return {@code true} iff the constraint has been merged. In that case, {@code cc} must not be injected
+     */
+    public boolean offer(SatConstraint cstr, ChocoConstraint cc) {
+        if (cstr instanceof Ban && cc.getClass() == CBan.class) {
+            bans.add((Ban) cstr);
+            return true;
+        }
+        if (cstr instanceof Fence && cc.getClass() == CFence.class) {
+            fences.add((Fence) cstr);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of merged constraints.
+     *
+     * @return a positive number
+     */
+    public int size() {
+        return bans.size() + fences.size();
+    }
+
+    @Override
+    public boolean inject(Parameters ps, ReconfigurationProblem rp) {
+        Mapping map = rp.getSourceModel().getMapping();
+        //The constraints made from a same collection of nodes share its indexes
+        Map<Collection<Node>, BitSet> indexes = new IdentityHashMap<>();
+        Map<VM, BitSet> banned = new LinkedHashMap<>();
+        Map<VM, BitSet> allowed = new LinkedHashMap<>();
+        for (Ban ban : bans) {
+            VM vm = ban.getInvolvedVMs().iterator().next();
+            if (ban.isContinuous() && ban.getInvolvedNodes().contains(map.getVMLocation(vm))) {
+                rp.getLogger().debug("Constraint {} is not satisfied initially", ban);
+                return false;
+            }
+            BitSet s = indexes.computeIfAbsent(ban.getInvolvedNodes(), ns -> indexes(rp, ns));
+            banned.merge(vm, s, (a, b) -> {
+                BitSet u = (BitSet) a.clone();
+                u.or(b);
+                return u;
+            });
+        }
+        for (Fence fence : fences) {
+            VM vm = fence.getInvolvedVMs().iterator().next();
+            Node location = map.getVMLocation(vm);
+            if (fence.isContinuous() && location != null && !fence.getInvolvedNodes().contains(location)) {
+                rp.getLogger().debug("Constraint {} is not satisfied initially", fence);
+                return false;
+            }
+            BitSet s = indexes.computeIfAbsent(fence.getInvolvedNodes(), ns -> indexes(rp, ns));
+            allowed.merge(vm, s, (a, b) -> {
+                BitSet i = (BitSet) a.clone();
+                i.and(b);
+                return i;
+            });
+        }
+
+        Set<VM> vms = new LinkedHashSet<>(banned.keySet());
+        vms.addAll(allowed.keySet());
+        for (VM vm : vms) {
+            Slice t = rp.getVMAction(vm).getDSlice();
+            if (t == null) {
+                continue;
+            }
+            //The fences only apply to the VMs that will be running
+            BitSet in = rp.getFutureRunningVMs().contains(vm) ? allowed.get(vm) : null;
+            if (!restrict(rp, vm, t.getHoster(), banned.get(vm), in)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static BitSet indexes(ReconfigurationProblem rp, Collection<Node> nodes) {
+        BitSet s = new BitSet(rp.getNodes().size());
+        for (Node n : nodes) {
+            int idx = rp.getNode(n);
+            if (idx >= 0) {
+                s.set(idx);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Restrict the hosting node of a VM.
+     *
+     * @param rp      the problem
+     * @param vm      the VM
+     * @param hoster  the variable denoting the hosting node
+     * @param banned  the banned node indexes. May be {@code null}
+     * @param allowed the allowed node indexes. {@code null} if every node is allowed
+     * @return {@code false} if the restriction leads to a contradiction
+     */
+    private static boolean restrict(ReconfigurationProblem rp, VM vm, IntVar hoster, BitSet banned, BitSet allowed) {
+        BitSet out = new BitSet(rp.getNodes().size());
+        if (allowed != null) {
+            out.set(0, rp.getNodes().size());
+            out.andNot(allowed);
+        }
+        if (banned != null) {
+            out.or(banned);
+        }
+        for (int n = out.nextSetBit(0); n >= 0; n = out.nextSetBit(n + 1)) {
+            try {
+                hoster.removeValue(n, Cause.Null);
+            } catch (ContradictionException ex) {
+                rp.getLogger().debug("Unable to prevent VM '" + vm + "' to run on node '" + rp.getNode(n) + "'", ex);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<VM> getMisPlacedVMs(Instance i) {
+        Mapping map = i.getModel().getMapping();
+        Set<VM> bad = new HashSet<>();
+        for (Ban ban : bans) {
+            VM vm = ban.getInvolvedVMs().iterator().next();
+            if (map.isRunning(vm) && ban.getInvolvedNodes().contains(map.getVMLocation(vm))) {
+                bad.add(vm);
+            }
+        }
+        for (Fence fence : fences) {
+            VM vm = fence.getInvolvedVMs().iterator().next();
+            if (map.isRunning(vm) && !fence.getInvolvedNodes().contains(map.getVMLocation(vm))) {
+                bad.add(vm);
+            }
+        }
+        return bad;
+    }
+
+    @Override
+    public String toString() {
+        return "placementConstraints(" + bans.size() + " ban(s), " + fences.size() + " fence(s))";
+    }
+}
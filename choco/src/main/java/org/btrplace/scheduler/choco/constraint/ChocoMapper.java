@@ -51,18 +51,24 @@ import org.btrplace.scheduler.choco.view.CNetwork;
 import org.btrplace.scheduler.choco.view.CShareableResource;
 import org.btrplace.scheduler.choco.view.ChocoView;
 
+import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Mapper that allow to map {@link org.btrplace.model.constraint.SatConstraint} and {@link org.btrplace.model.constraint.OptConstraint} to {@link ChocoConstraint}.
+ * <p>
+ * Each mapping is a factory that is called for every api-side element to translate.
+ * The factories of the bundled elements are constructor references. When a mapping is established
+ * from a class, its constructor is resolved once at registration time.
  *
  * @author Fabien Hermenier
  */
 public class ChocoMapper {
 
-  private final Map<Class<? extends Constraint>, Class<? extends ChocoConstraint>> constraints;
-  private final Map<Class<? extends ModelView>, Class<? extends ChocoView>> views;
+  private final Map<Class<? extends Constraint>, Function<Constraint, ChocoConstraint>> constraints;
+  private final Map<Class<? extends ModelView>, Function<ModelView, ChocoView>> views;
 
   /**
    * Make a new empty mapper.
@@ -72,6 +78,16 @@ public class ChocoMapper {
     views = new HashMap<>();
   }
 
+  /**
+   * Make a new mapper that starts with the mappings of another one.
+   *
+   * @param m the mapper to copy
+   */
+  public ChocoMapper(ChocoMapper m) {
+    constraints = new HashMap<>(m.constraints);
+    views = new HashMap<>(m.views);
+  }
+
   /**
      * Make a new {@code ChocoMapper} and fulfill it
      * using a default mapper for each bundled constraint.
@@ -80,39 +96,39 @@ public class ChocoMapper {
      */
     public static ChocoMapper newBundle() {
         ChocoMapper map = new ChocoMapper();
-        map.mapConstraint(Spread.class, CSpread.class);
-        map.mapConstraint(Split.class, CSplit.class);
-        map.mapConstraint(SplitAmong.class, CSplitAmong.class);
-        map.mapConstraint(Among.class, CAmong.class);
-        map.mapConstraint(Quarantine.class, CQuarantine.class);
-        map.mapConstraint(Ban.class, CBan.class);
-        map.mapConstraint(Fence.class, CFence.class);
-        map.mapConstraint(Online.class, COnline.class);
-        map.mapConstraint(Offline.class, COffline.class);
-        map.mapConstraint(RunningCapacity.class, CRunningCapacity.class);
-        map.mapConstraint(ResourceCapacity.class, CResourceCapacity.class);
-        map.mapConstraint(Preserve.class, CPreserve.class);
-        map.mapConstraint(Overbook.class, COverbook.class);
-        map.mapConstraint(Root.class, CRoot.class);
-        map.mapConstraint(Ready.class, CReady.class);
-        map.mapConstraint(Running.class, CRunning.class);
-        map.mapConstraint(Sleeping.class, CSleeping.class);
-        map.mapConstraint(Killed.class, CKilled.class);
-        map.mapConstraint(Gather.class, CGather.class);
-        map.mapConstraint(Lonely.class, CLonely.class);
-        map.mapConstraint(Seq.class, CSequentialVMTransitions.class);
-        map.mapConstraint(MaxOnline.class, CMaxOnline.class);
-        map.mapConstraint(MinMTTR.class, CMinMTTR.class);
-        map.mapConstraint(MinMTTRMig.class, CMinMTTRMig.class);
-        map.mapConstraint(MinMigrations.class, CMinMigrations.class);
-        map.mapConstraint(NoDelay.class, CNoDelay.class);
-        map.mapConstraint(Deadline.class, CDeadline.class);
-        map.mapConstraint(Precedence.class, CPrecedence.class);
-        map.mapConstraint(Serialize.class, CSerialize.class);
-        map.mapConstraint(Sync.class, CSync.class);
-
-        map.mapView(ShareableResource.class, CShareableResource.class);
-        map.mapView(Network.class, CNetwork.class);
+        map.mapConstraint(Spread.class, CSpread::new);
+        map.mapConstraint(Split.class, CSplit::new);
+        map.mapConstraint(SplitAmong.class, CSplitAmong::new);
+        map.mapConstraint(Among.class, CAmong::new);
+        map.mapConstraint(Quarantine.class, CQuarantine::new);
+        map.mapConstraint(Ban.class, CBan::new);
+        map.mapConstraint(Fence.class, CFence::new);
+        map.mapConstraint(Online.class, COnline::new);
+        map.mapConstraint(Offline.class, COffline::new);
+        map.mapConstraint(RunningCapacity.class, CRunningCapacity::new);
+        map.mapConstraint(ResourceCapacity.class, CResourceCapacity::new);
+        map.mapConstraint(Preserve.class, CPreserve::new);
+        map.mapConstraint(Overbook.class, COverbook::new);
+        map.mapConstraint(Root.class, CRoot::new);
+        map.mapConstraint(Ready.class, CReady::new);
+        map.mapConstraint(Running.class, CRunning::new);
+        map.mapConstraint(Sleeping.class, CSleeping::new);
+        map.mapConstraint(Killed.class, CKilled::new);
+        map.mapConstraint(Gather.class, CGather::new);
+        map.mapConstraint(Lonely.class, CLonely::new);
+        map.mapConstraint(Seq.class, CSequentialVMTransitions::new);
+        map.mapConstraint(MaxOnline.class, CMaxOnline::new);
+        map.mapConstraint(MinMTTR.class, CMinMTTR::new);
+        map.mapConstraint(MinMTTRMig.class, CMinMTTRMig::new);
+        map.mapConstraint(MinMigrations.class, CMinMigrations::new);
+        map.mapConstraint(NoDelay.class, CNoDelay::new);
+        map.mapConstraint(Deadline.class, CDeadline::new);
+        map.mapConstraint(Precedence.class, CPrecedence::new);
+        map.mapConstraint(Serialize.class, CSerialize::new);
+        map.mapConstraint(Sync.class, CSync::new);
+
+        map.mapView(ShareableResource.class, CShareableResource::new);
+        map.mapView(Network.class, CNetwork::new);
 
         return map;
     }
@@ -126,7 +142,18 @@ public class ChocoMapper {
      * @throws IllegalArgumentException if there is no suitable constructor for the choco implementation
      */
     public void mapConstraint(Class<? extends Constraint> c, Class<? extends ChocoConstraint> cc) {
-        constraints.put(c, cc);
+        constraints.put(c, factory(c, cc));
+    }
+
+    /**
+     * Register a mapping between an api-side constraint and a factory making its choco implementation.
+     *
+     * @param c   the api-side constraint
+     * @param f   the factory
+     * @param <C> the api-side constraint type
+     */
+    public <C extends Constraint> void mapConstraint(Class<C> c, Function<? super C, ? extends ChocoConstraint> f) {
+        constraints.put(c, x -> f.apply(c.cast(x)));
     }
 
     /**
@@ -138,7 +165,44 @@ public class ChocoMapper {
      * @throws IllegalArgumentException if there is no suitable constructor for the choco implementation
      */
     public void mapView(Class<? extends ModelView> c, Class<? extends ChocoView> cc) {
-        views.put(c, cc);
+        views.put(c, factory(c, cc));
+    }
+
+    /**
+     * Register a mapping between an api-side view and a factory making its choco implementation.
+     *
+     * @param c   the api-side view
+     * @param f   the factory
+     * @param <V> the api-side view type
+     */
+    public <V extends ModelView> void mapView(Class<V> c, Function<? super V, ? extends ChocoView> f) {
+        views.put(c, x -> f.apply(c.cast(x)));
+    }
+
+    /**
+     * Make a factory that calls the constructor of a choco implementation.
+     *
+     * @param c   the api-side element
+     * @param cc  the choco implementation
+     * @param <A> the api-side type
+     * @param <T> the choco-side type
+     * @return the factory
+     * @throws IllegalArgumentException if there is no suitable constructor for the choco implementation
+     */
+    private static <A, T> Function<A, T> factory(Class<? extends A> c, Class<? extends T> cc) {
+        Constructor<? extends T> cstr;
+        try {
+            cstr = cc.getDeclaredConstructor(c);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("No constructor '" + cc.getSimpleName() + "(" + c.getSimpleName() + ")' available", ex);
+        }
+        return x -> {
+            try {
+                return cstr.newInstance(x);
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalArgumentException("Unable to instantiate '" + cc.getSimpleName() + "(" + c.getSimpleName() + ")'", ex);
+            }
+        };
     }
 
     /**
@@ -172,13 +236,28 @@ public class ChocoMapper {
     }
 
     /**
-     * Check if a given mapping exists.
+     * Check if a given mapping exists, directly or for a superclass.
      *
      * @param c the view to check
      * @return {@code true} iff a mapping is established
      */
     public boolean viewHasMapping(Class<? extends ModelView> c) {
-        return views.containsKey(c);
+        return viewMapping(c) != null;
+    }
+
+    /**
+     * Get the mapping of a view class or of its closest mapped superclass.
+     *
+     * @param c the view class
+     * @return the mapping, {@code null} if none
+     */
+    private Function<ModelView, ChocoView> viewMapping(Class<?> c) {
+        Function<ModelView, ChocoView> f = views.get(c);
+        while (f == null && c.getSuperclass() != null) {
+            c = c.getSuperclass();
+            f = views.get(c);
+        }
+        return f;
     }
 
     /**
@@ -186,39 +265,30 @@ public class ChocoMapper {
      *
      * @param c the constraint to translate
      * @return the associated {@link ChocoConstraint}, {@code null} if no mapping exists
-     * @throws IllegalArgumentException if there is no suitable constructor for the choco implementation
+     * @throws IllegalArgumentException if the choco implementation cannot be instantiated
      */
     public ChocoConstraint get(Constraint c) {
-        Class<? extends ChocoConstraint> cc = constraints.get(c.getClass());
-        if (cc == null) {
+        Function<Constraint, ChocoConstraint> f = constraints.get(c.getClass());
+        if (f == null) {
             return null;
         }
-
-        try {
-
-            return cc.getDeclaredConstructor(c.getClass()).newInstance(c);
-        } catch (Exception ex) {
-            throw new IllegalArgumentException("No constructor '" + cc.getSimpleName() + "(" + c.getClass().getSimpleName() + ")' available", ex);
-        }
+        return f.apply(c);
     }
 
     /**
      * Get the implementation of the given {@link ModelView}.
+     * When the class of the view is not mapped, the mapping of its closest mapped superclass is used.
      *
      * @param c the view to translate
      * @return the associated {@link ChocoView}, {@code null} if no mapping exists
-     * @throws IllegalArgumentException if there is no suitable constructor for the choco implementation
+     * @throws IllegalArgumentException if the choco implementation cannot be instantiated
      */
 
     public ChocoView get(ModelView c) {
-        Class<? extends ChocoView> cc = views.get(c.getClass());
-        if (cc == null) {
+        Function<ModelView, ChocoView> f = viewMapping(c.getClass());
+        if (f == null) {
             return null;
         }
-        try {
-            return cc.getDeclaredConstructor(c.getClass()).newInstance(c);
-        } catch (Exception ex) {
-            throw new IllegalArgumentException("No constructor '" + cc.getSimpleName() + "(" + c.getClass().getSimpleName() + ")' available", ex);
-        }
+        return f.apply(c);
     }
 }
@@ -124,7 +124,7 @@ public class CMinMTTRMig implements CObjective {
 
         // Migrate VMs
         MovementGraph gr = new MovementGraph(rp);
-        OnStableNodeFirst schedHeuristic = new OnStableNodeFirst(rp);
+        OnStableNodeFirst schedHeuristic = new OnStableNodeFirst(rp, gr);
         Stream<Slice> s = rp.getVMActions().stream().map(VMTransition::getDSlice).filter(Objects::nonNull);
         IntVar[] starts = s.map(Slice::getStart).toArray(IntVar[]::new);
         strategies.add(new IntStrategy(starts, new StartOnLeafNodes(rp, gr), new IntDomainMin()));
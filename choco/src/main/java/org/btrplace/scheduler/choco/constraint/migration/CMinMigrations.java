@@ -103,7 +103,9 @@ public class CMinMigrations implements CObjective {
         Model mo = p.getSourceModel();
         Mapping map = mo.getMapping();
 
-        OnStableNodeFirst schedHeuristic = new OnStableNodeFirst(p);
+        //The movement graph shared by the scheduling heuristics
+        MovementGraph gr = new MovementGraph(p);
+        OnStableNodeFirst schedHeuristic = new OnStableNodeFirst(p, gr);
 
         //Get the VMs to place
         Set<VM> onBadNodes = new HashSet<>(p.getManageableVMs());
@@ -137,15 +139,15 @@ public class CMinMigrations implements CObjective {
                 }
             }
 
-            placeVMs(ps, strategies, actions, schedHeuristic, pla);
+            placeVMs(ps, strategies, actions, pla);
         }
 
 
         TObjectIntMap<VM> costs = CShareableResource.getWeights(rp, rcs);
         badActions.sort((v2, v1) -> costs.get(v1.getVM()) - costs.get(v2.getVM()));
         goodActions.sort((v2, v1) -> costs.get(v1.getVM()) - costs.get(v2.getVM()));
-        placeVMs(ps, strategies, badActions, schedHeuristic, pla);
-        placeVMs(ps, strategies, goodActions, schedHeuristic, pla);
+        placeVMs(ps, strategies, badActions, pla);
+        placeVMs(ps, strategies, goodActions, pla);
 
         //Reinstantations. Try to reinstantiate first
         List<IntVar> migs = new ArrayList<>();
@@ -172,7 +174,6 @@ public class CMinMigrations implements CObjective {
 
         postCostConstraints();
         ///SCHEDULING PROBLEM
-        MovementGraph gr = new MovementGraph(rp);
         IntVar[] starts = dSlices(rp.getVMActions()).map(Slice::getStart).filter(v -> !v.isInstantiated()).toArray(IntVar[]::new);
         strategies.add(new IntStrategy(starts, new StartOnLeafNodes(rp, gr), new IntDomainMin()));
         strategies.add(new IntStrategy(schedHeuristic.getScope(), schedHeuristic, new IntDomainMin()));
@@ -189,14 +190,14 @@ public class CMinMigrations implements CObjective {
     /*
      * Try to place the VMs associated on the actions in a random node while trying first to stay on the current node
      */
-    private void placeVMs(Parameters ps, List<AbstractStrategy<?>> strategies, List<VMTransition> actions, OnStableNodeFirst schedHeuristic, Map<IntVar, VM> map) {
+    private void placeVMs(Parameters ps, List<AbstractStrategy<?>> strategies, List<VMTransition> actions, Map<IntVar, VM> map) {
         IntValueSelector rnd = new WorstFit(map, rp, new BiggestDimension());
         if (!useResources) {
             rnd = new RandomVMPlacement(rp, map, true, ps.getRandomSeed());
         }
         IntVar[] hosts = dSlices(actions).map(Slice::getHoster).filter(v -> !v.isInstantiated()).toArray(IntVar[]::new);
         if (hosts.length > 0) {
-            strategies.add(new IntStrategy(hosts, new HostingVariableSelector(rp.getModel(), schedHeuristic), rnd));
+            strategies.add(new IntStrategy(hosts, new HostingVariableSelector(rp.getModel()), rnd));
         }
     }
 
@@ -19,6 +19,7 @@ import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.Slice;
 import org.btrplace.scheduler.choco.constraint.CObjective;
 import org.btrplace.scheduler.choco.constraint.mttr.load.BiggestDimension;
+import org.btrplace.scheduler.choco.runner.ProfiledSequencer;
 import org.btrplace.scheduler.choco.transition.RelocatableVM;
 import org.btrplace.scheduler.choco.transition.Transition;
 import org.btrplace.scheduler.choco.transition.VMTransition;
@@ -38,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -93,7 +95,9 @@ public class CMinMTTR implements CObjective {
         Model mo = p.getSourceModel();
         Mapping map = mo.getMapping();
 
-        OnStableNodeFirst schedHeuristic = new OnStableNodeFirst(p);
+        //The movement graph shared by the scheduling heuristics
+        MovementGraph gr = new MovementGraph(p);
+        OnStableNodeFirst schedHeuristic = new OnStableNodeFirst(p, gr);
 
         //Get the VMs to place
         Set<VM> onBadNodes = new HashSet<>(p.getManageableVMs());
@@ -115,7 +119,8 @@ public class CMinMTTR implements CObjective {
                 ite.remove();
             }
         }
-        List<AbstractStrategy<?>> strategies = new ArrayList<>();
+        //The strategies, indexed by the key that identifies them in a profile
+        Map<String, AbstractStrategy<?>> strategies = new LinkedHashMap<>();
 
         Map<IntVar, VM> pla = VMPlacementUtils.makePlacementMap(p);
         if (!vmsToExclude.isEmpty()) {
@@ -126,14 +131,14 @@ public class CMinMTTR implements CObjective {
                     actions.add(p.getVMAction(vm));
                 }
             }
-            placeVMs(ps, strategies, actions, schedHeuristic, pla);
+            placeVMs(ps, strategies, "exclusion", actions, pla);
         }
 
         TObjectIntMap<VM> costs = CShareableResource.getWeights(rp, rcs);
         badActions.sort((v2, v1) -> costs.get(v1.getVM()) - costs.get(v2.getVM()));
         goodActions.sort((v2, v1) -> costs.get(v1.getVM()) - costs.get(v2.getVM()));
-        placeVMs(ps, strategies, badActions, schedHeuristic, pla);
-        placeVMs(ps, strategies, goodActions, schedHeuristic, pla);
+        placeVMs(ps, strategies, "badPlacement", badActions, pla);
+        placeVMs(ps, strategies, "goodPlacement", goodActions, pla);
 
         //Reinstantations. Try to reinstantiate first
         List<IntVar> migs = new ArrayList<>();
@@ -142,7 +147,7 @@ public class CMinMTTR implements CObjective {
                 migs.add(((RelocatableVM) t).getRelocationMethod());
             }
         }
-        strategies.add(
+        strategies.put("relocationMethod",
                 Search.intVarSearch(
                         new FirstFail(rp.getModel()), new IntDomainMax(), migs.toArray(new IntVar[migs.size()]))
         );
@@ -150,36 +155,52 @@ public class CMinMTTR implements CObjective {
         if (!p.getNodeActions().isEmpty()) {
             //Boot some nodes if needed
             IntVar[] starts = p.getNodeActions().stream().map(Transition::getStart).toArray(IntVar[]::new);
-            strategies.add(new IntStrategy(starts, new FirstFail(rp.getModel()), new IntDomainMin()));
+            strategies.put("nodeStart", new IntStrategy(starts, new FirstFail(rp.getModel()), new IntDomainMin()));
         }
 
         ///SCHEDULING PROBLEM
-        MovementGraph gr = new MovementGraph(rp);
         IntVar[] starts = dSlices(rp.getVMActions()).map(Slice::getStart).filter(v -> !v.isInstantiated()).toArray(IntVar[]::new);
-        strategies.add(new IntStrategy(starts, new StartOnLeafNodes(rp, gr), new IntDomainMin()));
-        strategies.add(new IntStrategy(schedHeuristic.getScope(), schedHeuristic, new IntDomainMin()));
+        strategies.put("vmStart", new IntStrategy(starts, new StartOnLeafNodes(rp, gr), new IntDomainMin()));
+        strategies.put("stableNodeFirst", new IntStrategy(schedHeuristic.getScope(), schedHeuristic, new IntDomainMin()));
 
         IntVar[] ends = rp.getVMActions().stream().map(Transition::getEnd).filter(v -> !v.isInstantiated()).toArray(IntVar[]::new);
-        strategies.add(Search.intVarSearch(new MyInputOrder<>(s), new IntDomainMin(), ends));
+        strategies.put("vmEnd", Search.intVarSearch(new MyInputOrder<>(s), new IntDomainMin(), ends));
 
         //At this stage only it matters to plug the cost constraints
-        strategies.add(new IntStrategy(new IntVar[]{p.getEnd(), cost}, new MyInputOrder<>(s, this), new IntDomainMin()));
+        strategies.put("cost", new IntStrategy(new IntVar[]{p.getEnd(), cost}, new MyInputOrder<>(s, this), new IntDomainMin()));
 
-        s.setSearch(new StrategiesSequencer(s.getEnvironment(), strategies.toArray(new AbstractStrategy[strategies.size()])));
+        if (ps.doProfiling()) {
+            s.setSearch(new ProfiledSequencer(s.getEnvironment(), strategies));
+        } else {
+            s.setSearch(new StrategiesSequencer(s.getEnvironment(), strategies.values().toArray(new AbstractStrategy[strategies.size()])));
+        }
     }
 
     /*
      * Try to place the VMs associated on the actions in a random node while trying first to stay on the current node
      */
-    private void placeVMs(Parameters ps, List<AbstractStrategy<?>> strategies, List<VMTransition> actions, OnStableNodeFirst schedHeuristic, Map<IntVar, VM> map) {
-        IntValueSelector rnd = new WorstFit(map, rp, new BiggestDimension());
-        if (!useResources) {
-            rnd = new RandomVMPlacement(rp, map, true, ps.getRandomSeed());
-        }
+    private void placeVMs(Parameters ps, Map<String, AbstractStrategy<?>> strategies, String key, List<VMTransition> actions, Map<IntVar, VM> map) {
+        IntValueSelector rnd = makePlacementHeuristic(rp, ps, map);
         IntVar[] hosts = dSlices(actions).map(Slice::getHoster).filter(v -> !v.isInstantiated()).toArray(IntVar[]::new);
         if (hosts.length > 0) {
-            strategies.add(new IntStrategy(hosts, new HostingVariableSelector(rp.getModel(), schedHeuristic), rnd));
+            strategies.put(key, new IntStrategy(hosts, new HostingVariableSelector(rp.getModel()), rnd));
+        }
+    }
+
+    /**
+     * Make the heuristic that selects the host of the VMs to place.
+     * By default, this is {@link WorstFit} when the model has resources, {@link RandomVMPlacement} otherwise.
+     *
+     * @param p   the problem
+     * @param ps  the solver parameters
+     * @param map the VM associated to each placement variable
+     * @return the value selector
+     */
+    protected IntValueSelector makePlacementHeuristic(ReconfigurationProblem p, Parameters ps, Map<IntVar, VM> map) {
+        if (!useResources) {
+            return new RandomVMPlacement(p, map, true, ps.getRandomSeed());
         }
+        return new WorstFit(map, p, new BiggestDimension());
     }
 
     @Override
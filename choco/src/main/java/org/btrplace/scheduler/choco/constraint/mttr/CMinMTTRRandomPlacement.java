@@ -0,0 +1,47 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.Map;
+
+/**
+ * A variant of {@link CMinMTTR} that always places the VMs using
+ * {@link RandomVMPlacement}, even when the model has resources.
+ * The random number generator is initialised with {@link Parameters#getRandomSeed()}.
+ *
+ * @author Fabien Hermenier
+ */
+public class CMinMTTRRandomPlacement extends CMinMTTR {
+
+    /**
+     * Make a new objective.
+     *
+     * @param m the user-side objective.
+     */
+    public CMinMTTRRandomPlacement(MinMTTR m) {
+        super(m);
+    }
+
+    /**
+     * Make a new objective.
+     */
+    public CMinMTTRRandomPlacement() {
+        this(null);
+    }
+
+    @Override
+    protected IntValueSelector makePlacementHeuristic(ReconfigurationProblem p, Parameters ps, Map<IntVar, VM> map) {
+        return new RandomVMPlacement(p, map, true, ps.getRandomSeed());
+    }
+}
@@ -7,7 +7,6 @@
 package org.btrplace.scheduler.choco.constraint.mttr;
 
 import org.chocosolver.solver.search.strategy.selectors.variables.FirstFail;
-import org.chocosolver.solver.variables.IntVar;
 
 /**
  * A variable selector that focuses the placement variables of slices.
@@ -17,30 +16,15 @@ import org.chocosolver.solver.variables.IntVar;
  */
 public class HostingVariableSelector extends FirstFail {
 
-  private final OnStableNodeFirst schedHeuristic;
-
     /**
      * Make a new heuristic.
-     * By default, the heuristic doesn't touch the scheduling constraints.
+     * The placement is tracked by the {@link MovementGraph}, so the heuristic
+     * doesn't touch the scheduling heuristics.
      *
      * @param s the csp to solve
-     * @param sched the scheduling heuristic to notify when the placement is invalidated
      */
-    public HostingVariableSelector(org.chocosolver.solver.Model s, OnStableNodeFirst sched) {
+    public HostingVariableSelector(org.chocosolver.solver.Model s) {
         super(s);
-        this.schedHeuristic = sched;
-    }
-
-    /**
-     * @param hosts the variables denoting the VMs next host
-     */
-    @Override
-    public IntVar getVariable(IntVar[] hosts) {
-        IntVar v = super.getVariable(hosts);
-        if (schedHeuristic != null) {
-            schedHeuristic.invalidPlacement();
-        }
-        return v;
     }
 
 }
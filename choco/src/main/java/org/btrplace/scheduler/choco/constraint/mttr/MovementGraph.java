@@ -6,13 +6,18 @@
 
 package org.btrplace.scheduler.choco.constraint.mttr;
 
+import org.btrplace.model.Mapping;
 import org.btrplace.model.Node;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.Slice;
 import org.btrplace.scheduler.choco.transition.VMTransition;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.variables.IVariableMonitor;
 import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IEventType;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -20,6 +25,11 @@ import java.util.Map;
 
 /**
  * Class denoting the movement of the running VMs from their source to their destination node.
+ * <p>
+ * The outgoing movements are known once for all from the c-slices. The incoming movements
+ * are maintained incrementally: each time the hoster of a d-slice is instantiated, the slice
+ * is attached to its destination node. The changes are undone upon backtrack using the solver
+ * environment so the graph always reflects the current placement.
  *
  * @author Fabien Hermenier
  */
@@ -27,10 +37,36 @@ public class MovementGraph {
 
   private final ReconfigurationProblem rp;
 
-  private final Map<Node, List<IntVar>> incoming;
+  private final IEnvironment env;
 
   private final Map<Node, List<IntVar>> outgoings;
 
+  /**
+   * The start moment of each d-slice.
+   */
+  private final IntVar[] starts;
+
+  /**
+   * The node hosting each VM in the source model, {@code -1} if none.
+   */
+  private final int[] sources;
+
+  /**
+   * The current destination of each d-slice, {@code -1} if not instantiated.
+   */
+  private final int[] hosts;
+
+  /**
+   * The d-slices per destination node.
+   */
+  private final BitSet[] incoming;
+
+  private final BitSet moving;
+
+  private final BitSet staying;
+
+  private final int[] leaves;
+
     /**
      * Make a new graph.
      *
@@ -38,37 +74,76 @@ public class MovementGraph {
      */
     public MovementGraph(ReconfigurationProblem p) {
         this.rp = p;
-        incoming = new HashMap<>();
+        env = p.getModel().getEnvironment();
         outgoings = new HashMap<>();
-    }
-
-    public void make() {
-        incoming.clear();
-        outgoings.clear();
+        Mapping src = p.getSourceModel().getMapping();
 
+        List<IntVar> dHosts = new ArrayList<>();
+        List<IntVar> dStarts = new ArrayList<>();
+        List<Integer> dSources = new ArrayList<>();
         for (VMTransition a : rp.getVMActions()) {
             Slice cSlice = a.getCSlice();
             Slice dSlice = a.getDSlice();
-
             if (cSlice != null) {
                 addOutgoing(cSlice);
             }
             if (dSlice != null) {
-                addIncoming(dSlice);
+                dHosts.add(dSlice.getHoster());
+                dStarts.add(dSlice.getStart());
+                Node n = src.getVMLocation(a.getVM());
+                dSources.add(n == null ? -1 : rp.getNode(n));
+            }
+        }
+
+        int nbNodes = rp.getNodes().size();
+        incoming = new BitSet[nbNodes];
+        for (int i = 0; i < nbNodes; i++) {
+            incoming[i] = new BitSet();
+        }
+        moving = new BitSet();
+        staying = new BitSet();
+        leaves = rp.getNodes().stream().filter(n -> !outgoings.containsKey(n)).mapToInt(rp::getNode).toArray();
+
+        starts = dStarts.toArray(new IntVar[0]);
+        sources = dSources.stream().mapToInt(Integer::intValue).toArray();
+        hosts = new int[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            hosts[i] = -1;
+            IntVar h = dHosts.get(i);
+            if (h.isInstantiated()) {
+                place(i, h.getValue());
+            } else {
+                h.addMonitor(new HostMonitor(i));
             }
         }
     }
 
     private void addOutgoing(Slice cSlice) {
         Node h = rp.getNode(cSlice.getHoster().getLB());
-        outgoings.putIfAbsent(h, new ArrayList<>());
-        outgoings.get(h).add(cSlice.getStart());
+        outgoings.computeIfAbsent(h, k -> new ArrayList<>()).add(cSlice.getStart());
     }
 
-    private void addIncoming(Slice cSlice) {
-        Node h = rp.getNode(cSlice.getHoster().getLB());
-        incoming.putIfAbsent(h, new ArrayList<>());
-        incoming.get(h).add(cSlice.getStart());
+    /**
+     * Attach a d-slice to its destination node.
+     *
+     * @param i    the slice index
+     * @param node the destination node
+     */
+    private void place(int i, int node) {
+        hosts[i] = node;
+        incoming[node].set(i);
+        if (sources[i] == node) {
+            staying.set(i);
+        } else if (sources[i] >= 0) {
+            moving.set(i);
+        }
+    }
+
+    private void unPlace(int i) {
+        incoming[hosts[i]].clear(i);
+        staying.clear(i);
+        moving.clear(i);
+        hosts[i] = -1;
     }
 
     /**
@@ -79,7 +154,15 @@ public class MovementGraph {
      * @return a list of start moment. May be empty
      */
     public List<IntVar> getIncoming(Node n) {
-        return incoming.getOrDefault(n, Collections.emptyList());
+        BitSet in = incoming[rp.getNode(n)];
+        if (in.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<IntVar> l = new ArrayList<>(in.cardinality());
+        for (int i = in.nextSetBit(0); i >= 0; i = in.nextSetBit(i + 1)) {
+            l.add(starts[i]);
+        }
+        return l;
     }
 
     /**
@@ -92,4 +175,74 @@ public class MovementGraph {
     public List<IntVar> getOutgoing(Node n) {
         return outgoings.getOrDefault(n, Collections.emptyList());
     }
+
+    /**
+     * Get the nodes without any outgoing movement.
+     *
+     * @return the node indexes, in increasing order
+     */
+    int[] getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * Get the d-slices that terminate on a given node.
+     * The set must not be modified.
+     *
+     * @param node the node index
+     * @return the slice indexes
+     */
+    BitSet getIncoming(int node) {
+        return incoming[node];
+    }
+
+    /**
+     * Get the placed d-slices of the VMs that change their host.
+     * The set must not be modified.
+     *
+     * @return the slice indexes
+     */
+    BitSet getMoving() {
+        return moving;
+    }
+
+    /**
+     * Get the placed d-slices of the VMs that stay on their host.
+     * The set must not be modified.
+     *
+     * @return the slice indexes
+     */
+    BitSet getStaying() {
+        return staying;
+    }
+
+    /**
+     * Get the start moment of a d-slice.
+     *
+     * @param i the slice index
+     * @return the variable
+     */
+    IntVar getStart(int i) {
+        return starts[i];
+    }
+
+    /**
+     * Update the graph once the hoster of a d-slice is instantiated.
+     */
+    private class HostMonitor implements IVariableMonitor<IntVar> {
+
+        private final int idx;
+
+        HostMonitor(int i) {
+            idx = i;
+        }
+
+        @Override
+        public void onUpdate(IntVar v, IEventType evt) {
+            if (hosts[idx] < 0 && v.isInstantiated()) {
+                place(idx, v.getValue());
+                env.save(() -> unPlace(idx));
+            }
+        }
+    }
 }
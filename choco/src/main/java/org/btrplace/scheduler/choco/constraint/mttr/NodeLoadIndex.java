@@ -0,0 +1,209 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * A backtrack-aware index of the nodes ordered by their current load.
+ * <p>
+ * The loads are stored in the leaves of a tree where each inner node holds the minimum
+ * load of its subtree. Once the load of a node changed, the tree is updated in O(log n)
+ * at the next query. The changes that are undone upon backtrack are tracked using the
+ * solver environment so the index always reflects the current load.
+ * <p>
+ * The index selects the node that minimises a load including the VM to place. As long as this
+ * load is never smaller than the current load of the node, the subtrees having a minimum
+ * load higher than the best load found so far are ignored.
+ *
+ * @author Fabien Hermenier
+ */
+final class NodeLoadIndex {
+
+    /**
+     * The domains up to this size are scanned directly.
+     */
+    private static final int SCAN_THRESHOLD = 32;
+
+    private final IEnvironment env;
+
+    private final IntToDoubleFunction load;
+
+    private final int nbNodes;
+
+    /**
+     * The index of the first leaf.
+     */
+    private final int size;
+
+    /**
+     * The minimum load per subtree. The root is at index 1.
+     */
+    private final double[] mins;
+
+    private final boolean[] dirty;
+
+    private final int[] dirties;
+
+    private int nbDirties;
+
+    private boolean valid;
+
+    /**
+     * Leaves that can still be visited before switching to a scan of the domain.
+     */
+    private int budget;
+
+    private int best;
+
+    private double bestLoad;
+
+    /**
+     * New index.
+     *
+     * @param env     the environment to track the backtracks
+     * @param nbNodes the number of nodes
+     * @param load    the current load of each node. {@code NaN} when the node cannot host anything
+     */
+    NodeLoadIndex(IEnvironment env, int nbNodes, IntToDoubleFunction load) {
+        this.env = env;
+        this.load = load;
+        this.nbNodes = nbNodes;
+        int s = 1;
+        while (s < nbNodes) {
+            s <<= 1;
+        }
+        size = s;
+        mins = new double[2 * size];
+        dirty = new boolean[nbNodes];
+        dirties = new int[nbNodes];
+    }
+
+    /**
+     * Notify the load of a node changed.
+     *
+     * @param node the node index
+     */
+    void changed(int node) {
+        if (valid) {
+            markDirty(node);
+            //The node must be refreshed again once the change is undone
+            env.save(() -> markDirty(node));
+        }
+    }
+
+    private void markDirty(int node) {
+        if (valid && !dirty[node]) {
+            dirty[node] = true;
+            dirties[nbDirties++] = node;
+        }
+    }
+
+    private double key(int node) {
+        double l = load.applyAsDouble(node);
+        return Double.isNaN(l) ? Double.POSITIVE_INFINITY : l;
+    }
+
+    /**
+     * Make the tree reflect the current loads.
+     */
+    private void refresh() {
+        if (!valid) {
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            for (int n = 0; n < nbNodes; n++) {
+                mins[size + n] = key(n);
+            }
+            for (int p = size - 1; p > 0; p--) {
+                mins[p] = Math.min(mins[2 * p], mins[2 * p + 1]);
+            }
+            Arrays.fill(dirty, false);
+            nbDirties = 0;
+            valid = true;
+            //The changes made before the index was built are unknown
+            env.save(() -> valid = false);
+            return;
+        }
+        while (nbDirties > 0) {
+            int n = dirties[--nbDirties];
+            dirty[n] = false;
+            int p = size + n;
+            mins[p] = key(n);
+            for (p >>= 1; p > 0; p >>= 1) {
+                mins[p] = Math.min(mins[2 * p], mins[2 * p + 1]);
+            }
+        }
+    }
+
+    /**
+     * Select the node in the domain of a placement variable that minimises a load.
+     * In case of ties, the node with the smallest index is selected.
+     *
+     * @param v      the placement variable
+     * @param loadOf the load of a node including the VM to place. Never smaller than the current node load
+     * @param limit  the load the selected node must be strictly below
+     * @return the node index, {@code -1} if no node has a load below the limit
+     */
+    int select(IntVar v, IntToDoubleFunction loadOf, double limit) {
+        best = -1;
+        bestLoad = limit;
+        if (v.getDomainSize() <= SCAN_THRESHOLD) {
+            scan(v, loadOf);
+            return best;
+        }
+        refresh();
+        budget = v.getDomainSize();
+        if (!visit(1, v, loadOf)) {
+            //Too many nodes outside the domain are lightly loaded
+            scan(v, loadOf);
+        }
+        return best;
+    }
+
+    private void scan(IntVar v, IntToDoubleFunction loadOf) {
+        for (int n = v.getLB(); n <= v.getUB(); n = v.nextValue(n)) {
+            offer(n, loadOf.applyAsDouble(n));
+        }
+    }
+
+    private void offer(int n, double l) {
+        if (l < bestLoad || (l == bestLoad && best >= 0 && n < best)) {
+            best = n;
+            bestLoad = l;
+        }
+    }
+
+    /**
+     * Depth-first exploration of a subtree, the lightest child first.
+     *
+     * @return {@code false} iff the budget is exhausted
+     */
+    private boolean visit(int p, IntVar v, IntToDoubleFunction loadOf) {
+        if (mins[p] > bestLoad) {
+            return true;
+        }
+        if (p >= size) {
+            int n = p - size;
+            if (--budget < 0) {
+                return false;
+            }
+            if (v.contains(n)) {
+                offer(n, loadOf.applyAsDouble(n));
+            }
+            return true;
+        }
+        int l = 2 * p;
+        int r = l + 1;
+        if (mins[r] < mins[l]) {
+            return visit(r, v, loadOf) && visit(l, v, loadOf);
+        }
+        return visit(l, v, loadOf) && visit(r, v, loadOf);
+    }
+}
@@ -6,8 +6,6 @@
 
 package org.btrplace.scheduler.choco.constraint.mttr;
 
-import org.btrplace.model.Mapping;
-import org.btrplace.model.Node;
 import org.btrplace.model.VM;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.Slice;
@@ -25,124 +23,58 @@ import java.util.List;
  * A heuristic that first focus on scheduling the VMs
  * on nodes that are the source of actions liberating resources.
  * <p>
- * For performance reason, the VM placement is put into a cache
- * that must be invalidated each time the placement is modified
+ * The VM placement is read from a {@link MovementGraph} that is
+ * maintained along the search.
  *
  * @author Fabien Hermenier
  */
 public class OnStableNodeFirst implements VariableSelector<IntVar> {
 
-  private final IntVar[] hosts;
+  private final MovementGraph graph;
 
   private final IntVar[] starts;
 
   private final List<VM> vms;
 
-  private final int[] oldPos;
-
-  private final BitSet[] outs;
-
-  private final BitSet[] ins;
+  private final IntVar end;
 
   private final IStateInt firstFree;
 
     private IntVar last;
 
-    private BitSet stays;
-
-    private BitSet move;
-
     /**
-     * Make a new heuristics
+     * Make a new heuristics that relies on its own movement graph.
      *
      * @param rp the problem to rely on
      */
     public OnStableNodeFirst(ReconfigurationProblem rp) {
+        this(rp, new MovementGraph(rp));
+    }
 
+    /**
+     * Make a new heuristics.
+     *
+     * @param rp the problem to rely on
+     * @param g  the movement graph to rely on
+     */
+    public OnStableNodeFirst(ReconfigurationProblem rp, MovementGraph g) {
+        graph = g;
+        end = rp.getEnd();
         firstFree = rp.getModel().getEnvironment().makeInt(0);
-        Mapping cfg = rp.getSourceModel().getMapping();
-
-        List<VMTransition> vmActions = rp.getVMActions();
-
-        List<IntVar> tmpHosts = new ArrayList<>();
-        List<IntVar> tmpStarts = new ArrayList<>();
-
         this.vms = new ArrayList<>(rp.getFutureRunningVMs());
 
-        oldPos = new int[vmActions.size()];
-        outs = new BitSet[rp.getNodes().size()];
-        ins = new BitSet[rp.getNodes().size()];
-        for (int i = 0; i < rp.getNodes().size(); i++) {
-            outs[i] = new BitSet();
-            ins[i] = new BitSet();
-        }
-
-        int j = 0; //a separate counter because there is not necessarily a dSlice for each action
-        for (VMTransition action : vmActions) {
+        List<IntVar> tmpStarts = new ArrayList<>();
+        for (VMTransition action : rp.getVMActions()) {
             Slice slice = action.getDSlice();
-            if (slice != null) {
-                IntVar h = slice.getHoster();
-                IntVar s = slice.getStart();
-                tmpHosts.add(h);
-                if (s != rp.getEnd()) {
-                    tmpStarts.add(s);
-                }
-                VM vm = action.getVM();
-                Node n = cfg.getVMLocation(vm);
-                if (n == null) {
-                    oldPos[j] = -1;
-                } else {
-                    oldPos[j] = rp.getNode(n);
-                    //VM i was on node n
-                    outs[rp.getNode(n)].set(j);
-                }
-                j++;
+            if (slice != null && slice.getStart() != end) {
+                tmpStarts.add(slice.getStart());
             }
         }
-        this.hosts = tmpHosts.toArray(new IntVar[tmpHosts.size()]);
         this.starts = tmpStarts.toArray(new IntVar[tmpStarts.size()]);
     }
 
-    /**
-     * Invalidate the VM placement.
-     * This must be called each time the placement is modified to
-     * clear the VM placement cache.
-     */
-    public void invalidPlacement() {
-        stays = null;
-        move = null;
-    }
-
-    /**
-     * For each node, we fill ins to indicate the VMs
-     * that go on this node. We also fulfill stays and move
-     * TODO: stays and move seems redundant !
-     */
-    private void makeIncoming() {
-        if (stays == null && move == null) {
-            for (BitSet in : ins) {
-                in.clear();
-            }
-            stays = new BitSet();
-            move = new BitSet();
-            for (int i = 0; i < hosts.length; i++) {
-                if (hosts[i] != null && hosts[i].isInstantiated()) {
-                    int newPos = hosts[i].getValue();
-                    if (oldPos[i] != -1 && newPos != oldPos[i]) {
-                        //The VM has move
-                        ins[newPos].set(i);
-                        move.set(i);
-                    } else if (newPos == oldPos[i]) {
-                        stays.set(i);
-                    }
-                }
-            }
-        }
-    }
-
     @Override
     public IntVar getVariable(IntVar[] scope) {
-        makeIncoming();
         IntVar v = getVMtoLeafNode();
         if (v == null) {
             last = null;
@@ -171,14 +103,20 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
      */
     private IntVar getMovingVM() {
         //VMs that are moving
+        BitSet move = graph.getMoving();
         for (int i = move.nextSetBit(0); i >= 0; i = move.nextSetBit(i + 1)) {
-            if (starts[i] != null && !starts[i].isInstantiated() && oldPos[i] != hosts[i].getValue()) {
-                return starts[i];
+            IntVar v = graph.getStart(i);
+            if (isPending(v)) {
+                return v;
             }
         }
         return null;
     }
 
+    private boolean isPending(IntVar v) {
+        return v != end && !v.isInstantiated();
+    }
+
     private IntVar minInf() {
         IntVar best = null;
         for (int i = firstFree.get(); i < starts.length; i++) {
@@ -209,15 +147,11 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
      */
     private IntVar getEarlyVar() {
         IntVar earlyVar = null;
+        BitSet stays = graph.getStaying();
         for (int i = stays.nextSetBit(0); i >= 0; i = stays.nextSetBit(i + 1)) {
-            if (starts[i] != null && !starts[i].isInstantiated()) {
-                if (earlyVar == null) {
-                    earlyVar = starts[i];
-                } else {
-                    if (earlyVar.getLB() > starts[i].getLB()) {
-                        earlyVar = starts[i];
-                    }
-                }
+            IntVar v = graph.getStart(i);
+            if (isPending(v) && (earlyVar == null || earlyVar.getLB() > v.getLB())) {
+                earlyVar = v;
             }
         }
         return earlyVar;
@@ -231,14 +165,13 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
      * @return a start moment, or {@code null} if there is no more un-schedule actions to leaf nodes
      */
     private IntVar getVMtoLeafNode() {
-        for (int x = 0; x < outs.length; x++) {
-            if (outs[x].cardinality() == 0) {
-                //no outgoing VMs, can be launched directly.
-                BitSet in = ins[x];
-                for (int i = in.nextSetBit(0); i >= 0; i = in.nextSetBit(i + 1)) {
-                    if (starts[i] != null && !starts[i].isInstantiated()) {
-                        return starts[i];
-                    }
+        BitSet move = graph.getMoving();
+        for (int x : graph.getLeaves()) {
+            //no outgoing VMs, can be launched directly.
+            BitSet in = graph.getIncoming(x);
+            for (int i = in.nextSetBit(0); i >= 0; i = in.nextSetBit(i + 1)) {
+                if (move.get(i) && isPending(graph.getStart(i))) {
+                    return graph.getStart(i);
                 }
             }
         }
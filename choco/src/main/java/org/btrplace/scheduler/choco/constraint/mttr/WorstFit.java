@@ -26,6 +26,10 @@ import java.util.Map;
 
 /**
  * Placement heuristic implementing a worst fit.
+ * The nodes are indexed by their current load to find the least loaded
+ * node quickly. The global load estimator must then never decrease when
+ * the load on a dimension increases.
+ *
  * @author Fabien Hermenier
  */
 public class WorstFit implements IntValueSelector {
@@ -46,6 +50,11 @@ public class WorstFit implements IntValueSelector {
 
   private final TIntObjectMap<int[]> capacities;
 
+  /**
+   * The nodes indexed by their load. Made at the first selection.
+   */
+  private NodeLoadIndex index;
+
   /**
    * New heuristic.
    * Will try to make the VM stay on their current node in prior if possible
@@ -103,22 +112,13 @@ public class WorstFit implements IntValueSelector {
       return nodeId;
     }
 
-    //Get the load
-    int leastId = v.getLB();
-    double minLoad = 2;
-    IStateInt[] loads = new IStateInt[rcs.size()];
-    for (int nId = v.getLB(); nId <= v.getUB(); nId = v.nextValue(nId)) {
-      for (int d = 0; d < rcs.size(); d++) {
-        loads[d] = packing.assignedLoad()[d][nId];
-      }
-      double global = loadWith(nId, loads, vmId);
-
-      if (global < minLoad) {
-        leastId = nId;
-        minLoad = global;
-      }
+    if (index == null) {
+      index = new NodeLoadIndex(rp.getModel().getEnvironment(), rp.getNodes().size(), this::currentLoad);
+      packing.addAssignedLoadListener(index::changed);
     }
-    return leastId;
+    //Get the least loaded node
+    int leastId = index.select(v, nId -> loadWith(nId, load(nId), vmId), 2);
+    return leastId < 0 ? v.getLB() : leastId;
   }
 
   private IStateInt[] load(int nId) {
@@ -142,6 +142,19 @@ public class WorstFit implements IntValueSelector {
 
   }
 
+  /**
+   * The load of a node without the VM to place.
+   */
+  private double currentLoad(int nId) {
+    int[] capas = capacities.get(nId);
+    double[] normalised = new double[capas.length];
+    IStateInt[] loads = load(nId);
+    for (int i = 0; i < capas.length; i++) {
+      normalised[i] = (1.0d * loads[i].get()) / capas[i];
+    }
+    return globalLoad.getLoad(normalised);
+  }
+
   private double loadWith(int nId, IStateInt[] loads, int vmId) {
     int[] capas = capacities.get(nId);
     double[] normalised = new double[capas.length];
@@ -9,6 +9,7 @@ package org.btrplace.scheduler.choco.constraint.mttr.load;
 /**
  * Interface modeling a global load estimator.
  * It allows to consider multiple dimensions and reduce it to a unique metric.
+ * The global load must not decrease when the load of a dimension increases.
  *
  * @author Fabien Hermenier
  */
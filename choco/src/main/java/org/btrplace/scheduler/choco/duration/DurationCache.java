@@ -0,0 +1,233 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.duration;
+
+import org.btrplace.model.Attributes;
+import org.btrplace.model.Element;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache for durations that are evaluated again and again from one solving process to another.
+ * <p>
+ * The durations are stored per key, usually an action class, and per element.
+ * Each element is cached with the inputs of its durations: its attributes and its values
+ * (consumption for a VM, capacity for a node) in each {@link ShareableResource}.
+ * A cached duration is used for any model where the element has the same inputs,
+ * whatever the model instance is. A model rebuilt, or decoded, at each period of a control loop
+ * then re-uses the durations of the elements left unchanged. When the inputs of an element differ,
+ * its durations are evaluated again and replace the cached ones.
+ * <p>
+ * The cache is thread-safe. Concurrent solving processes on models sharing elements
+ * with the same inputs share their durations.
+ * <p>
+ * A cached duration must then only depend on its key, on the attributes of its element,
+ * and on the values of its element in the shareable resources. This is the case of the bundled evaluators.
+ * Checking the inputs of an element costs a lookup of its attributes and of its values in each shareable resource.
+ *
+ * @author Fabien Hermenier
+ */
+public class DurationCache {
+
+    private final ConcurrentMap<Element, Entry> values;
+
+    private final LongAdder hits;
+
+    private final LongAdder misses;
+
+    /**
+     * Make a new empty cache.
+     */
+    public DurationCache() {
+        values = new ConcurrentHashMap<>();
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    /**
+     * Get the cached durations for a model.
+     *
+     * @param mo the model
+     * @return the durations of the elements in this model
+     */
+    public Durations of(Model mo) {
+        return new Durations(mo);
+    }
+
+    /**
+     * Remove the durations cached for a key.
+     *
+     * @param k the key
+     */
+    public void invalidate(Object k) {
+        for (Entry e : values.values()) {
+            e.durations.remove(k);
+        }
+    }
+
+    /**
+     * Remove all the cached durations.
+     */
+    public void clear() {
+        values.clear();
+    }
+
+    /**
+     * Get the number of cached durations.
+     *
+     * @return a positive number
+     */
+    public int size() {
+        int s = 0;
+        for (Entry e : values.values()) {
+            s += e.durations.size();
+        }
+        return s;
+    }
+
+    /**
+     * Get the number of lookups that found a duration.
+     *
+     * @return a positive number
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that did not find a duration.
+     *
+     * @return a positive number
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d duration(s), %d hit(s), %d miss(es)", size(), getHits(), getMisses());
+    }
+
+    /**
+     * The inputs of the durations of an element.
+     */
+    private static final class Inputs {
+
+        private final Map<String, Object> attributes;
+
+        private final Map<String, Integer> resources;
+
+        private Inputs(Model mo, Element e) {
+            Attributes attrs = mo.getAttributes();
+            Set<String> keys = attrs.getKeys(e);
+            if (keys.isEmpty()) {
+                attributes = Collections.emptyMap();
+            } else {
+                attributes = new HashMap<>(keys.size());
+                for (String k : keys) {
+                    attributes.put(k, attrs.get(e, k));
+                }
+            }
+            resources = new HashMap<>();
+            for (ModelView v : mo.getViews()) {
+                if (v instanceof ShareableResource) {
+                    ShareableResource rc = (ShareableResource) v;
+                    if (e instanceof VM) {
+                        resources.put(rc.getIdentifier(), rc.getConsumption((VM) e));
+                    } else if (e instanceof Node) {
+                        resources.put(rc.getIdentifier(), rc.getCapacity((Node) e));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Inputs)) {
+                return false;
+            }
+            Inputs that = (Inputs) o;
+            return resources.equals(that.resources) && attributes.equals(that.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * attributes.hashCode() + resources.hashCode();
+        }
+    }
+
+    /**
+     * The durations of an element for given inputs.
+     */
+    private static final class Entry {
+
+        private final Inputs inputs;
+
+        private final ConcurrentMap<Object, Integer> durations;
+
+        private Entry(Inputs in) {
+            inputs = in;
+            durations = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * The cached durations of the elements of a model.
+     * The inputs of each element are read from the model at each lookup.
+     */
+    public final class Durations {
+
+        private final Model mo;
+
+        private Durations(Model mo) {
+            this.mo = mo;
+        }
+
+        /**
+         * Get a cached duration.
+         *
+         * @param k the key
+         * @param e the element
+         * @return the duration. A negative number if it is not cached for the current inputs of the element
+         */
+        public int get(Object k, Element e) {
+            Entry entry = values.get(e);
+            Integer d = entry == null ? null : entry.durations.get(k);
+            if (d == null || !entry.inputs.equals(new Inputs(mo, e))) {
+                misses.increment();
+                return -1;
+            }
+            hits.increment();
+            return d;
+        }
+
+        /**
+         * Cache a duration.
+         * The durations cached for other inputs of the element are discarded.
+         *
+         * @param k the key
+         * @param e the element
+         * @param d the duration
+         */
+        public void put(Object k, Element e, int d) {
+            Inputs in = new Inputs(mo, e);
+            values.compute(e, (x, cur) -> cur == null || !cur.inputs.equals(in) ? new Entry(in) : cur)
+                    .durations.put(k, d);
+        }
+    }
+}
@@ -31,6 +31,9 @@ import java.util.Map;
  * By default, each action is associated to a {@link ActionDurationFromOptionalAttribute} evaluator.
  * See https://github.com/fhermeni/btrplace-solver/wiki/attributes to get the attribute identifiers.
  * If the attribute is not set, a {@link ConstantActionDuration} is used and evaluate the duration to 1 second.
+ * <p>
+ * The evaluated durations can be kept from one solving process to another using a {@link DurationCache}.
+ * See {@link #doCache(boolean)}.
  *
  * @author Fabien Hermenier
  */
@@ -38,6 +41,7 @@ public class DurationEvaluators {
 
   private final Map<Class<? extends Action>, ActionDurationEvaluator<Element>> durations;
 
+    private DurationCache cache;
 
     /**
      * Make a new mapper.
@@ -54,6 +58,9 @@ public class DurationEvaluators {
      * @return {@code false} if this action delete a previous evaluator for that action
      */
     public boolean register(Class<? extends Action> a, ActionDurationEvaluator e) {
+        if (cache != null) {
+            cache.invalidate(a);
+        }
         return durations.put(a, e) == null;
     }
 
@@ -65,6 +72,9 @@ public class DurationEvaluators {
      * @return {@code true} if a {@link ActionDurationEvaluator} was associated to the action.
      */
     public boolean unRegister(Class<? extends Action> a) {
+        if (cache != null) {
+            cache.invalidate(a);
+        }
         return durations.remove(a) != null;
     }
 
@@ -97,6 +107,28 @@ public class DurationEvaluators {
      * @return a positive number if the evaluation succeeded. A negative number otherwise
      */
     public int evaluate(Model mo, Class<? extends Action> a, Element e) throws SchedulerException {
+        DurationCache.Durations cached = cache == null ? null : cache.of(mo);
+        if (cached == null) {
+            return evaluateWithoutCache(mo, a, e);
+        }
+        int d = cached.get(a, e);
+        if (d < 0) {
+            d = evaluateWithoutCache(mo, a, e);
+            cached.put(a, e, d);
+        }
+        return d;
+    }
+
+    /**
+     * Evaluate the duration of given action on a given element, without using the cache.
+     *
+     * @param mo the model to consider
+     * @param a  the action' class
+     * @param e  the element identifier
+     * @return a positive number
+     * @throws SchedulerException if the evaluation failed
+     */
+    private int evaluateWithoutCache(Model mo, Class<? extends Action> a, Element e) throws SchedulerException {
         ActionDurationEvaluator<Element> ev = durations.get(a);
         if (ev == null) {
             throw new SchedulerModelingException(null, "Unable to estimate the duration of action '" + a.getSimpleName() + "' related to '" + e + "'");
@@ -108,6 +140,33 @@ public class DurationEvaluators {
         return d;
     }
 
+    /**
+     * State if the evaluated durations must be cached.
+     * A cached duration is re-used for an element having the same attributes and the same values in the shareable resources.
+     * The evaluators must then only depend on the attributes of the element and on its values in the shareable resources.
+     * The cache is thread-safe so the evaluators can be shared among concurrent solving processes.
+     *
+     * @param b {@code true} to cache the durations. {@code false} to remove the cache
+     * @return the current instance
+     */
+    public DurationEvaluators doCache(boolean b) {
+        if (!b) {
+            cache = null;
+        } else if (cache == null) {
+            cache = new DurationCache();
+        }
+        return this;
+    }
+
+    /**
+     * Get the cache of the durations.
+     *
+     * @return the cache. {@code null} if the durations are not cached
+     */
+    public DurationCache getCache() {
+        return cache;
+    }
+
     /**
      * Make a new {@code DurationEvaluators} and fulfill it
      * using default a default evaluator for each action.
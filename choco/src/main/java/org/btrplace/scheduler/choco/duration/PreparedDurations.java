@@ -0,0 +1,142 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.duration;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.btrplace.model.Element;
+import org.btrplace.model.Model;
+import org.btrplace.plan.event.Action;
+import org.btrplace.scheduler.SchedulerException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Durations evaluated in advance for some elements of a model.
+ * The requested durations are evaluated in parallel on the common fork-join pool
+ * using the evaluators of another {@link DurationEvaluators}.
+ * Then, {@link #evaluate(Model, Class, Element)} only looks up the prepared values,
+ * and falls back on the underlying evaluators for the durations that were not prepared.
+ * <p>
+ * A duration that cannot be evaluated in advance is evaluated again on demand, so
+ * the error, if any, is reported to the caller. The registrations are made on the
+ * underlying evaluators and discard the prepared durations of the action.
+ * When the underlying evaluators have a cache, it is used while preparing the durations.
+ * The evaluators must support concurrent calls on a model that is not modified.
+ *
+ * @author Fabien Hermenier
+ */
+public class PreparedDurations extends DurationEvaluators {
+
+    private final DurationEvaluators base;
+
+    private final Model model;
+
+    private final Map<Class<? extends Action>, TObjectIntHashMap<Element>> prepared;
+
+    /**
+     * Prepare the durations.
+     *
+     * @param dev      the evaluators to rely on
+     * @param mo       the model to consider
+     * @param requests for each action, the elements to evaluate the duration of
+     */
+    public PreparedDurations(DurationEvaluators dev, Model mo, Map<Class<? extends Action>, ? extends List<? extends Element>> requests) {
+        base = dev;
+        model = mo;
+        prepared = new HashMap<>();
+
+        //One evaluation per couple, to balance the load among the workers
+        List<Class<? extends Action>> actions = new ArrayList<>();
+        List<Element> elements = new ArrayList<>();
+        for (Map.Entry<Class<? extends Action>, ? extends List<? extends Element>> e : requests.entrySet()) {
+            for (Element el : e.getValue()) {
+                actions.add(e.getKey());
+                elements.add(el);
+            }
+        }
+        int[] durations = IntStream.range(0, elements.size()).parallel()
+                .map(i -> tryEvaluate(actions.get(i), elements.get(i))).toArray();
+
+        for (int i = 0; i < durations.length; i++) {
+            if (durations[i] > 0) {
+                //0.5f is a default load factor in trove.
+                prepared.computeIfAbsent(actions.get(i), k -> new TObjectIntHashMap<>(requests.get(k).size(), 0.5f, -1))
+                        .put(elements.get(i), durations[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("squid:S1166")
+    private int tryEvaluate(Class<? extends Action> a, Element e) {
+        try {
+            return base.evaluate(model, a, e);
+        } catch (@SuppressWarnings("unused") RuntimeException ex) {
+            //Evaluated again on demand to report the error
+            return -1;
+        }
+    }
+
+    /**
+     * Get the number of prepared durations.
+     *
+     * @return a positive number
+     */
+    public int size() {
+        return prepared.values().stream().mapToInt(TObjectIntHashMap::size).sum();
+    }
+
+    @Override
+    public int evaluate(Model mo, Class<? extends Action> a, Element e) throws SchedulerException {
+        if (mo == model) {
+            TObjectIntHashMap<Element> values = prepared.get(a);
+            if (values != null) {
+                int d = values.get(e);
+                if (d > 0) {
+                    return d;
+                }
+            }
+        }
+        return base.evaluate(mo, a, e);
+    }
+
+    @Override
+    public boolean register(Class<? extends Action> a, ActionDurationEvaluator e) {
+        prepared.remove(a);
+        return base.register(a, e);
+    }
+
+    @Override
+    public boolean unRegister(Class<? extends Action> a) {
+        prepared.remove(a);
+        return base.unRegister(a);
+    }
+
+    @Override
+    public boolean isRegistered(Class<? extends Action> a) {
+        return base.isRegistered(a);
+    }
+
+    @Override
+    public DurationEvaluators doCache(boolean b) {
+        base.doCache(b);
+        return this;
+    }
+
+    @Override
+    public DurationCache getCache() {
+        return base.getCache();
+    }
+
+    @Override
+    public ActionDurationEvaluator<Element> getEvaluator(Class<? extends Action> a) {
+        return base.getEvaluator(a);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.extensions.pack;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
+
+/**
+ * A vector packing propagator that maintains its data incrementally.
+ * It enforces the same rules than {@link VectorPackingPropagator} and reaches the same fix point but:
+ * <ul>
+ * <li>the sums of the load bounds are updated from the events on each load variable
+ * instead of being recomputed over all the bins</li>
+ * <li>instead of a heap of the bins by load slack that is rebuilt after every backtrack, each dimension
+ * maintains a backtrackable upper bound of the maximum load slack. The bins are only scanned when
+ * this bound states that rule 1.1 may filter a bin load</li>
+ * </ul>
+ *
+ * @author Fabien Hermenier
+ */
+public class IncrementalVectorPackingPropagator extends VectorPackingPropagator {
+
+    /**
+     * The load lower bounds considered by {@link #sumLoadInf}. [nbDims][nbBins]
+     */
+    private final IStateInt[][] knownInf;
+
+    /**
+     * The load upper bounds considered by {@link #sumLoadSup}. [nbDims][nbBins]
+     */
+    private final IStateInt[][] knownSup;
+
+    /**
+     * An upper bound of the maximum load slack per dimension. [nbDims]
+     */
+    private final IStateInt[] maxSlack;
+
+    /**
+     * {@code true} while the initialisation computes the sums from scratch.
+     */
+    private boolean initializing;
+
+    /**
+     * New propagator.
+     *
+     * @param labels      the label describing each dimension [nbDims]
+     * @param l           array of nbDims x nbBins variables, each figuring the total size of the items assigned to it, usually initialized to [0, capacity]
+     * @param s           array of nbDims x nbItems, each figuring the item size.
+     * @param b           array of nbItems variables, each figuring the possible bins an item can be assigned to, usually initialized to [0, nbBins-1]
+     * @param cardinality {@code true} to indicate that the last dimension is the
+     *                    number of items on the bin.
+     */
+    public IncrementalVectorPackingPropagator(String[] labels, IntVar[][] l, int[][] s,
+                                              IntVar[] b, boolean cardinality) {
+        super(labels, l, s, b, cardinality);
+        IEnvironment env = getModel().getEnvironment();
+        knownInf = new IStateInt[nbDims][nbBins];
+        knownSup = new IStateInt[nbDims][nbBins];
+        maxSlack = new IStateInt[nbDims];
+        for (int d = 0; d < nbDims; d++) {
+            maxSlack[d] = env.makeInt(Integer.MAX_VALUE);
+            for (int x = 0; x < nbBins; x++) {
+                knownInf[d][x] = env.makeInt();
+                knownSup[d][x] = env.makeInt();
+            }
+        }
+    }
+
+    @Override
+    protected void initialize() throws ContradictionException {
+        initializing = true;
+        try {
+            super.initialize();
+        } finally {
+            initializing = false;
+        }
+        //The sums now reflect the current bounds
+        for (int d = 0; d < nbDims; d++) {
+            for (int x = 0; x < nbBins; x++) {
+                knownInf[d][x].set(loads[d][x].getLB());
+                knownSup[d][x].set(loads[d][x].getUB());
+            }
+            maxSlack[d].set(Integer.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public void propagate(int evtMask) throws ContradictionException {
+        if ((evtMask & PropagatorEventType.FULL_PROPAGATION.getMask()) != 0) {
+            initialize();
+        }
+        fixPoint();
+    }
+
+    @Override
+    public void propagate(int idx, int mask) throws ContradictionException {
+        if (idx < bins.length) {
+            super.propagate(idx, mask);
+            return;
+        }
+        int x = idx - bins.length;
+        sync(x / nbBins, x % nbBins);
+        forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+    }
+
+    /**
+     * Make the sums consider the current bounds of a load variable.
+     *
+     * @param d   the dimension
+     * @param bin the bin
+     */
+    private void sync(int d, int bin) {
+        int lb = loads[d][bin].getLB();
+        int delta = lb - knownInf[d][bin].get();
+        if (delta != 0) {
+            sumLoadInf[d].add(delta);
+            knownInf[d][bin].set(lb);
+        }
+        int ub = loads[d][bin].getUB();
+        delta = ub - knownSup[d][bin].get();
+        if (delta != 0) {
+            sumLoadSup[d].add(delta);
+            knownSup[d][bin].set(ub);
+        }
+    }
+
+    @Override
+    protected boolean filterLoadInf(int dim, int bin, int newLoadInf) throws ContradictionException {
+        if (initializing) {
+            return super.filterLoadInf(dim, bin, newLoadInf);
+        }
+        //A modification of the bound may still be pending
+        sync(dim, bin);
+        if (super.filterLoadInf(dim, bin, newLoadInf)) {
+            knownInf[dim][bin].set(loads[dim][bin].getLB());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean filterLoadSup(int dim, int bin, int newLoadSup) throws ContradictionException {
+        if (initializing) {
+            return super.filterLoadSup(dim, bin, newLoadSup);
+        }
+        sync(dim, bin);
+        if (super.filterLoadSup(dim, bin, newLoadSup)) {
+            knownSup[dim][bin].set(loads[dim][bin].getUB());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The fix point procedure, on each dimension:
+     * - check rule 1.0: if sumItemSizes &lt; sumBinLoadInf or sumItemSizes &gt; sumBinLoadSup then fail
+     * - filter according to rule 1.1, for each bin: sumItemSizes - (sumBinLoadSup - sup(binLoad)) &lt;= binLoad &lt;= sumItemSizes - (sumBinLoadInf - inf(binLoad))
+     * The bins are scanned only if the maximum load slack exceeds the global slack.
+     *
+     * @throws ContradictionException if a contradiction (rules 1) is raised
+     */
+    private void fixPoint() throws ContradictionException {
+        for (int d = 0; d < nbDims; d++) {
+            if (sumISizes[d] > sumLoadSup[d].get() || sumISizes[d] < sumLoadInf[d].get()) {
+                fails();
+            }
+        }
+        for (int d = 0; d < nbDims; d++) {
+            boolean changed = true;
+            while (changed) {
+                long deltaFromInf = sumISizes[d] - sumLoadInf[d].get();
+                long deltaToSup = sumLoadSup[d].get() - sumISizes[d];
+                if (maxSlack[d].get() <= Math.min(deltaFromInf, deltaToSup)) {
+                    //No bin load can be filtered
+                    break;
+                }
+                changed = false;
+                int max = 0;
+                for (int b = 0; b < nbBins; b++) {
+                    changed |= filterLoadInf(d, b, (int) (sumISizes[d] - sumLoadSup[d].get() + loads[d][b].getUB()));
+                    changed |= filterLoadSup(d, b, (int) (sumISizes[d] - sumLoadInf[d].get() + loads[d][b].getLB()));
+                    max = Math.max(max, loads[d][b].getUB() - loads[d][b].getLB());
+                }
+                //The slacks can only decrease until a backtrack restores the bound
+                maxSlack[d].set(max);
+            }
+        }
+    }
+}
@@ -11,6 +11,8 @@ import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Constraint;
 import org.chocosolver.solver.variables.IntVar;
 
+import java.util.function.IntConsumer;
+
 /**
  * Lighter but faster version of BinPacking that does not provide the knapsack filtering
  *
@@ -31,8 +33,25 @@ public class VectorPacking extends Constraint {
      */
     public VectorPacking(String[] labels, IntVar[][] l, int[][] s, IntVar[] b
             , boolean cardinality) {
-        super("VectorPacking",
-                new VectorPackingPropagator(labels, l, s, b, cardinality));
+        this(labels, l, s, b, cardinality, false);
+    }
+
+    /**
+     * constructor of the FastBinPacking global constraint
+     *
+     * @param labels      the label describing each dimension
+     * @param l           array of nbBins variables, each figuring the total size of the items assigned to it, usually initialized to [0, capacity]
+     * @param s           array of nbItems variables, each figuring the item size. Only the LB will be considered!
+     * @param b           array of nbItems variables, each figuring the possible bins an item can be assigned to, usually initialized to [0, nbBins-1]
+     * @param cardinality {@code true} to indicate that the last dimension is the
+     *                    number of items per bin.
+     * @param incremental {@code true} to rely on {@link IncrementalVectorPackingPropagator}
+     */
+    public VectorPacking(String[] labels, IntVar[][] l, int[][] s, IntVar[] b
+            , boolean cardinality, boolean incremental) {
+        super("VectorPacking", incremental
+                ? new IncrementalVectorPackingPropagator(labels, l, s, b, cardinality)
+                : new VectorPackingPropagator(labels, l, s, b, cardinality));
     }
 
     /**
@@ -50,4 +69,14 @@ public class VectorPacking extends Constraint {
     public IStateInt[][] assignedLoad() {
         return ((VectorPackingPropagator) propagators[0]).assignedLoad();
     }
+
+    /**
+     * Add a listener to notify each time the assigned load of a bin changed.
+     *
+     * @param l the listener, that receives the bin index
+     * @see VectorPackingPropagator#addAssignedLoadListener(IntConsumer)
+     */
+    public void addAssignedLoadListener(IntConsumer l) {
+        ((VectorPackingPropagator) propagators[0]).addAssignedLoadListener(l);
+    }
 }
@@ -20,7 +20,10 @@ import org.chocosolver.util.iterators.DisposableValueIterator;
 import org.chocosolver.util.procedure.UnaryIntProcedure;
 import org.chocosolver.util.tools.ArrayUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Lighter but faster version of a multi dimension vector packing that does not provide the knapsack filtering
@@ -115,6 +118,11 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
      */
     private final boolean withCardinality;
 
+    /**
+     * The listeners to notify when the assigned load of a bin changed.
+     */
+    private final List<IntConsumer> assignedLoadListeners;
+
     /**
      * constructor of the VectorPacking global constraint
      *
@@ -143,6 +151,7 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
 
         decoHeap = new VectorPackingHeapDecorator(this);
         decoKPSimple = new KnapsackDecorator(this);
+        assignedLoadListeners = new ArrayList<>();
 
         nonZeroes = new int[nbDims - 1];
         smallest = new int[nbDims - 1];
@@ -339,6 +348,9 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
         for (int d = 0; d < nbDims; d++) {
             filterLoadInf(d, bin, assignedLoad[d][bin].add(iSizes[d][item]));
         }
+        for (IntConsumer l : assignedLoadListeners) {
+            l.accept(bin);
+        }
         decoKPSimple.postAssignItem(item, bin);
     }
 
@@ -371,7 +383,7 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
      * shrink the bin load variables: assignedLoad &lt;= binLoad &lt;= potentialLoad
      */
     @SuppressWarnings("squid:S3346")
-    private void initialize() throws ContradictionException {
+    protected void initialize() throws ContradictionException {
 
         sumISizes = new long[nbDims];
         computeSumItemSizes();
@@ -468,6 +480,12 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
 
         loadsHaveChanged = getModel().getEnvironment().makeBool(false);
 
+        for (IntConsumer l : assignedLoadListeners) {
+            for (int b = 0; b < nbBins; b++) {
+                l.accept(b);
+            }
+        }
+
         decoKPSimple.postInitialize();
 
         assert checkLoadConsistency();
@@ -652,6 +670,16 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
         return assignedLoad;
     }
 
+    /**
+     * Add a listener to notify each time the assigned load of a bin changed.
+     * The listener is not notified when the load is restored upon backtrack.
+     *
+     * @param l the listener, that receives the bin index
+     */
+    public void addAssignedLoadListener(IntConsumer l) {
+        assignedLoadListeners.add(l);
+    }
+
     /**
      * the procedure of removal for an assignment variable
      */
@@ -0,0 +1,235 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * A detailed profile of a solving process.
+ * The measures are grouped by {@link Section}. Inside a section, each measure
+ * is identified by a key, usually the simple name of the profiled class.
+ * <p>
+ * A profile is only filled when the profiling is enabled through
+ * {@link org.btrplace.scheduler.choco.Parameters#doProfiling(boolean)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class Profile {
+
+    /**
+     * The profiled parts of the solving process.
+     */
+    public enum Section {
+        /**
+         * The calls to {@link org.btrplace.scheduler.choco.view.ChocoView#inject}.
+         */
+        VIEW_INJECT("view.inject"),
+        /**
+         * The calls to {@link org.btrplace.scheduler.choco.constraint.ChocoConstraint#inject}.
+         */
+        CONSTRAINT_INJECT("constraint.inject"),
+        /**
+         * The calls to {@link org.btrplace.scheduler.choco.view.ChocoView#beforeSolve}.
+         */
+        VIEW_BEFORE_SOLVE("view.beforeSolve"),
+        /**
+         * The failures raised by the propagators during the search.
+         */
+        PROPAGATOR("propagator"),
+        /**
+         * The decisions computed by each search strategy.
+         */
+        STRATEGY("strategy");
+
+        private final String label;
+
+        Section(String lbl) {
+            label = lbl;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * The measures associated to a key.
+     */
+    public static class Entry {
+
+        private long calls;
+
+        private long duration;
+
+        private long fails;
+
+        /**
+         * Get the number of calls.
+         *
+         * @return a positive number
+         */
+        public long calls() {
+            return calls;
+        }
+
+        /**
+         * Get the cumulative duration of the calls.
+         *
+         * @return a duration in nanoseconds
+         */
+        public long duration() {
+            return duration;
+        }
+
+        /**
+         * Get the number of failures.
+         *
+         * @return a positive number
+         */
+        public long fails() {
+            return fails;
+        }
+
+        private void add(Entry e) {
+            calls += e.calls;
+            duration += e.duration;
+            fails += e.fails;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d call(s), %dms, %d fail(s)", calls, duration / 1_000_000, fails);
+        }
+    }
+
+    private final Map<Section, Map<String, Entry>> entries;
+
+    /**
+     * Make a new empty profile.
+     */
+    public Profile() {
+        entries = new EnumMap<>(Section.class);
+    }
+
+    private Entry entry(Section s, String key) {
+        return entries.computeIfAbsent(s, k -> new LinkedHashMap<>()).computeIfAbsent(key, k -> new Entry());
+    }
+
+    /**
+     * Record a call.
+     *
+     * @param s   the section
+     * @param key the key inside the section
+     * @param d   the call duration in nanoseconds
+     */
+    public void record(Section s, String key, long d) {
+        Entry e = entry(s, key);
+        e.calls++;
+        e.duration += d;
+    }
+
+    /**
+     * Record a failure.
+     *
+     * @param s   the section
+     * @param key the key inside the section
+     */
+    public void fail(Section s, String key) {
+        entry(s, key).fails++;
+    }
+
+    /**
+     * Get the measures of a section.
+     *
+     * @param s the section
+     * @return the measures per key, in their insertion order. May be empty
+     */
+    public Map<String, Entry> get(Section s) {
+        return Collections.unmodifiableMap(entries.getOrDefault(s, Collections.emptyMap()));
+    }
+
+    /**
+     * Check if the profile is empty.
+     *
+     * @return {@code true} iff nothing was recorded
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Aggregate another profile into this one.
+     *
+     * @param p the profile to add
+     * @return {@code this}
+     */
+    public Profile add(Profile p) {
+        for (Map.Entry<Section, Map<String, Entry>> s : p.entries.entrySet()) {
+            for (Map.Entry<String, Entry> e : s.getValue().entrySet()) {
+                entry(s.getKey(), e.getKey()).add(e.getValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Get the key that identifies an object in a profile.
+     *
+     * @param o the object
+     * @return the simple name of its class, or its complete name for an anonymous class
+     */
+    public static String key(Object o) {
+        String k = o.getClass().getSimpleName();
+        return k.isEmpty() ? o.getClass().getName() : k;
+    }
+
+    /**
+     * Summarizes the profile as a CSV field.
+     * Each measure is printed as {@code section/key=calls:duration:fails}, with the
+     * duration in microseconds. The measures are separated by a ','.
+     *
+     * @return a string that is empty if nothing was recorded
+     */
+    public String toCSV() {
+        StringJoiner j = new StringJoiner(",");
+        for (Map.Entry<Section, Map<String, Entry>> s : entries.entrySet()) {
+            for (Map.Entry<String, Entry> e : s.getValue().entrySet()) {
+                Entry v = e.getValue();
+                j.add(s.getKey() + "/" + e.getKey() + "=" + v.calls + ":" + v.duration / 1000 + ":" + v.fails);
+            }
+        }
+        return j.toString();
+    }
+
+    /**
+     * Print the profile. Inside each section, the hot spots come first.
+     *
+     * @return a formatted string
+     */
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        for (Map.Entry<Section, Map<String, Entry>> s : entries.entrySet()) {
+            b.append(s.getKey()).append(":\n");
+            List<Map.Entry<String, Entry>> l = new ArrayList<>(s.getValue().entrySet());
+            l.sort(Comparator.comparingLong((Map.Entry<String, Entry> e) -> e.getValue().duration)
+                    .thenComparingLong(e -> e.getValue().fails).reversed());
+            for (Map.Entry<String, Entry> e : l) {
+                b.append('\t').append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+            }
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.search.strategy.decision.Decision;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.search.strategy.strategy.StrategiesSequencer;
+import org.chocosolver.solver.variables.Variable;
+
+import java.util.Map;
+
+/**
+ * A {@link StrategiesSequencer} that profiles each of its strategies.
+ * For each strategy, it records in the section {@link Profile.Section#STRATEGY}
+ * the number of decisions that have been requested and the time spent to compute them.
+ * <p>
+ * A strategy inside the sequencer does not support {@link AbstractStrategy#computeDecision(Variable)}
+ * so the sequencer must not be combined with a search that relies on it, such as a last-conflict search.
+ *
+ * @author Fabien Hermenier
+ */
+public class ProfiledSequencer extends StrategiesSequencer<Variable> {
+
+    private final Profile profile;
+
+    /**
+     * Make a new sequencer.
+     *
+     * @param env        the environment
+     * @param strategies the strategies to sequence, in order, indexed by the key that identifies them in the profile
+     */
+    public ProfiledSequencer(IEnvironment env, Map<String, AbstractStrategy<?>> strategies) {
+        this(env, new Profile(), strategies);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProfiledSequencer(IEnvironment env, Profile p, Map<String, AbstractStrategy<?>> strategies) {
+        super(env, strategies.entrySet().stream()
+                .map(e -> new Step<>(p, e.getKey(), e.getValue()))
+                .toArray(AbstractStrategy[]::new));
+        profile = p;
+    }
+
+    /**
+     * Get the profile of the strategies.
+     *
+     * @return the profile
+     */
+    public Profile getProfile() {
+        return profile;
+    }
+
+    /**
+     * A strategy that measures the decisions of another one.
+     *
+     * @param <V> the type of variable
+     */
+    private static class Step<V extends Variable> extends AbstractStrategy<V> {
+
+        private final Profile profile;
+
+        private final String key;
+
+        private final AbstractStrategy<V> strategy;
+
+        Step(Profile p, String k, AbstractStrategy<V> s) {
+            super(s.getVariables());
+            profile = p;
+            key = k;
+            strategy = s;
+        }
+
+        @Override
+        public boolean init() {
+            return strategy.init();
+        }
+
+        @Override
+        public void remove() {
+            strategy.remove();
+        }
+
+        @Override
+        public Decision<V> getDecision() {
+            long st = System.nanoTime();
+            Decision<V> d = strategy.getDecision();
+            profile.record(Profile.Section.STRATEGY, key, System.nanoTime() - st);
+            return d;
+        }
+
+        @Override
+        public String toString() {
+            return key + ": " + strategy;
+        }
+    }
+}
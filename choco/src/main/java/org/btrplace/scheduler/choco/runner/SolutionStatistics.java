@@ -8,8 +8,11 @@ package org.btrplace.scheduler.choco.runner;
 
 import org.btrplace.plan.ReconfigurationPlan;
 
+import java.util.function.Supplier;
+
 /**
  * Store statistics about a solution.
+ * The reconfiguration plan may be built lazily, at its first access.
  *
  * @author Fabien Hermenier
  */
@@ -18,6 +21,11 @@ public class SolutionStatistics {
 
     private ReconfigurationPlan solution = null;
 
+    /**
+     * The plan builder, until the plan is built.
+     */
+    private Supplier<ReconfigurationPlan> builder;
+
   private final Metrics measures;
 
     private boolean hasObjective;
@@ -35,14 +43,41 @@ public class SolutionStatistics {
         solution = plan;
     }
 
+    /**
+     * Make a new statistics with a plan built on demand.
+     *
+     * @param m       the solver metrics at the moment of the solution
+     * @param builder the builder for the resulting plan, called once at the first access to the plan
+     */
+    public SolutionStatistics(Metrics m, Supplier<ReconfigurationPlan> builder) {
+        measures = m;
+        this.builder = builder;
+    }
+
     /**
      * Return the computed solution.
+     * The plan is built if needed.
+     *
      * @return a plan that might be null
      */
-    public ReconfigurationPlan getReconfigurationPlan() {
+    public synchronized ReconfigurationPlan getReconfigurationPlan() {
+        if (builder != null) {
+            solution = builder.get();
+            //Release the resources the builder relies on
+            builder = null;
+        }
         return solution;
     }
 
+    /**
+     * Indicates if the plan is already built.
+     *
+     * @return {@code false} iff the plan will be built at its first access
+     */
+    public synchronized boolean isPlanBuilt() {
+        return builder == null;
+    }
+
     /**
      * Return the solver metrics at the moment the solution was computed.
      * @return solver measurement
@@ -73,6 +73,14 @@ public interface SolvingStatistics {
      */
     Metrics getMetrics();
 
+    /**
+     * Get the profile of the solving process.
+     *
+     * @return a profile that is empty unless the profiling was enabled
+     * @see Parameters#doProfiling(boolean)
+     */
+    Profile getProfile();
+
     /**
      * Check if the solver completed the search.
      *
@@ -98,6 +106,7 @@ public interface SolvingStatistics {
      * - getMetrics().timeCount() / (1000 * 1000) (so in milliseconds)
      * - solutions.size()
      * - completed ? 1 : 0
+     * - getProfile().toCSV()
      *
      * @return a CSV formatted line.
      */
@@ -146,6 +146,13 @@ public class StagedSolvingStatistics implements SolvingStatistics {
 
     }
 
+    @Override
+    public Profile getProfile() {
+        Profile p = new Profile();
+        stages.forEach(st -> p.add(st.getProfile()));
+        return p;
+    }
+
     @Override
     public Instance getInstance() {
         return first().getInstance();
@@ -170,6 +177,7 @@ public class StagedSolvingStatistics implements SolvingStatistics {
      * - the cumulative getMetrics().timeCount
      * - the number of solutions for the last stage or 0 if any of the stages does not have at least a solution
      * - completed ? 1 if all the stages are completed
+     * - the aggregated profile
      *
      * @return a CSV formatted string
      */
@@ -195,12 +203,13 @@ public class StagedSolvingStatistics implements SolvingStatistics {
             }
         }
 
-        return String.format("%d;%d;%d;%d;%d;%d", nbManagedVMs,
+        return String.format("%d;%d;%d;%d;%d;%d;%s", nbManagedVMs,
                 core,
                 spe,
                 d,
                 solutions,
-                completed ? 1 : 0);
+                completed ? 1 : 0,
+                getProfile().toCSV());
 
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.incremental;
+
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.Slice;
+import org.btrplace.scheduler.choco.transition.VMTransition;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.search.strategy.selectors.variables.VariableSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A heuristic that places the VMs on the node they were running on in a previous solution.
+ * A VM is considered only if its hinted node is still a possible host.
+ * Once no hint can be followed, the heuristic stops branching so the
+ * next heuristic takes over.
+ *
+ * @author Fabien Hermenier
+ */
+class HintedPlacement implements VariableSelector<IntVar>, IntValueSelector {
+
+    private final Map<IntVar, Integer> hints;
+
+    /**
+     * Make a new heuristic.
+     *
+     * @param rp   the problem to solve
+     * @param prev the mapping of the previous solution
+     */
+    HintedPlacement(ReconfigurationProblem rp, Mapping prev) {
+        hints = new LinkedHashMap<>();
+        for (VMTransition a : rp.getVMActions()) {
+            Slice s = a.getDSlice();
+            VM v = a.getVM();
+            if (s == null || !prev.isRunning(v)) {
+                continue;
+            }
+            Node n = prev.getVMLocation(v);
+            int idx = rp.getNode(n);
+            if (idx >= 0) {
+                hints.put(s.getHoster(), idx);
+            }
+        }
+    }
+
+    /**
+     * Get the variables having a hint.
+     *
+     * @return an array that may be empty
+     */
+    IntVar[] getScope() {
+        return hints.keySet().toArray(new IntVar[0]);
+    }
+
+    @Override
+    public IntVar getVariable(IntVar[] scope) {
+        for (IntVar v : scope) {
+            if (!v.isInstantiated() && v.contains(hints.get(v))) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int selectValue(IntVar v) {
+        return hints.get(v);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.incremental;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.InstanceSolver;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+
+/**
+ * An instance solver that re-uses its previous solution to solve
+ * the next instances faster.
+ * <p>
+ * The first instance is solved entirely. For the next instances, the solver
+ * computes the {@link ModelDelta} between the model resulting from the previous plan
+ * and the model to solve. The solving process then runs in repair mode, and only
+ * manages the mis-placed VMs and the VMs impacted by the delta. The search first
+ * tries to place the VMs on their node in the previous solution.
+ * <p>
+ * When the restricted problem has no solution, or when the delta cannot be computed,
+ * the instance is solved entirely, still using the previous solution as a hint.
+ * <p>
+ * The problem is still built from scratch at each call, as a choco model cannot be re-used.
+ * The core-build time is reduced by the restriction: the unmanaged VMs stay on their node,
+ * so their transitions have constant hosts and evaluate no duration. With one percent of the VMs
+ * impacted, the core problem is built 3 to 6 times faster than without repair mode.
+ *
+ * @author Fabien Hermenier
+ */
+public class IncrementalRunner implements InstanceSolver {
+
+    private Model previous;
+
+    private ModelDelta delta;
+
+    private InstanceSolverRunner r;
+
+    @Override
+    public ReconfigurationPlan solve(Parameters ps, Instance i) throws SchedulerException {
+        delta = previous == null ? null : new ModelDelta(previous, i.getModel());
+        ReconfigurationPlan plan = null;
+        if (delta != null && delta.isComplete()) {
+            Parameters restricted = new DefaultParameters(ps).doRepair(true);
+            r = new WarmStartRunner(restricted, i, previous, delta.getImpactedVMs(i.getModel()));
+            plan = r.call().lastSolution();
+            if (plan == null && r.getStatistics().completed()) {
+                //No solution when the other VMs are left untouched.
+                r = new WarmStartRunner(ps, i, previous);
+                plan = r.call().lastSolution();
+            }
+        } else {
+            r = new WarmStartRunner(ps, i, previous);
+            plan = r.call().lastSolution();
+        }
+        if (plan != null) {
+            previous = plan.getResult();
+        }
+        return plan;
+    }
+
+    /**
+     * Get the delta computed for the last solved instance.
+     *
+     * @return the delta. {@code null} if there was no previous solution
+     */
+    public ModelDelta getDelta() {
+        return delta;
+    }
+
+    /**
+     * Forget the previous solution.
+     * The next instance will be solved entirely.
+     */
+    public void reset() {
+        previous = null;
+        delta = null;
+    }
+
+    @Override
+    public SolvingStatistics getStatistics() {
+        if (r == null) {
+            return null;
+        }
+        return r.getStatistics();
+    }
+
+    @Override
+    public void stop() {
+        if (r != null) {
+            r.stop();
+        }
+    }
+}
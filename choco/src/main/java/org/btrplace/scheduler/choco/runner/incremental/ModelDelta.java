@@ -0,0 +1,193 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.incremental;
+
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The differences between two models.
+ * <ul>
+ * <li>the VMs that have been added or removed</li>
+ * <li>the VMs that changed their state or their host</li>
+ * <li>the VMs having a resource consumption that changed</li>
+ * <li>the nodes that have been added, or that changed their state or their resource capacity</li>
+ * </ul>
+ * When a view that is not a {@link ShareableResource} changed, the delta cannot be
+ * restricted to some elements and {@link #isComplete()} returns {@code false}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ModelDelta {
+
+    private final Set<VM> added;
+
+    private final Set<VM> removed;
+
+    private final Set<VM> moved;
+
+    private final Set<VM> resized;
+
+    private final Set<Node> nodes;
+
+    private boolean complete;
+
+    /**
+     * Compute the delta between two models.
+     *
+     * @param prev the previous model
+     * @param cur  the current model
+     */
+    public ModelDelta(Model prev, Model cur) {
+        added = new HashSet<>();
+        removed = new HashSet<>();
+        moved = new HashSet<>();
+        resized = new HashSet<>();
+        nodes = new HashSet<>();
+        complete = true;
+
+        diffMapping(prev.getMapping(), cur.getMapping());
+        for (ModelView v : cur.getViews()) {
+            ModelView p = prev.getView(v.getIdentifier());
+            if (v instanceof ShareableResource && p instanceof ShareableResource) {
+                diffResource((ShareableResource) p, (ShareableResource) v, cur.getMapping());
+            } else if (!Objects.equals(v, p)) {
+                complete = false;
+            }
+        }
+    }
+
+    private void diffMapping(Mapping prev, Mapping cur) {
+        for (VM v : cur.getAllVMs()) {
+            if (!prev.contains(v)) {
+                added.add(v);
+            } else if (prev.getState(v) != cur.getState(v) || !Objects.equals(prev.getVMLocation(v), cur.getVMLocation(v))) {
+                moved.add(v);
+            }
+        }
+        for (VM v : prev.getAllVMs()) {
+            if (!cur.contains(v)) {
+                removed.add(v);
+            }
+        }
+        for (Node n : cur.getAllNodes()) {
+            if (!prev.contains(n) || prev.getState(n) != cur.getState(n)) {
+                nodes.add(n);
+            }
+        }
+    }
+
+    private void diffResource(ShareableResource prev, ShareableResource cur, Mapping map) {
+        for (VM v : map.getAllVMs()) {
+            if (prev.getConsumption(v) != cur.getConsumption(v)) {
+                resized.add(v);
+            }
+        }
+        for (Node n : map.getAllNodes()) {
+            if (prev.getCapacity(n) != cur.getCapacity(n)) {
+                nodes.add(n);
+            }
+        }
+    }
+
+    /**
+     * Get the VMs that are in the current model only.
+     *
+     * @return a set of VMs that may be empty
+     */
+    public Set<VM> getAddedVMs() {
+        return Collections.unmodifiableSet(added);
+    }
+
+    /**
+     * Get the VMs that are in the previous model only.
+     *
+     * @return a set of VMs that may be empty
+     */
+    public Set<VM> getRemovedVMs() {
+        return Collections.unmodifiableSet(removed);
+    }
+
+    /**
+     * Get the VMs that changed their state or their host.
+     *
+     * @return a set of VMs that may be empty
+     */
+    public Set<VM> getMovedVMs() {
+        return Collections.unmodifiableSet(moved);
+    }
+
+    /**
+     * Get the VMs having a resource consumption that changed.
+     *
+     * @return a set of VMs that may be empty
+     */
+    public Set<VM> getResizedVMs() {
+        return Collections.unmodifiableSet(resized);
+    }
+
+    /**
+     * Get the nodes that are new, or that changed their state or their resource capacity.
+     *
+     * @return a set of nodes that may be empty
+     */
+    public Set<Node> getChangedNodes() {
+        return Collections.unmodifiableSet(nodes);
+    }
+
+    /**
+     * Indicate if the delta captures all the differences.
+     *
+     * @return {@code false} if some views changed in a way the delta does not capture
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Check if there is no difference.
+     *
+     * @return {@code true} iff the models are equivalent
+     */
+    public boolean isEmpty() {
+        return complete && added.isEmpty() && removed.isEmpty() && moved.isEmpty()
+                && resized.isEmpty() && nodes.isEmpty();
+    }
+
+    /**
+     * Get the VMs impacted by the delta.
+     * These are the added, moved and resized VMs plus the VMs
+     * hosted by the changed nodes.
+     *
+     * @param cur the current model
+     * @return a set of VMs that may be empty
+     */
+    public Set<VM> getImpactedVMs(Model cur) {
+        Set<VM> vms = new HashSet<>(added);
+        vms.addAll(moved);
+        vms.addAll(resized);
+        Mapping map = cur.getMapping();
+        vms.addAll(map.getRunningVMs(nodes));
+        vms.addAll(map.getSleepingVMs(nodes));
+        return vms;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("added: %s, removed: %s, moved: %s, resized: %s, nodes: %s%s",
+                added, removed, moved, resized, nodes, complete ? "" : " (incomplete)");
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.incremental;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.VM;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.strategy.strategy.IntStrategy;
+import org.chocosolver.solver.search.strategy.strategy.StrategiesSequencer;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A runner that is warm-started using a previous solution.
+ * In repair mode, the VMs impacted by the model changes are managed
+ * in addition to the mis-placed VMs. The search first tries to place the VMs
+ * where they were running in the previous solution.
+ *
+ * @author Fabien Hermenier
+ */
+class WarmStartRunner extends InstanceSolverRunner {
+
+    private final Model previous;
+
+    private final Set<VM> impacted;
+
+    /**
+     * Make a new runner.
+     *
+     * @param ps   the parameters for the solving process
+     * @param i    the instance to solve
+     * @param prev the resulting model of the previous solution. {@code null} to have no hint
+     * @param imp  the VMs impacted by the model changes
+     */
+    WarmStartRunner(Parameters ps, Instance i, Model prev, Set<VM> imp) {
+        super(ps, i);
+        previous = prev;
+        impacted = imp;
+    }
+
+    /**
+     * Make a new runner that manages the VMs with regards to the parameters only.
+     *
+     * @param ps   the parameters for the solving process
+     * @param i    the instance to solve
+     * @param prev the resulting model of the previous solution. {@code null} to have no hint
+     */
+    WarmStartRunner(Parameters ps, Instance i, Model prev) {
+        this(ps, i, prev, Collections.emptySet());
+    }
+
+    @Override
+    protected Set<VM> getMisPlacedVMs() {
+        Set<VM> toManage = super.getMisPlacedVMs();
+        toManage.addAll(impacted);
+        return toManage;
+    }
+
+    @Override
+    protected void beforeSolve(ReconfigurationProblem p) {
+        Solver s = p.getSolver();
+        if (previous == null || s.getSearch() == null) {
+            //No hint, or the default heuristic of the problem will be used
+            return;
+        }
+        HintedPlacement h = new HintedPlacement(p, previous.getMapping());
+        if (h.getScope().length > 0) {
+            s.setSearch(new StrategiesSequencer(s.getEnvironment(), new IntStrategy(h.getScope(), h, h), s.getSearch()));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+/**
+ * Solver for instances that are solved periodically and change a little between two solving processes.
+ * Each solving process only manages the elements impacted by the model changes
+ * and uses the previous solution as a hint.
+ */
+package org.btrplace.scheduler.choco.runner.incremental;
@@ -0,0 +1,75 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.repair;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.SatConstraint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The neighbourhood of the VMs in an instance.
+ * Two VMs are neighbours when they are currently hosted by the same node
+ * or when they are involved in a same constraint.
+ *
+ * @author Fabien Hermenier
+ */
+public class Neighbourhood {
+
+    private final Mapping map;
+
+    private final Map<VM, List<SatConstraint>> constraints;
+
+    /**
+     * Make a new neighbourhood.
+     *
+     * @param i the instance to browse
+     */
+    public Neighbourhood(Instance i) {
+        map = i.getModel().getMapping();
+        constraints = new HashMap<>();
+        for (SatConstraint c : i.getSatConstraints()) {
+            for (VM v : c.getInvolvedVMs()) {
+                constraints.computeIfAbsent(v, k -> new ArrayList<>()).add(c);
+            }
+        }
+    }
+
+    /**
+     * Get the neighbours of some VMs.
+     *
+     * @param vms     the VMs to start from
+     * @param exclude the VMs to ignore
+     * @return the neighbours that are not excluded, in a deterministic order. May be empty
+     */
+    public Set<VM> expand(Collection<VM> vms, Set<VM> exclude) {
+        Set<VM> res = new LinkedHashSet<>();
+        for (VM v : vms) {
+            Node host = map.getVMLocation(v);
+            if (host != null) {
+                res.addAll(map.getRunningVMs(host));
+                res.addAll(map.getSleepingVMs(host));
+            }
+            for (SatConstraint c : constraints.getOrDefault(v, Collections.emptyList())) {
+                res.addAll(c.getInvolvedVMs());
+            }
+        }
+        res.removeAll(exclude);
+        res.removeAll(vms);
+        return res;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.repair;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.VM;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+
+import java.util.Set;
+
+/**
+ * A runner that manages, in repair mode, some VMs in addition to the mis-placed ones.
+ *
+ * @author Fabien Hermenier
+ */
+class NeighbourhoodRunner extends InstanceSolverRunner {
+
+    private final Set<VM> extra;
+
+    /**
+     * Make a new runner.
+     *
+     * @param ps the parameters for the solving process
+     * @param i  the instance to solve
+     * @param e  the VMs to manage in addition to the mis-placed ones
+     */
+    NeighbourhoodRunner(Parameters ps, Instance i, Set<VM> e) {
+        super(ps, i);
+        extra = e;
+    }
+
+    @Override
+    protected Set<VM> getMisPlacedVMs() {
+        Set<VM> toManage = super.getMisPlacedVMs();
+        toManage.addAll(extra);
+        return toManage;
+    }
+}
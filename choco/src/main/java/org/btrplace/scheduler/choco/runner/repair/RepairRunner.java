@@ -0,0 +1,142 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.repair;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.VM;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.runner.InstanceSolver;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An instance solver that repairs an instance using a large neighbourhood search.
+ * <p>
+ * The first round runs in repair mode and only manages the mis-placed VMs.
+ * When a round has no solution, either because its sub-problem is proved infeasible or because
+ * its time limit was reached, the next round also manages the {@link Neighbourhood} of the VMs
+ * that were added during the previous round. When a round stagnates, the time limit of the next
+ * rounds is doubled. Once the neighbourhood cannot grow anymore, the last round manages every
+ * VM and uses the remaining time.
+ * <p>
+ * The solving process stops at the first round that computes a solution.
+ * The overall time limit and the other parameters are the ones given to {@link #solve(Parameters, Instance)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class RepairRunner implements InstanceSolver {
+
+    private final int firstLimit;
+
+    private InstanceSolverRunner r;
+
+    private int rounds;
+
+    private volatile boolean stopped;
+
+    /**
+     * Make a new runner where the first round lasts at most 1 second.
+     */
+    public RepairRunner() {
+        this(1);
+    }
+
+    /**
+     * Make a new runner.
+     *
+     * @param limit the time limit of the first round, in seconds
+     */
+    public RepairRunner(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The time limit of a round must be strictly positive");
+        }
+        firstLimit = limit;
+    }
+
+    @Override
+    public ReconfigurationPlan solve(Parameters ps, Instance i) throws SchedulerException {
+        stopped = false;
+        rounds = 0;
+        long deadline = ps.getTimeLimit() > 0 ? System.currentTimeMillis() + ps.getTimeLimit() * 1000L : -1;
+        Neighbourhood nh = new Neighbourhood(i);
+        int nbVMs = i.getModel().getMapping().getNbVMs();
+
+        Set<VM> extra = new HashSet<>();
+        Set<VM> managed = new HashSet<>();
+        Set<VM> frontier = new HashSet<>();
+        int limit = firstLimit;
+        boolean last = false;
+        while (!stopped) {
+            int remaining = deadline < 0 ? -1 : (int) Math.ceil((deadline - System.currentTimeMillis()) / 1000.0);
+            if (deadline >= 0 && remaining <= 0) {
+                return null;
+            }
+            int t = last ? remaining : (remaining < 0 ? limit : Math.min(limit, remaining));
+            Parameters rps = new DefaultParameters(ps).doRepair(true).setTimeLimit(t);
+            r = new NeighbourhoodRunner(rps, i, extra);
+            rounds++;
+            ReconfigurationPlan plan = r.call().lastSolution();
+            ReconfigurationProblem rp = r.getProblem();
+            if (plan != null || last || rp == null) {
+                //A solution, or no other neighbourhood to explore
+                return plan;
+            }
+            boolean stagnated = !r.getStatistics().completed();
+            for (VM v : rp.getManageableVMs()) {
+                if (managed.add(v)) {
+                    frontier.add(v);
+                }
+            }
+            Set<VM> next = nh.expand(frontier, managed);
+            rp.getLogger().debug("Round {}: {} managed VM(s), {}. {} neighbour(s) to add",
+                    rounds, managed.size(), stagnated ? "stagnation" : "no solution", next.size());
+            if (next.isEmpty() || managed.size() + next.size() >= nbVMs) {
+                //Every VM is managed in the last round
+                last = true;
+                next = i.getModel().getMapping().getAllVMs();
+            }
+            if (stagnated) {
+                limit *= 2;
+            }
+            extra.addAll(next);
+            frontier = next;
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of rounds of the last solving process.
+     *
+     * @return a positive number
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    @Override
+    public SolvingStatistics getStatistics() {
+        if (r == null) {
+            return null;
+        }
+        return r.getStatistics();
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        if (r != null) {
+            r.stop();
+        }
+    }
+}
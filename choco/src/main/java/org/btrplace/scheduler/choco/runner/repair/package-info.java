@@ -0,0 +1,10 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+/**
+ * Solver that repairs an instance by managing a growing neighbourhood of the mis-placed VMs.
+ */
+package org.btrplace.scheduler.choco.runner.repair;
@@ -19,24 +19,34 @@ import org.btrplace.scheduler.choco.LifeCycleViolationException;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.constraint.CObjective;
+import org.btrplace.scheduler.choco.constraint.CPlacementConstraints;
 import org.btrplace.scheduler.choco.constraint.ChocoConstraint;
 import org.btrplace.scheduler.choco.constraint.ChocoMapper;
 import org.btrplace.scheduler.choco.runner.Metrics;
+import org.btrplace.scheduler.choco.runner.Profile;
+import org.btrplace.scheduler.choco.runner.ProfiledSequencer;
 import org.btrplace.scheduler.choco.runner.SolutionStatistics;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.btrplace.scheduler.choco.view.ChocoView;
 import org.btrplace.scheduler.choco.view.ChocoViews;
 import org.chocosolver.solver.Cause;
 import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.constraints.Propagator;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.search.SearchState;
+import org.chocosolver.solver.search.loop.monitors.IMonitorContradiction;
 import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
 import org.chocosolver.solver.search.measure.Measures;
 import org.chocosolver.solver.search.measure.MeasuresRecorder;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
 import org.chocosolver.solver.variables.IntVar;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 
 /**
  * A basic solver that solve a whole instance.
@@ -67,6 +77,11 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
 
     private List<ChocoView> views;
 
+    /**
+     * The profile filled when the profiling is enabled.
+     */
+    private Profile profile;
+
     /**
      * Make a new runner.
      *
@@ -79,13 +94,16 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         obj = i.getOptConstraint();
         origin = i.getModel();
         params = ps;
+        profile = new Profile();
     }
 
     @Override
     @SuppressWarnings("squid:S1166") //for the LifeCycleViolationException
     public SolvingStatistics call() throws SchedulerException {
         stats = new SingleRunnerStatistics(params, instance, System.currentTimeMillis());
+        profile = stats.getProfile();
         rp = null;
+        long mem = allocatedBytes();
 
         //Build the core problem
         long d = -System.currentTimeMillis();
@@ -102,48 +120,126 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
             stats.setCoreBuildDuration(d);
         }
         stats.setNbManagedVMs(rp.getManageableVMs().size());
+        //Every choco constraint but the objective
+        stats.setNbChocoConstraints(cConstraints.size() - 1);
 
         //Customize the core problem
         d = -System.currentTimeMillis();
         if (!specialise()) {
           d += System.currentTimeMillis();
             stats.setSpecialisationDuration(d);
+            setProblemSize(mem);
           stats.setCompleted(true);
             return getStatistics();
         }
         d += System.currentTimeMillis();
         stats.setSpecialisationDuration(d);
+        setProblemSize(mem);
 
         //statistics
         stats.setMetrics(new Metrics(rp.getSolver().getMeasures()));
         rp.getLogger().debug(stats.toString());
 
         //The solution monitor to store the measures at each solution
+        //The plans are built lazily unless someone listens to them
+        boolean lazy = params.doLazyPlans() && params.solutionListeners().isEmpty();
         rp.getSolver().plugMonitor((IMonitorSolution) () -> {
             Solution solution = new Solution(rp.getModel());
             solution.record();
 
-            ReconfigurationPlan plan = rp.buildReconfigurationPlan(solution, origin);
-            views.forEach(v -> v.insertActions(rp, solution, plan));
-
             MeasuresRecorder m = rp.getSolver().getMeasures();
-            SolutionStatistics st = new SolutionStatistics(new Metrics(m), plan);
+            ReconfigurationPlan plan = null;
+            SolutionStatistics st;
+            if (lazy) {
+                st = new SolutionStatistics(new Metrics(m), () -> buildPlan(solution));
+            } else {
+                plan = buildPlan(solution);
+                st = new SolutionStatistics(new Metrics(m), plan);
+            }
             IntVar o = rp.getObjective();
             if (o != null) {
                 st.setObjective(solution.getIntVal(o));
             }
             stats.addSolution(st);
 
-          params.solutionListeners().forEach(c -> c.accept(rp, plan));
+            for (BiConsumer<ReconfigurationProblem, ReconfigurationPlan> c : params.solutionListeners()) {
+                c.accept(rp, plan);
+            }
         });
 
+        //The search as specified by the constraints
+        AbstractStrategy<?> search = rp.getSolver().getSearch();
+        if (params.doProfiling()) {
+            rp.getSolver().plugMonitor((IMonitorContradiction) cex -> {
+                if (cex.c instanceof Propagator) {
+                    profile.fail(Profile.Section.PROPAGATOR, Profile.key(cex.c));
+                }
+            });
+        }
+
         setVerbosity();
+        beforeSolve(rp);
 
         //The actual solving process
         rp.solve(params.getTimeLimit(), params.doOptimize());
+        if (search instanceof ProfiledSequencer) {
+            profile.add(((ProfiledSequencer) search).getProfile());
+        }
+        //Build the plan of the last solution now. The others are built on demand
+        stats.lastSolution();
         return getStatistics();
     }
 
+    /**
+     * Build the reconfiguration plan associated to a solution.
+     *
+     * @param solution the solution
+     * @return the resulting plan, with the actions inserted by the views
+     */
+    private ReconfigurationPlan buildPlan(Solution solution) {
+        ReconfigurationPlan plan = rp.buildReconfigurationPlan(solution, origin);
+        views.forEach(v -> v.insertActions(rp, solution, plan));
+        return plan;
+    }
+
+
+    /**
+     * Report the size of the specialised problem.
+     *
+     * @param from the bytes allocated by the current thread before the building
+     */
+    private void setProblemSize(long from) {
+        stats.setProblemSize(rp.getModel().getNbVars(), rp.getModel().getNbCstrs());
+        if (from >= 0) {
+            stats.setBuildAllocatedBytes(allocatedBytes() - from);
+        }
+    }
+
+    /**
+     * Get the number of bytes allocated so far by the current thread.
+     *
+     * @return an amount in bytes. {@code -1} if the JVM does not report it
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean smx = (com.sun.management.ThreadMXBean) mx;
+            if (smx.isThreadAllocatedMemorySupported() && smx.isThreadAllocatedMemoryEnabled()) {
+                return smx.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Customise the specialised problem right before the solving process starts.
+     * This is called from the solving thread. By default, nothing is done.
+     *
+     * @param p the problem to solve
+     */
+    protected void beforeSolve(ReconfigurationProblem p) {
+        //Nothing by default
+    }
 
     private void setVerbosity() {
         if (params.getVerbosity() >= 2) {
@@ -158,21 +254,57 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         }
     }
 
-    private boolean specialise() {
-        
+    /**
+     * Specialise the core problem built by {@link #buildRP()}.
+     * The views are resolved and injected, then the constraints and finally
+     * the objective. When the profiling is enabled, each step is measured.
+     * This method is exposed to measure the phase independently. {@link #call()}
+     * already calls it.
+     *
+     * @return {@code false} if the specialisation proved there is no solution
+     */
+    public boolean specialise() {
         //Resolve the view dependencies, add them and inject them
         views = ChocoViews.resolveDependencies(origin, views, rp.getViews());
         views.forEach(rp::addView);
         //Inject the sat constraints, 2nd pass on the view. Then the objective for a late optimisation
         Optional<ChocoConstraint> o = cConstraints.stream().filter(c -> c instanceof CObjective).findFirst();
-        return views.stream().allMatch(v -> v.inject(params, rp)) &&
+        return views.stream().allMatch(v -> profile(Profile.Section.VIEW_INJECT, v, () -> v.inject(params, rp))) &&
                 cConstraints.stream().filter(c -> !(c instanceof CObjective))
-                        .allMatch(c -> c.inject(params, rp)) &&
-                views.stream().allMatch(v -> v.beforeSolve(rp)) &&
-                (!o.isPresent() || o.isPresent() && o.get().inject(params, rp));
+                        .allMatch(c -> profile(Profile.Section.CONSTRAINT_INJECT, c, () -> c.inject(params, rp))) &&
+                views.stream().allMatch(v -> profile(Profile.Section.VIEW_BEFORE_SOLVE, v, () -> v.beforeSolve(rp))) &&
+                (!o.isPresent() || profile(Profile.Section.CONSTRAINT_INJECT, o.get(), () -> o.get().inject(params, rp)));
+    }
+
+    /**
+     * Run a specialisation step and measure it if the profiling is enabled.
+     *
+     * @param s    the section of the step
+     * @param o    the object performing the step
+     * @param step the step
+     * @return the result of the step
+     */
+    private boolean profile(Profile.Section s, Object o, BooleanSupplier step) {
+        if (!params.doProfiling()) {
+            return step.getAsBoolean();
+        }
+        long st = System.nanoTime();
+        try {
+            return step.getAsBoolean();
+        } finally {
+            profile.record(s, Profile.key(o), System.nanoTime() - st);
+        }
     }
 
-    private ReconfigurationProblem buildRP() throws SchedulerException {
+    /**
+     * Build the core problem.
+     * This method is exposed to measure the phase independently. {@link #call()}
+     * already calls it.
+     *
+     * @return the core problem. {@code null} if the maximum plan duration cannot be restricted
+     * @throws SchedulerException if an error occurred while building the problem
+     */
+    public ReconfigurationProblem buildRP() throws SchedulerException {
         //Build the RP. As VM state management is not possible
         //We extract VM-state related constraints first.
         //For other constraint, we just create the right choco constraint
@@ -182,6 +314,8 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         Set<VM> toSleep = new HashSet<>();
 
         cConstraints = new ArrayList<>();
+        //The placement constraints are merged to restrict each VM placement once
+        CPlacementConstraints placement = new CPlacementConstraints();
 
         for (SatConstraint cstr : cstrs) {
             if (params.getVerbosity() >= 1) {
@@ -213,7 +347,13 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
                 toKill.addAll(cstr.getInvolvedVMs());
             }
 
-            cConstraints.add(build(cstr));
+            ChocoConstraint cc = build(cstr);
+            if (!placement.offer(cstr, cc)) {
+                cConstraints.add(cc);
+            } else if (placement.size() == 1) {
+                //Injected where the first merged constraint was
+                cConstraints.add(placement);
+            }
         }
         cConstraints.add(build(obj));
 
@@ -224,10 +364,7 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
                 .setParams(params);
 
         if (params.doRepair()) {
-            Set<VM> toManage = new HashSet<>();
-            cConstraints.forEach(c -> toManage.addAll(c.getMisPlacedVMs(instance)));
-            views.forEach(v -> toManage.addAll(v.getMisPlacedVMs(instance)));
-            rpb.setManageableVMs(toManage);
+            rpb.setManageableVMs(getMisPlacedVMs());
         }
 
         //The core views have been instantiated and available through rp.getViews()
@@ -239,9 +376,23 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
             p.getLogger().debug("Unable to restrict the maximum plan duration to " + params.getMaxEnd(), e);
             return null;
         }
+        rp = p;
         return p;
     }
 
+    /**
+     * Get the VMs to manage in repair mode.
+     * By default, these are the VMs that are mis-placed according to the constraints and the views.
+     *
+     * @return a set of VMs that may be empty
+     */
+    protected Set<VM> getMisPlacedVMs() {
+        Set<VM> toManage = new HashSet<>();
+        cConstraints.forEach(c -> toManage.addAll(c.getMisPlacedVMs(instance)));
+        views.forEach(v -> toManage.addAll(v.getMisPlacedVMs(instance)));
+        return toManage;
+    }
+
     private List<ChocoView> makeViews() throws SchedulerException {
         List<ChocoView> l = new ArrayList<>();
         ChocoMapper mapper = params.getMapper();
@@ -309,6 +460,15 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         return stats;
     }
 
+    /**
+     * Get the problem built by {@link #buildRP()}.
+     *
+     * @return the problem. {@code null} if it was not built
+     */
+    public ReconfigurationProblem getProblem() {
+        return rp;
+    }
+
     /**
      * Stop the solver.
      */
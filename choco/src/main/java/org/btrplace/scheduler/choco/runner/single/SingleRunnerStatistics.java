@@ -10,6 +10,7 @@ import org.btrplace.model.Instance;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.runner.Metrics;
+import org.btrplace.scheduler.choco.runner.Profile;
 import org.btrplace.scheduler.choco.runner.SolutionStatistics;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 
@@ -40,10 +41,32 @@ public class SingleRunnerStatistics implements SolvingStatistics {
      */
     private int nbManagedVMs;
 
+    /**
+     * The number of choco constraints once the constraints are merged.
+     */
+    private int nbChocoConstraints;
+
+    /**
+     * The number of variables in the specialised problem.
+     */
+    private int nbVariables;
+
+    /**
+     * The number of constraints posted in the specialised problem.
+     */
+    private int nbPostedConstraints;
+
+    /**
+     * The bytes allocated by the solving thread to build and specialise the problem.
+     */
+    private long buildAllocatedBytes;
+
   private final List<SolutionStatistics> solutions;
 
     private Metrics metrics;
 
+    private final Profile profile;
+
     /**
      * Make new statistics.
      *
@@ -56,10 +79,15 @@ public class SingleRunnerStatistics implements SolvingStatistics {
         this.start = st;
         solutions = new ArrayList<>();
         this.nbManagedVMs = -1;
+        this.nbChocoConstraints = -1;
+        this.nbVariables = -1;
+        this.nbPostedConstraints = -1;
+        this.buildAllocatedBytes = -1;
         this.coreRPBuildDuration = -1;
         this.speRPDuration = -1;
         this.instance = i;
         metrics = null;
+        profile = new Profile();
         completed = false;
     }
 
@@ -114,6 +142,11 @@ public class SingleRunnerStatistics implements SolvingStatistics {
         this.metrics = m;
     }
 
+    @Override
+    public Profile getProfile() {
+        return profile;
+    }
+
     @Override
     public List<SolutionStatistics> getSolutions() {
         return solutions;
@@ -133,6 +166,74 @@ public class SingleRunnerStatistics implements SolvingStatistics {
         nbManagedVMs = nb;
     }
 
+    /**
+     * Get the number of choco constraints that implement the instance constraints.
+     * It can be lower than the number of constraints as some of them are merged.
+     *
+     * @return a positive number. {@code -1} if the problem was not built
+     */
+    public int getNbChocoConstraints() {
+        return nbChocoConstraints;
+    }
+
+    /**
+     * Set the number of choco constraints that implement the instance constraints.
+     *
+     * @param nb a positive amount
+     */
+    public void setNbChocoConstraints(int nb) {
+        nbChocoConstraints = nb;
+    }
+
+    /**
+     * Get the number of variables in the specialised problem.
+     *
+     * @return a positive number. {@code -1} if the problem was not specialised
+     */
+    public int getNbVariables() {
+        return nbVariables;
+    }
+
+    /**
+     * Get the number of constraints posted in the specialised problem.
+     *
+     * @return a positive number. {@code -1} if the problem was not specialised
+     */
+    public int getNbPostedConstraints() {
+        return nbPostedConstraints;
+    }
+
+    /**
+     * Set the size of the specialised problem.
+     *
+     * @param nbVars  the number of variables
+     * @param nbCstrs the number of posted constraints
+     */
+    public void setProblemSize(int nbVars, int nbCstrs) {
+        nbVariables = nbVars;
+        nbPostedConstraints = nbCstrs;
+    }
+
+    /**
+     * Get the number of bytes allocated by the solving thread to build and specialise the problem.
+     * This is the allocation volume, not the heap footprint of the problem:
+     * it also counts the temporary objects that are garbage once the problem is built.
+     *
+     * @return an amount in bytes. {@code -1} if not available
+     */
+    public long getBuildAllocatedBytes() {
+        return buildAllocatedBytes;
+    }
+
+    /**
+     * Set the number of bytes allocated by the solving thread to build and specialise the problem.
+     *
+     * @param b an amount in bytes
+     */
+    public void setBuildAllocatedBytes(long b) {
+        buildAllocatedBytes = b;
+    }
+
     @Override
     public long getStart() {
         return start;
@@ -155,6 +256,9 @@ public class SingleRunnerStatistics implements SolvingStatistics {
             b.append(" (").append(nbManagedVMs).append(" managed)");
         }
         b.append("; ").append(nbConstraints).append(" constraint(s)");
+        if (nbChocoConstraints >= 0 && nbChocoConstraints != nbConstraints) {
+            b.append(" (").append(nbChocoConstraints).append(" once merged)");
+        }
 
       if (params.doOptimize()) {
         b.append("; optimize");
@@ -165,6 +269,13 @@ public class SingleRunnerStatistics implements SolvingStatistics {
             b.append("; timeout: ").append(params.getTimeLimit()).append("s");
         }
         b.append("\nBuilding duration: ").append(coreRPBuildDuration).append("ms (core) + ").append(speRPDuration).append("ms (specialization)");
+        if (nbVariables >= 0) {
+            b.append("\nProblem: ").append(nbVariables).append(" variable(s), ")
+                    .append(nbPostedConstraints).append(" constraint(s)");
+            if (buildAllocatedBytes >= 0) {
+                b.append(", ").append(buildAllocatedBytes / 1024 / 1024).append("MB allocated during the build");
+            }
+        }
         b.append("\nAfter ").append(metrics.timeCount()).append("ms of search");
 
         if (completed) {
@@ -187,6 +298,9 @@ public class SingleRunnerStatistics implements SolvingStatistics {
             b.append('\t').append(i).append(')').append(st.toString()).append("\n");
             i++;
         }
+        if (!profile.isEmpty()) {
+            b.append("Profile:\n").append(profile);
+        }
         return b.toString();
     }
 
@@ -220,12 +334,13 @@ public class SingleRunnerStatistics implements SolvingStatistics {
 
     @Override
     public String toCSV() {
-        return String.format("%d;%d;%d;%d;%d;%d", nbManagedVMs,
+        return String.format("%d;%d;%d;%d;%d;%d;%s", nbManagedVMs,
                 coreRPBuildDuration,
                 speRPDuration,
                 getMetrics().timeCount(),
                 solutions.size(),
-                completed ? 1 : 0);
+                completed ? 1 : 0,
+                profile.toCSV());
     }
 }
 
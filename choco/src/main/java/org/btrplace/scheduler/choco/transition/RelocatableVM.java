@@ -99,7 +99,7 @@ public class RelocatableVM implements KeepRunningVM {
             manageable = false;
             
             IntVar host = rp.makeCurrentHost(vm, PREFIX_STAY, vm, ").host");
-            cSlice = new SliceBuilder(rp, vm, PREFIX_STAY, vm.toString(), ").cSlice")
+            cSlice = new SliceBuilder(rp, vm, PREFIX_STAY, vm, ").cSlice")
                     .setHoster(host)
                     .setEnd(rp.makeUnboundedDuration(PREFIX_STAY, vm, ").cSlice_end"))
                     .build();
@@ -146,7 +146,7 @@ public class RelocatableVM implements KeepRunningVM {
 
             // Create unbounded/large domain vars for migration duration and bandwidth
             migrationDuration = p.makeUnboundedDuration("migration(", vm, ").duration");
-            bandwidth = csp.intVar(PREFIX + vm + ").bandwidth", 0, Integer.MAX_VALUE / 100, true);
+            bandwidth = csp.intVar(rp.makeVarLabel(PREFIX, vm, ").bandwidth"), 0, Integer.MAX_VALUE / 100, true);
         }
         // No networking view, set the duration from the evaluator
         else {
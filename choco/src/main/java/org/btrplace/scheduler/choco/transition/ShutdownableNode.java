@@ -8,6 +8,7 @@ package org.btrplace.scheduler.choco.transition;
 
 import org.btrplace.model.Node;
 import org.btrplace.model.NodeState;
+import org.btrplace.model.VM;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.plan.event.ShutdownNode;
 import org.btrplace.scheduler.SchedulerException;
@@ -20,6 +21,8 @@ import org.chocosolver.solver.Solution;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 
+import java.util.Set;
+
 /**
  * Model an action that allow a node to boot if necessary.
  * An estimation of the action duration must be provided through a
@@ -57,6 +60,9 @@ import org.chocosolver.solver.variables.IntVar;
  * <li>{@code T} = { {@link #getStart()}, {@link org.btrplace.scheduler.choco.ReconfigurationProblem#getEnd()} }; {@link #getHostingEnd()} = T[{@link #getState()}]</li>
  * </ul>
  * </li>
+ * <li>If the node hosts running VMs that are not manageable, it necessarily stays online. Then the state, the duration and
+ * the hosting end are constants and the action ends when it starts.
+ * </li>
  * </ul>
  * <p>
  * If the reconfiguration problem has a solution, a {@link org.btrplace.plan.event.ShutdownNode} action is inserted
@@ -87,6 +93,23 @@ public class ShutdownableNode implements NodeTransition {
     this.node = e;
         Model csp = rp.getModel();
 
+        //The moment of shutdown action consume
+        /* As */
+        start = rp.makeUnboundedDuration(PREFIX, e, ").start");
+        //The node is already online, so it can host VMs at the beginning of the RP
+        hostingStart = rp.getStart();
+
+        if (pinned(rp, e)) {
+            //No need for variables, the node stays online
+            isOnline = csp.boolVar(true);
+            isOffline = csp.boolVar(false);
+            duration = csp.intVar(0);
+            end = start;
+            csp.post(csp.arithm(end, "<=", rp.getEnd()));
+            hostingEnd = rp.getEnd();
+            return;
+        }
+
         /*
             - If the node is hosting running VMs, it is necessarily online
             - If the node is offline, it is sure it cannot host any running VMs
@@ -103,9 +126,6 @@ public class ShutdownableNode implements NodeTransition {
         duration = csp.intVar(rp.makeVarLabel(PREFIX, e, ").duration"), new int[]{0, d});
         csp.post(new FastIFFEq(isOnline, duration, 0));
 
-        //The moment of shutdown action consume
-        /* As */
-        start = rp.makeUnboundedDuration(PREFIX, e, ").start");
         //The moment of shutdown action end
         /* Ae */
         end = rp.makeUnboundedDuration(PREFIX, e, ").end");
@@ -116,8 +136,6 @@ public class ShutdownableNode implements NodeTransition {
         TaskMonitor.build(start, duration, end);
 
 
-        //The node is already online, so it can host VMs at the beginning of the RP
-        hostingStart = rp.getStart();
         //The moment the node can no longer host VMs varies depending on its next state
         hostingEnd = rp.makeUnboundedDuration(PREFIX, e, ").hostingEnd");
 
@@ -128,6 +146,27 @@ public class ShutdownableNode implements NodeTransition {
         csp.post(csp.element(hostingEnd, new IntVar[]{start, rp.getEnd()}, isOnline, 0));
     }
 
+    /**
+     * Check if a node hosts running VMs that are not manageable.
+     * Such VMs will stay running on the node.
+     *
+     * @param rp the problem
+     * @param n  the node
+     * @return {@code true} iff the node must stay online
+     */
+    private static boolean pinned(ReconfigurationProblem rp, Node n) {
+        Set<VM> manageable = rp.getManageableVMs();
+        for (VM vm : rp.getSourceModel().getMapping().getRunningVMs(n)) {
+            if (!manageable.contains(vm)
+                    && !rp.getFutureSleepingVMs().contains(vm)
+                    && !rp.getFutureReadyVMs().contains(vm)
+                    && !rp.getFutureKilledVMs().contains(vm)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 
     @Override
     public boolean insertActions(Solution s, ReconfigurationPlan plan) {
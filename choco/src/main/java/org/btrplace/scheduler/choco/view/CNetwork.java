@@ -18,6 +18,7 @@ import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.SchedulerModelingException;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.duration.DurationCache;
 import org.btrplace.scheduler.choco.transition.RelocatableVM;
 import org.btrplace.scheduler.choco.transition.VMTransition;
 import org.chocosolver.solver.Cause;
@@ -75,6 +76,8 @@ public class CNetwork implements ChocoView {
 
         Model mo = rp.getSourceModel();
         Attributes attrs = mo.getAttributes();
+        DurationCache cache = rp.getDurationEvaluators().getCache();
+        DurationCache.Durations cached = cache == null ? null : cache.of(mo);
 
         // Pre-compute duration and bandwidth for each VM migration
         for (VMTransition migration : rp.getVMActions()) {
@@ -112,44 +115,18 @@ public class CNetwork implements ChocoView {
                 }
             }
 
-            // Get attribute vars
-            int memUsed = attrs.get(vm, "memUsed", -1);
-
-            // Get VM memory activity attributes if defined, otherwise set an idle workload on the VM
-            double hotDirtySize = attrs.get(vm, "hotDirtySize", 5.0);// Minimal observed value on idle VM
-            double hotDirtyDuration = attrs.get(vm, "hotDirtyDuration", 2.0); // Minimal observed value on idle VM
-            double coldDirtyRate = attrs.get(vm, "coldDirtyRate", 0.0);
-
             // Get the maximal bandwidth available on the migration path
             int maxBW = net.getRouting().getMaxBW(src, dst);
-
-            // Compute the duration related to each enumerated bandwidth
-            double durationMin;
-            double durationColdPages;
-            double durationHotPages;
-            double durationTotal;
-
-            // Cheat a bit, real is less than theoretical (8->9)
-            double bandwidthOctet = maxBW / 9.0;
-
-            // Estimate the duration for the current bandwidth
-            durationMin = memUsed / bandwidthOctet;
-            if (durationMin > hotDirtyDuration) {
-
-                durationColdPages = (hotDirtySize + (durationMin - hotDirtyDuration) * coldDirtyRate) /
-                        (bandwidthOctet - coldDirtyRate);
-                durationHotPages = (hotDirtySize / bandwidthOctet * ((hotDirtySize / hotDirtyDuration) /
-                        (bandwidthOctet - (hotDirtySize / hotDirtyDuration))));
-                durationTotal = durationMin + durationColdPages + durationHotPages;
-            } else {
-                durationTotal = durationMin + (((hotDirtySize / hotDirtyDuration) * durationMin) /
-                        (bandwidthOctet - (hotDirtySize / hotDirtyDuration)));
+            int dd = cached == null ? -1 : cached.get(new MigrationKey(maxBW), vm);
+            if (dd < 0) {
+                dd = migrationDuration(attrs, vm, maxBW);
+                if (cached != null) {
+                    cached.put(new MigrationKey(maxBW), vm, dd);
+                }
             }
 
             // Instantiate the computed bandwidth and duration
             try {
-                //prevent from a 0 duration when the memory usage is very low
-                int dd = (int) Math.max(1, Math.round(durationTotal));
                 duration.instantiateTo(dd, Cause.Null);
                 bandwidth.instantiateTo(maxBW, Cause.Null);
             } catch (ContradictionException e) {
@@ -166,6 +143,72 @@ public class CNetwork implements ChocoView {
         return true;
     }
 
+    /**
+     * Estimate the duration of a migration.
+     *
+     * @param attrs the attributes describing the VM memory activity
+     * @param vm    the migrated VM
+     * @param maxBW the bandwidth allocated to the migration
+     * @return the duration, at least 1
+     */
+    private static int migrationDuration(Attributes attrs, VM vm, int maxBW) {
+        // Get attribute vars
+        int memUsed = attrs.get(vm, "memUsed", -1);
+
+        // Get VM memory activity attributes if defined, otherwise set an idle workload on the VM
+        double hotDirtySize = attrs.get(vm, "hotDirtySize", 5.0);// Minimal observed value on idle VM
+        double hotDirtyDuration = attrs.get(vm, "hotDirtyDuration", 2.0); // Minimal observed value on idle VM
+        double coldDirtyRate = attrs.get(vm, "coldDirtyRate", 0.0);
+
+        // Compute the duration related to each enumerated bandwidth
+        double durationMin;
+        double durationColdPages;
+        double durationHotPages;
+        double durationTotal;
+
+        // Cheat a bit, real is less than theoretical (8->9)
+        double bandwidthOctet = maxBW / 9.0;
+
+        // Estimate the duration for the current bandwidth
+        durationMin = memUsed / bandwidthOctet;
+        if (durationMin > hotDirtyDuration) {
+
+            durationColdPages = (hotDirtySize + (durationMin - hotDirtyDuration) * coldDirtyRate) /
+                    (bandwidthOctet - coldDirtyRate);
+            durationHotPages = (hotDirtySize / bandwidthOctet * ((hotDirtySize / hotDirtyDuration) /
+                    (bandwidthOctet - (hotDirtySize / hotDirtyDuration))));
+            durationTotal = durationMin + durationColdPages + durationHotPages;
+        } else {
+            durationTotal = durationMin + (((hotDirtySize / hotDirtyDuration) * durationMin) /
+                    (bandwidthOctet - (hotDirtySize / hotDirtyDuration)));
+        }
+        //prevent from a 0 duration when the memory usage is very low
+        return (int) Math.max(1, Math.round(durationTotal));
+    }
+
+    /**
+     * The key of the migration durations in a {@link DurationCache}.
+     * A duration depends on the bandwidth allocated to the migration.
+     */
+    private static final class MigrationKey {
+
+        private final int bw;
+
+        MigrationKey(int bw) {
+            this.bw = bw;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MigrationKey && ((MigrationKey) o).bw == bw;
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(bw);
+        }
+    }
+
     /**
      * Add the cumulative constraints for each link.
      *
@@ -41,6 +41,9 @@ import java.util.*;
 /**
  * Specify, for a given resource, the physical resource usage associated to each server,
  * and the virtual resource usage consumed by each of the VMs they host.
+ * <p>
+ * The physical usage of a node is only made on demand. Without overbooking, it is
+ * the virtual usage itself.
  *
  * @author Fabien Hermenier
  */
@@ -48,6 +51,9 @@ public class CShareableResource implements ChocoView {
 
     private final ShareableResource rc;
 
+    /**
+     * The physical usage of each node. {@code null} until it is required.
+     */
     private List<IntVar> phyRcUsage;
 
     private List<IntVar> virtRcUsage;
@@ -104,11 +110,10 @@ public class CShareableResource implements ChocoView {
         this.ratios = new TDoubleArrayList(nodes.size());
         id = ShareableResource.VIEW_ID_BASE + rc.getResourceIdentifier();
         for (Node nId : p.getNodes()) {
-            phyRcUsage.add(csp.intVar(p.makeVarLabel("phyRcUsage('", rc.getResourceIdentifier(), "', '", nId, "')"), 0, rc.getCapacity(nId), true));
+            phyRcUsage.add(null);
             virtRcUsage.add(csp.intVar(p.makeVarLabel("virtRcUsage('", rc.getResourceIdentifier(), "', '", nId, "')"), 0, Integer.MAX_VALUE / 100, true));
             ratios.add(UNCHECKED_RATIO);
         }
-        phyRcUsage = Collections.unmodifiableList(phyRcUsage);
         virtRcUsage = Collections.unmodifiableList(virtRcUsage);
 
         //Bin packing for the node vmAllocation
@@ -153,11 +158,15 @@ public class CShareableResource implements ChocoView {
 
     /**
      * Get the physical resource usage of each node.
+     * The variables that were not required yet are made.
      *
      * @return an array of variable denoting the resource usage for each node.
      */
     public List<IntVar> getPhysicalUsage() {
-        return phyRcUsage;
+        for (int nIdx = 0; nIdx < phyRcUsage.size(); nIdx++) {
+            getPhysicalUsage(nIdx);
+        }
+        return Collections.unmodifiableList(phyRcUsage);
     }
 
     /**
@@ -167,7 +176,16 @@ public class CShareableResource implements ChocoView {
      * @return the variable denoting the resource usage for the node.
      */
     public IntVar getPhysicalUsage(int nIdx) {
-        return phyRcUsage.get(nIdx);
+        IntVar v = phyRcUsage.get(nIdx);
+        if (v == null) {
+            v = makePhysicalUsage(rp.getNode(nIdx));
+            phyRcUsage.set(nIdx, v);
+        }
+        return v;
+    }
+
+    private IntVar makePhysicalUsage(Node n) {
+        return csp.intVar(rp.makeVarLabel("phyRcUsage('", rc.getResourceIdentifier(), "', '", n, "')"), 0, rc.getCapacity(n), true);
     }
 
     /**
@@ -480,12 +498,12 @@ public class CShareableResource implements ChocoView {
         int maxPhy = getSourceResource().getCapacity(n);
         int maxVirt = (int) (maxPhy * r);
         if (maxVirt != 0) {
-            csp.post(new RoundedUpDivision(phyRcUsage.get(nIdx), virtRcUsage.get(nIdx), r));
+            csp.post(new RoundedUpDivision(getPhysicalUsage(nIdx), virtRcUsage.get(nIdx), r));
             return true;
         }
 
         try {
-            phyRcUsage.get(nIdx).instantiateTo(0, Cause.Null);
+            getPhysicalUsage(nIdx).instantiateTo(0, Cause.Null);
         } catch (ContradictionException ex) {
             rp.getLogger().debug("Unable to restrict the physical '" + getResourceIdentifier() + "' capacity of " + n + " to " + maxPhy, ex);
             return false;
@@ -494,11 +512,21 @@ public class CShareableResource implements ChocoView {
     }
 
     private boolean noOverbook(int nIdx) {
-        csp.post(csp.arithm(phyRcUsage.get(nIdx), "=", virtRcUsage.get(nIdx)));
+        IntVar virt = virtRcUsage.get(nIdx);
+        IntVar phy = phyRcUsage.get(nIdx);
+        int capa;
+        if (phy == null) {
+            //No one required the physical usage, so it is the virtual one
+            phyRcUsage.set(nIdx, virt);
+            capa = rc.getCapacity(rp.getNode(nIdx));
+        } else {
+            csp.post(csp.arithm(phy, "=", virt));
+            capa = phy.getUB();
+        }
         try {
-            virtRcUsage.get(nIdx).updateUpperBound(phyRcUsage.get(nIdx).getUB(), Cause.Null);
+            virt.updateUpperBound(capa, Cause.Null);
         } catch (ContradictionException ex) {
-            rp.getLogger().debug("Unable to restrict the virtual '" + getResourceIdentifier() + "' capacity of " + rp.getNode(nIdx) + " to " + phyRcUsage.get(nIdx).getUB(), ex);
+            rp.getLogger().debug("Unable to restrict the virtual '" + getResourceIdentifier() + "' capacity of " + rp.getNode(nIdx) + " to " + capa, ex);
             return false;
         }
         return true;
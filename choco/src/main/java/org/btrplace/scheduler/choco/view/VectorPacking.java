@@ -14,6 +14,7 @@ import org.chocosolver.solver.variables.IntVar;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 
 /*
@@ -31,10 +32,12 @@ public class VectorPacking extends Packing {
 
     private List<String> names;
 
-    private IStateInt[][] assignedLoad;
+    private org.btrplace.scheduler.choco.extensions.pack.VectorPacking constraint;
 
     private int dim;
 
+    private boolean incremental;
+
     @Override
     public boolean inject(Parameters ps, ReconfigurationProblem rp) throws SchedulerException {
         loads = new ArrayList<>();
@@ -42,6 +45,7 @@ public class VectorPacking extends Packing {
         sizes = new ArrayList<>();
         names = new ArrayList<>();
         dim = 0;
+        incremental = ps.doIncrementalPacking();
         return true;
     }
 
@@ -70,15 +74,26 @@ public class VectorPacking extends Packing {
         }
         if (!p.getFutureRunningVMs().isEmpty()) {
             org.btrplace.scheduler.choco.extensions.pack.VectorPacking c =
-                    new org.btrplace.scheduler.choco.extensions.pack.VectorPacking(aNames, aLoads, aSizes, bins.get(0), true);
+                    new org.btrplace.scheduler.choco.extensions.pack.VectorPacking(aNames, aLoads, aSizes, bins.get(0), true, incremental);
             p.getModel().post(c);
-            assignedLoad = c.assignedLoad();
-
+            constraint = c;
         }
         return true;
     }
 
     public IStateInt[][] assignedLoad() {
-        return assignedLoad;
+        return constraint == null ? null : constraint.assignedLoad();
+    }
+
+    /**
+     * Add a listener to notify each time the assigned load of a node changed.
+     * Nothing happens when there is no VM to pack.
+     *
+     * @param l the listener, that receives the node index
+     */
+    public void addAssignedLoadListener(IntConsumer l) {
+        if (constraint != null) {
+            constraint.addAssignedLoadListener(l);
+        }
     }
 }
@@ -23,6 +23,7 @@ import org.btrplace.model.constraint.SatConstraint;
 import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.runner.SolutionStatistics;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.btrplace.scheduler.choco.transition.TransitionFactory;
 import org.btrplace.scheduler.choco.transition.VMTransitionBuilder;
@@ -33,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -60,6 +62,22 @@ public class DefaultChocoSchedulerTest {
         cra.doRepair(true);
         Assert.assertEquals(cra.doRepair(), true);
 
+        Assert.assertEquals(cra.doLazyPlans(), false);
+        cra.doLazyPlans(true);
+        Assert.assertEquals(cra.doLazyPlans(), true);
+
+        Assert.assertEquals(cra.doIncrementalPacking(), false);
+        cra.doIncrementalPacking(true);
+        Assert.assertEquals(cra.doIncrementalPacking(), true);
+
+        Assert.assertEquals(cra.doProfiling(), false);
+        cra.doProfiling(true);
+        Assert.assertEquals(cra.doProfiling(), true);
+
+        Assert.assertEquals(cra.doParallelBuild(), false);
+        cra.doParallelBuild(true);
+        Assert.assertEquals(cra.doParallelBuild(), true);
+
         cra.setVerbosity(3);
         Assert.assertEquals(cra.getVerbosity(), 3);
     }
@@ -318,4 +336,50 @@ public class DefaultChocoSchedulerTest {
         Assert.assertEquals(plan, onSolutions.get(0));
 
     }
+
+    @Test
+    public void testLazyPlans() {
+        Model mo = new DefaultModel();
+        ShareableResource cpu = new ShareableResource("cpu", 12, 1);
+        ShareableResource mem = new ShareableResource("mem", 12, 1);
+        mo.attach(cpu);
+        mo.attach(mem);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Node n = mo.newNode();
+            nodes.add(n);
+            mo.getMapping().addOnlineNode(n);
+        }
+        List<SatConstraint> cstrs = new ArrayList<>();
+        Random rnd = new Random(0);
+        for (int i = 0; i < 10; i++) {
+            VM v = mo.newVM();
+            mo.getMapping().addRunningVM(v, nodes.get(i % 3));
+            cpu.setConsumption(v, 1 + rnd.nextInt(2));
+            mem.setConsumption(v, 1 + rnd.nextInt(2));
+            cstrs.add(new Preserve(v, "cpu", 2 + rnd.nextInt(2)));
+        }
+        cstrs.add(new Offline(nodes.get(0)));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+
+        ChocoScheduler cra = new DefaultChocoScheduler();
+        cra.doOptimize(true).doLazyPlans(true);
+        cra.setTimeLimit(2);
+        ReconfigurationPlan plan = cra.solve(i);
+        List<SolutionStatistics> solutions = cra.getStatistics().getSolutions();
+        Assert.assertTrue(solutions.size() > 1);
+        for (int x = 0; x < solutions.size(); x++) {
+            SolutionStatistics st = solutions.get(x);
+            //Only the last plan is built
+            Assert.assertEquals(st.isPlanBuilt(), x == solutions.size() - 1);
+            ReconfigurationPlan p = st.getReconfigurationPlan();
+            Assert.assertTrue(st.isPlanBuilt());
+            Assert.assertTrue(p.getResult().getMapping().getOfflineNodes().contains(nodes.get(0)));
+            if (x < solutions.size() - 1) {
+                Assert.assertTrue(st.objective() > solutions.get(x + 1).objective());
+            } else {
+                Assert.assertEquals(p, plan);
+            }
+        }
+    }
 }
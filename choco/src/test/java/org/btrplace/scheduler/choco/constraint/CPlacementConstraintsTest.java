@@ -0,0 +1,127 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.btrplace.scheduler.choco.runner.single.SingleRunnerStatistics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link CPlacementConstraints}.
+ *
+ * @author Fabien Hermenier
+ */
+public class CPlacementConstraintsTest {
+
+    @Test
+    public void testOffer() {
+        Model mo = new DefaultModel();
+        VM vm = mo.newVM();
+        Node n = mo.newNode();
+        Ban b = new Ban(vm, Collections.singleton(n));
+        Fence f = new Fence(vm, Collections.singleton(n));
+        Spread s = new Spread(Collections.singleton(vm));
+        CPlacementConstraints c = new CPlacementConstraints();
+        Assert.assertTrue(c.offer(b, new CBan(b)));
+        Assert.assertTrue(c.offer(f, new CFence(f)));
+        Assert.assertFalse(c.offer(s, new CSpread(s)));
+        //Custom implementations are not merged
+        Assert.assertFalse(c.offer(b, new CBan(b) {
+        }));
+        Assert.assertEquals(c.size(), 2);
+    }
+
+    @Test
+    public void testGetMisPlaced() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, vm1, vm2).run(n2, vm3);
+        Instance i = new Instance(mo, Collections.emptyList(), new MinMTTR());
+        CPlacementConstraints c = new CPlacementConstraints();
+        Ban b = new Ban(vm1, Collections.singleton(n2));
+        c.offer(b, new CBan(b));
+        Assert.assertTrue(c.getMisPlacedVMs(i).isEmpty());
+        b = new Ban(vm2, Collections.singleton(n1));
+        c.offer(b, new CBan(b));
+        Fence f = new Fence(vm3, Collections.singleton(n1));
+        c.offer(f, new CFence(f));
+        Assert.assertEquals(c.getMisPlacedVMs(i), new HashSet<>(Arrays.asList(vm2, vm3)));
+    }
+
+    /**
+     * The fences on a same VM are intersected, the bans are subtracted.
+     */
+    @Test
+    public void testMerge() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Node n4 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        mo.getMapping().on(n1, n2, n3, n4).run(n1, vm1, vm2);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Fence(vm1, new HashSet<>(Arrays.asList(n2, n3, n4))));
+        cstrs.add(new Fence(vm1, new HashSet<>(Arrays.asList(n1, n3, n4))));
+        cstrs.add(new Ban(vm1, Collections.singleton(n4)));
+        cstrs.add(new Ban(vm2, Collections.singleton(n1)));
+        cstrs.add(new Ban(vm2, new HashSet<>(Arrays.asList(n2, n3))));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+        InstanceSolverRunner runner = new InstanceSolverRunner(new DefaultParameters(), i);
+        SingleRunnerStatistics stats = (SingleRunnerStatistics) runner.call();
+        ReconfigurationPlan p = stats.lastSolution();
+        Assert.assertNotNull(p);
+        Assert.assertEquals(p.getResult().getMapping().getVMLocation(vm1), n3);
+        Assert.assertEquals(p.getResult().getMapping().getVMLocation(vm2), n4);
+        Assert.assertEquals(stats.getNbChocoConstraints(), 1);
+        Assert.assertTrue(stats.getNbVariables() > 0);
+        Assert.assertTrue(stats.getNbPostedConstraints() > 0);
+        for (SatConstraint c : cstrs) {
+            Assert.assertTrue(c.isSatisfied(p), c.toString());
+        }
+    }
+
+    @Test
+    public void testDisjointFences() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM vm = mo.newVM();
+        mo.getMapping().on(n1, n2).run(n1, vm);
+        Set<SatConstraint> cstrs = new HashSet<>();
+        cstrs.add(new Fence(vm, Collections.singleton(n1)));
+        cstrs.add(new Fence(vm, Collections.singleton(n2)));
+        InstanceSolverRunner runner = new InstanceSolverRunner(new DefaultParameters(), new Instance(mo, cstrs, new MinMTTR()));
+        Assert.assertNull(runner.call().lastSolution());
+    }
+}
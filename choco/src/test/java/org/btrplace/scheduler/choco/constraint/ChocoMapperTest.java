@@ -10,6 +10,8 @@ import org.btrplace.model.DefaultModel;
 import org.btrplace.model.Model;
 import org.btrplace.model.constraint.Ban;
 import org.btrplace.model.constraint.Spread;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.scheduler.choco.view.CShareableResource;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -32,6 +34,17 @@ public class ChocoMapperTest {
         Assert.assertTrue(map.constraintHasMapping(Ban.class));
     }
 
+    @Test(dependsOnMethods = {"testInstantiate"})
+    public void testCopy() {
+        ChocoMapper map = ChocoMapper.newBundle();
+        ChocoMapper cpy = new ChocoMapper(map);
+        Assert.assertTrue(cpy.constraintHasMapping(Spread.class));
+        Assert.assertTrue(cpy.viewHasMapping(ShareableResource.class));
+        cpy.unMapConstraint(Spread.class);
+        Assert.assertFalse(cpy.constraintHasMapping(Spread.class));
+        Assert.assertTrue(map.constraintHasMapping(Spread.class));
+    }
+
     @Test(dependsOnMethods = {"testInstantiate"})
     public void testMap() {
         Model mo = new DefaultModel();
@@ -45,4 +58,32 @@ public class ChocoMapperTest {
         c = map.get(s);
         Assert.assertTrue(c.getClass().equals(CSpread.class));
     }
+
+    @Test(dependsOnMethods = {"testInstantiate"})
+    public void testMapFactory() {
+        Model mo = new DefaultModel();
+        ChocoMapper map = ChocoMapper.newBundle();
+        Spread s = new Spread(Collections.singleton(mo.newVM()));
+        map.mapConstraint(Spread.class, x -> {
+            Assert.assertSame(x, s);
+            return new CSpread(x);
+        });
+        Assert.assertTrue(map.get(s) instanceof CSpread);
+
+        ShareableResource rc = new ShareableResource("cpu");
+        map.mapView(ShareableResource.class, CShareableResource::new);
+        Assert.assertTrue(map.get(rc) instanceof CShareableResource);
+
+        //A subclass relies on the mapping of its parent
+        ShareableResource sub = new ShareableResource("mem") {
+        };
+        Assert.assertTrue(map.viewHasMapping(sub.getClass()));
+        Assert.assertTrue(map.get(sub) instanceof CShareableResource);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testMapWithoutConstructor() {
+        ChocoMapper map = new ChocoMapper();
+        map.mapConstraint(Spread.class, CBan.class);
+    }
 }
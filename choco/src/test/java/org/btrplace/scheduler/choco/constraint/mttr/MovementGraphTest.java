@@ -0,0 +1,93 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Unit tests for {@link MovementGraph}.
+ *
+ * @author Fabien Hermenier
+ */
+public class MovementGraphTest {
+
+    @Test
+    public void testIncremental() throws SchedulerException, ContradictionException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        mo.getMapping().on(n1, n2, n3).run(n1, vm1).run(n2, vm2);
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setManageableVMs(new HashSet<>(Arrays.asList(vm1, vm2))).build();
+        MovementGraph g = new MovementGraph(rp);
+        IEnvironment env = rp.getModel().getEnvironment();
+
+        //Only n3 has no outgoing movement
+        Assert.assertEquals(g.getLeaves(), new int[]{rp.getNode(n3)});
+        Assert.assertEquals(g.getOutgoing(n1), Collections.singletonList(rp.getVMAction(vm1).getCSlice().getStart()));
+        Assert.assertTrue(g.getOutgoing(n3).isEmpty());
+        Assert.assertTrue(g.getIncoming(n3).isEmpty());
+
+        IntVar h1 = rp.getVMAction(vm1).getDSlice().getHoster();
+        IntVar h2 = rp.getVMAction(vm2).getDSlice().getHoster();
+        IntVar s1 = rp.getVMAction(vm1).getDSlice().getStart();
+        env.worldPush();
+        h1.instantiateTo(rp.getNode(n3), Cause.Null);
+        h2.instantiateTo(rp.getNode(n2), Cause.Null);
+        Assert.assertEquals(g.getIncoming(n3), Collections.singletonList(s1));
+        Assert.assertEquals(g.getMoving().cardinality(), 1);
+        Assert.assertEquals(g.getStaying().cardinality(), 1);
+        Assert.assertEquals(g.getIncoming(rp.getNode(n2)).cardinality(), 1);
+
+        //Back to the unknown placement
+        env.worldPop();
+        Assert.assertTrue(g.getIncoming(n3).isEmpty());
+        Assert.assertTrue(g.getMoving().isEmpty());
+        Assert.assertTrue(g.getStaying().isEmpty());
+
+        env.worldPush();
+        h1.instantiateTo(rp.getNode(n1), Cause.Null);
+        Assert.assertEquals(g.getIncoming(n1), Collections.singletonList(s1));
+        Assert.assertTrue(g.getMoving().isEmpty());
+        Assert.assertEquals(g.getStaying().cardinality(), 1);
+    }
+
+    @Test
+    public void testStartOnLeafNodes() throws SchedulerException, ContradictionException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM vm1 = mo.newVM();
+        mo.getMapping().on(n1, n2).run(n1, vm1);
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setManageableVMs(Collections.singleton(vm1)).build();
+        MovementGraph g = new MovementGraph(rp);
+        StartOnLeafNodes h = new StartOnLeafNodes(rp, g);
+        Assert.assertNull(h.getVariable(new IntVar[0]));
+        rp.getVMAction(vm1).getDSlice().getHoster().instantiateTo(rp.getNode(n2), Cause.Null);
+        Assert.assertEquals(h.getVariable(new IntVar[0]), rp.getVMAction(vm1).getDSlice().getStart());
+    }
+}
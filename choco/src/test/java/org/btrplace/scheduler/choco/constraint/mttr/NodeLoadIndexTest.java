@@ -0,0 +1,103 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Unit tests for {@link NodeLoadIndex}.
+ *
+ * @author Fabien Hermenier
+ */
+public class NodeLoadIndexTest {
+
+    private static int scan(IntVar v, IntToDoubleFunction loadOf, double limit) {
+        int best = -1;
+        double min = limit;
+        for (int n = v.getLB(); n <= v.getUB(); n = v.nextValue(n)) {
+            double l = loadOf.applyAsDouble(n);
+            if (l < min) {
+                best = n;
+                min = l;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testSelect() {
+        Model mo = new Model();
+        IEnvironment env = mo.getEnvironment();
+        IStateInt[] loads = new IStateInt[10];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = env.makeInt(i % 5);
+        }
+        loads[3].set(1);
+        NodeLoadIndex idx = new NodeLoadIndex(env, loads.length, n -> loads[n].get());
+        IntVar v = mo.intVar("v", 0, loads.length - 1);
+        //Node 0 then 5 are empty
+        Assert.assertEquals(idx.select(v, n -> loads[n].get(), 2), 0);
+        Assert.assertEquals(idx.select(v, n -> loads[n].get() + 1, 1), -1);
+
+        env.worldPush();
+        loads[0].add(3);
+        idx.changed(0);
+        Assert.assertEquals(idx.select(v, n -> loads[n].get(), 2), 5);
+        env.worldPop();
+        Assert.assertEquals(idx.select(v, n -> loads[n].get(), 2), 0);
+    }
+
+    /**
+     * Compare the selection with a scan of the domain
+     * while the loads change and backtrack.
+     */
+    @Test
+    public void testSelectRandomly() throws Exception {
+        Random rnd = new Random(12345);
+        Model mo = new Model();
+        IEnvironment env = mo.getEnvironment();
+        int nbNodes = 200;
+        IStateInt[] loads = new IStateInt[nbNodes];
+        int[] capas = new int[nbNodes];
+        for (int i = 0; i < nbNodes; i++) {
+            loads[i] = env.makeInt(rnd.nextInt(10));
+            capas[i] = rnd.nextInt(20);
+        }
+        IntToDoubleFunction cur = n -> 1.0d * loads[n].get() / capas[n];
+        NodeLoadIndex idx = new NodeLoadIndex(env, nbNodes, cur);
+        for (int round = 0; round < 2000; round++) {
+            if (env.getWorldIndex() > 1 && rnd.nextInt(3) == 0) {
+                env.worldPop();
+            } else {
+                env.worldPush();
+                for (int x = rnd.nextInt(5); x > 0; x--) {
+                    int n = rnd.nextInt(nbNodes);
+                    loads[n].add(rnd.nextInt(5));
+                    idx.changed(n);
+                }
+            }
+            env.worldPush();
+            IntVar v = mo.intVar("v", rnd.nextInt(nbNodes) / 4, nbNodes - 1, false);
+            for (int x = rnd.nextInt(nbNodes); x > 0 && v.getDomainSize() > 1; x--) {
+                v.removeValue(rnd.nextInt(nbNodes), Cause.Null);
+            }
+            int usage = rnd.nextInt(3);
+            IntToDoubleFunction with = n -> 1.0d * (loads[n].get() + usage) / capas[n];
+            Assert.assertEquals(idx.select(v, with, 2), scan(v, with, 2));
+            env.worldPop();
+        }
+    }
+}
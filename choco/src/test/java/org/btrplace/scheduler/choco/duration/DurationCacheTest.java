@@ -0,0 +1,190 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.duration;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Unit tests for {@link DurationCache}.
+ *
+ * @author Fabien Hermenier
+ */
+public class DurationCacheTest {
+
+    /**
+     * Make a model with a VM and a node, from scratch.
+     */
+    private static Model makeModel(int migrate, int cpu) {
+        Model mo = new DefaultModel();
+        VM vm = mo.newVM();
+        Node n = mo.newNode();
+        mo.getMapping().on(n).run(n, vm);
+        mo.getAttributes().put(vm, "migrate", migrate);
+        ShareableResource rc = new ShareableResource("cpu", 4, 1);
+        rc.setConsumption(vm, cpu);
+        mo.attach(rc);
+        return mo;
+    }
+
+    @Test
+    public void testInputs() {
+        Model mo = makeModel(3, 1);
+        VM vm = new VM(0);
+        DurationCache c = new DurationCache();
+        DurationCache.Durations ds = c.of(mo);
+        Assert.assertEquals(ds.get(MigrateVM.class, vm), -1);
+        ds.put(MigrateVM.class, vm, 3);
+        Assert.assertEquals(ds.get(MigrateVM.class, vm), 3);
+        Assert.assertEquals(c.getHits(), 1);
+        Assert.assertEquals(c.getMisses(), 1);
+        Assert.assertEquals(c.size(), 1);
+
+        //A copy, or a model rebuilt with the same inputs
+        Assert.assertEquals(c.of(mo.copy()).get(MigrateVM.class, vm), 3);
+        Assert.assertEquals(c.of(makeModel(3, 1)).get(MigrateVM.class, vm), 3);
+        //Only the inputs of the element matter
+        Model other = makeModel(3, 1);
+        other.getAttributes().put(other.newVM(), "migrate", 7);
+        Assert.assertEquals(c.of(other).get(MigrateVM.class, vm), 3);
+
+        //Other attributes
+        Model cpy = mo.copy();
+        cpy.getAttributes().put(vm, "migrate", 5);
+        Assert.assertEquals(c.of(cpy).get(MigrateVM.class, vm), -1);
+        Assert.assertEquals(c.of(mo).get(MigrateVM.class, vm), 3);
+        //Caching the new inputs replaces the previous ones
+        c.of(cpy).put(MigrateVM.class, vm, 5);
+        Assert.assertEquals(c.of(cpy).get(MigrateVM.class, vm), 5);
+        Assert.assertEquals(c.of(mo).get(MigrateVM.class, vm), -1);
+        Assert.assertEquals(c.size(), 1);
+
+        //Other resource values, or another resource
+        c.of(mo).put(MigrateVM.class, vm, 3);
+        Assert.assertEquals(c.of(makeModel(3, 2)).get(MigrateVM.class, vm), -1);
+        mo.attach(new ShareableResource("mem"));
+        Assert.assertEquals(c.of(mo).get(MigrateVM.class, vm), -1);
+
+        c.of(mo).put(MigrateVM.class, vm, 3);
+        c.of(mo).put(BootVM.class, vm, 3);
+        c.invalidate(MigrateVM.class);
+        Assert.assertEquals(c.size(), 1);
+        c.clear();
+        Assert.assertEquals(c.size(), 0);
+        Assert.assertEquals(c.of(mo).get(BootVM.class, vm), -1);
+    }
+
+    @Test
+    public void testConcurrentAccesses() throws Exception {
+        Model mo = new DefaultModel();
+        List<VM> vms = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            VM v = mo.newVM();
+            mo.getAttributes().put(v, "migrate", i + 1);
+            vms.add(v);
+        }
+        Model other = mo.copy();
+        other.getAttributes().put(vms.get(0), "migrate", 1000);
+        DurationEvaluators dev = DurationEvaluators.newBundle().doCache(true);
+        DurationCache c = dev.getCache();
+        ExecutorService exe = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> res = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                //The copies have the inputs of the original model, unlike the modified one
+                Model m = t % 4 == 3 ? other : mo.copy();
+                res.add(exe.submit(() -> {
+                    for (int r = 0; r < 20; r++) {
+                        for (VM v : vms) {
+                            int expected = m.getAttributes().get(v, "migrate", -1);
+                            if (dev.evaluate(m, MigrateVM.class, v) != expected) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> f : res) {
+                Assert.assertTrue(f.get());
+            }
+        } finally {
+            exe.shutdown();
+        }
+    }
+
+    @Test
+    public void testEvaluate() throws SchedulerException {
+        Model mo = new DefaultModel();
+        VM vm = mo.newVM();
+        mo.getAttributes().put(vm, "migrate", 4);
+        DurationEvaluators dev = DurationEvaluators.newBundle();
+        Assert.assertNull(dev.getCache());
+        DurationCache c = dev.doCache(true).getCache();
+        Assert.assertNotNull(c);
+
+        Assert.assertEquals(dev.evaluate(mo, MigrateVM.class, vm), 4);
+        Assert.assertEquals(dev.evaluate(mo, MigrateVM.class, vm), 4);
+        Assert.assertEquals(c.getMisses(), 1);
+        Assert.assertEquals(c.getHits(), 1);
+
+        //A new registration discards the cached durations
+        dev.register(MigrateVM.class, new ConstantActionDuration<>(3));
+        Assert.assertEquals(c.size(), 0);
+        Assert.assertEquals(dev.evaluate(mo, MigrateVM.class, vm), 3);
+
+        Assert.assertNull(dev.doCache(false).getCache());
+    }
+
+    @Test
+    public void testAcrossSolves() throws SchedulerException {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, vm1, vm2);
+        mo.getAttributes().put(vm1, "migrate", 4);
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        DurationCache c = s.getDurationEvaluators().doCache(true).getCache();
+
+        Assert.assertEquals(s.solve(mo, Collections.singletonList(new Fence(vm1, n2))).getDuration(), 4);
+        Assert.assertEquals(c.getHits(), 0);
+        int size = c.size();
+        Assert.assertTrue(size > 0);
+        Assert.assertEquals(s.solve(mo, Collections.singletonList(new Fence(vm2, n2))).getDuration(), 1);
+        Assert.assertTrue(c.getHits() > 0);
+        Assert.assertEquals(c.size(), size);
+
+        //With prepared durations
+        s.doParallelBuild(true);
+        long hits = c.getHits();
+        Assert.assertEquals(s.solve(mo, Collections.singletonList(new Fence(vm1, n2))).getDuration(), 4);
+        Assert.assertTrue(c.getHits() > hits);
+
+        //Modified attributes
+        mo.getAttributes().put(vm1, "migrate", 6);
+        Assert.assertEquals(s.solve(mo, Collections.singletonList(new Fence(vm1, n2))).getDuration(), 6);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.duration;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Element;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ShutdownNode;
+import org.btrplace.plan.event.ShutdownVM;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.SchedulerModelingException;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link PreparedDurations}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PreparedDurationsTest {
+
+    @Test
+    public void testPrepare() throws SchedulerException {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        mo.getAttributes().put(vm1, "migrate", 4);
+        mo.getAttributes().put(n1, "boot", 7);
+        DurationEvaluators dev = DurationEvaluators.newBundle();
+        Map<Class<? extends Action>, List<Element>> requests = new HashMap<>();
+        requests.put(MigrateVM.class, Arrays.asList(vm1, vm2));
+        requests.put(BootVM.class, Collections.singletonList(vm2));
+        requests.put(BootNode.class, Collections.singletonList(n1));
+        PreparedDurations d = new PreparedDurations(dev, mo, requests);
+        Assert.assertEquals(d.size(), 4);
+        Assert.assertEquals(d.evaluate(mo, MigrateVM.class, vm1), 4);
+        Assert.assertEquals(d.evaluate(mo, MigrateVM.class, vm2), 1);
+        Assert.assertEquals(d.evaluate(mo, BootNode.class, n1), 7);
+
+        //The values are prepared
+        mo.getAttributes().put(vm1, "migrate", 5);
+        Assert.assertEquals(d.evaluate(mo, MigrateVM.class, vm1), 4);
+        //Unless another model is used
+        Assert.assertEquals(d.evaluate(mo.copy(), MigrateVM.class, vm1), 5);
+        //The other durations are evaluated on demand
+        Assert.assertEquals(d.evaluate(mo, ShutdownNode.class, n1), 1);
+
+        //A new registration discards the prepared durations
+        Assert.assertFalse(d.register(MigrateVM.class, new ConstantActionDuration<>(3)));
+        Assert.assertEquals(d.evaluate(mo, MigrateVM.class, vm1), 3);
+        Assert.assertEquals(dev.evaluate(mo, MigrateVM.class, vm1), 3);
+        Assert.assertTrue(d.unRegister(ShutdownVM.class));
+        Assert.assertFalse(dev.isRegistered(ShutdownVM.class));
+    }
+
+    @Test(expectedExceptions = SchedulerModelingException.class)
+    public void testBadDuration() throws SchedulerException {
+        Model mo = new DefaultModel();
+        VM vm = mo.newVM();
+        mo.getAttributes().put(vm, "migrate", -2);
+        PreparedDurations d = new PreparedDurations(DurationEvaluators.newBundle(), mo,
+                Collections.singletonMap(MigrateVM.class, Collections.singletonList(vm)));
+        Assert.assertEquals(d.size(), 0);
+        //Reported on demand
+        d.evaluate(mo, MigrateVM.class, vm);
+    }
+
+    @Test
+    public void testParallelBuild() throws SchedulerException {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, vm1, vm2).ready(vm3);
+        mo.getAttributes().put(vm1, "migrate", 4);
+
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setParams(new DefaultParameters().doParallelBuild(true)).build();
+        Assert.assertTrue(rp.getDurationEvaluators() instanceof PreparedDurations);
+        //Migrate, boot and forge for the running VMs, shutdown for the nodes. The ready VM stays ready
+        Assert.assertEquals(((PreparedDurations) rp.getDurationEvaluators()).size(), 8);
+        Assert.assertEquals(rp.getVMAction(vm1).getDuration().getUB(), 4);
+
+        //Only the durations of the manageable VMs are prepared
+        rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setManageableVMs(Collections.singleton(vm1))
+                .setParams(new DefaultParameters().doParallelBuild(true)).build();
+        Assert.assertEquals(((PreparedDurations) rp.getDurationEvaluators()).size(), 5);
+
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.doParallelBuild(true);
+        ReconfigurationPlan p = s.solve(mo, Collections.singletonList(new Fence(vm1, n2)));
+        Assert.assertNotNull(p);
+        Assert.assertEquals(p.getDuration(), 4);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.extensions;
+
+import org.btrplace.scheduler.choco.extensions.pack.VectorPacking;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainMin;
+import org.chocosolver.solver.search.strategy.selectors.variables.FirstFail;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Unit tests for {@link VectorPacking} when the propagation is incremental.
+ *
+ * @author Fabien Hermenier
+ */
+public class IncrementalVectorPackingTest extends VectorPackingTest {
+
+    @Override
+    protected boolean incremental() {
+        return true;
+    }
+
+    private static Solver solve(int[][] capas, int[][] sizes, boolean incremental) {
+        Model mo = new Model();
+        mo.getSettings().setWarnUser(false);
+        int nbDims = capas.length;
+        IntVar[][] loads = new IntVar[nbDims][capas[0].length];
+        String[] names = new String[nbDims];
+        for (int d = 0; d < nbDims; d++) {
+            names[d] = "d" + d;
+            for (int b = 0; b < capas[d].length; b++) {
+                loads[d][b] = mo.intVar("l" + d + "." + b, 0, capas[d][b], true);
+            }
+        }
+        IntVar[] bins = mo.intVarArray("b", sizes[0].length, 0, capas[0].length - 1, false);
+        mo.post(new VectorPacking(names, loads, sizes, bins, false, incremental));
+        Solver s = mo.getSolver();
+        s.setSearch(Search.intVarSearch(new FirstFail(mo), new IntDomainMin(), bins));
+        s.limitNode(5000);
+        s.findSolution();
+        return s;
+    }
+
+    /**
+     * Check the incremental propagation leads to the same search tree
+     * than the default one on random instances.
+     */
+    @Test
+    public void testSameSearchTree() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 30; round++) {
+            int nbDims = 1 + rnd.nextInt(3);
+            int nbBins = 2 + rnd.nextInt(8);
+            int nbItems = 5 + rnd.nextInt(20);
+            int[][] capas = new int[nbDims][nbBins];
+            int[][] sizes = new int[nbDims][nbItems];
+            for (int d = 0; d < nbDims; d++) {
+                long sum = 0;
+                for (int i = 0; i < nbItems; i++) {
+                    sizes[d][i] = rnd.nextInt(10);
+                    sum += sizes[d][i];
+                }
+                for (int b = 0; b < nbBins; b++) {
+                    capas[d][b] = (int) (sum / nbBins) + rnd.nextInt(8);
+                }
+            }
+            Solver ref = solve(capas, sizes, false);
+            Solver inc = solve(capas, sizes, true);
+            Assert.assertEquals(inc.isFeasible(), ref.isFeasible(), "round " + round);
+            Assert.assertEquals(inc.getNodeCount(), ref.getNodeCount(), "round " + round);
+            Assert.assertEquals(inc.getFailCount(), ref.getFailCount(), "round " + round);
+        }
+    }
+}
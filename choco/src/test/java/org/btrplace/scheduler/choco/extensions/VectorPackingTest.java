@@ -39,6 +39,15 @@ import java.util.Random;
  */
 public class VectorPackingTest {
 
+    /**
+     * Tell if the constraint must be propagated incrementally.
+     *
+     * @return {@code false}
+     */
+    protected boolean incremental() {
+        return false;
+    }
+
     @Test
     public void test2DWithUnOrderedItems() {
         int nItems = 25;
@@ -151,6 +160,7 @@ public class VectorPackingTest {
         final ChocoScheduler sched = new DefaultChocoScheduler();
         ii.getSatConstraints().add(new Running(p));
         sched.doRepair(false);
+        sched.doIncrementalPacking(incremental());
         ReconfigurationPlan plan = sched.solve(ii);
         Assert.assertNull(plan);
 
@@ -174,7 +184,7 @@ public class VectorPackingTest {
         System.out.println(stats);
     }
 
-    private static class Context {
+    class Context {
         Model s;
         IntVar[][] loads;
         int[][] sizes;
@@ -227,7 +237,7 @@ public class VectorPackingTest {
             }
             sizes = height;
             bins = s.intVarArray("b", nItems, 0, nBins, false);
-            Constraint cPack = new VectorPacking(name, loads, sizes, bins, false);
+            Constraint cPack = new VectorPacking(name, loads, sizes, bins, false, incremental());
             s.post(cPack);
         }
 
@@ -0,0 +1,119 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link Profile}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ProfileTest {
+
+    @Test
+    public void testRecord() {
+        Profile p = new Profile();
+        Assert.assertTrue(p.isEmpty());
+        Assert.assertTrue(p.get(Profile.Section.STRATEGY).isEmpty());
+        Assert.assertEquals(p.toCSV(), "");
+        p.record(Profile.Section.STRATEGY, "foo", 3000);
+        p.record(Profile.Section.STRATEGY, "foo", 4000);
+        p.fail(Profile.Section.PROPAGATOR, "bar");
+        Assert.assertFalse(p.isEmpty());
+        Profile.Entry e = p.get(Profile.Section.STRATEGY).get("foo");
+        Assert.assertEquals(e.calls(), 2);
+        Assert.assertEquals(e.duration(), 7000);
+        Assert.assertEquals(e.fails(), 0);
+        Assert.assertEquals(p.get(Profile.Section.PROPAGATOR).get("bar").fails(), 1);
+        Assert.assertEquals(p.toCSV(), "propagator/bar=0:0:1,strategy/foo=2:7:0");
+    }
+
+    @Test
+    public void testAdd() {
+        Profile p1 = new Profile();
+        p1.record(Profile.Section.VIEW_INJECT, "foo", 10);
+        Profile p2 = new Profile();
+        p2.record(Profile.Section.VIEW_INJECT, "foo", 5);
+        p2.record(Profile.Section.VIEW_INJECT, "bar", 5);
+        Assert.assertSame(p1.add(p2), p1);
+        Assert.assertEquals(p1.get(Profile.Section.VIEW_INJECT).get("foo").calls(), 2);
+        Assert.assertEquals(p1.get(Profile.Section.VIEW_INJECT).get("foo").duration(), 15);
+        Assert.assertEquals(p1.get(Profile.Section.VIEW_INJECT).get("bar").calls(), 1);
+        //p2 is left unchanged
+        Assert.assertEquals(p2.get(Profile.Section.VIEW_INJECT).get("foo").calls(), 1);
+    }
+
+    @Test
+    public void testKey() {
+        Assert.assertEquals(Profile.key("foo"), "String");
+        Object anonymous = new Object() {
+        };
+        Assert.assertEquals(Profile.key(anonymous), anonymous.getClass().getName());
+    }
+
+    private static Instance instance() {
+        Model mo = new DefaultModel();
+        VM v1 = mo.newVM();
+        VM v2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        mo.getMapping().on(n1, n2, n3).run(n1, v1).run(n2, v2);
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        mo.attach(cpu);
+        List<SatConstraint> cstrs = Arrays.asList(
+                new Spread(new HashSet<>(Arrays.asList(v1, v2))),
+                new Fence(v1, n2),
+                new Offline(n1));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    @Test
+    public void testProfiling() throws SchedulerException {
+        InstanceSolverRunner r = new InstanceSolverRunner(new DefaultParameters().doProfiling(true), instance());
+        SolvingStatistics stats = r.call();
+        Assert.assertNotNull(stats.lastSolution());
+        Profile p = stats.getProfile();
+        Assert.assertTrue(p.get(Profile.Section.VIEW_INJECT).containsKey("CShareableResource"));
+        Assert.assertTrue(p.get(Profile.Section.VIEW_BEFORE_SOLVE).containsKey("CShareableResource"));
+        Assert.assertTrue(p.get(Profile.Section.CONSTRAINT_INJECT).containsKey("CSpread"));
+        Assert.assertTrue(p.get(Profile.Section.CONSTRAINT_INJECT).containsKey("CMinMTTR"));
+        Assert.assertTrue(p.get(Profile.Section.STRATEGY).containsKey("badPlacement"));
+        long decisions = p.get(Profile.Section.STRATEGY).values().stream().mapToLong(Profile.Entry::calls).sum();
+        Assert.assertTrue(decisions > 0);
+        Assert.assertTrue(stats.toCSV().endsWith(p.toCSV()));
+    }
+
+    @Test
+    public void testNoProfiling() throws SchedulerException {
+        InstanceSolverRunner r = new InstanceSolverRunner(new DefaultParameters(), instance());
+        SolvingStatistics stats = r.call();
+        Assert.assertNotNull(stats.lastSolution());
+        Assert.assertTrue(stats.getProfile().isEmpty());
+        Assert.assertTrue(stats.toCSV().endsWith(";"));
+    }
+}
@@ -32,4 +32,21 @@ public class SolutionStatisticsTest {
         Assert.assertEquals(st.objective(), 12);
         System.out.println(st);
     }
+
+    @Test
+    public void testLazyPlan() {
+        Metrics m = new Metrics();
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(new DefaultModel());
+        int[] nbBuilds = {0};
+        SolutionStatistics st = new SolutionStatistics(m, () -> {
+            nbBuilds[0]++;
+            return p;
+        });
+        Assert.assertFalse(st.isPlanBuilt());
+        Assert.assertEquals(nbBuilds[0], 0);
+        Assert.assertEquals(st.getReconfigurationPlan(), p);
+        Assert.assertEquals(st.getReconfigurationPlan(), p);
+        Assert.assertTrue(st.isPlanBuilt());
+        Assert.assertEquals(nbBuilds[0], 1);
+    }
 }
@@ -97,4 +97,16 @@ public class StagedSolvingStatisticsTest {
         Assert.assertEquals(stats.getSolutions().size(), 1);
         Assert.assertEquals(stats.getSolutions().get(0), s2.getSolutions().get(0));
     }
+
+    @Test
+    public void testProfile() {
+        SingleRunnerStatistics s1 = new SingleRunnerStatistics(ps, i, st);
+        s1.getProfile().record(Profile.Section.STRATEGY, "foo", 1000);
+        SingleRunnerStatistics s2 = new SingleRunnerStatistics(ps, i, st);
+        s2.getProfile().record(Profile.Section.STRATEGY, "foo", 2000);
+        StagedSolvingStatistics stats = new StagedSolvingStatistics(s1).append(s2);
+        Profile.Entry e = stats.getProfile().get(Profile.Section.STRATEGY).get("foo");
+        Assert.assertEquals(e.calls(), 2);
+        Assert.assertEquals(e.duration(), 3000);
+    }
 }
\ No newline at end of file
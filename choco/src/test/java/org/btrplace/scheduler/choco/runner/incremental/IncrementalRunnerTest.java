@@ -0,0 +1,108 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.incremental;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.single.SingleRunnerStatistics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link IncrementalRunner}.
+ *
+ * @author Fabien Hermenier
+ */
+public class IncrementalRunnerTest {
+
+    private static Instance makeInstance(Model mo) {
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(mo.getMapping().getAllVMs()));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    @Test
+    public void testIncrementalSolve() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        mo.attach(cpu);
+        for (int i = 0; i < 3; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            map.addRunningVM(mo.newVM(), n);
+            map.addRunningVM(mo.newVM(), n);
+        }
+        map.addReadyVM(mo.newVM());
+
+        Parameters ps = new DefaultParameters();
+        IncrementalRunner r = new IncrementalRunner();
+        ReconfigurationPlan p = r.solve(ps, makeInstance(mo));
+        Assert.assertNotNull(p);
+        Assert.assertNull(r.getDelta());
+        Assert.assertEquals(((SingleRunnerStatistics) r.getStatistics()).getNbManagedVMs(), 7);
+
+        //A new VM to run. Only that one is managed
+        Model cur = p.getResult().copy();
+        VM v = cur.newVM();
+        cur.getMapping().addReadyVM(v);
+        p = r.solve(ps, makeInstance(cur));
+        Assert.assertNotNull(p);
+        Assert.assertEquals(r.getDelta().getAddedVMs(), Collections.singleton(v));
+        Assert.assertEquals(((SingleRunnerStatistics) r.getStatistics()).getNbManagedVMs(), 1);
+        Assert.assertTrue(p.getResult().getMapping().isRunning(v));
+        Assert.assertEquals(p.getResult().getMapping().getRunningVMs().size(), 8);
+        //The parameters are left untouched
+        Assert.assertFalse(ps.doRepair());
+    }
+
+    @Test
+    public void testFallbackToFullSolve() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        mo.attach(cpu);
+        for (int i = 0; i < 2; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            map.addRunningVM(mo.newVM(), n);
+            map.addRunningVM(mo.newVM(), n);
+        }
+        Parameters ps = new DefaultParameters();
+        IncrementalRunner r = new IncrementalRunner();
+        ReconfigurationPlan p = r.solve(ps, makeInstance(mo));
+        Assert.assertNotNull(p);
+
+        //The new VM can only be hosted if a running VM is relocated.
+        Model cur = p.getResult().copy();
+        VM v = cur.newVM();
+        cur.getMapping().addReadyVM(v);
+        ShareableResource.get(cur, "cpu").setConsumption(v, 3);
+        p = r.solve(ps, makeInstance(cur));
+        Assert.assertNotNull(p);
+        Assert.assertTrue(p.getResult().getMapping().isRunning(v));
+        Assert.assertEquals(((SingleRunnerStatistics) r.getStatistics()).getNbManagedVMs(), 5);
+
+        r.reset();
+        Assert.assertNull(r.getDelta());
+    }
+}
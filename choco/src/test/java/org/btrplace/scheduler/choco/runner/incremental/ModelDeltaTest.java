@@ -0,0 +1,79 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.incremental;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.model.view.network.Network;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Unit tests for {@link ModelDelta}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ModelDeltaTest {
+
+    @Test
+    public void testDelta() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM vm0 = mo.newVM();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        VM vm4 = mo.newVM();
+        map.on(n0, n1).run(n0, vm0, vm1).run(n1, vm2, vm3).ready(vm4).off(n2);
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        mo.attach(cpu);
+
+        Model cur = mo.copy();
+        Assert.assertTrue(new ModelDelta(mo, cur).isEmpty());
+
+        Mapping m = cur.getMapping();
+        VM vm5 = cur.newVM();
+        m.addReadyVM(vm5);
+        m.addRunningVM(vm0, n1);
+        m.remove(vm4);
+        ShareableResource c = ShareableResource.get(cur, "cpu");
+        c.setConsumption(vm1, 2);
+        c.setCapacity(n1, 8);
+        m.addOnlineNode(n2);
+
+        ModelDelta d = new ModelDelta(mo, cur);
+        Assert.assertTrue(d.isComplete());
+        Assert.assertFalse(d.isEmpty());
+        Assert.assertEquals(d.getAddedVMs(), Collections.singleton(vm5));
+        Assert.assertEquals(d.getRemovedVMs(), Collections.singleton(vm4));
+        Assert.assertEquals(d.getMovedVMs(), Collections.singleton(vm0));
+        Assert.assertEquals(d.getResizedVMs(), Collections.singleton(vm1));
+        Assert.assertEquals(d.getChangedNodes(), new HashSet<>(Arrays.asList(n1, n2)));
+        Assert.assertEquals(d.getImpactedVMs(cur), new HashSet<>(Arrays.asList(vm0, vm1, vm2, vm3, vm5)));
+    }
+
+    @Test
+    public void testIncomplete() {
+        Model mo = new DefaultModel();
+        Model cur = mo.copy();
+        cur.attach(new Network());
+        ModelDelta d = new ModelDelta(mo, cur);
+        Assert.assertFalse(d.isComplete());
+        Assert.assertFalse(d.isEmpty());
+    }
+}
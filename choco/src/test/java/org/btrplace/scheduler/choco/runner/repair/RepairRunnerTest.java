@@ -0,0 +1,145 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.repair;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.single.SingleRunnerStatistics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link RepairRunner} and {@link Neighbourhood}.
+ *
+ * @author Fabien Hermenier
+ */
+public class RepairRunnerTest {
+
+    @Test
+    public void testNeighbourhood() {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        VM vm4 = mo.newVM();
+        VM vm5 = mo.newVM();
+        mo.getMapping().on(n1, n2).run(n1, vm1, vm2).run(n2, vm3, vm4).ready(vm5);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Spread(new HashSet<>(Arrays.asList(vm1, vm3))));
+        Neighbourhood nh = new Neighbourhood(new Instance(mo, cstrs, new MinMTTR()));
+        //Same node
+        Assert.assertEquals(nh.expand(Collections.singleton(vm4), Collections.emptySet()), Collections.singleton(vm3));
+        //Same node and same constraint
+        Assert.assertEquals(nh.expand(Collections.singleton(vm1), Collections.emptySet()), new HashSet<>(Arrays.asList(vm2, vm3)));
+        Assert.assertEquals(nh.expand(Collections.singleton(vm1), Collections.singleton(vm2)), Collections.singleton(vm3));
+        Assert.assertTrue(nh.expand(Collections.singleton(vm5), Collections.emptySet()).isEmpty());
+    }
+
+    /**
+     * vm3 must go to n1 but vm1 is there. vm1 is managed in the second
+     * round as it shares a constraint with vm3.
+     */
+    @Test
+    public void testExpand() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Node n4 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm3 = mo.newVM();
+        VM vm4 = mo.newVM();
+        VM vm5 = mo.newVM();
+        mo.getMapping().on(n1, n2, n3, n4).run(n1, vm1).run(n3, vm3).run(n4, vm4, vm5);
+        ShareableResource cpu = new ShareableResource("cpu", 2, 2);
+        cpu.setCapacity(n4, 4);
+        mo.attach(cpu);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Fence(vm3, n1));
+        cstrs.add(new Spread(new HashSet<>(Arrays.asList(vm1, vm3))));
+
+        Parameters ps = new DefaultParameters();
+        RepairRunner r = new RepairRunner();
+        ReconfigurationPlan p = r.solve(ps, new Instance(mo, cstrs, new MinMTTR()));
+        Assert.assertNotNull(p);
+        Assert.assertEquals(r.getRounds(), 2);
+        Assert.assertEquals(((SingleRunnerStatistics) r.getStatistics()).getNbManagedVMs(), 2);
+        Assert.assertEquals(p.getResult().getMapping().getVMLocation(vm3), n1);
+        Assert.assertNotEquals(p.getResult().getMapping().getVMLocation(vm1), n1);
+        //The parameters are left untouched
+        Assert.assertFalse(ps.doRepair());
+    }
+
+    /**
+     * The neighbourhood of vm3 is empty, so the last round manages every VM.
+     */
+    @Test
+    public void testManageAll() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Node n4 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        mo.getMapping().on(n1, n2, n3, n4).run(n1, vm1).run(n2, vm2).run(n3, vm3);
+        mo.attach(new ShareableResource("cpu", 2, 2));
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Fence(vm3, n1));
+        cstrs.add(new Fence(vm1, new HashSet<>(Arrays.asList(n1, n2))));
+
+        RepairRunner r = new RepairRunner();
+        ReconfigurationPlan p = r.solve(new DefaultParameters(), new Instance(mo, cstrs, new MinMTTR()));
+        Assert.assertNotNull(p);
+        Assert.assertEquals(r.getRounds(), 2);
+        Assert.assertEquals(((SingleRunnerStatistics) r.getStatistics()).getNbManagedVMs(), 3);
+        Assert.assertEquals(p.getResult().getMapping().getVMLocation(vm3), n1);
+        Assert.assertEquals(p.getResult().getMapping().getVMLocation(vm1), n2);
+    }
+
+    @Test
+    public void testNoSolution() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        mo.getMapping().on(n1, n2).run(n1, vm1).run(n2, vm2);
+        mo.attach(new ShareableResource("cpu", 2, 2));
+        List<SatConstraint> cstrs = Collections.singletonList(new Fence(vm2, n1));
+        RepairRunner r = new RepairRunner();
+        Assert.assertNull(r.solve(new DefaultParameters(), new Instance(mo, cstrs, new MinMTTR())));
+        Assert.assertEquals(r.getRounds(), 2);
+        Assert.assertTrue(r.getStatistics().completed());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadLimit() {
+        new RepairRunner(0);
+    }
+}
@@ -43,20 +43,31 @@ public class SingleRunnerStatisticsTest {
         Assert.assertEquals(stats.getSpecializationDuration(), -1);
         Assert.assertEquals(stats.getInstance(), i);
         Assert.assertEquals(stats.getNbManagedVMs(), -1);
+        Assert.assertEquals(stats.getNbChocoConstraints(), -1);
         Assert.assertEquals(stats.getParameters(), ps);
         Assert.assertEquals(stats.getSolutions().size(), 0);
         Assert.assertEquals(stats.completed(), false);
         Assert.assertEquals(stats.getMetrics(), null);
+        Assert.assertEquals(stats.getNbVariables(), -1);
+        Assert.assertEquals(stats.getNbPostedConstraints(), -1);
+        Assert.assertEquals(stats.getBuildAllocatedBytes(), -1);
 
         stats.setCoreBuildDuration(12);
         stats.setSpecialisationDuration(17);
         stats.setNbManagedVMs(18);
+        stats.setNbChocoConstraints(3);
         stats.setCompleted(true);
+        stats.setProblemSize(120, 45);
+        stats.setBuildAllocatedBytes(1024);
 
         Assert.assertEquals(stats.getCoreBuildDuration(), 12);
         Assert.assertEquals(stats.getSpecializationDuration(), 17);
         Assert.assertEquals(stats.getNbManagedVMs(), 18);
+        Assert.assertEquals(stats.getNbChocoConstraints(), 3);
         Assert.assertEquals(stats.completed(), true);
+        Assert.assertEquals(stats.getNbVariables(), 120);
+        Assert.assertEquals(stats.getNbPostedConstraints(), 45);
+        Assert.assertEquals(stats.getBuildAllocatedBytes(), 1024);
 
         ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
         SolutionStatistics sol = new SolutionStatistics(new Metrics(), plan);
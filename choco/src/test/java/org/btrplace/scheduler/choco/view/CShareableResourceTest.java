@@ -95,6 +95,30 @@ public class CShareableResourceTest {
         Assert.assertEquals(rc, rcm.getSourceResource());
     }
 
+    /**
+     * Without overbooking, the physical usage of a node is its virtual usage.
+     *
+     * @throws org.btrplace.scheduler.SchedulerException should not occur
+     */
+    @Test
+    public void testNoOverbookAlias() throws SchedulerException {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, vm1);
+        ShareableResource rc = new ShareableResource("foo", 6, 2);
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo).build();
+        CShareableResource rcm = new CShareableResource(rc);
+        rcm.inject(new DefaultParameters(), rp);
+        Assert.assertTrue(rcm.beforeSolve(rp));
+        for (Node n : Arrays.asList(n1, n2)) {
+            IntVar virt = rcm.getVirtualUsage().get(rp.getNode(n));
+            Assert.assertSame(rcm.getPhysicalUsage(rp.getNode(n)), virt);
+            Assert.assertEquals(virt.getUB(), 6);
+        }
+    }
+
     /**
      * Place some VMs and check realNodeUsage is updated accordingly
      */
@@ -0,0 +1,108 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.model.Instance;
+import org.btrplace.plan.ReconfigurationPlan;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility class to ease the serialisation and the deserialisation of the main btrplace entities
+ * using the binary format of {@link BinaryConverter}.
+ *
+ * @author Fabien Hermenier
+ */
+public final class Binary {
+
+    private Binary() {
+    }
+
+    private static InputStream makeIn(File f) throws IOException {
+        if (f.getName().endsWith(".gz")) {
+            return new GZIPInputStream(new FileInputStream(f));
+        }
+        return new FileInputStream(f);
+    }
+
+    private static OutputStream makeOut(File f) throws IOException {
+        if (f.getName().endsWith(".gz")) {
+            return new GZIPOutputStream(new FileOutputStream(f));
+        }
+        return new FileOutputStream(f);
+    }
+
+    /**
+     * Read an instance from a file.
+     * A file ending with '.gz' is uncompressed first
+     *
+     * @param f the file to parse
+     * @return the resulting instance
+     * @throws IllegalArgumentException if an error occurred while reading the file
+     */
+    public static Instance readInstance(File f) {
+        try (InputStream in = makeIn(f)) {
+            return new BinaryConverter().readInstance(in);
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write an instance.
+     *
+     * @param instance the instance to write
+     * @param f        the output file. If it ends with '.gz' it will be gzipped
+     * @throws IllegalArgumentException if an error occurred while writing the file
+     */
+    public static void write(Instance instance, File f) {
+        try (OutputStream out = makeOut(f)) {
+            new BinaryConverter().write(instance, out);
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Read a reconfiguration plan from a file.
+     * A file ending with '.gz' is uncompressed first
+     *
+     * @param f the file to parse
+     * @return the resulting plan
+     * @throws IllegalArgumentException if an error occurred while reading the file
+     */
+    public static ReconfigurationPlan readReconfigurationPlan(File f) {
+        try (InputStream in = makeIn(f)) {
+            return new BinaryConverter().readReconfigurationPlan(in);
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write a reconfiguration plan.
+     *
+     * @param plan the plan to write
+     * @param f    the output file. If it ends with '.gz' it will be gzipped
+     * @throws IllegalArgumentException if an error occurred while writing the file
+     */
+    public static void write(ReconfigurationPlan plan, File f) {
+        try (OutputStream out = makeOut(f)) {
+            new BinaryConverter().write(plan, out);
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.JSONs;
+import org.btrplace.json.model.AttributesConverter;
+import org.btrplace.json.model.InstanceConverter;
+import org.btrplace.json.model.view.ModelViewsConverter;
+import org.btrplace.json.plan.ReconfigurationPlanConverter;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Element;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.OptConstraint;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A converter to write and read instances, models and plans in a compact binary format.
+ * <p>
+ * The mapping is written as sorted, delta and varint-encoded element identifiers.
+ * The {@link ShareableResource} views are written as columns of identifiers and values.
+ * The constraints, the actions, the attributes and the other views are written using a binary encoding
+ * of the JSON objects made by the JSON converters, so the format supports the same catalogue
+ * and a round-trip between the two formats leads to the same entities.
+ * The strings, like the JSON keys, are written only once.
+ *
+ * @author Fabien Hermenier
+ */
+public class BinaryConverter {
+
+    /**
+     * The first bytes of a binary message: 'BTRB'.
+     */
+    public static final int MAGIC = 0x42545242;
+
+    /**
+     * The version of the format.
+     */
+    public static final int VERSION = 1;
+
+    private static final int INSTANCE = 1;
+
+    private static final int MODEL = 2;
+
+    private static final int PLAN = 3;
+
+    private static final int GENERIC_VIEW = 0;
+
+    private static final int RESOURCE_VIEW = 1;
+
+    private final InstanceConverter ic;
+
+    private final ReconfigurationPlanConverter pc;
+
+    /**
+     * Make a new converter that relies on the default JSON converters.
+     */
+    public BinaryConverter() {
+        this(new InstanceConverter(), ReconfigurationPlanConverter.newBundle());
+    }
+
+    /**
+     * Make a new converter.
+     *
+     * @param ic the converter for the views and the constraints
+     * @param pc the converter for the actions
+     */
+    public BinaryConverter(InstanceConverter ic, ReconfigurationPlanConverter pc) {
+        this.ic = ic;
+        this.pc = pc;
+    }
+
+    /**
+     * Write an instance.
+     *
+     * @param i the instance to write
+     * @param o the stream to write to. It is flushed but not closed
+     * @throws IOException            if an error occurred while writing
+     * @throws JSONConverterException if an error occurred while converting the instance
+     */
+    public void write(Instance i, OutputStream o) throws IOException, JSONConverterException {
+        BinaryOutput out = header(o, INSTANCE);
+        writeModel(out, i.getModel());
+        out.writeVarInt(i.getSatConstraints().size());
+        for (SatConstraint c : i.getSatConstraints()) {
+            out.writeTree(ic.getConstraintsConverter().toJSON(c));
+        }
+        out.writeTree(ic.getConstraintsConverter().toJSON(i.getOptConstraint()));
+        out.flush();
+    }
+
+    /**
+     * Read an instance.
+     *
+     * @param in the stream to read
+     * @return the resulting instance
+     * @throws IOException            if an error occurred while reading
+     * @throws JSONConverterException if the message is not a valid instance
+     */
+    public Instance readInstance(InputStream in) throws IOException, JSONConverterException {
+        BinaryInput bin = header(in, INSTANCE);
+        Model mo = readModel(bin);
+        int nb = bin.readVarInt();
+        List<SatConstraint> cstrs = new ArrayList<>(nb);
+        for (int x = 0; x < nb; x++) {
+            cstrs.add((SatConstraint) ic.getConstraintsConverter().fromJSON(mo, bin.readObject()));
+        }
+        OptConstraint obj = (OptConstraint) ic.getConstraintsConverter().fromJSON(mo, bin.readObject());
+        return new Instance(mo, cstrs, obj);
+    }
+
+    /**
+     * Write a model.
+     *
+     * @param mo the model to write
+     * @param o  the stream to write to. It is flushed but not closed
+     * @throws IOException            if an error occurred while writing
+     * @throws JSONConverterException if an error occurred while converting the model
+     */
+    public void write(Model mo, OutputStream o) throws IOException, JSONConverterException {
+        BinaryOutput out = header(o, MODEL);
+        writeModel(out, mo);
+        out.flush();
+    }
+
+    /**
+     * Read a model.
+     *
+     * @param in the stream to read
+     * @return the resulting model
+     * @throws IOException            if an error occurred while reading
+     * @throws JSONConverterException if the message is not a valid model
+     */
+    public Model readModel(InputStream in) throws IOException, JSONConverterException {
+        return readModel(header(in, MODEL));
+    }
+
+    /**
+     * Write a reconfiguration plan.
+     *
+     * @param p the plan to write
+     * @param o the stream to write to. It is flushed but not closed
+     * @throws IOException            if an error occurred while writing
+     * @throws JSONConverterException if an error occurred while converting the plan
+     */
+    public void write(ReconfigurationPlan p, OutputStream o) throws IOException, JSONConverterException {
+        BinaryOutput out = header(o, PLAN);
+        writeModel(out, p.getOrigin());
+        out.writeVarInt(p.getSize());
+        for (Action a : p.getActions()) {
+            out.writeTree(pc.actionToJSON(a));
+        }
+        out.flush();
+    }
+
+    /**
+     * Read a reconfiguration plan.
+     *
+     * @param in the stream to read
+     * @return the resulting plan
+     * @throws IOException            if an error occurred while reading
+     * @throws JSONConverterException if the message is not a valid plan
+     */
+    public ReconfigurationPlan readReconfigurationPlan(InputStream in) throws IOException, JSONConverterException {
+        BinaryInput bin = header(in, PLAN);
+        Model mo = readModel(bin);
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        int nb = bin.readVarInt();
+        for (int x = 0; x < nb; x++) {
+            p.add(pc.actionFromJSON(mo, bin.readObject()));
+        }
+        return p;
+    }
+
+    private static BinaryOutput header(OutputStream o, int kind) throws IOException {
+        BinaryOutput out = new BinaryOutput(new BufferedOutputStream(o));
+        out.writeByte(MAGIC >>> 24);
+        out.writeByte(MAGIC >>> 16);
+        out.writeByte(MAGIC >>> 8);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+        return out;
+    }
+
+    private static BinaryInput header(InputStream i, int kind) throws IOException, JSONConverterException {
+        BinaryInput in = new BinaryInput(new BufferedInputStream(i));
+        int magic = 0;
+        for (int x = 0; x < 4; x++) {
+            magic = (magic << 8) | in.readByte();
+        }
+        if (magic != MAGIC) {
+            throw new JSONConverterException("Not a binary btrplace message");
+        }
+        int v = in.readByte();
+        if (v != VERSION) {
+            throw new JSONConverterException("Unsupported version " + v + ". Expected " + VERSION);
+        }
+        int k = in.readByte();
+        if (k != kind) {
+            throw new JSONConverterException("Unexpected message type " + k + ". Expected " + kind);
+        }
+        return in;
+    }
+
+    private void writeModel(BinaryOutput out, Model mo) throws IOException, JSONConverterException {
+        Mapping map = mo.getMapping();
+        writeIdSet(out, map.getOfflineNodes());
+        writeIdSet(out, map.getReadyVMs());
+        out.writeVarInt(map.getOnlineNodes().size());
+        for (Node n : map.getOnlineNodes()) {
+            out.writeVarInt(n.id());
+            writeIdSet(out, map.getRunningVMs(n));
+            writeIdSet(out, map.getSleepingVMs(n));
+        }
+        out.writeTree(AttributesConverter.toJSON(mo.getAttributes()));
+
+        ModelViewsConverter vc = ic.getModelConverter().getViewsConverter();
+        out.writeVarInt(mo.getViews().size());
+        for (ModelView v : mo.getViews()) {
+            if (v.getClass() == ShareableResource.class) {
+                out.writeByte(RESOURCE_VIEW);
+                writeResource(out, (ShareableResource) v);
+            } else {
+                out.writeByte(GENERIC_VIEW);
+                out.writeTree(vc.toJSON(v));
+            }
+        }
+    }
+
+    private static void writeIdSet(BinaryOutput out, Collection<? extends Element> elems) throws IOException {
+        int[] ids = new int[elems.size()];
+        int nb = 0;
+        for (Element e : elems) {
+            ids[nb++] = e.id();
+        }
+        out.writeIdSet(ids, nb);
+    }
+
+    private static void writeResource(BinaryOutput out, ShareableResource rc) throws IOException {
+        out.writeString(rc.getResourceIdentifier());
+        out.writeSignedVarInt(rc.getDefaultCapacity());
+        out.writeSignedVarInt(rc.getDefaultConsumption());
+        Columns vms = new Columns();
+        rc.forEachVMId(vms::add);
+        vms.write(out);
+        Columns nodes = new Columns();
+        rc.forEachNodeId(nodes::add);
+        nodes.write(out);
+    }
+
+    private Model readModel(BinaryInput in) throws IOException, JSONConverterException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        for (int id : in.readIdSet()) {
+            map.addOfflineNode(newNode(mo, id));
+        }
+        for (int id : in.readIdSet()) {
+            map.addReadyVM(newVM(mo, id));
+        }
+        int nbOnline = in.readVarInt();
+        for (int x = 0; x < nbOnline; x++) {
+            Node n = newNode(mo, in.readVarInt());
+            map.addOnlineNode(n);
+            for (int id : in.readIdSet()) {
+                map.addRunningVM(newVM(mo, id), n);
+            }
+            for (int id : in.readIdSet()) {
+                map.addSleepingVM(newVM(mo, id), n);
+            }
+        }
+        mo.setAttributes(AttributesConverter.fromJSON(mo, in.readObject()));
+
+        ModelViewsConverter vc = ic.getModelConverter().getViewsConverter();
+        int nbViews = in.readVarInt();
+        for (int x = 0; x < nbViews; x++) {
+            int kind = in.readByte();
+            if (kind == RESOURCE_VIEW) {
+                mo.attach(readResource(in, mo));
+            } else if (kind == GENERIC_VIEW) {
+                mo.attach(vc.fromJSON(mo, in.readObject()));
+            } else {
+                throw new JSONConverterException("Unsupported view type " + kind);
+            }
+        }
+        return mo;
+    }
+
+    private static Node newNode(Model mo, int id) throws JSONConverterException {
+        Node n = mo.newNode(id);
+        if (n == null) {
+            throw JSONConverterException.nodeAlreadyDeclared(id);
+        }
+        return n;
+    }
+
+    private static VM newVM(Model mo, int id) throws JSONConverterException {
+        VM v = mo.newVM(id);
+        if (v == null) {
+            throw JSONConverterException.vmAlreadyDeclared(id);
+        }
+        return v;
+    }
+
+    private static ShareableResource readResource(BinaryInput in, Model mo) throws IOException, JSONConverterException {
+        String id = in.readString();
+        int defCapacity = in.readSignedVarInt();
+        int defConsumption = in.readSignedVarInt();
+        ShareableResource rc = new ShareableResource(id, defCapacity, defConsumption);
+        for (int vm : in.readIdSet()) {
+            rc.setConsumption(JSONs.getVM(mo, vm), in.readSignedVarInt());
+        }
+        for (int n : in.readIdSet()) {
+            rc.setCapacity(JSONs.getNode(mo, n), in.readSignedVarInt());
+        }
+        return rc;
+    }
+
+    /**
+     * Identifiers and their associated values, written by increasing identifier.
+     */
+    static final class Columns {
+
+        private int[] ids = new int[16];
+
+        private int[] values = new int[16];
+
+        private int nb;
+
+        boolean add(int id, int v) {
+            if (nb == ids.length) {
+                ids = Arrays.copyOf(ids, nb * 2);
+                values = Arrays.copyOf(values, nb * 2);
+            }
+            ids[nb] = id;
+            values[nb] = v;
+            nb++;
+            return true;
+        }
+
+        void write(BinaryOutput out) throws IOException {
+            sort();
+            out.writeIdSet(ids, nb);
+            for (int x = 0; x < nb; x++) {
+                out.writeSignedVarInt(values[x]);
+            }
+        }
+
+        /**
+         * Sort the identifiers and their values together,
+         * unless they were added by increasing identifier.
+         */
+        private void sort() {
+            int x = 1;
+            while (x < nb && ids[x - 1] <= ids[x]) {
+                x++;
+            }
+            if (x >= nb) {
+                return;
+            }
+            //The identifier in the high bits, its position in the low bits
+            long[] entries = new long[nb];
+            for (x = 0; x < nb; x++) {
+                entries[x] = ((long) ids[x] << 32) | x;
+            }
+            Arrays.sort(entries);
+            int[] vs = new int[ids.length];
+            for (x = 0; x < nb; x++) {
+                ids[x] = (int) (entries[x] >>> 32);
+                vs[x] = values[(int) entries[x]];
+            }
+            values = vs;
+        }
+    }
+}
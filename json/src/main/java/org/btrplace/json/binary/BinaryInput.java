@@ -0,0 +1,162 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.binary.BinaryOutput.Tags;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The primitives to read the binary format written by a {@link BinaryOutput}.
+ *
+ * @author Fabien Hermenier
+ */
+final class BinaryInput {
+
+    private final DataInputStream in;
+
+    private final List<String> strings;
+
+    /**
+     * New input.
+     *
+     * @param i the stream to read
+     */
+    BinaryInput(InputStream i) {
+        in = new DataInputStream(i);
+        strings = new ArrayList<>();
+    }
+
+    int readByte() throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    int readVarInt() throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    int readSignedVarInt() throws IOException {
+        int v = readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    String readString() throws IOException {
+        int rank = readVarInt();
+        if (rank > 0) {
+            if (rank > strings.size()) {
+                throw new IOException("Unknown string reference " + rank);
+            }
+            return strings.get(rank - 1);
+        }
+        String s = in.readUTF();
+        strings.add(s);
+        return s;
+    }
+
+    /**
+     * Read identifiers written by {@link BinaryOutput#writeIds(int[], int)}.
+     */
+    int[] readIds() throws IOException {
+        int[] ids = new int[readVarInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = readVarInt();
+        }
+        return ids;
+    }
+
+    /**
+     * Read identifiers written by {@link BinaryOutput#writeIdSet(int[], int)}.
+     */
+    int[] readIdSet() throws IOException {
+        int[] ids = new int[readVarInt()];
+        int prev = 0;
+        for (int i = 0; i < ids.length; i++) {
+            prev += readVarInt();
+            ids[i] = prev;
+        }
+        return ids;
+    }
+
+    /**
+     * Read a JSON value written by {@link BinaryOutput#writeTree(Object)}.
+     *
+     * @return the value
+     * @throws JSONConverterException if the value is malformed
+     */
+    Object readTree() throws IOException, JSONConverterException {
+        int tag = readByte();
+        switch (tag) {
+            case Tags.NULL:
+                return null;
+            case Tags.TRUE:
+                return Boolean.TRUE;
+            case Tags.FALSE:
+                return Boolean.FALSE;
+            case Tags.INT:
+                return readSignedVarInt();
+            case Tags.LONG:
+                return in.readLong();
+            case Tags.DOUBLE:
+                return in.readDouble();
+            case Tags.STRING:
+                return readString();
+            case Tags.INT_ARRAY:
+                int nb = readVarInt();
+                JSONArray ints = new JSONArray();
+                for (int i = 0; i < nb; i++) {
+                    ints.add(readSignedVarInt());
+                }
+                return ints;
+            case Tags.ARRAY:
+                nb = readVarInt();
+                JSONArray arr = new JSONArray();
+                for (int i = 0; i < nb; i++) {
+                    arr.add(readTree());
+                }
+                return arr;
+            case Tags.OBJECT:
+                nb = readVarInt();
+                JSONObject ob = new JSONObject();
+                for (int i = 0; i < nb; i++) {
+                    String k = readString();
+                    ob.put(k, readTree());
+                }
+                return ob;
+            default:
+                throw new JSONConverterException("Unsupported value tag " + tag);
+        }
+    }
+
+    /**
+     * Read a JSON object.
+     *
+     * @return the object
+     * @throws JSONConverterException if the next value is not an object
+     */
+    JSONObject readObject() throws IOException, JSONConverterException {
+        Object o = readTree();
+        if (!(o instanceof JSONObject)) {
+            throw new JSONConverterException("JSON object expected");
+        }
+        return (JSONObject) o;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSONConverterException;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The primitives to write the binary format.
+ * <p>
+ * The integers are varint-encoded, the strings are written once and then
+ * referred to by their rank, and the JSON trees are written with a one-byte type tag per value.
+ *
+ * @author Fabien Hermenier
+ */
+final class BinaryOutput {
+
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> strings;
+
+    /**
+     * New output.
+     *
+     * @param o the stream to write to
+     */
+    BinaryOutput(OutputStream o) {
+        out = new DataOutputStream(o);
+        strings = new HashMap<>();
+    }
+
+    void writeByte(int b) throws IOException {
+        out.writeByte(b);
+    }
+
+    /**
+     * Write a positive integer using 1 to 5 bytes.
+     */
+    void writeVarInt(int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    /**
+     * Write an integer using the zigzag encoding so small negative numbers are short too.
+     */
+    void writeSignedVarInt(int v) throws IOException {
+        writeVarInt((v << 1) ^ (v >> 31));
+    }
+
+    /**
+     * Write a string. Only its rank is written if it was already written.
+     */
+    void writeString(String s) throws IOException {
+        Integer rank = strings.get(s);
+        if (rank != null) {
+            writeVarInt(rank + 1);
+            return;
+        }
+        writeVarInt(0);
+        out.writeUTF(s);
+        strings.put(s, strings.size());
+    }
+
+    /**
+     * Write identifiers in any order.
+     */
+    void writeIds(int[] ids, int nb) throws IOException {
+        writeVarInt(nb);
+        for (int i = 0; i < nb; i++) {
+            writeVarInt(ids[i]);
+        }
+    }
+
+    /**
+     * Write a set of identifiers, sorted then delta-encoded.
+     * The identifiers are sorted in place.
+     */
+    void writeIdSet(int[] ids, int nb) throws IOException {
+        Arrays.sort(ids, 0, nb);
+        writeVarInt(nb);
+        int prev = 0;
+        for (int i = 0; i < nb; i++) {
+            writeVarInt(ids[i] - prev);
+            prev = ids[i];
+        }
+    }
+
+    /**
+     * Write a JSON value.
+     *
+     * @param o the value. Either {@code null}, a boolean, a number, a string, an array or a JSON object.
+     * @throws JSONConverterException if the value cannot be written
+     */
+    void writeTree(Object o) throws IOException, JSONConverterException {
+        if (o == null) {
+            writeByte(Tags.NULL);
+        } else if (o instanceof Boolean) {
+            writeByte((Boolean) o ? Tags.TRUE : Tags.FALSE);
+        } else if (o instanceof Integer) {
+            writeByte(Tags.INT);
+            writeSignedVarInt((Integer) o);
+        } else if (o instanceof Long) {
+            writeByte(Tags.LONG);
+            out.writeLong((Long) o);
+        } else if (o instanceof Double) {
+            writeByte(Tags.DOUBLE);
+            out.writeDouble((Double) o);
+        } else if (o instanceof String) {
+            writeByte(Tags.STRING);
+            writeString((String) o);
+        } else if (o instanceof JSONObject) {
+            JSONObject ob = (JSONObject) o;
+            writeByte(Tags.OBJECT);
+            writeVarInt(ob.size());
+            for (Map.Entry<String, Object> e : ob.entrySet()) {
+                writeString(e.getKey());
+                writeTree(e.getValue());
+            }
+        } else if (o instanceof List) {
+            writeList((List<?>) o);
+        } else {
+            throw new JSONConverterException("Unsupported value type '" + o.getClass().getName() + "'");
+        }
+    }
+
+    private void writeList(List<?> l) throws IOException, JSONConverterException {
+        boolean ints = !l.isEmpty();
+        for (Object x : l) {
+            if (!(x instanceof Integer)) {
+                ints = false;
+                break;
+            }
+        }
+        if (ints) {
+            //Typically a list of element identifiers
+            writeByte(Tags.INT_ARRAY);
+            writeVarInt(l.size());
+            for (Object x : l) {
+                writeSignedVarInt((Integer) x);
+            }
+            return;
+        }
+        writeByte(Tags.ARRAY);
+        writeVarInt(l.size());
+        for (Object x : l) {
+            writeTree(x);
+        }
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * The type tags of the values inside a JSON tree.
+     */
+    static final class Tags {
+
+        static final int NULL = 0;
+
+        static final int TRUE = 1;
+
+        static final int FALSE = 2;
+
+        static final int INT = 3;
+
+        static final int LONG = 4;
+
+        static final int DOUBLE = 5;
+
+        static final int STRING = 6;
+
+        static final int ARRAY = 7;
+
+        static final int INT_ARRAY = 8;
+
+        static final int OBJECT = 9;
+
+        private Tags() {
+        }
+    }
+}
@@ -0,0 +1,10 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+/**
+ * A compact binary format for the instances, the models and the plans.
+ */
+package org.btrplace.json.binary;
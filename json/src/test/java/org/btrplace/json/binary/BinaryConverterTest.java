@@ -0,0 +1,207 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSON;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Among;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Preserve;
+import org.btrplace.model.constraint.ResourceCapacity;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Seq;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.model.view.NamingService;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.Allocate;
+import org.btrplace.plan.event.AllocateEvent;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.SuspendVM;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link BinaryConverter}.
+ *
+ * @author Fabien Hermenier
+ */
+public class BinaryConverterTest {
+
+    private static Instance makeInstance() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 8, 1);
+        ShareableResource mem = new ShareableResource("mem");
+        NamingService<VM> names = NamingService.newVMNS();
+        List<Node> ns = new ArrayList<>();
+        List<VM> vms = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Node n = mo.newNode();
+            ns.add(n);
+            map.addOnlineNode(n);
+            mem.setCapacity(n, 1_000_000 * i);
+            mo.getAttributes().put(n, "boot", 7);
+            for (int j = 0; j < 5; j++) {
+                VM v = mo.newVM();
+                vms.add(v);
+                map.addRunningVM(v, n);
+                cpu.setConsumption(v, j);
+                mem.setConsumption(v, 300 * j);
+                names.register(v, "vm-" + v.id());
+            }
+        }
+        map.addOfflineNode(mo.newNode(100));
+        map.addSleepingVM(mo.newVM(), ns.get(0));
+        map.addReadyVM(mo.newVM(2000));
+        mo.getAttributes().put(vms.get(0), "template", "small");
+        mo.getAttributes().put(vms.get(1), "clone", true);
+        mo.getAttributes().put(vms.get(2), "load", 0.75);
+        mo.attach(cpu);
+        mo.attach(mem);
+        mo.attach(names);
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Spread(new HashSet<>(vms.subList(0, 3))));
+        cstrs.add(new Among(vms.subList(5, 8), Arrays.asList(ns.subList(0, 2), ns.subList(2, 5))));
+        cstrs.add(new Seq(Arrays.asList(vms.get(9), vms.get(4), vms.get(7))));
+        cstrs.add(new Fence(vms.get(3), ns.subList(4, 6)));
+        cstrs.add(new Ban(vms.get(11), Collections.singleton(ns.get(2)), true));
+        cstrs.add(new Preserve(vms.get(12), "cpu", 4));
+        cstrs.add(new ResourceCapacity(new HashSet<>(ns.subList(0, 4)), "mem", 2_000_000, true));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    private static ReconfigurationPlan makePlan() {
+        Model mo = makeInstance().getModel();
+        Mapping map = mo.getMapping();
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        Node off = new Node(100);
+        p.add(new BootNode(off, 0, 3));
+        VM v = map.getRunningVMs(new Node(1)).iterator().next();
+        MigrateVM mig = new MigrateVM(v, new Node(1), off, 3, 8, 500);
+        mig.addEvent(Action.Hook.PRE, new AllocateEvent(v, "cpu", 3));
+        p.add(mig);
+        VM w = map.getRunningVMs(new Node(2)).iterator().next();
+        p.add(new Allocate(w, new Node(2), "mem", 5, 0, 2));
+        p.add(new SuspendVM(map.getRunningVMs(new Node(3)).iterator().next(), new Node(3), new Node(3), 0, 4));
+        return p;
+    }
+
+    @Test
+    public void testInstance() throws IOException, JSONConverterException {
+        Instance i = makeInstance();
+        BinaryConverter c = new BinaryConverter();
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        c.write(i, bout);
+        Instance res = c.readInstance(new ByteArrayInputStream(bout.toByteArray()));
+        Assert.assertEquals(res.getModel(), i.getModel());
+        Assert.assertEquals(res.getModel().getAttributes(), i.getModel().getAttributes());
+        Assert.assertEquals(res.getModel().getViews(), i.getModel().getViews());
+        Assert.assertEquals(res.getSatConstraints().toString(), i.getSatConstraints().toString());
+        Assert.assertEquals(res.getOptConstraint(), i.getOptConstraint());
+
+        //Same entities as with JSON, with a more compact representation
+        String json = JSON.toString(i);
+        Assert.assertEquals(res, JSON.readInstance(new StringReader(json)));
+        Assert.assertTrue(bout.size() < json.getBytes(StandardCharsets.UTF_8).length / 2,
+                bout.size() + " vs " + json.length());
+    }
+
+    @Test
+    public void testPlan() throws IOException, JSONConverterException {
+        ReconfigurationPlan p = makePlan();
+        Assert.assertTrue(p.isApplyable());
+        BinaryConverter c = new BinaryConverter();
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        c.write(p, bout);
+        ReconfigurationPlan res = c.readReconfigurationPlan(new ByteArrayInputStream(bout.toByteArray()));
+        Assert.assertEquals(res, p);
+        Assert.assertEquals(res.getResult(), p.getResult());
+    }
+
+    @Test
+    public void testModel() throws IOException, JSONConverterException {
+        Model mo = makeInstance().getModel();
+        BinaryConverter c = new BinaryConverter();
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        c.write(mo, bout);
+        Assert.assertEquals(c.readModel(new ByteArrayInputStream(bout.toByteArray())), mo);
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testWrongType() throws IOException, JSONConverterException {
+        BinaryConverter c = new BinaryConverter();
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        c.write(makeInstance().getModel(), bout);
+        c.readInstance(new ByteArrayInputStream(bout.toByteArray()));
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testNotBinary() throws IOException, JSONConverterException {
+        byte[] json = JSON.toString(makeInstance()).getBytes(StandardCharsets.UTF_8);
+        new BinaryConverter().readInstance(new ByteArrayInputStream(json));
+    }
+
+    @Test
+    public void testFiles() throws IOException {
+        Instance i = makeInstance();
+        ReconfigurationPlan p = makePlan();
+        for (String ext : new String[]{".bin", ".bin.gz"}) {
+            File f = File.createTempFile("instance", ext);
+            f.deleteOnExit();
+            Binary.write(i, f);
+            Assert.assertEquals(Binary.readInstance(f).getModel(), i.getModel());
+            Binary.write(p, f);
+            Assert.assertEquals(Binary.readReconfigurationPlan(f), p);
+        }
+    }
+
+    @Test
+    public void testUnsortedColumns() throws IOException {
+        BinaryConverter.Columns c = new BinaryConverter.Columns();
+        int[] ids = {7, 2, 40, 0, 5};
+        for (int id : ids) {
+            c.add(id, -10 * id);
+        }
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bout);
+        c.write(out);
+        out.flush();
+
+        //The values stay aligned with their identifier
+        BinaryInput in = new BinaryInput(new ByteArrayInputStream(bout.toByteArray()));
+        int[] res = in.readIdSet();
+        Assert.assertEquals(res, new int[]{0, 2, 5, 7, 40});
+        for (int id : res) {
+            Assert.assertEquals(in.readSignedVarInt(), -10 * id);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.disjoint;
+
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Compute balanced partitions of nodes that keep as much
+ * constraints as possible inside a single partition.
+ * <p>
+ * The nodes are the vertices of an affinity graph. Each constraint
+ * that involves at most {@code partSize} nodes, either directly or through the
+ * current location of its VMs, increases by one the weight of the edges between
+ * its first node, the hub, and each of its other nodes. A constraint then adds a number of
+ * edges linear in its number of nodes. The partitions are first grown greedily around the most
+ * connected nodes, then refined by swapping nodes between partitions
+ * in a Kernighan-Lin fashion to reduce the weight of the cut edges.
+ * <p>
+ * The load of a node is its share of the VMs it hosts plus its share of
+ * the resource demand of its VMs for each {@link ShareableResource}.
+ * Swaps that degrade the load balance too much are rejected, and swaps
+ * that do not change the cut are accepted if they improve the balance.
+ * The partitions have the same number of nodes, give or take one.
+ * <p>
+ * During the refinement, each node knows the weight of its edges towards every adjacent partition,
+ * and the nodes of each partition are kept in gain buckets indexed by the weight of their edges inside
+ * the partition, then ordered by load. A node is only swapped with one of its neighbours
+ * or with the lightest or the heaviest of the nodes that are the least connected to their
+ * partition. A pass then costs {@code O((V + E) log V)}.
+ *
+ * @author Fabien Hermenier
+ */
+final class BalancedNodePartitioner {
+
+    /**
+     * The maximum number of refinement passes.
+     */
+    private static final int MAX_PASSES = 10;
+
+    /**
+     * The tolerated load difference between two partitions,
+     * as a ratio of the average partition load.
+     */
+    private static final double TOLERANCE = 0.1;
+
+    /**
+     * To ignore rounding errors when comparing loads.
+     */
+    private static final double EPSILON = 1e-9;
+
+    private final List<Node> nodes;
+
+    private final TIntIntHashMap[] adj;
+
+    private final double[] load;
+
+    private final int[] part;
+
+    private final int[] sizes;
+
+    private final double[] partLoad;
+
+    private final double tolerance;
+
+    /**
+     * For each node, the weight of its edges towards each adjacent partition.
+     */
+    private TIntIntHashMap[] conn;
+
+    /**
+     * For each partition, its nodes indexed by the weight of their edges inside the partition.
+     */
+    private List<TreeMap<Integer, TreeSet<Integer>>> buckets;
+
+    /**
+     * The order of the nodes inside a bucket.
+     */
+    private Comparator<Integer> byNodeLoad;
+
+    /**
+     * The partitions ordered by load.
+     */
+    private TreeSet<Integer> byLoad;
+
+    private int bestV;
+
+    private int bestGain;
+
+    private double bestDiff;
+
+    /**
+     * Prepare the partitioning of the nodes of an instance.
+     *
+     * @param i        the instance to partition
+     * @param partSize the maximum number of nodes per partition. Must be &gt; 0
+     */
+    BalancedNodePartitioner(Instance i, int partSize) {
+        Mapping map = i.getModel().getMapping();
+        nodes = new ArrayList<>(map.getAllNodes());
+        nodes.sort(Comparator.comparingInt(Node::id));
+        TObjectIntHashMap<Node> index = new TObjectIntHashMap<>(nodes.size(), 0.5f, -1);
+        for (int x = 0; x < nodes.size(); x++) {
+            index.put(nodes.get(x), x);
+        }
+        adj = new TIntIntHashMap[nodes.size()];
+        for (int x = 0; x < adj.length; x++) {
+            adj[x] = new TIntIntHashMap();
+        }
+        for (SatConstraint c : i.getSatConstraints()) {
+            connect(involvedNodes(c, map, index), partSize);
+        }
+        load = makeLoads(i.getModel(), index);
+
+        int nbParts = nodes.isEmpty() ? 1 : (nodes.size() + partSize - 1) / partSize;
+        sizes = new int[nbParts];
+        for (int p = 0; p < nbParts; p++) {
+            sizes[p] = nodes.size() / nbParts + (p < nodes.size() % nbParts ? 1 : 0);
+        }
+        part = new int[nodes.size()];
+        partLoad = new double[nbParts];
+        tolerance = TOLERANCE * Arrays.stream(load).sum() / nbParts;
+    }
+
+    private static int[] involvedNodes(SatConstraint c, Mapping map, TObjectIntHashMap<Node> index) {
+        TIntHashSet ns = new TIntHashSet();
+        for (Node n : c.getInvolvedNodes()) {
+            int x = index.get(n);
+            if (x >= 0) {
+                ns.add(x);
+            }
+        }
+        for (VM v : c.getInvolvedVMs()) {
+            Node n = map.getVMLocation(v);
+            if (n != null && index.containsKey(n)) {
+                ns.add(index.get(n));
+            }
+        }
+        int[] res = ns.toArray();
+        Arrays.sort(res);
+        return res;
+    }
+
+    private void connect(int[] ns, int partSize) {
+        if (ns.length < 2 || ns.length > partSize) {
+            //Nothing to connect, or cannot fit inside a partition anyway
+            return;
+        }
+        int hub = ns[0];
+        for (int a = 1; a < ns.length; a++) {
+            adj[hub].adjustOrPutValue(ns[a], 1, 1);
+            adj[ns[a]].adjustOrPutValue(hub, 1, 1);
+        }
+    }
+
+    private double[] makeLoads(Model mo, TObjectIntHashMap<Node> index) {
+        Mapping map = mo.getMapping();
+        double[] l = new double[nodes.size()];
+        int nbVMs = map.getRunningVMs().size() + map.getSleepingVMs().size();
+        for (int x = 0; x < l.length; x++) {
+            Node n = nodes.get(x);
+            if (nbVMs > 0) {
+                l[x] = (double) (map.getRunningVMs(n).size() + map.getSleepingVMs(n).size()) / nbVMs;
+            }
+        }
+        for (ModelView v : mo.getViews()) {
+            if (!(v instanceof ShareableResource)) {
+                continue;
+            }
+            ShareableResource rc = (ShareableResource) v;
+            double[] demand = new double[l.length];
+            double total = 0;
+            for (Node n : map.getOnlineNodes()) {
+                int x = index.get(n);
+                for (VM vm : map.getRunningVMs(n)) {
+                    demand[x] += rc.getConsumption(vm);
+                }
+                total += demand[x];
+            }
+            if (total > 0) {
+                for (int x = 0; x < l.length; x++) {
+                    l[x] += demand[x] / total;
+                }
+            }
+        }
+        return l;
+    }
+
+    /**
+     * Compute the partitions.
+     *
+     * @return disjoint sets of nodes covering all the nodes
+     */
+    List<Collection<Node>> partition() {
+        grow();
+        refine();
+        List<Collection<Node>> res = new ArrayList<>(sizes.length);
+        for (int p = 0; p < sizes.length; p++) {
+            res.add(new HashSet<>(sizes[p]));
+        }
+        for (int x = 0; x < part.length; x++) {
+            res.get(part[x]).add(nodes.get(x));
+        }
+        return res;
+    }
+
+    /**
+     * Grow each partition from its most connected free node
+     * by adding the free node that is the most connected to the partition.
+     * The free nodes connected to the partition are kept in a priority queue.
+     * Its entries are only discarded when they are polled, once their node is assigned
+     * or their connection is outdated.
+     */
+    private void grow() {
+        boolean[] assigned = new boolean[nodes.size()];
+        int[] degrees = new int[nodes.size()];
+        Integer[] seeds = new Integer[nodes.size()];
+        for (int x = 0; x < seeds.length; x++) {
+            seeds[x] = x;
+            degrees[x] = degree(x);
+        }
+        Arrays.sort(seeds, Comparator.<Integer>comparingInt(x -> -degrees[x]).thenComparingInt(x -> x));
+        int nextSeed = 0;
+        int nextFree = 0;
+
+        int[] conns = new int[nodes.size()];
+        TIntArrayList touched = new TIntArrayList();
+        //[connection, node], the most connected node first, then the lowest index
+        PriorityQueue<int[]> queue = new PriorityQueue<>((e1, e2) ->
+                e1[0] != e2[0] ? Integer.compare(e2[0], e1[0]) : Integer.compare(e1[1], e2[1]));
+        for (int p = 0; p < sizes.length; p++) {
+            touched.forEach(x -> {
+                conns[x] = 0;
+                return true;
+            });
+            touched.resetQuick();
+            queue.clear();
+            for (int s = 0; s < sizes[p]; s++) {
+                int best = -1;
+                while (best < 0 && !queue.isEmpty()) {
+                    int[] e = queue.poll();
+                    if (!assigned[e[1]] && conns[e[1]] == e[0]) {
+                        best = e[1];
+                    }
+                }
+                if (best < 0) {
+                    //No free node connected to the partition
+                    if (s == 0) {
+                        while (assigned[seeds[nextSeed]]) {
+                            nextSeed++;
+                        }
+                        best = seeds[nextSeed];
+                    } else {
+                        while (assigned[nextFree]) {
+                            nextFree++;
+                        }
+                        best = nextFree;
+                    }
+                }
+                assigned[best] = true;
+                part[best] = p;
+                partLoad[p] += load[best];
+                for (TIntIntIterator ite = adj[best].iterator(); ite.hasNext(); ) {
+                    ite.advance();
+                    int y = ite.key();
+                    if (!assigned[y]) {
+                        if (conns[y] == 0) {
+                            touched.add(y);
+                        }
+                        conns[y] += ite.value();
+                        queue.add(new int[]{conns[y], y});
+                    }
+                }
+            }
+        }
+    }
+
+    private int degree(int x) {
+        int d = 0;
+        for (int w : adj[x].values()) {
+            d += w;
+        }
+        return d;
+    }
+
+    /**
+     * Swap pairs of nodes between partitions while it reduces the cut
+     * or improves the balance without increasing the cut.
+     */
+    private void refine() {
+        conn = new TIntIntHashMap[part.length];
+        for (int x = 0; x < part.length; x++) {
+            conn[x] = new TIntIntHashMap();
+            for (TIntIntIterator ite = adj[x].iterator(); ite.hasNext(); ) {
+                ite.advance();
+                conn[x].adjustOrPutValue(part[ite.key()], ite.value(), ite.value());
+            }
+        }
+        byNodeLoad = Comparator.<Integer>comparingDouble(x -> load[x]).thenComparingInt(x -> x);
+        buckets = new ArrayList<>(sizes.length);
+        for (int p = 0; p < sizes.length; p++) {
+            buckets.add(new TreeMap<>());
+        }
+        for (int x = 0; x < part.length; x++) {
+            bucket(x);
+        }
+        byLoad = new TreeSet<>(Comparator.<Integer>comparingDouble(p -> partLoad[p]).thenComparingInt(p -> p));
+        for (int p = 0; p < sizes.length; p++) {
+            byLoad.add(p);
+        }
+
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            boolean improved = false;
+            for (int u = 0; u < part.length; u++) {
+                improved |= trySwap(u);
+            }
+            if (!improved) {
+                return;
+            }
+        }
+    }
+
+    private boolean trySwap(int u) {
+        int a = part[u];
+        int in = conn[u].get(a);
+        TIntHashSet targets = new TIntHashSet();
+        for (TIntIntIterator ite = conn[u].iterator(); ite.hasNext(); ) {
+            ite.advance();
+            if (ite.key() != a && ite.value() > in) {
+                targets.add(ite.key());
+            }
+        }
+        int lightest = byLoad.first();
+        if (lightest != a && partLoad[a] - partLoad[lightest] > tolerance) {
+            targets.add(lightest);
+        }
+        if (targets.isEmpty()) {
+            return false;
+        }
+
+        bestV = -1;
+        for (int v : adj[u].keys()) {
+            if (targets.contains(part[v])) {
+                evaluate(u, v);
+            }
+        }
+        for (int b : targets.toArray()) {
+            TreeSet<Integer> loosest = buckets.get(b).firstEntry().getValue();
+            evaluate(u, loosest.first());
+            evaluate(u, loosest.last());
+        }
+        if (bestV < 0) {
+            return false;
+        }
+        int v = bestV;
+        int b = part[v];
+        byLoad.remove(a);
+        byLoad.remove(b);
+        partLoad[a] += load[v] - load[u];
+        partLoad[b] += load[u] - load[v];
+        byLoad.add(a);
+        byLoad.add(b);
+        move(u, b);
+        move(v, a);
+        return true;
+    }
+
+    /**
+     * Evaluate the swap of two nodes and keep it if it is the best one so far.
+     */
+    private void evaluate(int u, int v) {
+        int a = part[u];
+        int b = part[v];
+        int gain = conn[u].get(b) - conn[u].get(a) + conn[v].get(a) - conn[v].get(b) - 2 * adj[u].get(v);
+        double before = Math.abs(partLoad[a] - partLoad[b]);
+        double after = Math.abs(partLoad[a] - partLoad[b] + 2 * (load[v] - load[u]));
+        boolean balanced = after <= Math.max(before, tolerance) + EPSILON;
+        boolean accept = (gain > 0 && balanced) || (gain == 0 && after < before - EPSILON);
+        if (accept && (bestV < 0 || gain > bestGain || (gain == bestGain && after < bestDiff))) {
+            bestV = v;
+            bestGain = gain;
+            bestDiff = after;
+        }
+    }
+
+    /**
+     * Move a node to another partition and update the connections and the buckets
+     * of the node and its neighbours.
+     */
+    private void move(int x, int to) {
+        int from = part[x];
+        unbucket(x);
+        part[x] = to;
+        bucket(x);
+        for (TIntIntIterator ite = adj[x].iterator(); ite.hasNext(); ) {
+            ite.advance();
+            int y = ite.key();
+            int w = ite.value();
+            boolean inside = part[y] == from || part[y] == to;
+            if (inside) {
+                unbucket(y);
+            }
+            if (conn[y].adjustOrPutValue(from, -w, 0) == 0) {
+                conn[y].remove(from);
+            }
+            conn[y].adjustOrPutValue(to, w, w);
+            if (inside) {
+                bucket(y);
+            }
+        }
+    }
+
+    private void bucket(int x) {
+        buckets.get(part[x]).computeIfAbsent(conn[x].get(part[x]), k -> new TreeSet<>(byNodeLoad)).add(x);
+    }
+
+    private void unbucket(int x) {
+        TreeMap<Integer, TreeSet<Integer>> bs = buckets.get(part[x]);
+        int k = conn[x].get(part[x]);
+        TreeSet<Integer> b = bs.get(k);
+        b.remove(x);
+        if (b.isEmpty()) {
+            bs.remove(k);
+        }
+    }
+}
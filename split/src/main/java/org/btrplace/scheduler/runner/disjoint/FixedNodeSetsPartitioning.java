@@ -7,6 +7,7 @@
 package org.btrplace.scheduler.runner.disjoint;
 
 import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 import gnu.trove.set.hash.THashSet;
 import gnu.trove.set.hash.TIntHashSet;
 import org.btrplace.model.Instance;
@@ -27,6 +28,8 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * A partitioning algorithm to split an instance
@@ -34,7 +37,8 @@ import java.util.Set;
  * specific node partitioning.
  * Running and sleeping VMs are spread on the sub-instances
  * depending on their current location while ready VMs are spread
- * evenly.
+ * evenly, or with regards to the remaining capacity of the partitions
+ * (see {@link #capacityAwareDispatch(boolean)}).
  * <p>
  * The {@link SatConstraint}s are split when necessary using
  * splitters available through the {@link ConstraintSplitterMapper}.
@@ -45,10 +49,17 @@ import java.util.Set;
  */
 public class FixedNodeSetsPartitioning extends StaticPartitioning {
 
+    /**
+     * The number of constraints split by a task in parallel mode.
+     */
+    private static final int SPLIT_CHUNK = 512;
+
     private Collection<Collection<Node>> partitions;
 
     private ConstraintSplitterMapper cstrMapper;
 
+    private boolean capacityAware;
+
     /**
      * Make a new partitioning algorithm.
      * By default, the partition algorithm use the {@link ConstraintSplitterMapper}
@@ -64,6 +75,7 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
         }
         partitions = parts;
         cstrMapper = ConstraintSplitterMapper.newBundle();
+        capacityAware = false;
     }
 
     /**
@@ -108,6 +120,29 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
         return true;
     }
 
+    /**
+     * Ask to dispatch the VMs to launch with regards to the remaining capacity of
+     * the partitions rather than round-robin.
+     * The VMs are dispatched using a first-fit-decreasing heuristic over the
+     * shareable resources of each partition and only go to a partition
+     * having a node allowed by their {@link org.btrplace.model.constraint.Fence}
+     * and {@link org.btrplace.model.constraint.Ban} constraints.
+     *
+     * @param b {@code true} for a capacity-aware dispatch
+     */
+    public void capacityAwareDispatch(boolean b) {
+        this.capacityAware = b;
+    }
+
+    /**
+     * Indicate if the VMs to launch are dispatched with regards to the remaining capacity of the partitions.
+     *
+     * @return {@code true} for a capacity-aware dispatch
+     */
+    public boolean capacityAwareDispatch() {
+        return this.capacityAware;
+    }
+
     @Override
     public List<Instance> split(Parameters ps, Instance i) throws SchedulerException {
         Model mo = i.getModel();
@@ -140,24 +175,97 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
             partNumber++;
         }
 
-        //Round-robin placement for the VMs to launch
+        //Round-robin placement for the VMs to launch, unless capacity-aware
+        TObjectIntHashMap<VM> dispatch = null;
+        if (capacityAware) {
+            dispatch = new LaunchDispatcher(i, new ArrayList<>(partitions)).dispatch(toLaunch);
+        }
         int p = 0;
         for (VM v : toLaunch) {
-            if (!parts.get(p).getModel().getMapping().addReadyVM(v)) {
-                throw new SplitException(parts.get(p).getModel(), "Unable to dispatch the VM to launch '" + v + "'");
+            int to = dispatch == null ? p : dispatch.get(v);
+            if (!parts.get(to).getModel().getMapping().addReadyVM(v)) {
+                throw new SplitException(parts.get(to).getModel(), "Unable to dispatch the VM to launch '" + v + "'");
             }
-            vmPosition.put(v.id(), p);
+            vmPosition.put(v.id(), to);
             p = (p + 1) % parts.size();
         }
 
-        //Split the constraints
-        for (SatConstraint cstr : i.getSatConstraints()) {
-            if (!cstrMapper.split(cstr, i, parts, vmPosition, nodePosition)) {
-                throw new SplitException(i.getModel(), "Unable to split " + cstr);
+        splitConstraints(i, parts, vmPosition, nodePosition);
+        return parts;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The merged partition covers the nodes and the VMs to launch of the given partitions.
+     * The constraints are split again with regards to the new partitioning.
+     */
+    @Override
+    protected Instance mergePartitions(Parameters ps, Instance orig, List<Instance> parts, List<Instance> others) throws SchedulerException {
+        Model mo = orig.getModel();
+        Set<Node> ns = new HashSet<>();
+        Set<VM> ready = new HashSet<>();
+        for (Instance p : parts) {
+            Mapping m = p.getModel().getMapping();
+            ns.addAll(m.getAllNodes());
+            ready.addAll(m.getReadyVMs());
+        }
+        Instance merged = new Instance(new SubModel(mo, new SynchronizedElementBuilder(mo), ns, ready),
+                new THashSet<>(), orig.getOptConstraint());
+
+        //The other partitions are only there to locate their elements
+        List<Instance> layout = new ArrayList<>(others.size() + 1);
+        layout.add(merged);
+        for (Instance o : others) {
+            layout.add(new Instance(o.getModel(), new THashSet<>(), o.getOptConstraint()));
+        }
+        TIntIntHashMap vmPosition = Instances.makeVMIndex(layout);
+        TIntIntHashMap nodePosition = Instances.makeNodeIndex(layout);
+        splitConstraints(orig, layout, vmPosition, nodePosition);
+        return merged;
+    }
+
+    /**
+     * Split the constraints of an instance among the partitions.
+     * In parallel mode, each chunk of constraints is split into its own
+     * partitions that only share the models. The resulting constraints are then
+     * added to the partitions in the order of the chunks, like the sequential mode.
+     *
+     * @param orig         the instance to split
+     * @param parts        the partitions
+     * @param vmPosition   the partition of each VM
+     * @param nodePosition the partition of each node
+     * @throws SplitException if a constraint cannot be split
+     */
+    private void splitConstraints(Instance orig, List<Instance> parts, TIntIntHashMap vmPosition, TIntIntHashMap nodePosition) throws SplitException {
+        Collection<SatConstraint> cstrs = orig.getSatConstraints();
+        if (!isParallelSplit() || cstrs.size() <= SPLIT_CHUNK) {
+            split(orig, cstrs, parts, vmPosition, nodePosition);
+            return;
+        }
+        List<SatConstraint> all = new ArrayList<>(cstrs);
+        int nbChunks = (all.size() + SPLIT_CHUNK - 1) / SPLIT_CHUNK;
+        List<List<Instance>> chunks = IntStream.range(0, nbChunks).parallel().mapToObj(c -> {
+            List<Instance> collectors = new ArrayList<>(parts.size());
+            for (Instance p : parts) {
+                collectors.add(new Instance(p.getModel(), p.getOptConstraint()));
+            }
+            List<SatConstraint> chunk = all.subList(c * SPLIT_CHUNK, Math.min(all.size(), (c + 1) * SPLIT_CHUNK));
+            split(orig, chunk, collectors, vmPosition, nodePosition);
+            return collectors;
+        }).collect(Collectors.toList());
+        for (List<Instance> collectors : chunks) {
+            for (int p = 0; p < parts.size(); p++) {
+                parts.get(p).getSatConstraints().addAll(collectors.get(p).getSatConstraints());
             }
         }
+    }
 
-        return parts;
+    private void split(Instance orig, Collection<SatConstraint> cstrs, List<Instance> parts, TIntIntHashMap vmPosition, TIntIntHashMap nodePosition) throws SplitException {
+        for (SatConstraint cstr : cstrs) {
+            if (!cstrMapper.split(cstr, orig, parts, vmPosition, nodePosition)) {
+                throw new SplitException(orig.getModel(), "Unable to split " + cstr);
+            }
+        }
     }
 
     private Set<VM> getVMsToLaunch(Instance i) {
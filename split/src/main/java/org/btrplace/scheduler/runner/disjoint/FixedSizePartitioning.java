@@ -24,6 +24,10 @@ import java.util.Set;
  * An extension of {@link FixedNodeSetsPartitioning} where
  * the partitions of nodes are computed by provided their
  * size in terms of number of nodes.
+ * <p>
+ * By default, the nodes are picked up linearly. They can also be picked up
+ * randomly, or to have balanced partitions that cut as few constraints as possible
+ * (see {@link #balancedPickUp(boolean)}).
  *
  * @author Fabien Hermenier
  */
@@ -33,6 +37,7 @@ public class FixedSizePartitioning extends FixedNodeSetsPartitioning {
 
     private boolean random;
 
+    private boolean balanced;
 
     /**
      * Make a new partitioning algorithm.
@@ -43,6 +48,7 @@ public class FixedSizePartitioning extends FixedNodeSetsPartitioning {
         super(Collections.singleton(new HashSet<>()));
         this.partSize = s;
         random = false;
+        balanced = false;
     }
 
     /**
@@ -67,7 +73,11 @@ public class FixedSizePartitioning extends FixedNodeSetsPartitioning {
     public List<Instance> split(Parameters ps, Instance i) throws SchedulerException {
         Mapping map = i.getModel().getMapping();
 
-        setPartitions(random ? randomPartitions(ps.getRandomSeed(), map) : linearPartitions(map));
+        if (balanced) {
+            setPartitions(new BalancedNodePartitioner(i, partSize).partition());
+        } else {
+            setPartitions(random ? randomPartitions(ps.getRandomSeed(), map) : linearPartitions(map));
+        }
         return super.split(ps, i);
     }
 
@@ -125,4 +135,27 @@ public class FixedSizePartitioning extends FixedNodeSetsPartitioning {
     public boolean randomPickUp() {
         return this.random;
     }
+
+    /**
+     * Ask to compute balanced partitions that keep the constraints
+     * inside a single partition as much as possible.
+     * The partitions are computed from an affinity graph between the nodes
+     * that are involved in a same constraint. They are balanced
+     * with regards to the number of hosted VMs and their resource demand.
+     * This supersedes the random pick up.
+     *
+     * @param b {@code true} for balanced partitions
+     */
+    public void balancedPickUp(boolean b) {
+        this.balanced = b;
+    }
+
+    /**
+     * Indicate if the partitions are balanced and computed from the constraints.
+     *
+     * @return {@code true} for balanced partitions
+     */
+    public boolean balancedPickUp() {
+        return this.balanced;
+    }
 }
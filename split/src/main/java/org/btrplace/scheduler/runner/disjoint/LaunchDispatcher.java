@@ -0,0 +1,231 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.disjoint;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dispatch the VMs to launch among partitions of nodes
+ * with regards to the remaining capacity of each partition.
+ * <p>
+ * The remaining capacity of a partition is, for each {@link ShareableResource}, the capacity
+ * of its online nodes minus the consumption of the VMs running there.
+ * The VMs are dispatched using a first-fit-decreasing heuristic: the VMs having the biggest
+ * share of the resources first, each into the first partition where it fits.
+ * A partition is only a candidate if it has a node allowed by the {@link Fence}
+ * and the {@link Ban} constraints of the VM.
+ * <p>
+ * When a VM fits nowhere, it goes to the candidate partition having the largest
+ * remaining capacity. The VMs that do not consume any resource are dispatched
+ * round-robin among their candidate partitions.
+ *
+ * @author Fabien Hermenier
+ */
+final class LaunchDispatcher {
+
+    private final List<ShareableResource> rcs;
+
+    private final List<Collection<Node>> parts;
+
+    /**
+     * The remaining capacity per partition and per resource.
+     */
+    private final long[][] free;
+
+    /**
+     * The total capacity of each resource.
+     */
+    private final long[] capacities;
+
+    private final TObjectIntHashMap<Node> partOf;
+
+    private final Map<VM, Set<Node>> fences;
+
+    private final Map<VM, Set<Node>> bans;
+
+    private int next;
+
+    /**
+     * Prepare the dispatching.
+     *
+     * @param i  the instance to split. The VMs to launch must not be in the mapping anymore
+     * @param ps the partitions of nodes
+     */
+    LaunchDispatcher(Instance i, List<Collection<Node>> ps) {
+        Model mo = i.getModel();
+        Mapping map = mo.getMapping();
+        parts = ps;
+        rcs = new ArrayList<>();
+        for (ModelView v : mo.getViews()) {
+            if (v instanceof ShareableResource) {
+                rcs.add((ShareableResource) v);
+            }
+        }
+        free = new long[parts.size()][rcs.size()];
+        capacities = new long[rcs.size()];
+        //0.5f is a default load factor in trove.
+        partOf = new TObjectIntHashMap<>(map.getNbNodes(), 0.5f, -1);
+        for (int p = 0; p < parts.size(); p++) {
+            for (Node n : parts.get(p)) {
+                partOf.put(n, p);
+                if (!map.isOnline(n)) {
+                    continue;
+                }
+                for (int r = 0; r < rcs.size(); r++) {
+                    ShareableResource rc = rcs.get(r);
+                    int capa = rc.getCapacity(n);
+                    free[p][r] += capa - rc.sumConsumptions(map.getRunningVMs(n), true);
+                    capacities[r] += capa;
+                }
+            }
+        }
+
+        fences = new HashMap<>();
+        bans = new HashMap<>();
+        for (SatConstraint c : i.getSatConstraints()) {
+            if (c instanceof Fence) {
+                for (VM v : c.getInvolvedVMs()) {
+                    fences.computeIfAbsent(v, k -> new HashSet<>(c.getInvolvedNodes())).retainAll(c.getInvolvedNodes());
+                }
+            } else if (c instanceof Ban) {
+                for (VM v : c.getInvolvedVMs()) {
+                    bans.computeIfAbsent(v, k -> new HashSet<>()).addAll(c.getInvolvedNodes());
+                }
+            }
+        }
+    }
+
+    /**
+     * Dispatch the VMs.
+     *
+     * @param vms the VMs to launch
+     * @return the partition index of each VM
+     */
+    TObjectIntHashMap<VM> dispatch(Collection<VM> vms) {
+        List<VM> sorted = new ArrayList<>(vms);
+        TObjectIntHashMap<VM> res = new TObjectIntHashMap<>(vms.size());
+        Map<VM, Double> shares = new HashMap<>(vms.size());
+        for (VM v : sorted) {
+            shares.put(v, share(v));
+        }
+        sorted.sort(Comparator.comparingDouble((VM v) -> -shares.get(v)).thenComparingInt(VM::id));
+        for (VM v : sorted) {
+            int p = select(v, candidates(v), shares.get(v) == 0);
+            for (int r = 0; r < rcs.size(); r++) {
+                free[p][r] -= rcs.get(r).getConsumption(v);
+            }
+            res.put(v, p);
+        }
+        return res;
+    }
+
+    /**
+     * The share of the resources consumed by a VM.
+     */
+    private double share(VM v) {
+        double s = 0;
+        for (int r = 0; r < rcs.size(); r++) {
+            if (capacities[r] > 0) {
+                s += (double) rcs.get(r).getConsumption(v) / capacities[r];
+            }
+        }
+        return s;
+    }
+
+    private int select(VM v, BitSet candidates, boolean roundRobin) {
+        if (roundRobin) {
+            int p = candidates.nextSetBit(next);
+            if (p < 0) {
+                p = candidates.nextSetBit(0);
+            }
+            next = (p + 1) % parts.size();
+            return p;
+        }
+        int largest = -1;
+        double largestSlack = 0;
+        for (int p = candidates.nextSetBit(0); p >= 0; p = candidates.nextSetBit(p + 1)) {
+            double slack = slack(p, v);
+            if (slack >= 0) {
+                //First fit
+                return p;
+            }
+            if (largest < 0 || slack > largestSlack) {
+                largest = p;
+                largestSlack = slack;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * The smallest share of a resource that remains in a partition once a VM is added.
+     * A negative value means the VM does not fit.
+     */
+    private double slack(int p, VM v) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int r = 0; r < rcs.size(); r++) {
+            long left = free[p][r] - rcs.get(r).getConsumption(v);
+            min = Math.min(min, capacities[r] > 0 ? (double) left / capacities[r] : left);
+        }
+        return min;
+    }
+
+    /**
+     * The partitions having a node allowed for a VM.
+     * All the partitions if the VM cannot be placed anywhere.
+     */
+    private BitSet candidates(VM v) {
+        Set<Node> fence = fences.get(v);
+        Set<Node> ban = bans.get(v);
+        BitSet res = new BitSet(parts.size());
+        if (fence != null) {
+            for (Node n : fence) {
+                int p = partOf.get(n);
+                if (p >= 0 && (ban == null || !ban.contains(n))) {
+                    res.set(p);
+                }
+            }
+        } else if (ban != null) {
+            int[] banned = new int[parts.size()];
+            for (Node n : ban) {
+                int p = partOf.get(n);
+                if (p >= 0) {
+                    banned[p]++;
+                }
+            }
+            for (int p = 0; p < parts.size(); p++) {
+                if (banned[p] < parts.get(p).size()) {
+                    res.set(p);
+                }
+            }
+        }
+        if (res.isEmpty()) {
+            res.set(0, parts.size());
+        }
+        return res;
+    }
+}
@@ -7,23 +7,47 @@
 package org.btrplace.scheduler.runner.disjoint;
 
 import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.constraint.Online;
+import org.btrplace.model.constraint.Ready;
+import org.btrplace.model.constraint.ResourceCapacity;
+import org.btrplace.model.constraint.Root;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.RunningCapacity;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Sleeping;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.DefaultReconfigurationPlan;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.plan.event.Action;
 import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.runner.InstanceSolver;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 
 /**
  * An abstract solver that decompose statically an instance
@@ -34,6 +58,15 @@ import java.util.concurrent.Executors;
  * <p>
  * The solving process relies on a master/worker paradigm with a number
  * of workers equals to the number of available cores by default.
+ * The partitions are submitted to the workers by decreasing estimated size,
+ * so the biggest partitions do not delay the end of the solving process.
+ * The workers can pick the partitions from a single queue (default)
+ * or from a work-stealing pool.
+ * <p>
+ * The sub-plans can be streamed to listeners as soon as their partition is solved.
+ * Optionally, the partitions without a solution are merged and solved again.
+ * They can also be repaired: each of them is merged with its least loaded solved
+ * partitions, pinned in the state their sub-plan leads to, and only this union is solved again.
  *
  * @author Fabien Hermenier
  */
@@ -45,12 +78,23 @@ public abstract class StaticPartitioning implements InstanceSolver {
 
     private List<InstanceSolverRunner> runners;
 
+    private boolean workStealing;
+
+    private boolean retryFailures;
+
+    private boolean parallelSplit;
+
+    private int repairNeighbours;
+
+    private final List<BiConsumer<Instance, ReconfigurationPlan>> listeners;
+
     /**
      * Make a new partitioning algorithm.
      * The number of workers is set to the number of available cores.
      */
     public StaticPartitioning() {
         workersCount = Runtime.getRuntime().availableProcessors();
+        listeners = new ArrayList<>();
     }
 
     /**
@@ -71,6 +115,160 @@ public abstract class StaticPartitioning implements InstanceSolver {
         this.workersCount = s;
     }
 
+    /**
+     * Indicate if the partitions are solved using a work-stealing pool.
+     *
+     * @return {@code true} for a work-stealing pool, {@code false} for a fixed thread pool
+     */
+    public boolean isWorkStealing() {
+        return workStealing;
+    }
+
+    /**
+     * Set the kind of pool that solves the partitions.
+     *
+     * @param b {@code true} to use a work-stealing pool, {@code false} to use a fixed thread pool
+     */
+    public void setWorkStealing(boolean b) {
+        this.workStealing = b;
+    }
+
+    /**
+     * Estimate the solving cost of a partition.
+     * By default, this is the number of VMs times the number of nodes
+     * as it drives the number of placement alternatives.
+     *
+     * @param i the partition
+     * @return a positive number
+     */
+    protected long estimateSize(Instance i) {
+        Mapping m = i.getModel().getMapping();
+        return (long) m.getNbVMs() * m.getNbNodes();
+    }
+
+
+    /**
+     * Register a listener that is notified each time a partition is solved.
+     * The listener receives the partition and its last computed sub-plan as soon as
+     * the partition is solved, so independent sub-plans can be applied before the whole
+     * instance is solved. Partitions without a solution are not notified.
+     * The listeners are called from the thread that called {@link #solve(Parameters, Instance)}.
+     *
+     * @param l the listener to add
+     */
+    public void addPartitionListener(BiConsumer<Instance, ReconfigurationPlan> l) {
+        listeners.add(l);
+    }
+
+    /**
+     * Get the partition listeners.
+     *
+     * @return a list of listeners that may be empty
+     */
+    public List<BiConsumer<Instance, ReconfigurationPlan>> getPartitionListeners() {
+        return listeners;
+    }
+
+    /**
+     * Indicate if the partitions without a solution are solved again.
+     *
+     * @return {@code true} if the failures are retried
+     */
+    public boolean isRetryFailures() {
+        return retryFailures;
+    }
+
+    /**
+     * Ask to solve again the partitions without a solution.
+     * The solved partitions are kept while the failed partitions
+     * are merged into a larger partition that is solved again,
+     * if {@link #mergePartitions(Parameters, Instance, List, List)} supports it.
+     * A single failed partition has nothing to be merged with. It is solved again alone,
+     * with twice the time limit, only if the time limit stopped its search. When its search
+     * completed without a solution, the partition is left as is. It can then be merged with
+     * solved partitions using {@link #setRepairNeighbours(int)}.
+     *
+     * @param b {@code true} to retry the failures
+     */
+    public void setRetryFailures(boolean b) {
+        this.retryFailures = b;
+    }
+
+    /**
+     * Indicate if the instance is split in parallel.
+     *
+     * @return {@code true} to split in parallel
+     */
+    public boolean isParallelSplit() {
+        return parallelSplit;
+    }
+
+    /**
+     * Ask to split the instance in parallel when possible.
+     * The constraints are then split on the common fork-join pool,
+     * so the splitters must support concurrent calls.
+     *
+     * @param b {@code true} to split in parallel
+     */
+    public void setParallelSplit(boolean b) {
+        this.parallelSplit = b;
+    }
+
+    /**
+     * Get the number of solved partitions a failed partition is merged with during the repair phase.
+     *
+     * @return a number &gt;= 0. {@code 0} if the repair phase is disabled
+     */
+    public int getRepairNeighbours() {
+        return repairNeighbours;
+    }
+
+    /**
+     * Set the number of solved partitions a failed partition is merged with to be repaired.
+     * Once the partitions are solved, and possibly retried, each partition without a solution is merged
+     * with up to {@code n} solved partitions, the least loaded first according
+     * to {@link #estimateLoad(SolvingStatistics)}. The elements of these partitions are pinned to the
+     * state and the location their sub-plan leads to. The resources their sub-plan still uses while it is
+     * applied are reserved, so the union can only use the resources left free all along and the sub-plans
+     * already notified to the partition listeners stay valid. Only the unions are solved again. When a union has
+     * no solution, the partitions keep their original results.
+     * This requires {@link #mergePartitions(Parameters, Instance, List, List)} to be supported.
+     *
+     * @param n a number &gt;= 0. {@code 0} to disable the repair phase
+     */
+    public void setRepairNeighbours(int n) {
+        this.repairNeighbours = n;
+    }
+
+    /**
+     * Estimate the load of a solved partition.
+     * The load is computed on the result of the last sub-plan of the partition.
+     * By default, this is the highest usage ratio among the {@link ShareableResource},
+     * computed from the running VMs and the capacity of the online nodes.
+     * Without any resource, this is the number of running VMs per online node.
+     *
+     * @param st the statistics of the solved partition
+     * @return a positive number
+     */
+    protected double estimateLoad(SolvingStatistics st) {
+        Model mo = st.lastSolution().getResult();
+        Mapping m = mo.getMapping();
+        Set<Node> online = m.getOnlineNodes();
+        Set<VM> running = m.getRunningVMs();
+        double load = -1;
+        for (ModelView v : mo.getViews()) {
+            if (v instanceof ShareableResource) {
+                ShareableResource rc = (ShareableResource) v;
+                int capa = rc.sumCapacities(online, true);
+                int cons = rc.sumConsumptions(running, true);
+                load = Math.max(load, capa == 0 ? cons : (double) cons / capa);
+            }
+        }
+        if (load < 0) {
+            load = online.isEmpty() ? running.size() : (double) running.size() / online.size();
+        }
+        return load;
+    }
 
     @Override
     public ReconfigurationPlan solve(Parameters cra, Instance orig) throws SchedulerException {
@@ -80,44 +278,348 @@ public abstract class StaticPartitioning implements InstanceSolver {
         d += System.currentTimeMillis();
 
         stats.setSplittingStatistics(partitions.size(), d);
-        ExecutorService exe = Executors.newFixedThreadPool(this.workersCount);
+
+        runners = new ArrayList<>();
+        long duration = -System.currentTimeMillis();
+        List<SolvingStatistics> results = solvePartitions(cra, orig, partitions);
+        if (retryFailures) {
+            results = retry(cra, orig, results);
+        }
+        if (repairNeighbours > 0) {
+            results = repair(cra, orig, results);
+        }
+        duration += System.currentTimeMillis();
+        stats.setSolvingDuration(duration);
+
+        return merge(orig, results);
+    }
+
+    private List<SolvingStatistics> solvePartitions(Parameters cra, Instance orig, List<Instance> partitions) throws SchedulerException {
+        ExecutorService exe = workStealing ? Executors.newWorkStealingPool(this.workersCount)
+                : Executors.newFixedThreadPool(this.workersCount);
         CompletionService<SolvingStatistics> completionService = new ExecutorCompletionService<>(exe);
         List<SolvingStatistics> results = new ArrayList<>(partitions.size());
 
+        //Biggest partitions first
+        List<Instance> sorted = new ArrayList<>(partitions);
+        sorted.sort(Comparator.comparingLong(this::estimateSize).reversed());
 
-        runners = new ArrayList<>();
-        long duration = -System.currentTimeMillis();
-        for (Instance partition : partitions) {
+        Map<Instance, Long> submitted = new IdentityHashMap<>();
+        for (Instance partition : sorted) {
             InstanceSolverRunner runner = new InstanceSolverRunner(cra, partition);
+            submitted.put(partition, System.currentTimeMillis());
             completionService.submit(runner);
             runners.add(runner);
         }
 
-        for (int i = 0; i < partitions.size(); i++) {
-            try {
-                results.add(completionService.take().get());
-            } catch (ExecutionException ignore) {
-                Throwable cause = ignore.getCause();
-                if (cause != null) {
-                    throw new SplitException(null, cause.getMessage(), ignore);
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                try {
+                    SolvingStatistics st = completionService.take().get();
+                    //The runner statistics start when the runner is picked by a worker
+                    stats.addPartitionStatistics(st, st.getStart() - submitted.get(st.getInstance()));
+                    results.add(st);
+                    ReconfigurationPlan p = st.lastSolution();
+                    if (p != null) {
+                        listeners.forEach(l -> l.accept(st.getInstance(), p));
+                    }
+                } catch (ExecutionException ignore) {
+                    Throwable cause = ignore.getCause();
+                    if (cause != null) {
+                        throw new SplitException(null, cause.getMessage(), ignore);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SplitException(orig.getModel(), e.getMessage(), e);
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new SplitException(orig.getModel(), e.getMessage(), e);
             }
+        } finally {
+            exe.shutdown();
         }
-        duration += System.currentTimeMillis();
-        stats.setSolvingDuration(duration);
-        exe.shutdown();
+        return results;
+    }
 
-        return merge(orig, results);
+    /**
+     * Solve again the failed partitions, merged together.
+     * A single failed partition is solved again alone, with twice the time limit,
+     * if it was stopped by the time limit.
+     *
+     * @return the results of the solved partitions plus the result of the merged partition
+     */
+    private List<SolvingStatistics> retry(Parameters cra, Instance orig, List<SolvingStatistics> results) throws SchedulerException {
+        List<SolvingStatistics> failed = new ArrayList<>();
+        List<Instance> solved = new ArrayList<>();
+        List<SolvingStatistics> kept = new ArrayList<>();
+        for (SolvingStatistics st : results) {
+            if (st.lastSolution() == null) {
+                failed.add(st);
+            } else {
+                solved.add(st.getInstance());
+                kept.add(st);
+            }
+        }
+        if (failed.isEmpty()) {
+            return results;
+        }
+        if (failed.size() == 1) {
+            //Nothing to merge. Only a partition that ran out of time may have a solution
+            SolvingStatistics st = failed.get(0);
+            if (st.completed() || cra.getTimeLimit() <= 0) {
+                return results;
+            }
+            Parameters ps = new DefaultParameters(cra).setTimeLimit(cra.getTimeLimit() * 2);
+            kept.addAll(solvePartitions(ps, orig, Collections.singletonList(st.getInstance())));
+            return kept;
+        }
+        List<Instance> parts = new ArrayList<>(failed.size());
+        for (SolvingStatistics st : failed) {
+            parts.add(st.getInstance());
+        }
+        Instance merged = mergePartitions(cra, orig, parts, solved);
+        if (merged == null) {
+            return results;
+        }
+        kept.addAll(solvePartitions(cra, orig, Collections.singletonList(merged)));
+        return kept;
+    }
+
+    /**
+     * Merge each failed partition with its least loaded solved partitions
+     * and solve the unions again.
+     * The union starts from the state the solved partitions reach with their sub-plan. Their elements are pinned
+     * in that state and the resources their sub-plan may still use are reserved, so the sub-plan of the union only
+     * involves the elements of the failed partition and the sub-plans already notified stay valid.
+     *
+     * @return the original results where the failed partitions are replaced by the result of their union when it is solved
+     */
+    private List<SolvingStatistics> repair(Parameters cra, Instance orig, List<SolvingStatistics> results) throws SchedulerException {
+        List<Instance> failed = new ArrayList<>();
+        List<SolvingStatistics> solved = new ArrayList<>();
+        for (SolvingStatistics st : results) {
+            if (st.lastSolution() == null) {
+                failed.add(st.getInstance());
+            } else {
+                solved.add(st);
+            }
+        }
+        if (failed.isEmpty() || solved.isEmpty()) {
+            return results;
+        }
+
+        //The least loaded partitions first, then the smallest
+        Map<SolvingStatistics, Double> loads = new IdentityHashMap<>();
+        for (SolvingStatistics st : solved) {
+            loads.put(st, estimateLoad(st));
+        }
+        solved.sort(Comparator.comparingDouble((SolvingStatistics st) -> loads.get(st))
+                .thenComparingLong(st -> estimateSize(st.getInstance())));
+        Deque<SolvingStatistics> available = new ArrayDeque<>(solved);
+
+        List<Instance> toRepair = new ArrayList<>();
+        List<List<SolvingStatistics>> neighbours = new ArrayList<>();
+        Map<SolvingStatistics, Model> ends = new IdentityHashMap<>();
+        Model mo = orig.getModel();
+        for (Instance f : failed) {
+            if (available.isEmpty()) {
+                break;
+            }
+            List<SolvingStatistics> pinned = new ArrayList<>(repairNeighbours);
+            while (pinned.size() < repairNeighbours && !available.isEmpty()) {
+                SolvingStatistics st = available.poll();
+                Model res = st.lastSolution().getResult();
+                ends.put(st, res);
+                if (st.lastSolution().getSize() > 0) {
+                    if (mo == orig.getModel()) {
+                        mo = mo.copy();
+                    }
+                    moveTo(st.getInstance().getModel(), res, mo);
+                }
+                pinned.add(st);
+            }
+            toRepair.add(f);
+            neighbours.add(pinned);
+        }
+        Instance from = new Instance(mo, orig.getSatConstraints(), orig.getOptConstraint());
+
+        List<Instance> unions = new ArrayList<>();
+        Map<Instance, Instance> repaired = new IdentityHashMap<>();
+        for (int x = 0; x < toRepair.size(); x++) {
+            Instance f = toRepair.get(x);
+            List<Instance> g = new ArrayList<>(repairNeighbours + 1);
+            g.add(f);
+            Set<Instance> in = Collections.newSetFromMap(new IdentityHashMap<>());
+            in.add(f);
+            for (SolvingStatistics st : neighbours.get(x)) {
+                //The neighbour as its sub-plan leaves it
+                g.add(new Instance(ends.get(st), st.getInstance().getSatConstraints(), st.getInstance().getOptConstraint()));
+                in.add(st.getInstance());
+            }
+            List<Instance> others = new ArrayList<>(results.size());
+            for (SolvingStatistics st : results) {
+                if (!in.contains(st.getInstance())) {
+                    others.add(st.getInstance());
+                }
+            }
+            Instance u = mergePartitions(cra, from, g, others);
+            if (u == null) {
+                return results;
+            }
+            for (SolvingStatistics st : neighbours.get(x)) {
+                Model res = ends.get(st);
+                pin(res.getMapping(), u.getSatConstraints());
+                reserve(st.getInstance().getModel(), res, u.getSatConstraints());
+            }
+            unions.add(u);
+            repaired.put(u, f);
+        }
+
+        //A failed partition is only replaced when its union is solved
+        Set<Instance> superseded = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<SolvingStatistics> solvedUnions = new ArrayList<>(unions.size());
+        for (SolvingStatistics st : solvePartitions(cra, orig, unions)) {
+            if (st.lastSolution() != null) {
+                superseded.add(repaired.get(st.getInstance()));
+                solvedUnions.add(st);
+            }
+        }
+        List<SolvingStatistics> kept = new ArrayList<>(results.size());
+        for (SolvingStatistics st : results) {
+            if (!superseded.contains(st.getInstance())) {
+                kept.add(st);
+            }
+        }
+        kept.addAll(solvedUnions);
+        return kept;
+    }
+
+    /**
+     * Put the elements of a partition in the state its sub-plan leads to.
+     *
+     * @param from the model the sub-plan starts from
+     * @param res  the model the sub-plan leads to
+     * @param mo   the model to modify
+     */
+    private static void moveTo(Model from, Model res, Model mo) {
+        Mapping src = res.getMapping();
+        Mapping m = mo.getMapping();
+        for (VM v : from.getMapping().getAllVMs()) {
+            if (!src.contains(v)) {
+                m.remove(v);
+            }
+        }
+        for (Node n : src.getOnlineNodes()) {
+            m.addOnlineNode(n);
+        }
+        for (Node n : src.getOnlineNodes()) {
+            for (VM v : src.getRunningVMs(n)) {
+                m.addRunningVM(v, n);
+            }
+            for (VM v : src.getSleepingVMs(n)) {
+                m.addSleepingVM(v, n);
+            }
+        }
+        for (VM v : src.getReadyVMs()) {
+            m.addReadyVM(v);
+        }
+        for (Node n : src.getOfflineNodes()) {
+            m.addOfflineNode(n);
+        }
+        for (ModelView v : mo.getViews()) {
+            if (v instanceof ShareableResource) {
+                ShareableResource rc = (ShareableResource) v;
+                ShareableResource after = ShareableResource.get(res, rc.getResourceIdentifier());
+                if (after == null) {
+                    continue;
+                }
+                for (VM vm : src.getAllVMs()) {
+                    if (after.consumptionDefined(vm) && after.getConsumption(vm) != rc.getConsumption(vm)) {
+                        rc.setConsumption(vm, after.getConsumption(vm));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pin the elements of a mapping to their current state and location.
+     *
+     * @param m     the mapping
+     * @param cstrs the constraints to add the pinning constraints to
+     */
+    private static void pin(Mapping m, Collection<SatConstraint> cstrs) {
+        Set<VM> running = m.getRunningVMs();
+        cstrs.addAll(Running.newRunning(running));
+        cstrs.addAll(Root.newRoots(running));
+        cstrs.addAll(Sleeping.newSleeping(m.getSleepingVMs()));
+        cstrs.addAll(Ready.newReady(m.getReadyVMs()));
+        cstrs.addAll(Online.newOnline(m.getOnlineNodes()));
+        cstrs.addAll(Offline.newOffline(m.getOfflineNodes()));
+    }
+
+    /**
+     * Reserve the resources a sub-plan may still use on the nodes it leaves in a given state.
+     * A VM leaving a node keeps its resources there until its action is over, so they are withdrawn
+     * from the capacity of the node. A node that is booted cannot host any other VM, as it is offline
+     * until its action is over.
+     *
+     * @param src   the model the sub-plan starts from
+     * @param dst   the model the sub-plan leads to
+     * @param cstrs the constraints to add the reservations to
+     */
+    private static void reserve(Model src, Model dst, Collection<SatConstraint> cstrs) {
+        Mapping before = src.getMapping();
+        Mapping after = dst.getMapping();
+        for (Node n : after.getOnlineNodes()) {
+            if (!before.isOnline(n)) {
+                cstrs.add(new RunningCapacity(n, after.getRunningVMs(n).size()));
+                continue;
+            }
+            for (ModelView v : dst.getViews()) {
+                if (!(v instanceof ShareableResource)) {
+                    continue;
+                }
+                ShareableResource rcAfter = (ShareableResource) v;
+                ShareableResource rcBefore = ShareableResource.get(src, rcAfter.getResourceIdentifier());
+                if (rcBefore == null) {
+                    continue;
+                }
+                int leaving = 0;
+                for (VM vm : before.getRunningVMs(n)) {
+                    int c = rcBefore.getConsumption(vm);
+                    if (after.isRunning(vm) && n.equals(after.getVMLocation(vm))) {
+                        leaving += Math.max(0, c - rcAfter.getConsumption(vm));
+                    } else {
+                        leaving += c;
+                    }
+                }
+                if (leaving > 0) {
+                    cstrs.add(new ResourceCapacity(n, rcAfter.getResourceIdentifier(),
+                            Math.max(0, rcAfter.getCapacity(n) - leaving)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge some partitions into a single one.
+     * The merged partition must be disjoint from the other partitions.
+     * By default, merging is not supported.
+     *
+     * @param ps     the parameters for the solver
+     * @param orig   the original instance
+     * @param parts  the partitions to merge
+     * @param others the other partitions
+     * @return the merged partition. {@code null} if merging is not supported
+     * @throws SchedulerException if an error prevent the merging process
+     */
+    protected Instance mergePartitions(Parameters ps, Instance orig, List<Instance> parts, List<Instance> others) throws SchedulerException {
+        return null;
     }
 
     private ReconfigurationPlan merge(Instance i, Collection<SolvingStatistics> results) throws SplitException {
         ReconfigurationPlan plan = new DefaultReconfigurationPlan(i.getModel());
         //Only if there is a solution
         for (SolvingStatistics result : results) {
-            getStatistics().addPartitionStatistics(result);
             ReconfigurationPlan p = result.lastSolution();
             if (p == null) {
                 return null;
@@ -10,6 +10,7 @@ import org.btrplace.model.Instance;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.runner.Metrics;
+import org.btrplace.scheduler.choco.runner.Profile;
 import org.btrplace.scheduler.choco.runner.SolutionStatistics;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 
@@ -25,6 +26,8 @@ public class StaticPartitioningStatistics implements SolvingStatistics {
 
   private final List<SolvingStatistics> partResults;
 
+  private final List<Long> queueWaits;
+
   private final int nbWorkers;
   private int nbPartitions;
   private long splitDuration;
@@ -56,6 +59,7 @@ public class StaticPartitioningStatistics implements SolvingStatistics {
         this.nbPartitions = -1;
         solvingDuration = -1;
         partResults = new ArrayList<>();
+        queueWaits = new ArrayList<>();
     }
 
     /**
@@ -104,6 +108,18 @@ public class StaticPartitioningStatistics implements SolvingStatistics {
         return null;
     }
 
+    /**
+     * Get the profile aggregated over all the partitions.
+     *
+     * @return a profile that may be empty
+     */
+    @Override
+    public Profile getProfile() {
+        Profile p = new Profile();
+        partResults.forEach(r -> p.add(r.getProfile()));
+        return p;
+    }
+
     @Override
     public boolean completed() {
         return completed;
@@ -216,7 +232,41 @@ public class StaticPartitioningStatistics implements SolvingStatistics {
         coreRPDuration = (int) Math.max(coreRPDuration, stats.getCoreBuildDuration());
         speRPDuration = (int) Math.max(speRPDuration, stats.getSpecializationDuration());
         */
+        addPartitionStatistics(stats, -1);
+    }
+
+    /**
+     * Add the statistics related to a partition.
+     *
+     * @param stats the partition statistics.
+     * @param wait  the duration in milliseconds the partition waited for a worker. {@code -1} if unknown
+     */
+    public void addPartitionStatistics(SolvingStatistics stats, long wait) {
         partResults.add(stats);
+        queueWaits.add(wait);
+    }
+
+    /**
+     * Get the duration each partition waited for a worker.
+     * The durations are ordered like {@link #results()}.
+     *
+     * @return a list of durations in milliseconds. {@code -1} for an unknown duration
+     */
+    public List<Long> getQueueWaits() {
+        return queueWaits;
+    }
+
+    /**
+     * Get the longest duration a partition waited for a worker.
+     *
+     * @return a duration in milliseconds. {@code -1} if unknown
+     */
+    public long getMaxQueueWait() {
+        long max = -1;
+        for (long w : queueWaits) {
+            max = Math.max(max, w);
+        }
+        return max;
     }
 
   /**
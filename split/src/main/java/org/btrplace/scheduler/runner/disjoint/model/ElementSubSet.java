@@ -74,12 +74,12 @@ public class ElementSubSet<E extends Element> implements Set<E> {
 
     @Override
     public Object[] toArray() {
-        throw new UnsupportedOperationException();
+        return index.getValues().subList(from, to).toArray();
     }
 
     @Override
     public Object[] toArray(Object[] a) {
-        throw new UnsupportedOperationException();
+        return index.getValues().subList(from, to).toArray(a);
     }
 
     @Override
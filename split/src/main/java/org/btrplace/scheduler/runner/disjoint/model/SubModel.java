@@ -14,9 +14,14 @@ import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
 import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -29,6 +34,8 @@ import java.util.Set;
  * parent component</li>
  * <li>It is not allowed to attach/detach/clear decorators</li>
  * <li>It is not possible to set the attributes</li>
+ * <li>The {@link ShareableResource} views are restricted to the scope
+ * using read-only {@link SubShareableResource}</li>
  * </ul>
  *
  * @author Fabien Hermenier
@@ -43,6 +50,11 @@ public class SubModel implements Model {
 
   private final ElementBuilder eb;
 
+  /**
+   * The scoped views, by identifier.
+   */
+  private final Map<String, ModelView> views;
+
     /**
      * Make a new sub-model with an empty scope for ready VMs.
      *
@@ -67,6 +79,7 @@ public class SubModel implements Model {
         this.parent = p;
         this.eb = b;
         sm = new SubMapping(p.getMapping(), scope, vmReady);
+        views = new HashMap<>();
     }
 
     /**
@@ -78,14 +91,47 @@ public class SubModel implements Model {
         return scope;
     }
 
+    /**
+     * {@inheritDoc}
+     * A {@link ShareableResource} is restricted to the scope of the model.
+     */
     @Override
     public ModelView getView(String id) {
-        return parent.getView(id);
+        ModelView v = parent.getView(id);
+        return v == null ? null : scoped(v);
     }
 
+    /**
+     * {@inheritDoc}
+     * The {@link ShareableResource} are restricted to the scope of the model.
+     */
     @Override
     public Collection<ModelView> getViews() {
-        return parent.getViews();
+        Collection<ModelView> vs = parent.getViews();
+        List<ModelView> res = new ArrayList<>(vs.size());
+        for (ModelView v : vs) {
+            res.add(scoped(v));
+        }
+        return res;
+    }
+
+    /**
+     * Restrict a view of the parent model to the scope.
+     * The restricted view is cached as long as the parent keeps the same view.
+     *
+     * @param v the parent view
+     * @return the restricted view if supported, {@code v} otherwise
+     */
+    private ModelView scoped(ModelView v) {
+        if (!(v instanceof ShareableResource)) {
+            return v;
+        }
+        ModelView cached = views.get(v.getIdentifier());
+        if (cached == null || ((SubShareableResource) cached).getParent() != v) {
+            cached = new SubShareableResource((ShareableResource) v, sm);
+            views.put(v.getIdentifier(), cached);
+        }
+        return cached;
     }
 
     /**
@@ -144,7 +190,7 @@ public class SubModel implements Model {
     public Model copy() {
         DefaultModel m = new DefaultModel(eb.copy());
         MappingUtils.fill(sm, m.getMapping());
-        for (ModelView rc : parent.getViews()) {
+        for (ModelView rc : getViews()) {
             m.attach(rc.copy());
         }
         m.setAttributes(this.getAttributes().copy());
@@ -206,7 +252,7 @@ public class SubModel implements Model {
         b.append("\nAttributes:\n");
         b.append(getAttributes());
         b.append("\nViews:\n");
-        for (ModelView entry : parent.getViews()) {
+        for (ModelView entry : getViews()) {
             b.append(entry.getIdentifier()).append(": ");
             b.append(entry.toString()).append("\n");
         }
@@ -239,7 +285,7 @@ public class SubModel implements Model {
 
     @Override
     public int hashCode() {
-        return Objects.hash(sm, parent.getViews(), parent.getAttributes());
+        return Objects.hash(sm, getViews(), parent.getAttributes());
     }
 }
 
@@ -0,0 +1,225 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.disjoint.model;
+
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.util.IntMap;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * A read-only {@link ShareableResource} restricted to the elements of a {@link SubMapping}.
+ * <p>
+ * The consumptions and the capacities are read from the parent view, so a lookup
+ * stays in O(1). The iterations, {@link #copy()} and {@link #toString()} only consider
+ * the nodes of the sub-mapping and the VMs it contains, so their cost depends on the
+ * size of the sub-mapping rather than the size of the parent view.
+ * The modifications are not supported.
+ *
+ * @author Fabien Hermenier
+ */
+public class SubShareableResource extends ShareableResource {
+
+    private final ShareableResource parent;
+
+    private final SubMapping sm;
+
+    /**
+     * Make a new view.
+     *
+     * @param p the parent view
+     * @param m the mapping to restrict the view on
+     */
+    public SubShareableResource(ShareableResource p, SubMapping m) {
+        super(p.getResourceIdentifier(), p.getDefaultCapacity(), p.getDefaultConsumption());
+        this.parent = p;
+        this.sm = m;
+    }
+
+    /**
+     * Get the parent view.
+     *
+     * @return the view this view is restricted from
+     */
+    public ShareableResource getParent() {
+        return parent;
+    }
+
+    @Override
+    public int getConsumption(VM vm) {
+        return parent.getConsumption(vm);
+    }
+
+    @Override
+    public int getCapacity(Node n) {
+        return parent.getCapacity(n);
+    }
+
+    @Override
+    public boolean consumptionDefined(VM vm) {
+        return parent.consumptionDefined(vm);
+    }
+
+    @Override
+    public boolean capacityDefined(Node n) {
+        return parent.capacityDefined(n);
+    }
+
+    @Override
+    public int sumConsumptions(Collection<VM> ids, boolean undef) {
+        return parent.sumConsumptions(ids, undef);
+    }
+
+    @Override
+    public int sumCapacities(Collection<Node> ids, boolean undef) {
+        return parent.sumCapacities(ids, undef);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only the VMs of the sub-mapping are considered.
+     */
+    @Override
+    public void forEachVMId(IntMap.Entry e) {
+        for (Node n : sm.getAllNodes()) {
+            if (!visit(sm.getRunningVMs(n), e) || !visit(sm.getSleepingVMs(n), e)) {
+                return;
+            }
+        }
+        visit(sm.getReadyVMs(), e);
+    }
+
+    private boolean visit(Collection<VM> vms, IntMap.Entry e) {
+        for (VM v : vms) {
+            if (parent.consumptionDefined(v) && !e.entry(v.id(), parent.getConsumption(v))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only the nodes of the sub-mapping are considered.
+     */
+    @Override
+    public void forEachNodeId(IntMap.Entry e) {
+        for (Node n : sm.getAllNodes()) {
+            if (parent.capacityDefined(n) && !e.entry(n.id(), parent.getCapacity(n))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    @Deprecated
+    public Set<VM> getDefinedVMs() {
+        Set<VM> vs = new HashSet<>();
+        forEachVMId((id, v) -> vs.add(new VM(id)) || true);
+        return vs;
+    }
+
+    @Override
+    @Deprecated
+    public Set<Node> getDefinedNodes() {
+        Set<Node> ns = new HashSet<>();
+        forEachNodeId((id, v) -> ns.add(new Node(id)) || true);
+        return ns;
+    }
+
+    /**
+     * Unsupported.
+     */
+    @Override
+    public ShareableResource setConsumption(VM vm, int val) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported.
+     */
+    @Override
+    public ShareableResource setCapacity(Node n, int val) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported.
+     */
+    @Override
+    public void unset(VM vm) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported.
+     */
+    @Override
+    public void unset(Node n) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported.
+     */
+    @Override
+    public boolean substituteVM(VM oldRef, VM newRef) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Copy the view into a standalone {@link ShareableResource}
+     * that only contains the values of the sub-mapping elements.
+     *
+     * @return a mutable view
+     */
+    @Override
+    public ShareableResource copy() {
+        ShareableResource rc = new ShareableResource(getResourceIdentifier(), getDefaultCapacity(), getDefaultConsumption(), parent.isPersistent());
+        forEachNodeId((id, v) -> rc.setCapacity(new Node(id), v) != null);
+        forEachVMId((id, v) -> rc.setConsumption(new VM(id), v) != null);
+        return rc;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(",", String.format("rc:%s:", getResourceIdentifier()), "");
+        forEachNodeId((k, v) -> {
+            joiner.add(String.format("<node %s,%d>", Node.toString(k), v));
+            return true;
+        });
+        StringJoiner vmJoiner = new StringJoiner(",");
+        forEachVMId((k, v) -> {
+            vmJoiner.add(String.format("<VM %s,%d>", VM.toString(k), v));
+            return true;
+        });
+        return String.format("%s%s", joiner, vmJoiner);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SubShareableResource that = (SubShareableResource) o;
+        return parent.equals(that.parent) && sm.getAllNodes().equals(that.sm.getAllNodes());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(parent, sm.getAllNodes());
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.portfolio;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.constraint.ChocoMapper;
+import org.btrplace.scheduler.choco.constraint.mttr.CMinMTTRRandomPlacement;
+import org.btrplace.scheduler.choco.runner.InstanceSolver;
+import org.btrplace.scheduler.choco.runner.SolutionStatistics;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
+
+/**
+ * A solver that runs in parallel multiple variants of the solving process
+ * on a same instance.
+ * <p>
+ * Each variant customises a copy of the parameters, for example to change
+ * the random seed or the placement heuristic. The variants share the best objective
+ * value computed so far so each variant only looks for improving solutions.
+ * As soon as one variant terminates its search, it either proved the optimality of the
+ * shared best solution or that there is no solution, so the other variants are stopped.
+ * <p>
+ * Each variant works on its own copy of the model.
+ * The returned plan is the best plan computed by all the variants.
+ * <p>
+ * The solution listeners of the parameters are not copied into the variants.
+ * They are only notified about the solutions that improve the best solution of the
+ * whole portfolio. The notifications are made one at a time, by the thread of the
+ * variant that computed the solution, so a listener never runs concurrently with itself.
+ *
+ * @author Fabien Hermenier
+ */
+public class Portfolio implements InstanceSolver {
+
+    private List<UnaryOperator<Parameters>> variants;
+
+    private List<PortfolioRunner> runners;
+
+    private SharedBound shared;
+
+    private SolvingStatistics stats;
+
+    /**
+     * Make a new portfolio with one variant per available core.
+     *
+     * @see #defaultVariants(int)
+     */
+    public Portfolio() {
+        this(defaultVariants(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Make a new portfolio.
+     *
+     * @param vs the variants to run. Each variant customises a copy of the solver parameters.
+     */
+    public Portfolio(List<UnaryOperator<Parameters>> vs) {
+        setVariants(vs);
+    }
+
+    /**
+     * Make the default variants.
+     * Variant {@code k} uses the random seed {@code seed + k}.
+     * Variants with an odd rank place the VMs using {@link CMinMTTRRandomPlacement}
+     * while the other rely on the default heuristic of {@link MinMTTR}.
+     *
+     * @param nb the number of variants
+     * @return a list of {@code nb} variants
+     */
+    public static List<UnaryOperator<Parameters>> defaultVariants(int nb) {
+        List<UnaryOperator<Parameters>> l = new ArrayList<>(nb);
+        for (int k = 0; k < nb; k++) {
+            final int rank = k;
+            l.add(ps -> {
+                ps.setRandomSeed(ps.getRandomSeed() + rank);
+                if (rank % 2 == 1) {
+                    randomPlacement(ps);
+                }
+                return ps;
+            });
+        }
+        return l;
+    }
+
+    /**
+     * Make the solver implementation of {@link MinMTTR} place the VMs randomly.
+     *
+     * @param ps the parameters to customise
+     * @return {@code ps}
+     */
+    public static Parameters randomPlacement(Parameters ps) {
+        ChocoMapper m = new ChocoMapper(ps.getMapper());
+        m.mapConstraint(MinMTTR.class, CMinMTTRRandomPlacement.class);
+        return ps.setMapper(m);
+    }
+
+    /**
+     * Get the variants.
+     *
+     * @return a non-empty list
+     */
+    public List<UnaryOperator<Parameters>> getVariants() {
+        return Collections.unmodifiableList(variants);
+    }
+
+    /**
+     * Set the variants to run.
+     *
+     * @param vs a non-empty list of variants
+     */
+    public void setVariants(List<UnaryOperator<Parameters>> vs) {
+        if (vs.isEmpty()) {
+            throw new IllegalArgumentException("At least one variant is expected");
+        }
+        variants = new ArrayList<>(vs);
+    }
+
+    @Override
+    public ReconfigurationPlan solve(Parameters ps, Instance i) throws SchedulerException {
+        shared = new SharedBound();
+        stats = null;
+        runners = new ArrayList<>(variants.size());
+        ExecutorService exe = Executors.newFixedThreadPool(variants.size());
+        CompletionService<SolvingStatistics> completionService = new ExecutorCompletionService<>(exe);
+        for (UnaryOperator<Parameters> v : variants) {
+            Instance copy = new Instance(i.getModel().copy(), new ArrayList<>(i.getSatConstraints()), i.getOptConstraint());
+            Parameters vps = v.apply(new DefaultParameters(ps).clearSolutionListeners());
+            PortfolioRunner r = new PortfolioRunner(vps, copy, shared, ps.solutionListeners());
+            runners.add(r);
+            completionService.submit(r);
+        }
+
+        List<SolvingStatistics> results = new ArrayList<>(variants.size());
+        SchedulerException error = null;
+        try {
+            for (int x = 0; x < variants.size(); x++) {
+                try {
+                    SolvingStatistics st = completionService.take().get();
+                    results.add(st);
+                    if (st.completed()) {
+                        //Optimality or infeasibility proven
+                        stop();
+                    }
+                } catch (ExecutionException ex) {
+                    //A variant stopped before computing a solution is not an error
+                    if (error == null && !shared.isStopped()) {
+                        error = ex.getCause() instanceof SchedulerException ? (SchedulerException) ex.getCause()
+                                : new SchedulerException(i.getModel(), ex.getMessage(), ex);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            stop();
+            Thread.currentThread().interrupt();
+            throw new SchedulerException(i.getModel(), e.getMessage(), e);
+        } finally {
+            exe.shutdown();
+        }
+        stats = best(results);
+        if (stats == null || stats.lastSolution() == null) {
+            if (error != null) {
+                throw error;
+            }
+            return null;
+        }
+        return stats.lastSolution();
+    }
+
+    /**
+     * Pick the statistics of the variant having the best solution.
+     * Without solution, the statistics of the first variant that terminated.
+     */
+    private SolvingStatistics best(List<SolvingStatistics> results) {
+        SolvingStatistics best = null;
+        int bestValue = 0;
+        for (SolvingStatistics st : results) {
+            List<SolutionStatistics> sols = st.getSolutions();
+            if (sols.isEmpty()) {
+                if (best == null) {
+                    best = st;
+                }
+                continue;
+            }
+            SolutionStatistics last = sols.get(sols.size() - 1);
+            int v = last.hasObjective() ? last.objective() : 0;
+            if (best == null || best.getSolutions().isEmpty() || shared.isBetter(v, bestValue)) {
+                best = st;
+                bestValue = v;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the statistics of the variant that computed the returned plan.
+     *
+     * @return some statistics. {@code null} if no instance was solved
+     */
+    @Override
+    public SolvingStatistics getStatistics() {
+        return stats;
+    }
+
+    @Override
+    public void stop() {
+        if (shared != null) {
+            shared.stop();
+        }
+        if (runners != null) {
+            for (PortfolioRunner r : runners) {
+                r.stop();
+            }
+        }
+    }
+}
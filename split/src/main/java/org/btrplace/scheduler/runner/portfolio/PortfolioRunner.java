@@ -0,0 +1,67 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.portfolio;
+
+import org.btrplace.model.Instance;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.chocosolver.solver.ResolutionPolicy;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.objective.IObjectiveManager;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A runner of a portfolio.
+ * It publishes the objective value of its solutions and
+ * restricts its search using the best value published by the other runners.
+ * The portfolio listeners are only notified about the improving solutions.
+ *
+ * @author Fabien Hermenier
+ */
+class PortfolioRunner extends InstanceSolverRunner {
+
+    private final SharedBound shared;
+
+    /**
+     * Make a new runner.
+     *
+     * @param ps        the parameters for the solving process
+     * @param i         the instance to solve
+     * @param sh        the state shared among the runners
+     * @param listeners the listeners to notify about the improving solutions
+     */
+    PortfolioRunner(Parameters ps, Instance i, SharedBound sh, List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> listeners) {
+        super(publishing(ps, sh, listeners), i);
+        shared = sh;
+    }
+
+    private static Parameters publishing(Parameters ps, SharedBound sh, List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> listeners) {
+        return ps.addSolutionListener((rp, plan) -> {
+            IntVar o = rp.getObjective();
+            ResolutionPolicy policy = o == null ? ResolutionPolicy.SATISFACTION : rp.getResolutionPolicy();
+            sh.offer(policy, o == null ? 0 : o.getValue(), () -> listeners.forEach(l -> l.accept(rp, plan)));
+        });
+    }
+
+    @Override
+    protected void beforeSolve(ReconfigurationProblem p) {
+        Solver s = p.getSolver();
+        //Evaluated by the solving thread at each search node, so the cut is posted safely.
+        s.addStopCriterion(() -> {
+            IObjectiveManager<?> om = s.getObjectiveManager();
+            if (om.isOptimization() && shared.hasBound()) {
+                om.updateBestSolution(shared.best());
+            }
+            return shared.isStopped();
+        });
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.portfolio;
+
+import org.chocosolver.solver.ResolutionPolicy;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The state shared by the runners of a portfolio:
+ * the best objective value computed so far and a stop flag.
+ *
+ * @author Fabien Hermenier
+ */
+final class SharedBound {
+
+    private final AtomicBoolean stop;
+
+    private boolean hasBound;
+
+    private boolean hasSolution;
+
+    private int best;
+
+    private ResolutionPolicy policy;
+
+    /**
+     * New shared state, with no bound.
+     */
+    SharedBound() {
+        stop = new AtomicBoolean(false);
+        hasBound = false;
+        policy = ResolutionPolicy.SATISFACTION;
+    }
+
+    /**
+     * Offer a new solution.
+     * The objective value is kept if it improves the current bound.
+     * Without objective, only the first solution is improving.
+     *
+     * @param p         the optimisation policy
+     * @param v         the objective value of the solution. Ignored without objective
+     * @param onImprove the action to run if the solution is improving.
+     *                  It is run while holding the lock of the shared state, so
+     *                  the actions are never run concurrently and follow the improvements
+     * @return {@code true} iff the solution is improving
+     */
+    synchronized boolean offer(ResolutionPolicy p, int v, Runnable onImprove) {
+        if (p == ResolutionPolicy.SATISFACTION) {
+            if (hasSolution) {
+                return false;
+            }
+        } else if (!hasBound || (p == ResolutionPolicy.MINIMIZE ? v < best : v > best)) {
+            policy = p;
+            best = v;
+            hasBound = true;
+        } else {
+            return false;
+        }
+        hasSolution = true;
+        onImprove.run();
+        return true;
+    }
+
+    /**
+     * Check if a value is better than another one wrt. the current policy.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @return {@code true} iff {@code a} is strictly better than {@code b}
+     */
+    synchronized boolean isBetter(int a, int b) {
+        return policy == ResolutionPolicy.MAXIMIZE ? a > b : a < b;
+    }
+
+    /**
+     * Check if a bound has been offered.
+     *
+     * @return {@code true} iff a bound exists
+     */
+    synchronized boolean hasBound() {
+        return hasBound;
+    }
+
+    /**
+     * Get the best offered bound.
+     *
+     * @return the bound. Meaningless if {@link #hasBound()} is {@code false}
+     */
+    synchronized int best() {
+        return best;
+    }
+
+    /**
+     * Ask the runners to stop.
+     */
+    void stop() {
+        stop.set(true);
+    }
+
+    /**
+     * Check if the runners must stop.
+     *
+     * @return {@code true} to stop
+     */
+    boolean isStopped() {
+        return stop.get();
+    }
+}
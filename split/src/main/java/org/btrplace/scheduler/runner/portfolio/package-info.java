@@ -0,0 +1,12 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+/**
+ * A package dedicated to a solver that runs in parallel multiple
+ * variants of the solving process on a same instance. The variants
+ * share their best objective value and the first to terminate stops the others.
+ */
+package org.btrplace.scheduler.runner.portfolio;
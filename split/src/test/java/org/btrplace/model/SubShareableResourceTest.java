@@ -0,0 +1,97 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model;
+
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.scheduler.runner.disjoint.model.SubModel;
+import org.btrplace.scheduler.runner.disjoint.model.SubShareableResource;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link SubShareableResource}.
+ *
+ * @author Fabien Hermenier
+ */
+public class SubShareableResourceTest {
+
+    @Test
+    public void testScopedView() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        VM v0 = mo.newVM();
+        VM v1 = mo.newVM();
+        VM v2 = mo.newVM();
+        mo.getMapping().on(n0, n1).run(n0, v0).run(n1, v1);
+        ShareableResource cpu = new ShareableResource("cpu", 8, 1);
+        cpu.setCapacity(n0, 4).setCapacity(n1, 6);
+        cpu.setConsumption(v0, 2).setConsumption(v1, 3).setConsumption(v2, 5);
+        mo.attach(cpu);
+
+        SubModel sub = new SubModel(mo, new SynchronizedElementBuilder(mo), Collections.singleton(n0), new HashSet<>());
+        SubShareableResource rc = (SubShareableResource) ShareableResource.get(sub, "cpu");
+        Assert.assertSame(rc.getParent(), cpu);
+        Assert.assertSame(sub.getView(cpu.getIdentifier()), rc);
+
+        //Lookups are not restricted
+        Assert.assertEquals(rc.getCapacity(n1), 6);
+        Assert.assertEquals(rc.getConsumption(v1), 3);
+        Assert.assertEquals(rc.sumConsumptions(Arrays.asList(v0, v1), true), 5);
+
+        //Iterations are
+        Assert.assertEquals(rc.getDefinedNodes(), Collections.singleton(n0));
+        Assert.assertEquals(rc.getDefinedVMs(), Collections.singleton(v0));
+        sub.getMapping().addReadyVM(v2);
+        Assert.assertEquals(rc.getDefinedVMs(), new HashSet<>(Arrays.asList(v0, v2)));
+
+        ShareableResource cpy = rc.copy();
+        Assert.assertEquals(cpy.getClass(), ShareableResource.class);
+        Assert.assertEquals(cpy.getCapacity(n0), 4);
+        Assert.assertEquals(cpy.getConsumption(v2), 5);
+        Assert.assertFalse(cpy.capacityDefined(n1));
+        Assert.assertFalse(cpy.consumptionDefined(v1));
+        Assert.assertEquals(rc.toString(), cpy.toString());
+
+        //The copy of the sub-model only holds the scoped values
+        Model mCpy = sub.copy();
+        Set<Node> ns = ShareableResource.get(mCpy, "cpu").getDefinedNodes();
+        Assert.assertEquals(ns, Collections.singleton(n0));
+    }
+
+    @Test(expectedExceptions = {UnsupportedOperationException.class})
+    public void testReadOnly() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        mo.getMapping().on(n0);
+        mo.attach(new ShareableResource("cpu"));
+        SubModel sub = new SubModel(mo, new SynchronizedElementBuilder(mo), Collections.singleton(n0));
+        ShareableResource.get(sub, "cpu").setCapacity(n0, 3);
+    }
+
+    @Test
+    public void testRefresh() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        mo.getMapping().on(n0);
+        ShareableResource cpu = new ShareableResource("cpu");
+        mo.attach(cpu);
+        SubModel sub = new SubModel(mo, new SynchronizedElementBuilder(mo), Collections.singleton(n0));
+        Assert.assertEquals(sub.getViews().size(), 1);
+        Assert.assertEquals(sub.getViews(), sub.getViews());
+        mo.detach(cpu);
+        Assert.assertNull(sub.getView(cpu.getIdentifier()));
+        ShareableResource cpu2 = new ShareableResource("cpu", 5, 5);
+        mo.attach(cpu2);
+        Assert.assertSame(((SubShareableResource) ShareableResource.get(sub, "cpu")).getParent(), cpu2);
+    }
+}
@@ -8,21 +8,33 @@ package org.btrplace.scheduler.runner.disjoint;
 
 import org.btrplace.model.DefaultModel;
 import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Fence;
 import org.btrplace.model.constraint.MaxOnline;
 import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Online;
 import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.MigrateVM;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
 import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.duration.DurationCache;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -116,4 +128,336 @@ public class FixedNodeSetsPartitioningTest {
         FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(parts);
         f.split(new DefaultParameters(), orig);
     }
+
+    /**
+     * The constraints split in parallel are the same, in the same order,
+     * as the ones split sequentially.
+     */
+    @Test
+    public void testParallelSplit() throws SchedulerException {
+        List<List<Instance>> res = new ArrayList<>();
+        for (boolean parallel : new boolean[]{false, true}) {
+            Instance orig = makeInstance();
+            Mapping m = orig.getModel().getMapping();
+            //Enough constraints for multiple tasks
+            for (VM v : m.getAllVMs()) {
+                for (Node n : m.getAllNodes()) {
+                    orig.getSatConstraints().add(new Ban(v, Collections.singleton(n)));
+                }
+            }
+            FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(splitIn(m.getAllNodes(), 3));
+            Assert.assertFalse(f.isParallelSplit());
+            f.setParallelSplit(parallel);
+            Assert.assertEquals(f.isParallelSplit(), parallel);
+            res.add(f.split(new DefaultParameters(), orig));
+        }
+        Assert.assertEquals(res.get(1).size(), res.get(0).size());
+        for (int p = 0; p < res.get(0).size(); p++) {
+            Assert.assertEquals(new ArrayList<>(res.get(1).get(p).getSatConstraints()),
+                    new ArrayList<>(res.get(0).get(p).getSatConstraints()));
+        }
+
+        Instance orig = makeInstance();
+        for (VM v : orig.getModel().getMapping().getAllVMs()) {
+            for (Node n : orig.getModel().getMapping().getAllNodes()) {
+                orig.getSatConstraints().add(new Ban(v, Collections.singleton(n)));
+            }
+        }
+        orig.getSatConstraints().add(new MaxOnline(orig.getModel().getMapping().getAllNodes(), 5));
+        FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(splitIn(orig.getModel().getMapping().getAllNodes(), 3));
+        f.setParallelSplit(true);
+        Assert.expectThrows(SchedulerException.class, () -> f.split(new DefaultParameters(), orig));
+    }
+
+    /**
+     * 3 partitions of one node each. The first two ones have no solution
+     * but they can be solved once merged.
+     */
+    private static Instance makeFailingInstance() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM vm0 = mo.newVM();
+        VM vm1 = mo.newVM();
+        mo.getMapping().on(n0, n1, n2)
+                .run(n0, vm0)
+                .run(n1, vm1)
+                .run(n2, mo.newVM());
+        //The VMs must leave their node, so they can only be swapped once the partitions are merged
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(mo.getMapping().getAllVMs()));
+        cstrs.add(new Ban(vm0, Collections.singleton(n0)));
+        cstrs.add(new Ban(vm1, Collections.singleton(n1)));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    private static List<Collection<Node>> singletons() {
+        List<Collection<Node>> parts = new ArrayList<>();
+        for (int x = 0; x < 3; x++) {
+            parts.add(Collections.singleton(new Node(x)));
+        }
+        return parts;
+    }
+
+    @Test
+    public void testStreamingAndRetry() throws SchedulerException {
+        Instance i = makeFailingInstance();
+        FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(singletons());
+        List<Instance> notified = new ArrayList<>();
+        f.addPartitionListener((p, plan) -> {
+            Assert.assertNotNull(plan);
+            notified.add(p);
+        });
+        Assert.assertEquals(f.getPartitionListeners().size(), 1);
+        Assert.assertFalse(f.isRetryFailures());
+
+        DefaultParameters ps = new DefaultParameters();
+        Assert.assertNull(f.solve(ps, i));
+        //Only the partition with n2 is solved
+        Assert.assertEquals(notified.size(), 1);
+        Assert.assertTrue(notified.get(0).getModel().contains(new Node(2)));
+
+        notified.clear();
+        f.setRetryFailures(true);
+        Assert.assertTrue(f.isRetryFailures());
+        ReconfigurationPlan plan = f.solve(ps, i);
+        Assert.assertNotNull(plan);
+        //The partition with n2 then the merged partition
+        Assert.assertEquals(notified.size(), 2);
+        Assert.assertEquals(notified.get(1).getModel().getMapping().getAllNodes(),
+                new HashSet<>(Arrays.asList(new Node(0), new Node(1))));
+        Assert.assertEquals(f.getStatistics().results().size(), 4);
+
+        Mapping res = plan.getResult().getMapping();
+        Assert.assertEquals(res.getVMLocation(new VM(0)), new Node(1));
+        Assert.assertEquals(res.getVMLocation(new VM(1)), new Node(0));
+    }
+
+    /**
+     * A single partition has no solution and its search completed.
+     * There is nothing to merge it with, so it is not solved again.
+     */
+    @Test
+    public void testRetrySingleFailure() throws SchedulerException {
+        Instance i = makeFailingInstance();
+        i.getSatConstraints().remove(new Ban(new VM(1), Collections.singleton(new Node(1))));
+        FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(singletons());
+        List<Instance> notified = new ArrayList<>();
+        f.addPartitionListener((p, plan) -> notified.add(p));
+        f.setRetryFailures(true);
+        DefaultParameters ps = new DefaultParameters();
+        ps.setTimeLimit(10);
+        Assert.assertNull(f.solve(ps, i));
+        Assert.assertEquals(notified.size(), 2);
+        Assert.assertEquals(f.getStatistics().results().size(), 3);
+        for (SolvingStatistics st : f.getStatistics().results()) {
+            if (st.lastSolution() == null) {
+                Assert.assertTrue(st.completed());
+                Assert.assertTrue(st.getInstance().getModel().contains(new Node(0)));
+            }
+        }
+    }
+
+    /**
+     * The partitions are solved concurrently with a shared duration cache.
+     * Each migration must last the duration set in the attributes.
+     */
+    @Test
+    public void testDurationCache() throws SchedulerException {
+        Model mo = new DefaultModel();
+        List<Collection<Node>> parts = new ArrayList<>();
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            Node n0 = mo.newNode();
+            Node n1 = mo.newNode();
+            mo.getMapping().on(n0, n1);
+            parts.add(Arrays.asList(n0, n1));
+            for (int x = 0; x < 3; x++) {
+                VM v = mo.newVM();
+                mo.getMapping().run(n0, v);
+                mo.getAttributes().put(v, "migrate", v.id() + 1);
+                cstrs.add(new Fence(v, Collections.singleton(n1)));
+            }
+        }
+        FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(parts);
+        f.setWorkersCount(4);
+        DefaultParameters ps = new DefaultParameters();
+        DurationCache c = ps.getDurationEvaluators().doCache(true).getCache();
+        for (int r = 0; r < 3; r++) {
+            ReconfigurationPlan plan = f.solve(ps, new Instance(mo, cstrs, new MinMTTR()));
+            Assert.assertNotNull(plan);
+            Assert.assertEquals(plan.getSize(), 24);
+            for (Action a : plan) {
+                VM v = ((MigrateVM) a).getVM();
+                Assert.assertEquals(a.getEnd() - a.getStart(), v.id() + 1);
+            }
+        }
+        //The partitions share the durations
+        Assert.assertTrue(c.getHits() > 0);
+
+        //Only the modified VM is evaluated again
+        mo.getAttributes().put(new VM(0), "migrate", 10);
+        ReconfigurationPlan plan = f.solve(ps, new Instance(mo, cstrs, new MinMTTR()));
+        for (Action a : plan) {
+            if (((MigrateVM) a).getVM().id() == 0) {
+                Assert.assertEquals(a.getEnd() - a.getStart(), 10);
+            }
+        }
+    }
+
+    /**
+     * The VM on n0 must leave its node. The failed partition
+     * is repaired with the least loaded solved partition, the one with n3.
+     */
+    @Test
+    public void testRepair() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        VM vm0 = mo.newVM();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        mo.getMapping().on(n0, n1, n2, n3).run(n0, vm0).run(n1, vm1).run(n2, vm2);
+        ShareableResource cpu = new ShareableResource("cpu", 4, 2);
+        cpu.setConsumption(vm2, 4);
+        mo.attach(cpu);
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(mo.getMapping().getAllVMs()));
+        cstrs.add(new Ban(vm0, Collections.singleton(n0)));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+
+        List<Collection<Node>> parts = new ArrayList<>();
+        for (Node n : Arrays.asList(n0, n1, n2, n3)) {
+            parts.add(Collections.singleton(n));
+        }
+        FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(parts);
+        Assert.assertEquals(f.getRepairNeighbours(), 0);
+        DefaultParameters ps = new DefaultParameters();
+        Assert.assertNull(f.solve(ps, i));
+
+        List<Instance> notified = new ArrayList<>();
+        f.addPartitionListener((p, plan) -> notified.add(p));
+        f.setRepairNeighbours(1);
+        Assert.assertEquals(f.getRepairNeighbours(), 1);
+        ReconfigurationPlan plan = f.solve(ps, i);
+        Assert.assertNotNull(plan);
+        //The 3 solved partitions then the union
+        Assert.assertEquals(notified.size(), 4);
+        Assert.assertEquals(notified.get(3).getModel().getMapping().getAllNodes(),
+                new HashSet<>(Arrays.asList(n0, n3)));
+        Assert.assertEquals(f.getStatistics().results().size(), 5);
+        Mapping res = plan.getResult().getMapping();
+        Assert.assertEquals(res.getVMLocation(vm0), n3);
+        Assert.assertEquals(res.getVMLocation(vm1), n1);
+        Assert.assertEquals(res.getVMLocation(vm2), n2);
+        //The neighbour is pinned
+        Assert.assertTrue(notified.get(3).getSatConstraints().containsAll(Online.newOnline(n3)));
+
+        //The union has no solution, the partitions keep their results
+        notified.clear();
+        cstrs.add(new Ban(vm0, Collections.singleton(n3)));
+        Assert.assertNull(f.solve(ps, new Instance(mo, cstrs, new MinMTTR())));
+        Assert.assertEquals(notified.size(), 3);
+        Assert.assertEquals(f.getStatistics().results().size(), 5);
+    }
+
+    /**
+     * The only solved partition migrates vm1 from n1 to n2.
+     * The union starts from that placement, and vm1 keeps its CPU on n1
+     * until its migration is over.
+     */
+    @Test
+    public void testRepairWithBusyNeighbour() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM vm0 = mo.newVM();
+        VM vm1 = mo.newVM();
+        mo.getMapping().on(n0, n1, n2).run(n0, vm0).run(n1, vm1);
+        ShareableResource cpu = new ShareableResource("cpu", 4, 2);
+        cpu.setCapacity(n2, 2);
+        mo.attach(cpu);
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(mo.getMapping().getAllVMs()));
+        cstrs.add(new Ban(vm0, Collections.singleton(n0)));
+        cstrs.add(new Ban(vm1, Collections.singleton(n1)));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+
+        FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(Arrays.asList(
+                Collections.singleton(n0), Arrays.asList(n1, n2)));
+        List<ReconfigurationPlan> notified = new ArrayList<>();
+        f.addPartitionListener((p, plan) -> notified.add(plan));
+        f.setRepairNeighbours(1);
+        DefaultParameters ps = new DefaultParameters();
+        ReconfigurationPlan plan = f.solve(ps, i);
+        Assert.assertNotNull(plan);
+        Assert.assertEquals(notified.size(), 2);
+        //The union only moves vm0, the sub-plan of the neighbour stays as notified
+        Assert.assertEquals(notified.get(0).getSize(), 1);
+        MigrateVM m = (MigrateVM) notified.get(0).iterator().next();
+        Assert.assertEquals(m.getVM(), vm1);
+        Assert.assertEquals(m.getDestinationNode(), n2);
+        Assert.assertEquals(notified.get(1).getSize(), 1);
+        Assert.assertEquals(plan.getSize(), 2);
+        Assert.assertEquals(f.getStatistics().results().size(), 3);
+        Mapping res = plan.getResult().getMapping();
+        Assert.assertEquals(res.getVMLocation(vm0), n1);
+        Assert.assertEquals(res.getVMLocation(vm1), n2);
+
+        //vm0 does not fit on n1 while vm1 is leaving
+        notified.clear();
+        cpu.setConsumption(vm0, 3);
+        Assert.assertNull(f.solve(ps, i));
+        Assert.assertEquals(notified.size(), 1);
+        Assert.assertEquals(f.getStatistics().results().size(), 3);
+    }
+
+    /**
+     * The first partition has a single free CPU left.
+     * The VMs to launch go to the second partition unless they
+     * fit into the first one or can only run there.
+     */
+    @Test
+    public void testCapacityAwareDispatch() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        VM r0 = mo.newVM();
+        VM r1 = mo.newVM();
+        mo.getMapping().on(n0, n1, n2, n3).run(n0, r0).run(n1, r1);
+        ShareableResource cpu = new ShareableResource("cpu", 4, 2);
+        cpu.setConsumption(r0, 4).setConsumption(r1, 3);
+        mo.attach(cpu);
+        List<VM> toLaunch = new ArrayList<>();
+        for (int x = 0; x < 6; x++) {
+            VM v = mo.newVM();
+            mo.getMapping().addReadyVM(v);
+            toLaunch.add(v);
+        }
+        VM fenced = toLaunch.get(4);
+        VM banned = toLaunch.get(5);
+        cpu.setConsumption(fenced, 1).setConsumption(banned, 0);
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(toLaunch));
+        cstrs.add(new Fence(fenced, new HashSet<>(Arrays.asList(n1, n2))));
+        cstrs.add(new Ban(banned, new HashSet<>(Arrays.asList(n2, n3))));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+
+        List<Collection<Node>> parts = Arrays.asList(new HashSet<>(Arrays.asList(n0, n1)), new HashSet<>(Arrays.asList(n2, n3)));
+        FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(parts);
+        Assert.assertFalse(f.capacityAwareDispatch());
+        f.capacityAwareDispatch(true);
+        Assert.assertTrue(f.capacityAwareDispatch());
+        List<Instance> subs = f.split(new DefaultParameters(), new Instance(mo.copy(), cstrs, new MinMTTR()));
+        Assert.assertEquals(subs.get(0).getModel().getMapping().getReadyVMs(), new HashSet<>(Arrays.asList(fenced, banned)));
+        Assert.assertEquals(subs.get(1).getModel().getMapping().getReadyVMs(), new HashSet<>(toLaunch.subList(0, 4)));
+
+        ReconfigurationPlan plan = f.solve(new DefaultParameters(), i);
+        Assert.assertNotNull(plan);
+        Mapping res = plan.getResult().getMapping();
+        Assert.assertEquals(res.getVMLocation(fenced), n1);
+        Assert.assertTrue(res.isRunning(banned));
+    }
 }
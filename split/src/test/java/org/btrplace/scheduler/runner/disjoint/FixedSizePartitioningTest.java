@@ -8,11 +8,14 @@ package org.btrplace.scheduler.runner.disjoint;
 
 import org.btrplace.model.DefaultModel;
 import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
 import org.btrplace.model.constraint.MinMTTR;
 import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.ChocoScheduler;
@@ -22,7 +25,11 @@ import org.btrplace.scheduler.choco.Parameters;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Unit tests for {@link FixedSizePartitioning}.
@@ -45,6 +52,7 @@ public class FixedSizePartitioningTest {
         f.setSize(300);
         Assert.assertEquals(f.getSize(), 300);
         Assert.assertEquals(f.randomPickUp(), false);
+        Assert.assertEquals(f.balancedPickUp(), false);
     }
 
     private static Instance makeInstance() {
@@ -106,6 +114,69 @@ public class FixedSizePartitioningTest {
 
     }
 
+    @Test
+    public void testBalancedSplit() throws SchedulerException {
+        Instance origin = makeInstance();
+        Mapping map = origin.getModel().getMapping();
+        //Pairs of nodes far from each other in the linear order
+        List<Spread> spreads = new ArrayList<>();
+        for (int k = 0; k < 6; k++) {
+            VM v1 = map.getRunningVMs(new Node(k)).iterator().next();
+            VM v2 = map.getRunningVMs(new Node(12 - k)).iterator().next();
+            spreads.add(new Spread(new HashSet<>(Arrays.asList(v1, v2))));
+        }
+        origin.getSatConstraints().addAll(spreads);
+
+        FixedSizePartitioning f = new FixedSizePartitioning(5);
+        f.balancedPickUp(true);
+        Assert.assertEquals(f.balancedPickUp(), true);
+        List<Instance> parts = f.split(params, origin);
+        Assert.assertEquals(parts.size(), 3);
+        int nbNodes = 0;
+        for (Instance p : parts) {
+            int nb = p.getModel().getMapping().getAllNodes().size();
+            //5, 4 and 4 nodes
+            Assert.assertTrue(nb == 4 || nb == 5);
+            Assert.assertEquals(p.getModel().getMapping().getRunningVMs().size(), 3 * nb);
+            nbNodes += nb;
+        }
+        Assert.assertEquals(nbNodes, 13);
+        //No spread is cut
+        for (Spread sp : spreads) {
+            Set<Node> hosts = new HashSet<>();
+            sp.getInvolvedVMs().forEach(v -> hosts.add(map.getVMLocation(v)));
+            Assert.assertTrue(parts.stream().anyMatch(p -> p.getModel().getMapping().getAllNodes().containsAll(hosts)), sp.toString());
+        }
+
+        ReconfigurationPlan plan = f.solve(params, origin);
+        Assert.assertEquals(plan.getSize(), 5);
+    }
+
+    @Test
+    public void testBalancedLoad() throws SchedulerException {
+        Model mo = new DefaultModel();
+        ShareableResource cpu = new ShareableResource("cpu", 1, 1);
+        mo.attach(cpu);
+        //4 nodes, the 2 first ones host heavy VMs
+        for (int i = 0; i < 4; i++) {
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            VM v = mo.newVM();
+            mo.getMapping().addRunningVM(v, n);
+            cpu.setConsumption(v, i < 2 ? 10 : 1);
+        }
+        Instance i = new Instance(mo, Running.newRunning(mo.getMapping().getAllVMs()), new MinMTTR());
+        FixedSizePartitioning f = new FixedSizePartitioning(2);
+        f.balancedPickUp(true);
+        List<Instance> parts = f.split(params, i);
+        Assert.assertEquals(parts.size(), 2);
+        //Each partition gets one heavy VM
+        for (Instance p : parts) {
+            Assert.assertTrue(p.getModel().getMapping().getAllNodes().stream()
+                    .anyMatch(n -> n.id() < 2), p.getModel().getMapping().toString());
+        }
+    }
+
     private void checkCorrectness(List<Instance> partitions) {
         //Number of elements are correct
         Assert.assertEquals(partitions.size(), 3);
@@ -26,6 +26,7 @@ import org.testng.annotations.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -46,6 +47,48 @@ public class StaticPartitioningTest {
         Assert.assertEquals(st.getWorkersCount(), Runtime.getRuntime().availableProcessors());
         st.setWorkersCount(10);
         Assert.assertEquals(st.getWorkersCount(), 10);
+        Assert.assertFalse(st.isWorkStealing());
+        st.setWorkStealing(true);
+        Assert.assertTrue(st.isWorkStealing());
+    }
+
+    @Test
+    public void testBiggestPartitionFirst() throws SchedulerException {
+        SynchronizedElementBuilder eb = new SynchronizedElementBuilder(new DefaultElementBuilder());
+        Model origin = new DefaultModel(eb);
+        Node n1 = origin.newNode();
+        Node n2 = origin.newNode();
+        Node n3 = origin.newNode();
+        VM vm1 = origin.newVM();
+        VM vm2 = origin.newVM();
+        VM vm3 = origin.newVM();
+        origin.getMapping().on(n1, n2, n3).ready(vm1, vm2, vm3);
+
+        Model s1 = new SubModel(origin, eb, Collections.singletonList(n1), Collections.singleton(vm1));
+        Model s2 = new SubModel(origin, eb, Arrays.asList(n2, n3), new HashSet<>(Arrays.asList(vm2, vm3)));
+        final Instance i1 = new Instance(s1, Running.newRunning(Collections.singletonList(vm1)), new MinMTTR());
+        final Instance i2 = new Instance(s2, Running.newRunning(Arrays.asList(vm2, vm3)), new MinMTTR());
+
+        StaticPartitioning st = new StaticPartitioning() {
+            @Override
+            public List<Instance> split(Parameters ps, Instance i) throws SchedulerException {
+                return Arrays.asList(i1, i2);
+            }
+        };
+        Assert.assertEquals(st.estimateSize(i1), 1);
+        Assert.assertEquals(st.estimateSize(i2), 4);
+        st.setWorkersCount(1);
+        ReconfigurationPlan plan = st.solve(new DefaultChocoScheduler(), new Instance(origin, new MinMTTR()));
+        Assert.assertNotNull(plan);
+        //A single worker, so the biggest partition is solved first
+        StaticPartitioningStatistics stats = st.getStatistics();
+        Assert.assertSame(stats.results().get(0).getInstance(), i2);
+        Assert.assertSame(stats.results().get(1).getInstance(), i1);
+        Assert.assertEquals(stats.getQueueWaits().size(), 2);
+        //The second partition is not picked before the first one
+        Assert.assertTrue(stats.results().get(1).getStart() >= stats.results().get(0).getStart());
+        Assert.assertTrue(stats.getQueueWaits().get(0) >= 0 && stats.getQueueWaits().get(1) >= 0);
+        Assert.assertEquals(stats.getMaxQueueWait(), Math.max(stats.getQueueWaits().get(0), stats.getQueueWaits().get(1)));
     }
 
     @Test
@@ -89,6 +132,16 @@ public class StaticPartitioningTest {
         Model dst = plan.getResult();
         Assert.assertEquals(dst.getMapping().getOnlineNodes().size(), 2);
         Assert.assertEquals(dst.getMapping().getRunningVMs().size(), 2);
+        Assert.assertEquals(st.getStatistics().getQueueWaits().size(), 2);
+
+        //Same with a work-stealing pool
+        st.setWorkStealing(true);
+        plan = st.solve(p, i0);
+        Assert.assertNotNull(plan);
+        Assert.assertEquals(plan.getResult().getMapping().getRunningVMs().size(), 2);
+        for (long w : st.getStatistics().getQueueWaits()) {
+            Assert.assertTrue(w >= 0);
+        }
 
         //Now, there is no solution for i2. the resulting plan should be null
         i2.getSatConstraints().addAll(Offline.newOffline(n2));
@@ -0,0 +1,136 @@
+/*
+ * Copyright  2021 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.portfolio;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.ChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.constraint.mttr.CMinMTTRRandomPlacement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link Portfolio}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PortfolioTest {
+
+    private static Instance makeInstance() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 10, 1);
+        mo.attach(cpu);
+        for (int i = 0; i < 4; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            for (int j = 0; j < 2; j++) {
+                map.addRunningVM(mo.newVM(), n);
+            }
+        }
+        for (int i = 0; i < 2; i++) {
+            map.addReadyVM(mo.newVM());
+        }
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(map.getAllVMs()));
+        cstrs.add(new Offline(new Node(0)));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    @Test
+    public void testDefaultVariants() {
+        Portfolio p = new Portfolio();
+        Assert.assertEquals(p.getVariants().size(), Runtime.getRuntime().availableProcessors());
+        List<?> vs = Portfolio.defaultVariants(3);
+        Assert.assertEquals(vs.size(), 3);
+
+        Parameters ps = new DefaultParameters().setRandomSeed(7);
+        Portfolio.defaultVariants(3).get(1).apply(ps);
+        Assert.assertEquals(ps.getRandomSeed(), 8);
+        Assert.assertTrue(ps.getMapper().get(new MinMTTR()) instanceof CMinMTTRRandomPlacement);
+        //The original mapper is left untouched
+        Assert.assertFalse(new DefaultParameters().getMapper().get(new MinMTTR()) instanceof CMinMTTRRandomPlacement);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testNoVariants() {
+        new Portfolio(Collections.emptyList());
+    }
+
+    @Test
+    public void testSolve() throws SchedulerException {
+        Instance i = makeInstance();
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(new Portfolio(Portfolio.defaultVariants(4)));
+        s.doOptimize(true);
+        s.setTimeLimit(10);
+        ReconfigurationPlan plan = s.solve(i);
+        Assert.assertNotNull(plan);
+        Model res = plan.getResult();
+        Assert.assertNotNull(res);
+        Assert.assertEquals(res.getMapping().getRunningVMs().size(), 10);
+        Assert.assertTrue(res.getMapping().isOffline(new Node(0)));
+        Assert.assertNotNull(s.getStatistics());
+        Assert.assertFalse(s.getStatistics().getSolutions().isEmpty());
+        //The original model is left untouched
+        Assert.assertEquals(i.getModel().getMapping().getReadyVMs().size(), 2);
+    }
+
+    @Test
+    public void testListeners() throws SchedulerException {
+        Instance i = makeInstance();
+        DefaultParameters ps = new DefaultParameters();
+        ps.doOptimize(true).setTimeLimit(10);
+        AtomicInteger running = new AtomicInteger();
+        List<Integer> values = new ArrayList<>();
+        ps.addSolutionListener((rp, plan) -> {
+            //Never called concurrently
+            Assert.assertEquals(running.incrementAndGet(), 1);
+            values.add(rp.getObjective().getValue());
+            running.decrementAndGet();
+        });
+        Portfolio p = new Portfolio(Portfolio.defaultVariants(4));
+        Assert.assertNotNull(p.solve(ps, i));
+        Assert.assertFalse(values.isEmpty());
+        //Only improving solutions
+        for (int x = 1; x < values.size(); x++) {
+            Assert.assertTrue(values.get(x) < values.get(x - 1));
+        }
+        //The listeners are not copied into the variants
+        Assert.assertEquals(ps.solutionListeners().size(), 1);
+    }
+
+    @Test
+    public void testNoSolution() throws SchedulerException {
+        Instance i = makeInstance();
+        //A VM cannot be both running on an offline node
+        VM v = i.getModel().getMapping().getReadyVMs().iterator().next();
+        i.getSatConstraints().add(new Fence(v, new Node(0)));
+        Portfolio p = new Portfolio(Portfolio.defaultVariants(2));
+        Assert.assertNull(p.solve(new DefaultParameters(), i));
+        Assert.assertTrue(p.getStatistics().completed());
+    }
+}